@@ -24,6 +24,7 @@ export default function ActiveQueue({ onNotify, workspaceId }) {
     try {
       const response = await fetch(
         `http://localhost:8080/api/orders/queue?workspaceId=${workspaceId}`,
+        { cache: "no-cache" }, // revalidate with If-None-Match, server answers 304 when unchanged
       );
       if (response.ok) {
         const data = await response.json();
@@ -38,21 +39,28 @@ export default function ActiveQueue({ onNotify, workspaceId }) {
     }
   }, [workspaceId]);
 
+  // Live updates: the server pushes a snapshot, then a delta for every queue change.
+  // Deltas just trigger a conditional re-fetch so the server stays the single source of ordering.
+  // EventSource reconnects on its own and resumes from the last event id it saw.
   useEffect(() => {
-    fetchQueue();
-    const interval = setInterval(fetchQueue, 5000);
-    return () => clearInterval(interval);
-  }, [fetchQueue]);
+    if (!workspaceId) return;
+    const source = new EventSource(
+      `http://localhost:8080/api/orders/stream?workspaceId=${workspaceId}`,
+    );
+    source.addEventListener("snapshot", (event) => {
+      setOrders(JSON.parse(event.data).orders);
+      setIsLoading(false);
+    });
+    source.addEventListener("delta", () => fetchQueue());
+    source.onerror = () => console.warn("Queue stream interrupted, reconnecting...");
+    return () => source.close();
+  }, [workspaceId, fetchQueue]);
 
   const handleComplete = async (order) => {
     try {
       const response = await fetch(
-        "http://localhost:8080/api/orders/complete",
-        {
-          method: "POST",
-          headers: { "Content-Type": "application/json" },
-          body: JSON.stringify(order),
-        },
+        `http://localhost:8080/api/orders/${order.id}/complete?workspaceId=${workspaceId}`,
+        { method: "POST" },
       );
 
       if (response.ok) {
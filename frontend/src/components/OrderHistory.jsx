@@ -1,8 +1,11 @@
 import React, { useEffect, useState } from 'react';
 
+const PAGE_SIZE = 50;
+
 export default function OrderHistory({ workspaceId, refreshTrigger, onUndoSuccess }) {
   const [history, setHistory] = useState([]);
   const [menu, setMenu] = useState([]);
+  const [hasMore, setHasMore] = useState(false);
 
   // Fetch the menu to retrieve dish images
   const fetchMenu = async () => {
@@ -16,18 +19,33 @@ export default function OrderHistory({ workspaceId, refreshTrigger, onUndoSucces
     }
   };
 
-  // Fetch completed orders from the Custom DLL history
+  // Fetch completed orders from the Custom DLL history (newest first, one page at a time)
   const fetchHistory = async () => {
     if (!workspaceId) return;
     try {
-      const res = await fetch(`http://localhost:8080/api/orders/history?workspaceId=${workspaceId}`);
+      const res = await fetch(`http://localhost:8080/api/orders/history?workspaceId=${workspaceId}&limit=${PAGE_SIZE}`);
       const data = await res.json();
       setHistory(data);
+      setHasMore(data.length === PAGE_SIZE);
     } catch (err) {
       console.error("Error fetching history:", err);
     }
   };
 
+  // Older pages continue from the last order we already have
+  const loadOlder = async () => {
+    if (history.length === 0) return;
+    const beforeId = history[history.length - 1].id;
+    try {
+      const res = await fetch(`http://localhost:8080/api/orders/history?workspaceId=${workspaceId}&limit=${PAGE_SIZE}&beforeId=${beforeId}`);
+      const data = await res.json();
+      setHistory((prev) => [...prev, ...data]);
+      setHasMore(data.length === PAGE_SIZE);
+    } catch (err) {
+      console.error("Error fetching older history:", err);
+    }
+  };
+
   // Move order from history back to the active priority queue
   const handleUndo = async () => {
     try {
@@ -80,7 +98,7 @@ export default function OrderHistory({ workspaceId, refreshTrigger, onUndoSucces
           </div>
         ) : (
           <div className="space-y-2.5">
-            {[...history].reverse().map((order) => {
+            {history.map((order) => {
               const dish = menu.find((d) => d.name === order.dishName);
               return (
                 <div 
@@ -119,6 +137,14 @@ export default function OrderHistory({ workspaceId, refreshTrigger, onUndoSucces
                 </div>
               );
             })}
+            {hasMore && (
+              <button
+                onClick={loadOlder}
+                className="w-full text-[10px] font-bold uppercase tracking-widest text-slate-500 hover:text-slate-300 py-2"
+              >
+                Load older
+              </button>
+            )}
           </div>
         )}
       </div>
@@ -0,0 +1,120 @@
+package com.chefsbrain.scheduling_engine.benchmark;
+
+import com.chefsbrain.scheduling_engine.config.KitchenThreads;
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.model.Workspace;
+import com.chefsbrain.scheduling_engine.model.SchedulingPolicyType;
+import com.chefsbrain.scheduling_engine.repository.DishRepository;
+import com.chefsbrain.scheduling_engine.repository.OrderRepository;
+import com.chefsbrain.scheduling_engine.repository.WorkspaceRepository;
+import com.chefsbrain.scheduling_engine.service.KitchenServiceImpl;
+import com.chefsbrain.scheduling_engine.service.analytics.KitchenAnalytics;
+import com.chefsbrain.scheduling_engine.service.events.QueueEventBroadcaster;
+import com.chefsbrain.scheduling_engine.service.learning.PrepTimeLearner;
+import com.chefsbrain.scheduling_engine.service.menu.MenuCache;
+import com.chefsbrain.scheduling_engine.service.metrics.KitchenMetrics;
+import com.chefsbrain.scheduling_engine.service.persistence.OrderPersistence;
+import com.chefsbrain.scheduling_engine.service.policy.SchedulingPolicies;
+import com.chefsbrain.scheduling_engine.service.stations.StationScheduler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds a KitchenServiceImpl wired to in-memory stand-ins for the repositories, so the benchmarks
+ * measure the scheduling structures rather than a database.
+ */
+public final class BenchmarkFixtures {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 18, 0);
+
+    private BenchmarkFixtures() {
+    }
+
+    public static KitchenServiceImpl kitchenService(int historyCapacity) {
+        AtomicLong ids = new AtomicLong();
+        OrderRepository orderRepository = repository(OrderRepository.class, ids);
+        DishRepository dishRepository = repository(DishRepository.class, ids);
+        WorkspaceRepository workspaceRepository = repository(WorkspaceRepository.class, ids);
+
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        MenuCache menuCache = new MenuCache(dishRepository, workspaceRepository, objectMapper, null);
+        PrepTimeLearner learner = new PrepTimeLearner(dishRepository, null, menuCache);
+        SchedulingPolicies policies = new SchedulingPolicies(workspaceRepository, SchedulingPolicyType.STRICT_VIP, 10, 1.5, 1.2, 5);
+        StationScheduler stations = new StationScheduler(workspaceRepository, 3);
+        OrderPersistence persistence = new OrderPersistence(orderRepository, null, Optional.empty(), Optional.empty());
+
+        KitchenServiceImpl service = new KitchenServiceImpl(orderRepository, learner, menuCache, policies, stations,
+                new QueueEventBroadcaster(objectMapper, KitchenThreads.platform()), persistence, new KitchenMetrics(new SimpleMeterRegistry()),
+                new KitchenAnalytics(null, null, null)); // Never flushed in a benchmark
+        ReflectionTestUtils.setField(service, "historyCapacity", historyCapacity);
+        return service;
+    }
+
+    // A new, unsaved order for workspace 1; roughly one in ten is VIP
+    public static Order newOrder(Random random) {
+        Order order = new Order();
+        order.setWorkspaceId(1L);
+        order.setTableNumber(1 + random.nextInt(40));
+        order.setDishName("Dish");
+        order.setDishId(null);
+        order.setQuantity(1);
+        order.setPrepTimeMinutes(3 + random.nextInt(25));
+        order.setVip(random.nextInt(10) == 0);
+        order.setOrderPlacedTime(BASE.plusSeconds(random.nextInt(3_600)));
+        return order;
+    }
+
+    // A queued-looking order with an id, for the data structure benchmarks
+    public static Order queuedOrder(long id, Random random) {
+        Order order = newOrder(random);
+        order.setId(id);
+        order.setCalculatedStartTime(order.getOrderPlacedTime().plusMinutes(order.getPrepTimeMinutes()));
+        return order;
+    }
+
+    private static Workspace workspace(Long id) {
+        Workspace workspace = new Workspace();
+        workspace.setId(id);
+        return workspace;
+    }
+
+    /**
+     * Repository stand-in: save() assigns an id and returns its argument, every workspace exists with
+     * default settings, every other method returns an empty value of its return type.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T repository(Class<T> type, AtomicLong ids) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.equals("save") && args[0] instanceof Order order) {
+                if (order.getId() == null) order.setId(ids.incrementAndGet());
+                return order;
+            }
+            if (name.equals("save")) return args[0];
+            if (name.equals("findById") && type == WorkspaceRepository.class) return Optional.of(workspace((Long) args[0]));
+            if (name.equals("existsById") && type == WorkspaceRepository.class) return true;
+            if (name.equals("toString")) return type.getSimpleName() + " stand-in";
+            if (name.equals("hashCode")) return System.identityHashCode(proxy);
+            if (name.equals("equals")) return proxy == args[0];
+            Class<?> returnType = method.getReturnType();
+            if (returnType == Optional.class) return Optional.empty();
+            if (returnType == List.class || returnType == Iterable.class) return List.of();
+            if (returnType == Set.class) return Set.of();
+            if (returnType == Map.class) return Map.of();
+            if (returnType == boolean.class) return false;
+            if (returnType == int.class) return 0;
+            if (returnType == long.class) return 0L;
+            return null;
+        });
+    }
+}
@@ -0,0 +1,95 @@
+package com.chefsbrain.scheduling_engine.benchmark;
+
+import com.chefsbrain.scheduling_engine.dto.OrderView;
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.service.KitchenServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * KitchenServiceImpl add / peek / complete / getActiveQueue with a workspace queue held at a fixed depth.
+ * The *Contended variants run the same operation from 4 threads against one workspace (one lock).
+ *
+ * mvn -P benchmarks test-compile exec:exec -Djmh.args="KitchenServiceBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KitchenServiceBenchmark {
+
+    private static final Long WORKSPACE = 1L;
+
+    @Param({"10", "1000", "100000"})
+    public int depth;
+
+    private KitchenServiceImpl service;
+
+    @Setup
+    public void fillQueue() {
+        service = BenchmarkFixtures.kitchenService(200);
+        Random random = new Random(42);
+        for (int i = 0; i < depth; i++) {
+            service.addOrderToQueue(BenchmarkFixtures.newOrder(random));
+        }
+    }
+
+    // Place one order and complete the most urgent one, so the depth stays constant
+    private Order addThenCompleteNext() {
+        service.addOrderToQueue(BenchmarkFixtures.newOrder(ThreadLocalRandom.current()));
+        Order next = service.getNextUrgentTask(WORKSPACE);
+        return next == null ? null : service.completeOrder(WORKSPACE, next.getId());
+    }
+
+    @Benchmark
+    public Order addThenComplete() {
+        return addThenCompleteNext();
+    }
+
+    @Benchmark
+    public Order peek() {
+        return service.getNextUrgentTask(WORKSPACE);
+    }
+
+    // Unchanged queue: served from the cached snapshot
+    @Benchmark
+    public List<OrderView> getActiveQueueUnchanged() {
+        return service.getActiveQueue(WORKSPACE);
+    }
+
+    // Every read follows a change, so every read rebuilds the sorted snapshot
+    @Benchmark
+    public List<OrderView> addCompleteThenGetActiveQueue() {
+        addThenCompleteNext();
+        return service.getActiveQueue(WORKSPACE);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Order addThenCompleteContended() {
+        return addThenCompleteNext();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Order peekContended() {
+        return service.getNextUrgentTask(WORKSPACE);
+    }
+}
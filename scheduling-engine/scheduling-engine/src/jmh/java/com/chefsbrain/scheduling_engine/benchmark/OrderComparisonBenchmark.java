@@ -0,0 +1,86 @@
+package com.chefsbrain.scheduling_engine.benchmark;
+
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.model.SchedulingPolicyType;
+import com.chefsbrain.scheduling_engine.service.policy.SchedulingPolicies;
+import com.chefsbrain.scheduling_engine.service.policy.SchedulingPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one priority comparison: Order.compareTo, each scheduling policy's comparator, and the
+ * packed (key, id) comparison the heap does on every sift level; plus computing one policy key,
+ * which the heap does once per add or reprioritize.
+ * Pairs are drawn from a pre-built array so the comparison, not allocation, is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderComparisonBenchmark {
+
+    private static final int ORDERS = 1024;
+
+    @Param({"STRICT_VIP", "AGING", "WEIGHTED_SLACK"})
+    public SchedulingPolicyType policy;
+
+    private final Order[] orders = new Order[ORDERS];
+    private SchedulingPolicy schedulingPolicy;
+    private Comparator<Order> comparator;
+    private final long[] keys = new long[ORDERS];
+    private final long[] ids = new long[ORDERS];
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        for (int i = 0; i < ORDERS; i++) {
+            orders[i] = BenchmarkFixtures.queuedOrder(i + 1, random);
+        }
+        schedulingPolicy = new SchedulingPolicies(null, SchedulingPolicyType.STRICT_VIP, 10, 1.5, 1.2, 5).get(policy);
+        comparator = schedulingPolicy.comparator();
+        for (int i = 0; i < ORDERS; i++) {
+            keys[i] = schedulingPolicy.priorityKey(orders[i]);
+            ids[i] = orders[i].getId();
+        }
+    }
+
+    @Benchmark
+    public int compareTo() {
+        int i = cursor++ & (ORDERS - 1);
+        return orders[i].compareTo(orders[(i + 1) & (ORDERS - 1)]);
+    }
+
+    @Benchmark
+    public int policyComparator() {
+        int i = cursor++ & (ORDERS - 1);
+        return comparator.compare(orders[i], orders[(i + 1) & (ORDERS - 1)]);
+    }
+
+    @Benchmark
+    public boolean packedKeys() {
+        int i = cursor++ & (ORDERS - 1);
+        int j = (i + 1) & (ORDERS - 1);
+        return keys[i] < keys[j] || (keys[i] == keys[j] && ids[i] < ids[j]);
+    }
+
+    @Benchmark
+    public long priorityKey() {
+        return schedulingPolicy.priorityKey(orders[cursor++ & (ORDERS - 1)]);
+    }
+}
@@ -0,0 +1,80 @@
+package com.chefsbrain.scheduling_engine.benchmark;
+
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.service.history.CustomOrderHistory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CustomOrderHistory at a given fill level: complete (addLast, evicting the oldest once full),
+ * undo (removeLast + addLast back), targeted undo of an order in the middle (remove by id + addLast back)
+ * and a full read (getAll).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderHistoryBenchmark {
+
+    @Param({"10", "200", "10000"})
+    public int size;
+
+    private CustomOrderHistory history;
+    private Order extra;
+    private Long middleId;
+
+    @Setup
+    public void fill() {
+        history = new CustomOrderHistory(size);
+        Random random = new Random(3);
+        for (int i = 0; i < size; i++) {
+            history.addLast(BenchmarkFixtures.queuedOrder(i + 1, random));
+        }
+        extra = BenchmarkFixtures.queuedOrder(size + 1, random);
+        middleId = (long) (size / 2 + 1);
+    }
+
+    // Full list: every completion evicts the oldest entry
+    @Benchmark
+    public Order addLast() {
+        Order evicted = history.addLast(extra);
+        extra = evicted;
+        return evicted;
+    }
+
+    @Benchmark
+    public Order removeLastThenAddBack() {
+        Order last = history.removeLast();
+        history.addLast(last);
+        return last;
+    }
+
+    // Cycles through the newer half: the order taken out is always the one in the middle of the list
+    @Benchmark
+    public Order removeByIdThenAddBack() {
+        Order order = history.remove(middleId);
+        history.addLast(order);
+        middleId = middleId == size ? size / 2 + 1 : middleId + 1;
+        return order;
+    }
+
+    @Benchmark
+    public List<Order> getAll() {
+        return history.getAll();
+    }
+}
@@ -0,0 +1,103 @@
+package com.chefsbrain.scheduling_engine.service.menu;
+
+import com.chefsbrain.scheduling_engine.model.Dish;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The allergy check behind DishController: the precompiled AllergenIndex (encode the customer's list
+ * once, then one intersection per dish) against the per-request HashMap the controller used to build.
+ * Lives in the menu package because MenuSnapshot's constructor is package-private.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AllergyCheckBenchmark {
+
+    private static final String[] INGREDIENTS = {
+            "Dairy", "Gluten", "Eggs", "Peanuts", "Nuts", "Shellfish", "Soy", "Fish", "Sesame", "Garlic",
+            "Tomatoes", "Rice", "Meat", "Chicken", "Pepper", "Sugar", "Chocolate", "Melon", "Berries", "Lettuce"
+    };
+
+    @Param({"10", "200"})
+    public int menuSize;
+
+    // Dishes in one cart
+    @Param({"1", "8"})
+    public int cartSize;
+
+    private MenuSnapshot menu;
+    private List<Long> cart;
+    private List<String> customerAllergies;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(11);
+        List<Dish> dishes = new ArrayList<>();
+        for (long id = 1; id <= menuSize; id++) {
+            List<String> ingredients = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                ingredients.add(INGREDIENTS[random.nextInt(INGREDIENTS.length)]);
+            }
+            dishes.add(new Dish(id, "Dish " + id, 10, null, ingredients, Map.of(), 1L));
+        }
+        menu = new MenuSnapshot(1L, dishes, new byte[0]);
+        cart = new ArrayList<>();
+        for (int i = 0; i < cartSize; i++) {
+            cart.add(1L + random.nextInt(menuSize));
+        }
+        customerAllergies = List.of(" peanuts", "SHELLFISH", "Kiwi");
+    }
+
+    @Benchmark
+    public int allergenIndex() {
+        AllergenIndex index = menu.getAllergenIndex();
+        BitSet allergies = index.encode(customerAllergies);
+        int conflicts = 0;
+        for (Long dishId : cart) {
+            if (index.conflicts(dishId, allergies)) conflicts++;
+        }
+        return conflicts;
+    }
+
+    // What reportCustomerAllergies did per dish before the index existed
+    @Benchmark
+    public int perRequestHashMap() {
+        int conflicts = 0;
+        for (Long dishId : cart) {
+            HashMap<String, String> allergyStatusMap = new HashMap<>();
+            for (String allergicIng : customerAllergies) {
+                if (allergicIng != null && !allergicIng.trim().isEmpty()) {
+                    allergyStatusMap.put(allergicIng.trim().toLowerCase(), "ALLERGIC");
+                }
+            }
+            for (String ingredient : menu.getDish(dishId).getIngredients()) {
+                if ("ALLERGIC".equals(allergyStatusMap.getOrDefault(ingredient.trim().toLowerCase(), "SAFE"))) {
+                    conflicts++;
+                    break;
+                }
+            }
+        }
+        return conflicts;
+    }
+}
@@ -0,0 +1,510 @@
+package com.chefsbrain.scheduling_engine.loadtest;
+
+import com.chefsbrain.scheduling_engine.SchedulingEngineApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Dinner-rush load generator for the order API.
+ *
+ * Replays a service across many workspaces at once:
+ *  - waiters place orders (POST /api/orders) at a target rate, with a burst at the start of service,
+ *  - kitchen screens poll /queue (with If-None-Match) and /next at a fixed interval,
+ *  - one chef per workspace completes the most urgent order and occasionally undoes it.
+ *
+ * Prints p50/p99/p99.9/max latency and throughput per endpoint (HdrHistogram), and checks the queues:
+ * every /queue response must be correctly ordered without duplicates, a completed order must not come
+ * back unless it was undone, and at the end each queue must hold exactly the orders placed and not completed.
+ *
+ * Without --target it boots the application in-process on an in-memory H2 database. Pass --jdbc-url
+ * (plus --jdbc-user/--jdbc-password) to boot it against a local Postgres instead, or --target=http://host:port
+ * to load a server that is already running.
+ *
+ * --db-latency-ms adds a fixed round trip to every statement of the in-process database (a remote Postgres),
+ * --server-threads caps Tomcat's pool and --virtual-threads=true boots it with spring.threads.virtual.enabled.
+ * --compare-threading=true runs the same rush twice, on platform threads then on virtual threads (Java 21),
+ * and prints the throughput of both. The second run starts on a warmed-up JIT, so use a --duration long
+ * enough for that not to matter (a minute or more).
+ *
+ *   mvn -P load-simulator test-compile exec:exec -Dsim.args="--workspaces=20 --duration=60 --orders-per-second=200"
+ *   mvn -P java21,load-simulator test-compile exec:exec -Dsim.args="--compare-threading=true --db-latency-ms=20 --server-threads=50"
+ */
+public final class DinnerRushSimulator {
+
+    private final Options options;
+    private final HttpClient http;
+    private final ObjectMapper json = new ObjectMapper();
+    private final EndpointStats stats = new EndpointStats();
+    private final AtomicBoolean running = new AtomicBoolean(true);
+    private final List<String> inconsistencies = Collections.synchronizedList(new ArrayList<>());
+    private final LongAdder inconsistencyCount = new LongAdder();
+    private final Map<Long, Workspace> workspaces = new HashMap<>();
+    private String baseUrl;
+
+    private DinnerRushSimulator(Options options) {
+        this.options = options;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(options.httpThreads))
+                .build();
+        for (long id = options.firstWorkspace; id < options.firstWorkspace + options.workspaces; id++) {
+            workspaces.put(id, new Workspace(id));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        boolean consistent = options.compareThreading ? compareThreading(options) : runOnce(options).consistent();
+        System.exit(consistent ? 0 : 1);
+    }
+
+    private static Result runOnce(Options options) throws InterruptedException {
+        DinnerRushSimulator simulator = new DinnerRushSimulator(options);
+        ConfigurableApplicationContext app = options.target == null ? startApplication(options) : null;
+        try {
+            simulator.baseUrl = options.target != null ? options.target
+                    : "http://localhost:" + ((WebServerApplicationContext) app).getWebServer().getPort();
+            return simulator.run();
+        } finally {
+            if (app != null) app.close();
+        }
+    }
+
+    private static boolean compareThreading(Options options) throws InterruptedException {
+        if (options.target != null) {
+            throw new IllegalArgumentException("--compare-threading boots the application itself; drop --target");
+        }
+        if (Runtime.version().feature() < 21) {
+            System.out.printf("Java %d has no virtual threads: both runs will use platform threads%n",
+                    Runtime.version().feature());
+        }
+        options.virtualThreads = false;
+        Result platform = runOnce(options);
+        // Fresh workspaces, so the second run doesn't restore the first one's queues (with a persistent --jdbc-url)
+        options.firstWorkspace += options.workspaces;
+        options.virtualThreads = true;
+        Result virtual = runOnce(options);
+
+        System.out.printf("%n%-16s %9s %9s %8s %14s %14s%n", "threads", "requests", "req/s", "errors",
+                "orders p99 ms", "queue p99 ms");
+        for (Result result : List.of(platform, virtual)) {
+            System.out.printf("%-16s %9d %9.1f %8d %14.2f %14.2f%n", result.label(), result.requests(),
+                    result.requests() / result.seconds(), result.errors(), result.placeP99Millis(), result.queueP99Millis());
+        }
+        return platform.consistent() && virtual.consistent();
+    }
+
+    private static ConfigurableApplicationContext startApplication(Options options) {
+        // devtools (on the test classpath) would otherwise relaunch main() in a restart class loader
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.profiles.active=dev",
+                "--spring.jpa.show-sql=false",
+                // One database per run, so a --compare-threading run starts as empty as the first one
+                "--spring.datasource.url=" + (options.jdbcUrl != null ? options.jdbcUrl
+                        : "jdbc:h2:mem:dinner-rush-" + options.firstWorkspace + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"),
+                "--spring.datasource.username=" + options.jdbcUser,
+                "--spring.datasource.password=" + options.jdbcPassword,
+                "--kitchen.persistence.write-behind=" + options.writeBehind,
+                "--spring.threads.virtual.enabled=" + options.virtualThreads));
+        if (options.jdbcUrl == null) {
+            args.add("--spring.datasource.driver-class-name=org.h2.Driver");
+            args.add("--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect");
+        }
+        if (options.serverThreads > 0) {
+            args.add("--server.tomcat.threads.max=" + options.serverThreads);
+        }
+        if (options.dbPoolSize > 0) {
+            args.add("--spring.datasource.hikari.maximum-pool-size=" + options.dbPoolSize);
+        }
+        SpringApplication application = new SpringApplication(SchedulingEngineApplication.class);
+        if (options.dbLatencyMillis > 0) {
+            application.addInitializers(context ->
+                    context.getBeanFactory().addBeanPostProcessor(new SimulatedDbLatency(options.dbLatencyMillis)));
+        }
+        return application.run(args.toArray(new String[0]));
+    }
+
+    private Result run() throws InterruptedException {
+        String label = options.target != null ? "remote" : options.virtualThreads ? "virtual" : "platform";
+        System.out.printf("Dinner rush against %s (%s threads): %d workspaces, %d s, %d orders/s (x%.1f burst for the first %d s), "
+                        + "%d screens per workspace every %d ms%n",
+                baseUrl, label, options.workspaces, options.durationSeconds, options.ordersPerSecond, options.burstFactor,
+                options.burstSeconds, options.screensPerWorkspace, options.pollMillis);
+
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(options.workerThreads);
+        ExecutorService chefs = Executors.newFixedThreadPool(options.workspaces);
+        long started = System.nanoTime();
+
+        // Waiters: a token bucket topped up every 10 ms spreads orders over the workspaces
+        double[] tokens = {0};
+        scheduler.scheduleAtFixedRate(() -> {
+            double elapsed = (System.nanoTime() - started) / 1e9;
+            double rate = options.ordersPerSecond * (elapsed < options.burstSeconds ? options.burstFactor : 1.0);
+            tokens[0] += rate / 100.0;
+            while (tokens[0] >= 1 && running.get()) {
+                tokens[0] -= 1;
+                Workspace workspace = randomWorkspace();
+                scheduler.execute(() -> placeOrder(workspace));
+            }
+        }, 0, 10, TimeUnit.MILLISECONDS);
+
+        // Kitchen screens
+        for (Workspace workspace : workspaces.values()) {
+            for (int s = 0; s < options.screensPerWorkspace; s++) {
+                Screen screen = new Screen(workspace);
+                long offset = ThreadLocalRandom.current().nextLong(options.pollMillis);
+                scheduler.scheduleAtFixedRate(screen::poll, offset, options.pollMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        // One chef per workspace, so the chef's own record of completions mirrors the server's history
+        for (Workspace workspace : workspaces.values()) {
+            chefs.execute(() -> cook(workspace));
+        }
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(options.durationSeconds));
+        running.set(false);
+        scheduler.shutdown();
+        chefs.shutdown();
+        scheduler.awaitTermination(30, TimeUnit.SECONDS);
+        chefs.awaitTermination(30, TimeUnit.SECONDS);
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        reconcile();
+
+        System.out.println();
+        stats.print(System.out, seconds);
+        long placed = workspaces.values().stream().mapToLong(w -> w.placed.size()).sum();
+        System.out.printf("%nOrders placed: %d (%.1f/s), completions: %d, undos: %d%n",
+                placed, placed / seconds, workspaces.values().stream().mapToLong(w -> w.completions.sum()).sum(),
+                workspaces.values().stream().mapToLong(w -> w.undos.sum()).sum());
+        boolean consistent = inconsistencyCount.sum() == 0;
+        if (consistent) {
+            System.out.println("Queue consistency: OK");
+        } else {
+            System.out.printf("Queue consistency: %d problem(s), first ones:%n", inconsistencyCount.sum());
+            synchronized (inconsistencies) {
+                inconsistencies.forEach(problem -> System.out.println("  " + problem));
+            }
+        }
+        return new Result(label, consistent, seconds, stats.totalRequests(), stats.totalErrors(),
+                stats.percentileMillis("POST /orders", 99), stats.percentileMillis("GET /queue", 99));
+    }
+
+    private record Result(String label, boolean consistent, double seconds, long requests, long errors,
+                          double placeP99Millis, double queueP99Millis) {
+    }
+
+    // --- Actors ---
+
+    private void placeOrder(Workspace workspace) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String body = String.format("{\"tableNumber\":%d,\"dishName\":\"Rush dish\",\"prepTimeMinutes\":%d,\"quantity\":1,"
+                        + "\"workspaceId\":%d,\"isVip\":%b}",
+                1 + random.nextInt(30), 3 + random.nextInt(25), workspace.id, random.nextInt(10) == 0);
+        HttpResponse<String> response = send("POST /orders", post("/api/orders", body), 0);
+        if (response != null && response.statusCode() == 200) {
+            Long id = readId(response.body());
+            if (id != null) workspace.placed.add(id);
+        }
+    }
+
+    private final class Screen {
+        private final Workspace workspace;
+        private String etag;
+
+        Screen(Workspace workspace) {
+            this.workspace = workspace;
+        }
+
+        void poll() {
+            if (!running.get()) return;
+            long interval = TimeUnit.MILLISECONDS.toMicros(options.pollMillis);
+            HttpRequest.Builder queue = get("/api/orders/queue?workspaceId=" + workspace.id);
+            if (etag != null) queue.header("If-None-Match", etag);
+            HttpResponse<String> response = send("GET /queue", queue, interval);
+            if (response != null && response.statusCode() == 200) {
+                etag = response.headers().firstValue("ETag").orElse(null);
+                checkQueue(workspace, response.body(), Set.of());
+            }
+            send("GET /next", get("/api/orders/next?workspaceId=" + workspace.id), interval);
+        }
+    }
+
+    private void cook(Workspace workspace) {
+        Deque<Long> completedByMe = new ArrayDeque<>();
+        Set<Long> done = new HashSet<>();
+        while (running.get()) {
+            sleep(options.chefMillis);
+            HttpResponse<String> next = send("GET /next", get("/api/orders/next?workspaceId=" + workspace.id), 0);
+            if (next == null || next.statusCode() != 200) continue;
+            Long id = readId(next.body());
+            if (id == null) continue;
+
+            HttpResponse<String> completed = send("POST /{id}/complete",
+                    post("/api/orders/" + id + "/complete?workspaceId=" + workspace.id, ""), 0);
+            if (completed == null) continue;
+            if (completed.statusCode() != 200) {
+                inconsistency("workspace %d: /next returned order %d but completing it answered %d",
+                        workspace.id, id, completed.statusCode());
+                continue;
+            }
+            completedByMe.push(id);
+            done.add(id);
+            workspace.completed.add(id);
+            workspace.completions.increment();
+
+            if (ThreadLocalRandom.current().nextInt(100) < options.undoPercent) {
+                HttpResponse<String> undo = send("POST /undo", post("/api/orders/undo?workspaceId=" + workspace.id, ""), 0);
+                if (undo != null && undo.statusCode() == 200) {
+                    Long undone = completedByMe.pop();
+                    done.remove(undone);
+                    workspace.completed.remove(undone);
+                    workspace.undos.increment();
+                }
+            }
+
+            // The chef's own view: nothing it completed (and didn't undo) may still be queued
+            HttpResponse<String> queue = send("GET /queue", get("/api/orders/queue?workspaceId=" + workspace.id), 0);
+            if (queue != null && queue.statusCode() == 200) {
+                checkQueue(workspace, queue.body(), done);
+            }
+        }
+    }
+
+    // --- Consistency checks ---
+
+    private void checkQueue(Workspace workspace, String body, Set<Long> mustBeAbsent) {
+        JsonNode orders = readTree(body);
+        if (orders == null || !orders.isArray()) {
+            inconsistency("workspace %d: /queue did not return a list", workspace.id);
+            return;
+        }
+        Set<Long> seen = new HashSet<>();
+        JsonNode previous = null;
+        for (JsonNode order : orders) {
+            long id = order.path("id").asLong();
+            if (!seen.add(id)) {
+                inconsistency("workspace %d: order %d is queued twice", workspace.id, id);
+            }
+            if (mustBeAbsent.contains(id)) {
+                inconsistency("workspace %d: completed order %d is still in the queue", workspace.id, id);
+            }
+            if (order.path("workspaceId").asLong() != workspace.id) {
+                inconsistency("workspace %d: order %d of workspace %d leaked into the queue",
+                        workspace.id, id, order.path("workspaceId").asLong());
+            }
+            if (previous != null && options.checkOrdering && compareStrictVip(previous, order) > 0) {
+                inconsistency("workspace %d: order %d is listed before the more urgent order %d",
+                        workspace.id, previous.path("id").asLong(), id);
+            }
+            previous = order;
+        }
+    }
+
+    // The default STRICT_VIP ordering: VIP first, then the earliest calculatedStartTime
+    private static int compareStrictVip(JsonNode a, JsonNode b) {
+        boolean vipA = a.path("isVip").asBoolean();
+        boolean vipB = b.path("isVip").asBoolean();
+        if (vipA != vipB) return vipA ? -1 : 1;
+        return LocalDateTime.parse(a.path("calculatedStartTime").asText())
+                .compareTo(LocalDateTime.parse(b.path("calculatedStartTime").asText()));
+    }
+
+    // After the run: each queue must hold exactly what was placed and not (net) completed
+    private void reconcile() {
+        for (Workspace workspace : workspaces.values()) {
+            HttpResponse<String> response = send("GET /queue", get("/api/orders/queue?workspaceId=" + workspace.id), 0);
+            if (response == null || response.statusCode() != 200) {
+                inconsistency("workspace %d: final /queue failed", workspace.id);
+                continue;
+            }
+            Set<Long> actual = new HashSet<>();
+            readTree(response.body()).forEach(order -> actual.add(order.path("id").asLong()));
+            Set<Long> expected = new HashSet<>(workspace.placed);
+            expected.removeAll(workspace.completed);
+
+            Set<Long> missing = new HashSet<>(expected);
+            missing.removeAll(actual);
+            Set<Long> unexpected = new HashSet<>(actual);
+            unexpected.removeAll(expected);
+            if (!missing.isEmpty()) {
+                inconsistency("workspace %d: %d placed order(s) missing from the final queue, e.g. %s",
+                        workspace.id, missing.size(), missing.iterator().next());
+            }
+            if (!unexpected.isEmpty()) {
+                inconsistency("workspace %d: %d order(s) in the final queue that were completed or never placed, e.g. %s",
+                        workspace.id, unexpected.size(), unexpected.iterator().next());
+            }
+        }
+    }
+
+    private void inconsistency(String format, Object... args) {
+        inconsistencyCount.increment();
+        if (inconsistencies.size() < 20) inconsistencies.add(String.format(format, args));
+    }
+
+    // --- HTTP helpers ---
+
+    private HttpResponse<String> send(String endpoint, HttpRequest.Builder request, long expectedIntervalMicros) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = http.send(request.timeout(Duration.ofSeconds(30)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            int status = response.statusCode();
+            boolean ok = status < 400 || (endpoint.equals("POST /{id}/complete") && status == 404);
+            stats.record(endpoint, start, ok, expectedIntervalMicros);
+            return response;
+        } catch (Exception e) {
+            stats.record(endpoint, start, false, expectedIntervalMicros);
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET();
+    }
+
+    private HttpRequest.Builder post(String path, String body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+    }
+
+    private JsonNode readTree(String body) {
+        try {
+            return json.readTree(body);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private Long readId(String body) {
+        JsonNode node = readTree(body);
+        return node == null || !node.hasNonNull("id") ? null : node.get("id").asLong();
+    }
+
+    private Workspace randomWorkspace() {
+        long id = options.firstWorkspace + ThreadLocalRandom.current().nextInt(options.workspaces);
+        return workspaces.get(id);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class Workspace {
+        final long id;
+        final Set<Long> placed = ConcurrentHashMap.newKeySet();
+        final Set<Long> completed = ConcurrentHashMap.newKeySet();
+        final LongAdder completions = new LongAdder();
+        final LongAdder undos = new LongAdder();
+
+        Workspace(long id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * Command line options, all as --name=value.
+     */
+    static final class Options {
+        String target;
+        String jdbcUrl;
+        String jdbcUser = "sa";
+        String jdbcPassword = "";
+        boolean writeBehind;
+        long firstWorkspace = 1_000;
+        int workspaces = 20;
+        int durationSeconds = 30;
+        int ordersPerSecond = 100;
+        double burstFactor = 3.0;
+        int burstSeconds = 5;
+        int screensPerWorkspace = 3;
+        long pollMillis = 1_000;
+        long chefMillis = 150;
+        int undoPercent = 5;
+        int workerThreads = 32;
+        int httpThreads = 16;
+        boolean checkOrdering = true;
+        boolean virtualThreads;
+        boolean compareThreading;
+        int serverThreads;
+        int dbPoolSize;
+        long dbLatencyMillis;
+
+        static Options parse(String[] args) {
+            Options o = new Options();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("Expected --name=value, got " + arg);
+                }
+                String name = arg.substring(2, arg.indexOf('='));
+                String value = arg.substring(arg.indexOf('=') + 1);
+                switch (name) {
+                    case "target" -> o.target = value.replaceAll("/+$", "");
+                    case "jdbc-url" -> o.jdbcUrl = value;
+                    case "jdbc-user" -> o.jdbcUser = value;
+                    case "jdbc-password" -> o.jdbcPassword = value;
+                    case "write-behind" -> o.writeBehind = Boolean.parseBoolean(value);
+                    case "first-workspace" -> o.firstWorkspace = Long.parseLong(value);
+                    case "workspaces" -> o.workspaces = Integer.parseInt(value);
+                    case "duration" -> o.durationSeconds = Integer.parseInt(value);
+                    case "orders-per-second" -> o.ordersPerSecond = Integer.parseInt(value);
+                    case "burst-factor" -> o.burstFactor = Double.parseDouble(value);
+                    case "burst-seconds" -> o.burstSeconds = Integer.parseInt(value);
+                    case "screens" -> o.screensPerWorkspace = Integer.parseInt(value);
+                    case "poll-ms" -> o.pollMillis = Long.parseLong(value);
+                    case "chef-ms" -> o.chefMillis = Long.parseLong(value);
+                    case "undo-percent" -> o.undoPercent = Integer.parseInt(value);
+                    case "worker-threads" -> o.workerThreads = Integer.parseInt(value);
+                    case "http-threads" -> o.httpThreads = Integer.parseInt(value);
+                    // Turn off when the workspaces use a policy other than STRICT_VIP
+                    case "check-ordering" -> o.checkOrdering = Boolean.parseBoolean(value);
+                    case "virtual-threads" -> o.virtualThreads = Boolean.parseBoolean(value);
+                    case "compare-threading" -> o.compareThreading = Boolean.parseBoolean(value);
+                    case "server-threads" -> o.serverThreads = Integer.parseInt(value);
+                    case "db-pool" -> o.dbPoolSize = Integer.parseInt(value);
+                    case "db-latency-ms" -> o.dbLatencyMillis = Long.parseLong(value);
+                    default -> throw new IllegalArgumentException("Unknown option --" + name);
+                }
+            }
+            return o;
+        }
+    }
+}
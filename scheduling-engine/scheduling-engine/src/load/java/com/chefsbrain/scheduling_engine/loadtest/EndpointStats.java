@@ -0,0 +1,69 @@
+package com.chefsbrain.scheduling_engine.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram (microseconds, 3 significant digits) and error count per endpoint.
+ */
+final class EndpointStats {
+
+    private static final long MAX_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    void record(String endpoint, long startNanos, boolean ok) {
+        record(endpoint, startNanos, ok, 0);
+    }
+
+    /**
+     * expectedIntervalMicros > 0 back-fills the samples a fixed-rate poller would have taken while
+     * it was stuck on a slow response (HdrHistogram's coordinated omission correction).
+     */
+    void record(String endpoint, long startNanos, boolean ok, long expectedIntervalMicros) {
+        long micros = Math.min(MAX_TRACKABLE_MICROS, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+        Endpoint stats = endpoints.computeIfAbsent(endpoint, e -> new Endpoint());
+        if (expectedIntervalMicros > 0) {
+            stats.latency.recordValueWithExpectedInterval(micros, expectedIntervalMicros);
+        } else {
+            stats.latency.recordValue(micros);
+        }
+        if (!ok) stats.errors.increment();
+    }
+
+    long totalRequests() {
+        return endpoints.values().stream().mapToLong(e -> e.latency.getTotalCount()).sum();
+    }
+
+    long totalErrors() {
+        return endpoints.values().stream().mapToLong(e -> e.errors.sum()).sum();
+    }
+
+    double percentileMillis(String endpoint, double percentile) {
+        Endpoint stats = endpoints.get(endpoint);
+        return stats == null ? Double.NaN : stats.latency.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    void print(PrintStream out, double seconds) {
+        out.printf("%-28s %9s %9s %8s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "req/s", "errors", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        endpoints.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(entry -> {
+            Histogram h = entry.getValue().latency;
+            out.printf("%-28s %9d %9.1f %8d %9.2f %9.2f %9.2f %9.2f%n",
+                    entry.getKey(), h.getTotalCount(), h.getTotalCount() / seconds, entry.getValue().errors.sum(),
+                    h.getValueAtPercentile(50) / 1000.0, h.getValueAtPercentile(99) / 1000.0,
+                    h.getValueAtPercentile(99.9) / 1000.0, h.getMaxValue() / 1000.0);
+        });
+    }
+
+    private static final class Endpoint {
+        final Histogram latency = new ConcurrentHistogram(MAX_TRACKABLE_MICROS, 3);
+        final LongAdder errors = new LongAdder();
+    }
+}
@@ -0,0 +1,57 @@
+package com.chefsbrain.scheduling_engine.loadtest;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Set;
+
+/**
+ * Makes the in-process H2 database behave like a remote one: every statement execution, commit and
+ * rollback sleeps for a fixed round trip first, while holding its connection (as a real network wait would).
+ * Only used by the simulator (--db-latency-ms), to see how the request threads cope with blocking I/O.
+ */
+final class SimulatedDbLatency implements BeanPostProcessor {
+
+    private static final Set<Class<?>> WRAPPED = Set.of(Connection.class, Statement.class,
+            PreparedStatement.class, CallableStatement.class);
+
+    private final long latencyMillis;
+
+    SimulatedDbLatency(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        return bean instanceof DataSource dataSource ? wrap(DataSource.class, dataSource) : bean;
+    }
+
+    private <T> T wrap(Class<T> type, T target) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("execute") || name.equals("commit") || name.equals("rollback")) {
+                Thread.sleep(latencyMillis);
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            // Follow the connections and statements handed out, so their round trips are delayed too
+            Class<?> returned = method.getReturnType();
+            return result != null && WRAPPED.contains(returned) ? wrapAs(returned, result) : result;
+        }));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T wrapAs(Class<T> type, Object target) {
+        return wrap(type, (T) target);
+    }
+}
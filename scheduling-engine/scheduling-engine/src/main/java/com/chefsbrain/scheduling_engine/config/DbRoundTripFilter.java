@@ -0,0 +1,51 @@
+package com.chefsbrain.scheduling_engine.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Records how many database statements each API request needed, per endpoint
+ * (kitchen.db.statements{method, uri}). A rising count is usually a new N+1 query.
+ */
+@Component
+public class DbRoundTripFilter extends OncePerRequestFilter {
+
+    private final MeterRegistry registry;
+
+    public DbRoundTripFilter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        DbStatementCounter.reset();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            // The route template ("/api/orders/{id}/complete"), so ids don't become separate series
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder("kitchen.db.statements")
+                    .description("Database statements issued while handling one API request")
+                    .baseUnit("statements")
+                    .tag("method", request.getMethod())
+                    .tag("uri", pattern != null ? pattern.toString() : "UNKNOWN")
+                    .register(registry)
+                    .record(DbStatementCounter.current());
+        }
+    }
+}
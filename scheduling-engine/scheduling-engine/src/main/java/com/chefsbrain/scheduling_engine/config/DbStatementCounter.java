@@ -0,0 +1,27 @@
+package com.chefsbrain.scheduling_engine.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread.
+ * {@link DbRoundTripFilter} resets it when a request starts and records the total when it ends.
+ * Statements sent through JdbcTemplate (e.g. the write-behind flusher) aren't seen here.
+ */
+public class DbStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNT = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql; // never rewrites the statement
+    }
+
+    public static void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    public static int current() {
+        return COUNT.get()[0];
+    }
+}
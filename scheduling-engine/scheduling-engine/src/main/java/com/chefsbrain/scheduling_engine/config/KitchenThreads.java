@@ -0,0 +1,58 @@
+package com.chefsbrain.scheduling_engine.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factories for the engine's own background workers (write-behind flusher, event dispatch,
+ * warm-start recovery).
+ *
+ * With spring.threads.virtual.enabled=true on Java 21 (KITCHEN_VIRTUAL_THREADS=true) they hand out virtual
+ * threads, like Tomcat and the @Scheduled flushes do; otherwise named daemon platform threads.
+ * Work run on these threads must lock with ReentrantLock, not synchronized, so a blocking call inside
+ * a critical section doesn't pin the carrier thread.
+ */
+@Component
+public class KitchenThreads {
+
+    private final boolean virtual;
+
+    @Autowired
+    public KitchenThreads(Environment environment) {
+        this(Threading.VIRTUAL.isActive(environment));
+    }
+
+    private KitchenThreads(boolean virtual) {
+        this.virtual = virtual;
+    }
+
+    // For code constructed outside Spring (benchmarks)
+    public static KitchenThreads platform() {
+        return new KitchenThreads(false);
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Threads named prefix-1, prefix-2, ...
+     */
+    public ThreadFactory factory(String prefix) {
+        if (virtual) {
+            return new VirtualThreadTaskExecutor(prefix + "-").getVirtualThreadFactory();
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,16 @@
+package com.chefsbrain.scheduling_engine.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ObservabilityConfig {
+
+    // Lets DbRoundTripFilter count the statements each request sends
+    @Bean
+    HibernatePropertiesCustomizer statementCounter() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new DbStatementCounter());
+    }
+}
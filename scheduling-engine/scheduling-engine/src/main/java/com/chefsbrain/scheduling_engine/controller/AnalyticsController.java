@@ -0,0 +1,39 @@
+package com.chefsbrain.scheduling_engine.controller;
+
+import com.chefsbrain.scheduling_engine.service.analytics.KitchenAnalytics;
+import com.chefsbrain.scheduling_engine.service.analytics.KitchenDashboard;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+@RestController
+@RequestMapping("/api/analytics")
+@CrossOrigin(origins = {"http://localhost:5173", "http://localhost:5175"})
+public class AnalyticsController {
+
+    // 90 days of hourly buckets
+    private static final int MAX_HOURS = 24 * 90;
+
+    private final KitchenAnalytics analytics;
+
+    public AnalyticsController(KitchenAnalytics analytics) {
+        this.analytics = analytics;
+    }
+
+    /**
+     * Endpoint: GET /api/analytics/dashboard?workspaceId=1&hours=24
+     * Action: Manager's dashboard for the last `hours` hours, the current one included: orders placed and
+     *         completed, VIP share, actual vs predicted prep time and the wait for a station, in total,
+     *         per hour and per dish.
+     * Output: Answered from the hourly rollups (never from the order rows), so any range is cheap.
+     */
+    @GetMapping("/dashboard")
+    public ResponseEntity<KitchenDashboard> getDashboard(@RequestParam Long workspaceId,
+                                                         @RequestParam(defaultValue = "24") int hours) {
+        int range = Math.max(1, Math.min(hours, MAX_HOURS));
+        LocalDateTime to = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).plusHours(1);
+        return ResponseEntity.ok(analytics.dashboard(workspaceId, to.minusHours(range), to));
+    }
+}
@@ -1,13 +1,34 @@
 package com.chefsbrain.scheduling_engine.controller;
 
 import com.chefsbrain.scheduling_engine.dto.AllergyAlertDTO;  // NEW IMPORT
+import com.chefsbrain.scheduling_engine.dto.CartAllergyCheckDTO;
+import com.chefsbrain.scheduling_engine.dto.DishAllergyResultDTO;
 import com.chefsbrain.scheduling_engine.model.Dish;
 import com.chefsbrain.scheduling_engine.repository.DishRepository;
+import com.chefsbrain.scheduling_engine.service.KitchenService;
+import com.chefsbrain.scheduling_engine.service.learning.PrepTimeLearner;
+import com.chefsbrain.scheduling_engine.service.menu.AllergenIndex;
+import com.chefsbrain.scheduling_engine.service.menu.MenuBulkService;
+import com.chefsbrain.scheduling_engine.service.menu.MenuCache;
+import com.chefsbrain.scheduling_engine.service.menu.MenuImportException;
+import com.chefsbrain.scheduling_engine.service.menu.MenuSnapshot;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.HashMap;  // NEW IMPORT for HashMap
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 @RestController
@@ -15,39 +36,60 @@ import java.util.Map;
 @CrossOrigin(origins = {"http://localhost:5173", "http://localhost:5175"})
 public class DishController {
 
+    private static final Logger log = LoggerFactory.getLogger(DishController.class);
+
     private final DishRepository dishRepository;
+    private final PrepTimeLearner prepTimeLearner;
+    private final MenuCache menuCache;
+    private final KitchenService kitchenService;
+    private final MenuBulkService menuBulkService;
 
-    public DishController(DishRepository dishRepository) {
+    public DishController(DishRepository dishRepository, PrepTimeLearner prepTimeLearner, MenuCache menuCache,
+                          KitchenService kitchenService, MenuBulkService menuBulkService) {
         this.dishRepository = dishRepository;
+        this.prepTimeLearner = prepTimeLearner;
+        this.menuCache = menuCache;
+        this.kitchenService = kitchenService;
+        this.menuBulkService = menuBulkService;
     }
 
     /**
      * Endpoint: GET /api/dishes
      * Action: Frontend asks for the menu to populate the dropdown.
+     * Served from the in-memory menu cache as pre-serialized JSON; a matching If-None-Match gets a 304.
      */
     @GetMapping
-    public ResponseEntity<List<Dish>> getAllDishes(@RequestParam Long workspaceId) {
-        return ResponseEntity.ok(dishRepository.findByWorkspaceId(workspaceId));
+    public ResponseEntity<byte[]> getAllDishes(@RequestParam Long workspaceId, WebRequest request) {
+        MenuSnapshot menu = menuCache.get(workspaceId);
+        if (request.checkNotModified(menu.getEtag())) {
+            return null; // 304 Not Modified (status and ETag already set)
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(menu.getEtag())
+                .cacheControl(CacheControl.noCache()) // always revalidate, the 304 makes it cheap
+                .body(menu.getJson());
     }
 
     @PostMapping("/load-dummy")
     public ResponseEntity<String> loadDummyData(@RequestParam Long workspaceId) {
-        if (!dishRepository.findByWorkspaceId(workspaceId).isEmpty()) {
+        if (!menuCache.get(workspaceId).isEmpty()) {
             return ResponseEntity.badRequest().body("Dummy data already exists for this workspace.");
         }
 
-        // Added Map.of() as the 6th argument to satisfy the new constructor
-        dishRepository.save(new Dish(null, "Grilled Steak", 20, "https://images.unsplash.com/photo-1600891964092-4316c288032e?auto=format&fit=crop&w=800&q=80", List.of("Meat", "Pepper"), Map.of(), workspaceId));
-        dishRepository.save(new Dish(null, "Pad Thai", 12, "https://images.unsplash.com/photo-1559314809-0d155014e29e?auto=format&fit=crop&w=800&q=80", List.of("Peanuts", "Eggs", "Shrimp"), Map.of(), workspaceId));
-        dishRepository.save(new Dish(null, "Seafood Risotto", 25, "https://images.unsplash.com/photo-1534422298391-e4f8c172dddb?auto=format&fit=crop&w=800&q=80", List.of("Shellfish", "Dairy", "Rice"), Map.of(), workspaceId));
-        dishRepository.save(new Dish(null, "Chicken Parmesan", 18, "https://images.unsplash.com/photo-1632778149955-e80f8ceca2e8?auto=format&fit=crop&w=800&q=80", List.of("Chicken", "Dairy", "Gluten"), Map.of(), workspaceId));
-        dishRepository.save(new Dish(null, "Caesar Salad", 5, "https://images.unsplash.com/photo-1550304943-4f24f54ddde9?auto=format&fit=crop&w=800&q=80", List.of("Dairy", "Nuts", "Lettuce"), Map.of(), workspaceId));
-        dishRepository.save(new Dish(null, "Tomato Basil Soup", 8, "https://www.happyfoodstube.com/wp-content/uploads/2020/03/creamy-tomato-basil-soup-image.jpg", List.of("Tomatoes", "Garlic"), Map.of(), workspaceId));
-        dishRepository.save(new Dish(null, "Garlic Bread", 4, "https://static01.nyt.com/images/2018/12/11/dining/as-garlic-bread/as-garlic-bread-googleFourByThree-v2.jpg", List.of("Gluten", "Dairy", "Garlic"), Map.of(), workspaceId));
-        dishRepository.save(new Dish(null, "Chocolate Lava Cake", 15, "https://images.unsplash.com/photo-1624353365286-3f8d62daad51?auto=format&fit=crop&w=800&q=80", List.of("Dairy", "Gluten", "Chocolate", "Eggs"), Map.of(), workspaceId));
-        dishRepository.save(new Dish(null, "Tropical Fruit Platter", 6, "https://images.unsplash.com/photo-1567306301408-9b74779a11af?auto=format&fit=crop&w=800&q=80", List.of("Melon", "Berries", "Pineapple"), Map.of(), workspaceId));
-        dishRepository.save(new Dish(null, "Vanilla Sundae", 3, "https://images.unsplash.com/photo-1563805042-7684c019e1cb?auto=format&fit=crop&w=800&q=80", List.of("Dairy", "Sugar"), Map.of(), workspaceId));
-
+        // Written as one batch of inserts per table
+        menuBulkService.insertDishes(workspaceId, List.of(
+                new Dish(null, "Grilled Steak", 20, "https://images.unsplash.com/photo-1600891964092-4316c288032e?auto=format&fit=crop&w=800&q=80", List.of("Meat", "Pepper"), Map.of(), workspaceId),
+                new Dish(null, "Pad Thai", 12, "https://images.unsplash.com/photo-1559314809-0d155014e29e?auto=format&fit=crop&w=800&q=80", List.of("Peanuts", "Eggs", "Shrimp"), Map.of(), workspaceId),
+                new Dish(null, "Seafood Risotto", 25, "https://images.unsplash.com/photo-1534422298391-e4f8c172dddb?auto=format&fit=crop&w=800&q=80", List.of("Shellfish", "Dairy", "Rice"), Map.of(), workspaceId),
+                new Dish(null, "Chicken Parmesan", 18, "https://images.unsplash.com/photo-1632778149955-e80f8ceca2e8?auto=format&fit=crop&w=800&q=80", List.of("Chicken", "Dairy", "Gluten"), Map.of(), workspaceId),
+                new Dish(null, "Caesar Salad", 5, "https://images.unsplash.com/photo-1550304943-4f24f54ddde9?auto=format&fit=crop&w=800&q=80", List.of("Dairy", "Nuts", "Lettuce"), Map.of(), workspaceId),
+                new Dish(null, "Tomato Basil Soup", 8, "https://www.happyfoodstube.com/wp-content/uploads/2020/03/creamy-tomato-basil-soup-image.jpg", List.of("Tomatoes", "Garlic"), Map.of(), workspaceId),
+                new Dish(null, "Garlic Bread", 4, "https://static01.nyt.com/images/2018/12/11/dining/as-garlic-bread/as-garlic-bread-googleFourByThree-v2.jpg", List.of("Gluten", "Dairy", "Garlic"), Map.of(), workspaceId),
+                new Dish(null, "Chocolate Lava Cake", 15, "https://images.unsplash.com/photo-1624353365286-3f8d62daad51?auto=format&fit=crop&w=800&q=80", List.of("Dairy", "Gluten", "Chocolate", "Eggs"), Map.of(), workspaceId),
+                new Dish(null, "Tropical Fruit Platter", 6, "https://images.unsplash.com/photo-1567306301408-9b74779a11af?auto=format&fit=crop&w=800&q=80", List.of("Melon", "Berries", "Pineapple"), Map.of(), workspaceId),
+                new Dish(null, "Vanilla Sundae", 3, "https://images.unsplash.com/photo-1563805042-7684c019e1cb?auto=format&fit=crop&w=800&q=80", List.of("Dairy", "Sugar"), Map.of(), workspaceId)
+        ));
         return ResponseEntity.ok("Dummy menu loaded for workspace!");
     }
 
@@ -55,7 +97,9 @@ public class DishController {
 
     @PostMapping
     public ResponseEntity<Dish> addDish(@RequestBody Dish dish) {
-        return ResponseEntity.ok(dishRepository.save(dish));
+        Dish saved = dishRepository.save(dish);
+        menuCache.invalidate(saved.getWorkspaceId());
+        return ResponseEntity.ok(saved);
     }
 
     @PutMapping("/{id}")
@@ -66,7 +110,10 @@ public class DishController {
             dish.setImageUrl(updatedDish.getImageUrl());
             dish.setIngredients(updatedDish.getIngredients());
             dish.setSubstitutions(updatedDish.getSubstitutions()); // <-- ADDED THIS to save substitutions on edit
-            return ResponseEntity.ok(dishRepository.save(dish));
+            Dish saved = dishRepository.save(dish);
+            prepTimeLearner.reset(saved.getId(), saved.getPrepTimeMinutes()); // Admin's value wins over the learned one
+            menuCache.invalidate(saved.getWorkspaceId());
+            return ResponseEntity.ok(saved);
         }).orElse(ResponseEntity.notFound().build());
     }
 
@@ -74,19 +121,72 @@ public class DishController {
     public ResponseEntity<?> deleteDish(@PathVariable Long id) {
         return dishRepository.findById(id).map(dish -> {
             dishRepository.delete(dish);
+            prepTimeLearner.forget(id);
+            menuCache.invalidate(dish.getWorkspaceId());
             return ResponseEntity.ok().build();
         }).orElse(ResponseEntity.notFound().build());
     }
 
     @DeleteMapping("/unload")
     public ResponseEntity<?> unloadMenu(@RequestParam Long workspaceId) {
-        List<Dish> dishes = dishRepository.findByWorkspaceId(workspaceId);
-        dishRepository.deleteAll(dishes);
+        menuBulkService.unloadMenu(workspaceId); // Set-based deletes, no per-dish round trips
         return ResponseEntity.ok(Map.of("message", "Menu unloaded successfully!"));
     }
 
+    /**
+     * Endpoint: POST /api/dishes/import?workspaceId=1&replace=false
+     * Action: Bulk import from the POS. The body is a JSON array of dishes (same shape as GET /api/dishes)
+     *         or, with Content-Type text/csv, a CSV file (see MenuBulkService for the columns).
+     *         The body is parsed as it arrives and written in JDBC batches; replace=true swaps the whole menu.
+     * Output: How many dishes were imported (and removed), or 400 with the first problem found (nothing is imported).
+     */
+    @PostMapping("/import")
+    public ResponseEntity<?> importMenu(@RequestParam Long workspaceId,
+                                        @RequestParam(defaultValue = "false") boolean replace,
+                                        HttpServletRequest request) throws IOException {
+        String contentType = request.getContentType();
+        MenuBulkService.Format format = contentType != null && contentType.toLowerCase(Locale.ROOT).contains("csv")
+                ? MenuBulkService.Format.CSV : MenuBulkService.Format.JSON;
+        try {
+            MenuBulkService.ImportResult result = menuBulkService.importMenu(workspaceId, request.getInputStream(), format, replace);
+            return ResponseEntity.ok(Map.of(
+                    "message", "Menu imported successfully!",
+                    "imported", result.imported(),
+                    "removed", result.removed()));
+        } catch (MenuImportException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    /**
+     * Endpoint: GET /api/dishes/export?workspaceId=1&format=json|csv
+     * Action: Downloads the menu in the format /import reads, written straight from the cached menu.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportMenu(@RequestParam Long workspaceId,
+                                                            @RequestParam(defaultValue = "json") String format) {
+        MenuBulkService.Format exportFormat = switch (format.toLowerCase(Locale.ROOT)) {
+            case "json" -> MenuBulkService.Format.JSON;
+            case "csv" -> MenuBulkService.Format.CSV;
+            default -> null;
+        };
+        if (exportFormat == null) {
+            return StreamingResponses.badRequest("format must be json or csv");
+        }
+        MenuSnapshot menu = menuCache.get(workspaceId);
+        boolean csv = exportFormat == MenuBulkService.Format.CSV;
+        StreamingResponseBody body = csv
+                ? out -> menuBulkService.writeCsv(menu, out)
+                : out -> menuBulkService.writeJson(menu, out);
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("menu-" + workspaceId + (csv ? ".csv" : ".json")).build().toString())
+                .body(body);
+    }
+
     // ────────────────────────────────────────────────────────────────
-    // NEW ENDPOINT – Allergy reporting with HASHMAP (Option B)
+    // NEW ENDPOINT – Allergy reporting with the menu's precompiled allergen index
     // ────────────────────────────────────────────────────────────────
     @PostMapping("/allergies")
     public ResponseEntity<String> reportCustomerAllergies(
@@ -102,55 +202,33 @@ public class DishController {
             return ResponseEntity.badRequest().body("dishId is required");
         }
 
-        // Fetch the real dish from database
-        Dish dish = dishRepository.findById(alert.getDishId())
-                .orElseThrow(() -> new RuntimeException("Dish not found with ID: " + alert.getDishId()));
+        // Fetch the dish from the cached menu
+        MenuSnapshot menu = menuCache.get(workspaceId);
+        Dish dish = menu.getDish(alert.getDishId());
+        if (dish == null) {
+            throw new RuntimeException("Dish not found with ID: " + alert.getDishId());
+        }
 
         // ────────────────────────────────────────────────
         // PROJECT REQUIREMENT: HASHMAP ALGORITHM IMPLEMENTATION
-        // Using HashMap<String, String> for O(1) average-case lookup
-        // of whether each ingredient is allergic for this customer
+        // The allergen index interns every ingredient name to an int id with a HashMap once per menu,
+        // so the customer's allergies are looked up once and the dish check is a single bitset AND
         // ────────────────────────────────────────────────
-        HashMap<String, String> allergyStatusMap = new HashMap<>();
-
-        // Populate map – normalize keys to lowercase for case-insensitive matching
-        for (String allergicIng : alert.getCustomerAllergies()) {
-            if (allergicIng != null && !allergicIng.trim().isEmpty()) {
-                allergyStatusMap.put(allergicIng.trim().toLowerCase(), "ALLERGIC");
-            }
-        }
-
-        // Build kitchen alert message
-        StringBuilder kitchenAlert = new StringBuilder();
-        kitchenAlert.append("=== KITCHEN ALLERGY ALERT ===\n");
-        kitchenAlert.append("Dish: ").append(dish.getName())
-                .append(" (ID: ").append(dish.getId()).append(")\n");
-        kitchenAlert.append("Customer selected allergies:\n");
-
-        boolean foundAnyAllergy = false;
-
-        // Check every ingredient using HashMap lookup (O(1) average time)
-        for (String ingredient : dish.getIngredients()) {
-            String status = allergyStatusMap.getOrDefault(
-                    ingredient.trim().toLowerCase(),
-                    "SAFE"
-            );
-
-            if ("ALLERGIC".equals(status)) {
-                kitchenAlert.append("  ⚠ AVOID: ").append(ingredient).append("\n");
-                foundAnyAllergy = true;
-            }
-        }
-
-        if (!foundAnyAllergy) {
-            kitchenAlert.append("  No matching allergens found in dish ingredients.\n");
-        }
+        AllergenIndex allergenIndex = menu.getAllergenIndex();
+        BitSet allergies = allergenIndex.encode(alert.getCustomerAllergies());
+        List<String> conflicting = allergenIndex.conflictingIngredients(dish, allergies);
 
-        kitchenAlert.append("==============================");
+        boolean foundAnyAllergy = !conflicting.isEmpty();
 
         // ── In real app: send via WebSocket / queue / save to DB ──
-        // For development / demo → print to console
-        System.out.println(kitchenAlert.toString());
+        // For now the kitchen alert is a structured log event
+        (foundAnyAllergy ? log.atWarn() : log.atInfo())
+                .setMessage(foundAnyAllergy ? "Kitchen allergy alert" : "Allergy check found no conflict")
+                .addKeyValue("workspaceId", workspaceId)
+                .addKeyValue("dishId", dish.getId())
+                .addKeyValue("dish", dish.getName())
+                .addKeyValue("avoid", conflicting)
+                .log();
 
         // Response for frontend
         String userMessage = foundAnyAllergy
@@ -159,4 +237,20 @@ public class DishController {
 
         return ResponseEntity.ok(userMessage);
     }
-}
\ No newline at end of file
+
+    /**
+     * Endpoint: POST /api/dishes/allergies/check?workspaceId=1
+     * Action: Checks a whole table's cart against the customer's allergy list in one call.
+     * Output: One result per dish id (same order), with the conflicting ingredients ready to be
+     *         sent as that order's customerAllergies and any known substitutions.
+     */
+    @PostMapping("/allergies/check")
+    public ResponseEntity<List<DishAllergyResultDTO>> checkCartAllergies(
+            @RequestBody CartAllergyCheckDTO cart,
+            @RequestParam Long workspaceId) {
+        if (cart.getDishIds() == null || cart.getDishIds().isEmpty()) {
+            return ResponseEntity.ok(List.of());
+        }
+        return ResponseEntity.ok(kitchenService.checkCartAllergies(workspaceId, cart.getDishIds(), cart.getCustomerAllergies()));
+    }
+}
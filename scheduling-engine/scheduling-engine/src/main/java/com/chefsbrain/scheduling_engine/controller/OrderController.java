@@ -1,26 +1,52 @@
 package com.chefsbrain.scheduling_engine.controller;
 
+import com.chefsbrain.scheduling_engine.dto.OrderView;
+import com.chefsbrain.scheduling_engine.dto.TicketDTO;
 import com.chefsbrain.scheduling_engine.model.Order;
-import com.chefsbrain.scheduling_engine.repository.DishRepository;
 import com.chefsbrain.scheduling_engine.service.KitchenService;
+import com.chefsbrain.scheduling_engine.service.events.QueueEventBroadcaster;
+import com.chefsbrain.scheduling_engine.service.history.CompletedOrderExporter;
+import com.chefsbrain.scheduling_engine.service.learning.PrepTimeLearner;
+import com.chefsbrain.scheduling_engine.service.queue.QueueSnapshot;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/orders") // This is the base URL for all endpoints below
 @CrossOrigin(origins = {"http://localhost:5173", "http://localhost:5175"}) // Allows your React Frontend to talk to this Backend
 public class OrderController {
 
+    private static final int MAX_HISTORY_PAGE = 200;
+    private static final int MAX_TICKET_SIZE = 50;
+
     private final KitchenService kitchenService;
-    private final DishRepository dishRepository;
+    private final PrepTimeLearner prepTimeLearner;
+    private final QueueEventBroadcaster eventBroadcaster;
+    private final CompletedOrderExporter orderExporter;
 
-    // Constructor Injection: Connects the Controller to the Service and Repository
-    public OrderController(KitchenService kitchenService, DishRepository dishRepository) {
+    // Constructor Injection: Connects the Controller to the Service and Learner
+    public OrderController(KitchenService kitchenService, PrepTimeLearner prepTimeLearner, QueueEventBroadcaster eventBroadcaster,
+                           CompletedOrderExporter orderExporter) {
         this.kitchenService = kitchenService;
-        this.dishRepository = dishRepository;
+        this.prepTimeLearner = prepTimeLearner;
+        this.eventBroadcaster = eventBroadcaster;
+        this.orderExporter = orderExporter;
     }
 
     /**
@@ -29,35 +55,94 @@ public class OrderController {
      * Input: JSON body { "dishName": "Steak", "tableNumber": 5, "prepTimeMinutes": 20, "isVip": true }
      */
     @PostMapping
-    public ResponseEntity<Order> placeOrder(@RequestBody Order order) {
+    public ResponseEntity<?> placeOrder(@RequestBody Order order) {
+        // Always a new order: a client-supplied id would overwrite an existing row
+        order.setId(null);
+
         // 1. Set the timestamp for when the order was received
         order.setOrderPlacedTime(LocalDateTime.now());
 
-        // --- NEW: Fetch the LATEST learned prep time from the database ---
-        if (order.getDishId() != null) {
-            dishRepository.findById(order.getDishId()).ifPresent(dish -> {
-                // Override whatever the frontend sent with the smart, learned time
-                order.setPrepTimeMinutes(dish.getPrepTimeMinutes());
-            });
+        // --- NEW: Use the LATEST learned prep time (kept in memory by the learner) ---
+        // Overrides whatever the frontend sent with the smart, learned time
+        prepTimeLearner.prepTimeMinutes(order.getWorkspaceId(), order.getDishId()).ifPresent(order::setPrepTimeMinutes);
+
+        // 2. Send to the "Brain" (Service Layer), which books it on a station and sets
+        //    its projected start/finish (the "Start Time" shown to the chef)
+        try {
+            kitchenService.addOrderToQueue(order);
+        } catch (IllegalArgumentException e) { // No such workspace
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
         }
 
-        // 2. Calculate the "Start Time" (Logic: Order Time + Smart Prep Time)
-        order.setCalculatedStartTime(order.getOrderPlacedTime().plusMinutes(order.getPrepTimeMinutes()));
+        return ResponseEntity.ok(order);
+    }
 
-        // 3. Send to the "Brain" (Service Layer)
-        kitchenService.addOrderToQueue(order);
+    /**
+     * Endpoint: POST /api/orders/ticket
+     * Action: Waiter punches in a whole table at once.
+     * Input: JSON body { "workspaceId": 1, "tableNumber": 5, "isVip": false,
+     *                    "orders": [ { "dishId": 3, "dishName": "Steak", "quantity": 1, "customerAllergies": ["Dairy"] }, ... ] }
+     * Output: The queued orders in the same order, with their ids and projected start times.
+     *         The ticket is booked, saved and queued as one unit (one batch, one queue lock).
+     */
+    @PostMapping("/ticket")
+    public ResponseEntity<?> placeTicket(@RequestBody TicketDTO ticket) {
+        List<Order> orders = ticket.getOrders();
+        if (ticket.getWorkspaceId() == null || orders == null || orders.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("message", "A ticket needs a workspaceId and at least one order"));
+        }
+        if (orders.size() > MAX_TICKET_SIZE) {
+            return ResponseEntity.badRequest().body(Map.of("message", "A ticket can have at most " + MAX_TICKET_SIZE + " orders"));
+        }
 
-        return ResponseEntity.ok(order);
+        LocalDateTime placedAt = LocalDateTime.now();
+        for (Order order : orders) {
+            order.setId(null);
+            order.setWorkspaceId(ticket.getWorkspaceId());
+            order.setTableNumber(ticket.getTableNumber());
+            order.setVip(order.isVip() || ticket.isVip());
+            order.setOrderPlacedTime(placedAt);
+            // Learned prep times are in memory; a dish not seen yet comes from the cached menu,
+            // which is loaded at most once for the whole ticket
+            prepTimeLearner.prepTimeMinutes(ticket.getWorkspaceId(), order.getDishId()).ifPresent(order::setPrepTimeMinutes);
+        }
+        try {
+            return ResponseEntity.ok(kitchenService.addTicketToQueue(ticket.getWorkspaceId(), orders));
+        } catch (IllegalArgumentException e) { // No such workspace
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
     }
 
     /**
      * Endpoint: GET /api/orders/queue
      * Action: Chef looks at the dashboard screen.
-     * Output: List of all active orders sorted by priority.
+     * Output: List of all active orders sorted by priority, tagged with an ETag.
+     * If the client's If-None-Match still matches, we answer 304 without serializing anything.
      */
     @GetMapping("/queue")
-    public ResponseEntity<List<Order>> getOrderQueue(@org.springframework.web.bind.annotation.RequestParam Long workspaceId) {
-        return ResponseEntity.ok(kitchenService.getActiveQueue(workspaceId));
+    public ResponseEntity<List<OrderView>> getOrderQueue(@org.springframework.web.bind.annotation.RequestParam Long workspaceId, WebRequest request) {
+        QueueSnapshot snapshot = kitchenService.getQueueSnapshot(workspaceId);
+        if (request.checkNotModified(snapshot.getEtag())) {
+            return null; // 304 Not Modified (status and ETag already set)
+        }
+        return ResponseEntity.ok()
+                .eTag(snapshot.getEtag())
+                .cacheControl(CacheControl.noCache()) // always revalidate, the 304 makes it cheap
+                .body(snapshot.getOrders());
+    }
+
+    /**
+     * Endpoint: GET /api/orders/stream?workspaceId=1
+     * Action: Kitchen screen opens a Server-Sent Events stream instead of polling /queue.
+     * Output: A "snapshot" event (full sorted queue + version), then one "delta" event per add/complete/undo/reprioritize.
+     * On reconnect the browser sends Last-Event-ID (or the client passes ?lastEventId=) and only missed deltas are replayed.
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamQueue(@RequestParam Long workspaceId,
+                                  @RequestParam(required = false) String lastEventId,
+                                  @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader) {
+        String resumeFrom = lastEventIdHeader != null ? lastEventIdHeader : lastEventId;
+        return eventBroadcaster.subscribe(workspaceId, resumeFrom, () -> kitchenService.getQueueSnapshot(workspaceId));
     }
 
     /**
@@ -83,10 +168,34 @@ public class OrderController {
 
     @PostMapping("/complete")
     public ResponseEntity<String> completeOrder(@RequestBody Order order) {
-        kitchenService.completeOrder(order);
+        return completeOrderById(order.getId(), order.getWorkspaceId());
+    }
+
+    /**
+    * Endpoint: POST /api/orders/{id}/complete?workspaceId=1
+    * Action: Same as /complete, but only needs the order id instead of the whole order JSON.
+    */
+    @PostMapping("/{id}/complete")
+    public ResponseEntity<String> completeOrderById(@PathVariable Long id, @RequestParam Long workspaceId) {
+        if (kitchenService.completeOrder(workspaceId, id) == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Order is not in the active queue.");
+        }
         return ResponseEntity.ok("Order marked as complete and moved to history.");
     }
 
+    /**
+    * Endpoint: PATCH /api/orders/{id}/priority?workspaceId=1&isVip=true
+    * Action: Manager upgrades/downgrades a queued order. The order moves to its new place in the heap.
+    */
+    @PatchMapping("/{id}/priority")
+    public ResponseEntity<Order> reprioritizeOrder(@PathVariable Long id, @RequestParam Long workspaceId, @RequestParam boolean isVip) {
+        Order updated = kitchenService.reprioritizeOrder(workspaceId, id, isVip);
+        if (updated == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(updated);
+    }
+
     /**
     * Endpoint: POST /api/orders/undo
     * Action: Chef accidentally completed an order. Pops it from history, puts back in active queue.
@@ -98,12 +207,73 @@ public class OrderController {
     }
 
     /**
-    * Endpoint: GET /api/orders/history
+    * Endpoint: POST /api/orders/{id}/uncomplete?workspaceId=1
+    * Action: Chef completed the wrong order a while ago. Takes that order (not just the last one) out of history
+    *         and puts it back in the active queue.
+    */
+    @PostMapping("/{id}/uncomplete")
+    public ResponseEntity<String> uncompleteOrder(@PathVariable Long id, @RequestParam Long workspaceId) {
+        if (kitchenService.uncompleteOrder(workspaceId, id) == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Order is not in the recent history.");
+        }
+        return ResponseEntity.ok("Completion undone and moved back to active queue.");
+    }
+
+    /**
+    * Endpoint: POST /api/orders/redo?workspaceId=1
+    * Action: Takes back the latest undo: the order it returned to the queue is completed again.
+    */
+    @PostMapping("/redo")
+    public ResponseEntity<String> redoCompletion(@RequestParam Long workspaceId) {
+        if (kitchenService.redoCompletion(workspaceId) == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Nothing to redo.");
+        }
+        return ResponseEntity.ok("Order completed again and moved back to history.");
+    }
+
+    /**
+    * Endpoint: GET /api/orders/history?workspaceId=1&limit=50&beforeId=123
     * Action: Manager/Chef views the recently completed orders.
-    * Output: List of completed orders from the Custom DLL.
+    * Output: One page of completed orders, newest first. To get the next (older) page,
+    * pass the id of the last order received as beforeId. Never returns more than MAX_HISTORY_PAGE orders.
     */
     @GetMapping("/history")
-    public ResponseEntity<List<Order>> getHistory(@org.springframework.web.bind.annotation.RequestParam Long workspaceId) {
-        return ResponseEntity.ok(kitchenService.getHistory(workspaceId));
+    public ResponseEntity<List<Order>> getHistory(@org.springframework.web.bind.annotation.RequestParam Long workspaceId,
+                                                  @RequestParam(required = false) Long beforeId,
+                                                  @RequestParam(defaultValue = "50") int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_HISTORY_PAGE));
+        return ResponseEntity.ok(kitchenService.getHistoryPage(workspaceId, beforeId, pageSize));
+    }
+
+    /**
+     * Endpoint: GET /api/orders/history/export?workspaceId=1&from=2026-10-01&to=2026-10-14&format=ndjson|csv
+     * Action: Manager downloads every order completed from the start of `from` to the end of `to`
+     *         (both inclusive), with its allergies, for reporting.
+     * Output: One JSON object per line (NDJSON) or CSV, streamed from the database as it is read.
+     */
+    @GetMapping("/history/export")
+    public ResponseEntity<StreamingResponseBody> exportHistory(@RequestParam Long workspaceId,
+                                                               @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                               @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                               @RequestParam(defaultValue = "ndjson") String format) {
+        if (to.isBefore(from)) {
+            return StreamingResponses.badRequest("'to' must not be before 'from'");
+        }
+        CompletedOrderExporter.Format exportFormat = switch (format.toLowerCase(Locale.ROOT)) {
+            case "ndjson" -> CompletedOrderExporter.Format.NDJSON;
+            case "csv" -> CompletedOrderExporter.Format.CSV;
+            default -> null;
+        };
+        if (exportFormat == null) {
+            return StreamingResponses.badRequest("format must be ndjson or csv");
+        }
+        boolean csv = exportFormat == CompletedOrderExporter.Format.CSV;
+        StreamingResponseBody body = out ->
+                orderExporter.export(workspaceId, from.atStartOfDay(), to.plusDays(1).atStartOfDay(), exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("orders-" + workspaceId + "-" + from + "-to-" + to + (csv ? ".csv" : ".ndjson")).build().toString())
+                .body(body);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,22 @@
+package com.chefsbrain.scheduling_engine.controller;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+
+// Export endpoints have their body type fixed to StreamingResponseBody, so their errors are written the same way
+final class StreamingResponses {
+
+    private StreamingResponses() {
+    }
+
+    // {"message": ...} with status 400, like the other endpoints; message is a constant, not user input
+    static ResponseEntity<StreamingResponseBody> badRequest(String message) {
+        byte[] json = ("{\"message\":\"" + message + "\"}").getBytes(StandardCharsets.UTF_8);
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(out -> out.write(json));
+    }
+}
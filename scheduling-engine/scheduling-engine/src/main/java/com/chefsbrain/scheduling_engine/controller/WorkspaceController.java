@@ -1,16 +1,18 @@
 package com.chefsbrain.scheduling_engine.controller;
 
+import com.chefsbrain.scheduling_engine.model.SchedulingPolicyType;
 import com.chefsbrain.scheduling_engine.model.Workspace;
 import com.chefsbrain.scheduling_engine.repository.WorkspaceRepository;
-import jakarta.mail.internet.MimeMessage;
+import com.chefsbrain.scheduling_engine.service.KitchenService;
+import com.chefsbrain.scheduling_engine.service.auth.WorkspaceLoginService;
+import com.chefsbrain.scheduling_engine.service.mail.MailOutbox;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Arrays;
 import java.util.Map;
-import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/workspaces")
@@ -21,7 +23,13 @@ public class WorkspaceController {
     private WorkspaceRepository workspaceRepository;
 
     @Autowired
-    private JavaMailSender mailSender;
+    private MailOutbox mailOutbox;
+
+    @Autowired
+    private WorkspaceLoginService workspaceLoginService;
+
+    @Autowired
+    private KitchenService kitchenService;
 
     @PostMapping("/create")
     public ResponseEntity<?> createWorkspace(@RequestBody Map<String, String> payload) {
@@ -30,23 +38,16 @@ public class WorkspaceController {
         String adminPassword = payload.get("adminPassword");
         String invites = payload.get("invites");
 
-        // Generate a random 6-character alphanumeric password
-        String randomPassword = UUID.randomUUID().toString().substring(0, 6).toUpperCase();
-
-        // 1. Save to H2 Database
+        // 1. Save to the database with a freshly generated, unique join code (the staff password)
         Workspace workspace = new Workspace();
         workspace.setName(name);
         workspace.setAdminEmail(adminEmail);
         workspace.setAdminPassword(adminPassword);
-        workspace.setPassword(randomPassword);
-        workspaceRepository.save(workspace);
+        String randomPassword = workspaceLoginService.saveWithNewJoinCode(workspace);
 
-        // 2. Send Invitation Emails
+        // 2. Queue the invitation emails (sent in the background by the mail outbox worker)
         if (invites != null && !invites.trim().isEmpty()) {
-            String[] emailArray = invites.split(",");
-            for (String email : emailArray) {
-                sendInviteEmail(email.trim(), name, adminEmail, randomPassword);
-            }
+            mailOutbox.enqueueInvitations(name, adminEmail, randomPassword, Arrays.asList(invites.split(",")));
         }
 
         // Return the generated password to the frontend so the admin is logged in immediately
@@ -82,69 +83,70 @@ public class WorkspaceController {
 
     // New Endpoint to verify invited staff passwords
     @PostMapping("/verify")
-    public ResponseEntity<?> verifyWorkspace(@RequestBody Map<String, String> payload) {
+    public ResponseEntity<?> verifyWorkspace(@RequestBody Map<String, String> payload, HttpServletRequest request) {
         String password = payload.get("password");
 
-        for (Workspace w : workspaceRepository.findAll()) {
-            if (w.getPassword() != null && w.getPassword().equals(password)) {
+        // Indexed digest lookup (cached), rate limited per client address. Behind the reverse proxy that is
+        // the forwarded client address (server.forward-headers-strategy), not the proxy's
+        WorkspaceLoginService.LoginResult login = workspaceLoginService.login(request.getRemoteAddr(), password);
+        switch (login.outcome()) {
+            case OK:
                 return ResponseEntity.ok().body(Map.of(
                         "message", "Success",
-                        "kitchenName", w.getName(),
-                        "workspaceId", String.valueOf(w.getId())
+                        "kitchenName", login.kitchenName(),
+                        "workspaceId", String.valueOf(login.workspaceId())
                          ));
-            }
+            case RATE_LIMITED:
+                return ResponseEntity.status(429)
+                        .header("Retry-After", String.valueOf(login.retryAfterSeconds()))
+                        .body(Map.of("message", "Too many login attempts, try again shortly"));
+            default:
+                return ResponseEntity.status(401).body(Map.of("message", "Invalid password"));
         }
-        return ResponseEntity.status(401).body(Map.of("message", "Invalid password"));
     }
 
-    private void sendInviteEmail(String to, String workspaceName, String adminEmail, String pwd) {
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-            helper.setTo(to);
-            helper.setSubject("🔥 You're invited to join " + workspaceName + " on Chef's Brain!");
-
-            String loginUrl = "http://localhost:5173";
-
-            String htmlContent = "<div style=\"background-color: #f3f4f6; padding: 40px 20px; font-family: 'Segoe UI', Tahoma, Geneva, Verdana, sans-serif;\">\n" +
-                    "  <div style=\"max-width: 600px; margin: 0 auto; background-color: #ffffff; border-radius: 16px; overflow: hidden; box-shadow: 0 10px 25px rgba(0,0,0,0.05); border: 1px solid #e5e7eb;\">\n" +
-                    "    <img src=\"https://images.unsplash.com/photo-1577219491135-ce391730fb2c?q=80&w=800&auto=format&fit=crop\" alt=\"Professional Kitchen\" style=\"width: 100%; height: 220px; object-fit: cover; display: block;\" />\n" +
-                    "    <div style=\"padding: 40px 30px;\">\n" +
-                    "      <div style=\"text-align: center; margin-bottom: 30px;\">\n" +
-                    "        <h1 style=\"color: #f97316; margin: 0; font-size: 32px; font-weight: 900; letter-spacing: -1px;\">👨‍🍳 Chef's Brain</h1>\n" +
-                    "        <p style=\"color: #6b7280; font-size: 13px; text-transform: uppercase; letter-spacing: 3px; margin-top: 8px; font-weight: bold;\">Kitchen Scheduling Engine</p>\n" +
-                    "      </div>\n" +
-                    "      <div style=\"background-color: #fff7ed; padding: 30px; border-radius: 12px; border-left: 4px solid #f97316;\">\n" +
-                    "        <h2 style=\"color: #111827; margin-top: 0; font-size: 22px;\">You're Invited! 🎉</h2>\n" +
-                    "        <p style=\"color: #374151; line-height: 1.7; font-size: 16px;\">\n" +
-                    "          <strong>" + adminEmail + "</strong> has invited you to join the <span style=\"color: #f97316; font-weight: bold;\">" + workspaceName + "</span> workspace.\n" +
-                    "        </p>\n" +
-                    "        <div style=\"background-color: #ffffff; padding: 20px; border-radius: 12px; border: 2px dashed #fdba74; margin: 25px 0; text-align: center;\">\n" +
-                    "          <p style=\"color: #9a3412; font-size: 11px; font-weight: 800; text-transform: uppercase; margin-bottom: 10px; margin-top: 0;\">Your Entry Password</p>\n" +
-                    "          <h2 style=\"color: #ea580c; margin: 0; font-size: 34px; letter-spacing: 8px; font-family: monospace;\">" + pwd + "</h2>\n" +
-                    "        </div>\n" +
-                    "        <div style=\"text-align: center; margin-top: 25px; margin-bottom: 10px;\">\n" +
-                    "          <a href=\"" + loginUrl + "\" style=\"background-color: #f97316; color: #ffffff; text-decoration: none; padding: 16px 32px; border-radius: 10px; font-weight: 800; font-size: 16px; display: inline-block; text-transform: uppercase; letter-spacing: 1.5px; box-shadow: 0 4px 15px rgba(249, 115, 22, 0.3);\">\n" +
-                    "            🚀 Enter Kitchen Space\n" +
-                    "          </a>\n" +
-                    "        </div>\n" +
-                    "      </div>\n" +
-                    "      <div style=\"text-align: center; margin-top: 35px; border-top: 1px solid #e5e7eb; padding-top: 20px;\">\n" +
-                    "        <p style=\"color: #9ca3af; font-size: 12px; line-height: 1.5;\">\n" +
-                    "          This is an automated invitation from the Chef's Brain system.<br/>\n" +
-                    "          If you don't know who sent this, you can safely ignore it.\n" +
-                    "        </p>\n" +
-                    "      </div>\n" +
-                    "    </div>\n" +
-                    "  </div>\n" +
-                    "</div>";
-
-            helper.setText(htmlContent, true);
-            mailSender.send(message);
-
-        } catch (Exception e) {
-            System.err.println("Failed to send email to " + to + ": " + e.getMessage());
+    /**
+     * Endpoint: GET /api/workspaces/{id}/policy
+     * Output: The scheduling policy that orders this workspace's active queue.
+     */
+    @GetMapping("/{id}/policy")
+    public ResponseEntity<?> getSchedulingPolicy(@PathVariable Long id) {
+        return ResponseEntity.ok(Map.of("workspaceId", String.valueOf(id), "policy", kitchenService.getSchedulingPolicy(id).name()));
+    }
+
+    /**
+     * Endpoint: PUT /api/workspaces/{id}/policy?policy=AGING
+     * Action: Switches the workspace to STRICT_VIP, AGING or WEIGHTED_SLACK and re-orders its live queue.
+     */
+    @PutMapping("/{id}/policy")
+    public ResponseEntity<?> changeSchedulingPolicy(@PathVariable Long id, @RequestParam SchedulingPolicyType policy) {
+        if (!kitchenService.changeSchedulingPolicy(id, policy)) {
+            return ResponseEntity.status(404).body(Map.of("message", "Workspace not found"));
+        }
+        return ResponseEntity.ok(Map.of("workspaceId", String.valueOf(id), "policy", policy.name()));
+    }
+
+    /**
+     * Endpoint: GET /api/workspaces/{id}/stations
+     * Output: How many parallel stations fire times are projected onto.
+     */
+    @GetMapping("/{id}/stations")
+    public ResponseEntity<?> getStationCount(@PathVariable Long id) {
+        return ResponseEntity.ok(Map.of("workspaceId", String.valueOf(id), "stations", kitchenService.getStationCount(id)));
+    }
+
+    /**
+     * Endpoint: PUT /api/workspaces/{id}/stations?count=4
+     * Action: Changes the number of parallel stations (cooks) used for new orders' fire times.
+     */
+    @PutMapping("/{id}/stations")
+    public ResponseEntity<?> changeStationCount(@PathVariable Long id, @RequestParam int count) {
+        if (count < 1) {
+            return ResponseEntity.badRequest().body(Map.of("message", "A kitchen needs at least one station"));
+        }
+        if (!kitchenService.changeStationCount(id, count)) {
+            return ResponseEntity.status(404).body(Map.of("message", "Workspace not found"));
         }
+        return ResponseEntity.ok(Map.of("workspaceId", String.valueOf(id), "stations", count));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,33 @@
+package com.chefsbrain.scheduling_engine.dto;
+
+import java.util.List;
+
+/**
+ * Request body of POST /api/dishes/allergies/check: every dish on a table's cart
+ * plus the customer's allergy list, checked in one call.
+ */
+public class CartAllergyCheckDTO {
+
+    private List<Long> dishIds;
+    private List<String> customerAllergies;
+
+    // Default constructor (required for JSON → object mapping)
+    public CartAllergyCheckDTO() {
+    }
+
+    public List<Long> getDishIds() {
+        return dishIds;
+    }
+
+    public void setDishIds(List<Long> dishIds) {
+        this.dishIds = dishIds;
+    }
+
+    public List<String> getCustomerAllergies() {
+        return customerAllergies;
+    }
+
+    public void setCustomerAllergies(List<String> customerAllergies) {
+        this.customerAllergies = customerAllergies;
+    }
+}
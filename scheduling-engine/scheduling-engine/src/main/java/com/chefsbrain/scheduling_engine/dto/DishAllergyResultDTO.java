@@ -0,0 +1,82 @@
+package com.chefsbrain.scheduling_engine.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Allergy check result for one dish of a cart.
+ * conflictingIngredients uses the dish's own spelling, so it can be sent unchanged
+ * as the order's customerAllergies when the dish is placed.
+ */
+public class DishAllergyResultDTO {
+
+    private Long dishId;
+    private String dishName;
+    private boolean found;
+    private boolean conflict;
+    private List<String> conflictingIngredients;
+    private Map<String, String> substitutions;
+
+    public DishAllergyResultDTO() {
+    }
+
+    public DishAllergyResultDTO(Long dishId, String dishName, boolean found, boolean conflict,
+                                List<String> conflictingIngredients, Map<String, String> substitutions) {
+        this.dishId = dishId;
+        this.dishName = dishName;
+        this.found = found;
+        this.conflict = conflict;
+        this.conflictingIngredients = conflictingIngredients;
+        this.substitutions = substitutions;
+    }
+
+    public Long getDishId() {
+        return dishId;
+    }
+
+    public void setDishId(Long dishId) {
+        this.dishId = dishId;
+    }
+
+    public String getDishName() {
+        return dishName;
+    }
+
+    public void setDishName(String dishName) {
+        this.dishName = dishName;
+    }
+
+    // False if the dish isn't on this workspace's menu
+    public boolean isFound() {
+        return found;
+    }
+
+    public void setFound(boolean found) {
+        this.found = found;
+    }
+
+    public boolean isConflict() {
+        return conflict;
+    }
+
+    public void setConflict(boolean conflict) {
+        this.conflict = conflict;
+    }
+
+    public List<String> getConflictingIngredients() {
+        return conflictingIngredients;
+    }
+
+    public void setConflictingIngredients(List<String> conflictingIngredients) {
+        this.conflictingIngredients = conflictingIngredients;
+    }
+
+    // Known substitutes for the conflicting ingredients (ingredient -> substitute)
+    public Map<String, String> getSubstitutions() {
+        return substitutions;
+    }
+
+    public void setSubstitutions(Map<String, String> substitutions) {
+        this.substitutions = substitutions;
+    }
+}
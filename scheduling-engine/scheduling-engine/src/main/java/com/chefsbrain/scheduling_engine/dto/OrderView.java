@@ -0,0 +1,29 @@
+package com.chefsbrain.scheduling_engine.dto;
+
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.model.OrderStatus;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Frozen copy of an order, taken under its workspace's lock, for views that are read after the lock is
+ * released (queue snapshots, SSE events). The Order entity itself keeps changing (VIP flag, status),
+ * so a view must never hold it. Serializes to the same JSON as Order.
+ */
+public record OrderView(Long id, int tableNumber, String dishName, Long dishId, int prepTimeMinutes, int quantity,
+                        @JsonProperty("isVip") boolean isVip, LocalDateTime orderPlacedTime,
+                        LocalDateTime calculatedStartTime, LocalDateTime projectedStartTime,
+                        LocalDateTime projectedFinishTime, Integer stationIndex, Long workspaceId,
+                        OrderStatus status, LocalDateTime completedAt, List<String> customerAllergies) {
+
+    public static OrderView of(Order order) {
+        List<String> allergies = order.getCustomerAllergies();
+        return new OrderView(order.getId(), order.getTableNumber(), order.getDishName(), order.getDishId(),
+                order.getPrepTimeMinutes(), order.getQuantity(), order.isVip(), order.getOrderPlacedTime(),
+                order.getCalculatedStartTime(), order.getProjectedStartTime(), order.getProjectedFinishTime(),
+                order.getStationIndex(), order.getWorkspaceId(), order.getStatus(), order.getCompletedAt(),
+                allergies == null ? null : List.copyOf(allergies));
+    }
+}
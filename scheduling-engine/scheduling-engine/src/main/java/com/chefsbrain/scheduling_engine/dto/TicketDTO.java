@@ -0,0 +1,57 @@
+package com.chefsbrain.scheduling_engine.dto;
+
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Request body of POST /api/orders/ticket: every dish a table ordered, punched in at once.
+ * Each order needs its dish (dishId and/or dishName) and quantity, and may carry its own
+ * customerAllergies; the table number, workspace and VIP flag come from the ticket.
+ */
+public class TicketDTO {
+
+    private Long workspaceId;
+    private int tableNumber;
+    @JsonProperty("isVip")
+    private boolean isVip;
+    private List<Order> orders;
+
+    // Default constructor (required for JSON → object mapping)
+    public TicketDTO() {
+    }
+
+    public Long getWorkspaceId() {
+        return workspaceId;
+    }
+
+    public void setWorkspaceId(Long workspaceId) {
+        this.workspaceId = workspaceId;
+    }
+
+    public int getTableNumber() {
+        return tableNumber;
+    }
+
+    public void setTableNumber(int tableNumber) {
+        this.tableNumber = tableNumber;
+    }
+
+    // A VIP ticket makes every order on it VIP; otherwise each order's own flag is kept
+    public boolean isVip() {
+        return isVip;
+    }
+
+    public void setVip(boolean vip) {
+        isVip = vip;
+    }
+
+    public List<Order> getOrders() {
+        return orders;
+    }
+
+    public void setOrders(List<Order> orders) {
+        this.orders = orders;
+    }
+}
@@ -4,11 +4,14 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.List;
 import java.util.Map;
 
 @Entity
+// Menus are always read and unloaded per workspace
+@Table(indexes = @Index(name = "idx_dish_workspace", columnList = "workspaceId"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -27,11 +30,16 @@ public class Dish {
 
     // Required for "Safety Validation": List of ingredients for allergy checking
     @ElementCollection
+    @BatchSize(size = 100) // A whole menu's ingredients load in one query
+    @CollectionTable(name = "dish_ingredients", joinColumns = @JoinColumn(name = "dish_id"),
+            indexes = @Index(name = "idx_dish_ingredients_dish", columnList = "dish_id"))
     private List<String> ingredients;
 
     // --- NEW: Map for Allergy Substitutions (e.g., "Dairy" -> "Oat Milk") ---
     @ElementCollection
-    @CollectionTable(name = "dish_substitutions", joinColumns = @JoinColumn(name = "dish_id"))
+    @BatchSize(size = 100)
+    @CollectionTable(name = "dish_substitutions", joinColumns = @JoinColumn(name = "dish_id"),
+            indexes = @Index(name = "idx_dish_substitutions_dish", columnList = "dish_id"))
     @MapKeyColumn(name = "ingredient_name")
     @Column(name = "substitute_name")
     private Map<String, String> substitutions;
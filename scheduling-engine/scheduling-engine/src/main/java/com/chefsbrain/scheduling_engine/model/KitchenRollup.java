@@ -0,0 +1,49 @@
+package com.chefsbrain.scheduling_engine.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One hour of one dish's activity in a workspace, kept up to date by KitchenAnalytics.
+ * Only sums and counts are stored, so a bucket can be added to as often as needed and
+ * averages are computed when the dashboard is read.
+ * dishId 0 collects orders that weren't placed from the menu.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+// The dashboard reads a workspace's buckets by time range; the flusher finds a bucket by all three
+@Table(name = "kitchen_rollups", indexes = {
+        @Index(name = "uk_kitchen_rollups_bucket", columnList = "workspaceId, bucketStart, dishId", unique = true)
+})
+public class KitchenRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long workspaceId;
+    private Long dishId;
+    private String dishName;
+
+    // Start of the hour (server time, like the order timestamps)
+    private LocalDateTime bucketStart;
+
+    private long placed;
+    private long vipPlaced;
+    private long completed;
+    private long vipCompleted;
+
+    // Completions: time from placement to completion, the prep time predicted at placement,
+    // and the absolute difference of the two (what the prep time learner is trying to shrink)
+    private long actualSecondsSum;
+    private long predictedSecondsSum;
+    private long absErrorSecondsSum;
+
+    // Placements: time until the order's projected station start (wait for a free cook)
+    private long waitSecondsSum;
+    private long waitSamples;
+}
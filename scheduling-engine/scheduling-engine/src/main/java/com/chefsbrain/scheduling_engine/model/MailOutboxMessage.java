@@ -0,0 +1,48 @@
+package com.chefsbrain.scheduling_engine.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A workspace invitation waiting to be emailed. Rows are written in the request that creates the
+ * workspace and sent later by MailOutboxWorker, so a slow or unreachable SMTP server never holds up
+ * the request and nothing is lost if the app restarts in between.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+// The worker polls PENDING rows whose next attempt is due
+@Table(name = "mail_outbox", indexes = {
+        @Index(name = "idx_mail_outbox_status_next_attempt", columnList = "status, nextAttemptAt")
+})
+public class MailOutboxMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String recipient;
+
+    // Template parameters of the invitation
+    private String workspaceName;
+    private String adminEmail;
+    private String workspacePassword; // cleared once the message is sent or given up on
+
+    @Enumerated(EnumType.STRING)
+    private MailOutboxStatus status;
+
+    private int attempts;
+    private LocalDateTime createdAt;
+    private LocalDateTime nextAttemptAt;
+    private LocalDateTime sentAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    // Identifies the poll that claimed the message while it is SENDING
+    @Column(length = 36)
+    private String claimToken;
+}
@@ -0,0 +1,11 @@
+package com.chefsbrain.scheduling_engine.model;
+
+/**
+ * Delivery state of a queued email.
+ */
+public enum MailOutboxStatus {
+    PENDING,    // Waiting for its first or next attempt (nextAttemptAt)
+    SENDING,    // Claimed by one node's poll until nextAttemptAt; claimable again after that (the node died)
+    SENT,
+    FAILED      // Gave up: permanent error or out of attempts
+}
@@ -5,6 +5,7 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -14,11 +15,19 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "kitchen_orders")
+// Startup recovery and history paging filter by status + workspace, so both lead the index
+@Table(name = "kitchen_orders", indexes = {
+        @Index(name = "idx_kitchen_orders_status_workspace", columnList = "status, workspaceId, completedAt")
+})
 public class Order implements Comparable<Order> {
 
+    // Ids are handed out in blocks, so neither Hibernate nor the write-behind queue
+    // needs a database round trip per order (and inserts can be batched)
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "kitchen_orders_seq")
+    @SequenceGenerator(name = "kitchen_orders_seq", sequenceName = "kitchen_orders_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
     private int tableNumber;
@@ -34,14 +43,26 @@ public class Order implements Comparable<Order> {
     private boolean isVip;
 
     private LocalDateTime orderPlacedTime;
+    // Time the order should be ready (the kitchen screen counts down to it); set by the station scheduler
     private LocalDateTime calculatedStartTime;
 
+    // Station projection: when the order should be fired, when it will be done, and on which station
+    private LocalDateTime projectedStartTime;
+    private LocalDateTime projectedFinishTime;
+    private Integer stationIndex;
+
     private Long workspaceId;
 
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    private LocalDateTime completedAt;
+
     // ────────────────────────────────────────────────
     // NEW FIELD: Customer-selected allergic ingredients
     // ────────────────────────────────────────────────
     @ElementCollection
+    @BatchSize(size = 100) // Lets recovery load a whole page of orders' allergies in one query
     @CollectionTable(name = "order_allergies", joinColumns = @JoinColumn(name = "order_id"))
     @Column(name = "allergen")
     private List<String> customerAllergies = new ArrayList<>();
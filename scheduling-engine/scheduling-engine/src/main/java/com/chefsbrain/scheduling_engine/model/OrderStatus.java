@@ -0,0 +1,10 @@
+package com.chefsbrain.scheduling_engine.model;
+
+/**
+ * Lifecycle of a kitchen order. Rows created before this column existed have a null status
+ * and are treated as archived (never reloaded into a live queue).
+ */
+public enum OrderStatus {
+    QUEUED,     // In a workspace's active heap
+    COMPLETED   // Moved to the workspace's history
+}
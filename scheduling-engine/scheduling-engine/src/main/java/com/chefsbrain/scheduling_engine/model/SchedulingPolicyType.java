@@ -0,0 +1,13 @@
+package com.chefsbrain.scheduling_engine.model;
+
+/**
+ * How a workspace's active queue is ordered. Stored on the workspace; null means the configured default.
+ */
+public enum SchedulingPolicyType {
+    // VIP orders always first, then earliest calculated start (the original ordering)
+    STRICT_VIP,
+    // Orders gain priority the longer they wait; a VIP only counts as having waited a few minutes longer
+    AGING,
+    // Least slack first: the order closest to missing its promised ready time, VIPs get a tighter promise
+    WEIGHTED_SLACK
+}
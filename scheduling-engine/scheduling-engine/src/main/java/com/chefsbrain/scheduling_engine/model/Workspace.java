@@ -1,5 +1,6 @@
 package com.chefsbrain.scheduling_engine.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -9,7 +10,10 @@ import lombok.NoArgsConstructor;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "workspaces")
+// Staff log in with the join code alone, so its digest is the lookup key
+@Table(name = "workspaces", indexes = {
+        @Index(name = "uk_workspaces_password_digest", columnList = "passwordDigest", unique = true)
+})
 public class Workspace {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -17,5 +21,18 @@ public class Workspace {
     private String name;
     private String adminEmail;
     private String adminPassword;
-    private String password; // New field
+    // Plaintext join code of workspaces created before passwordDigest; cleared by JoinCodeBackfill
+    private String password;
+
+    // Keyed digest (HMAC-SHA256, hex) of the join code; see JoinCodeDigester
+    @JsonIgnore
+    @Column(length = 64)
+    private String passwordDigest;
+
+    // How the active queue is ordered (null = kitchen.policy.default)
+    @Enumerated(EnumType.STRING)
+    private SchedulingPolicyType schedulingPolicy;
+
+    // Parallel cooking stations used to project fire times (null = kitchen.stations.default-count)
+    private Integer stationCount;
 }
\ No newline at end of file
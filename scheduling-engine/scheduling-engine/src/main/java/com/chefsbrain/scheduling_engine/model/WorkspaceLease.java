@@ -0,0 +1,36 @@
+package com.chefsbrain.scheduling_engine.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Which engine node owns a workspace's live kitchen state, in cluster mode (kitchen.cluster.enabled).
+ * The owner renews expiresAtMillis while it is alive; once that time has passed any node may take
+ * the workspace over, which bumps the epoch. Rows are only read and written by WorkspaceLeaseStore.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+// Renewals and releases touch every lease of one node
+@Table(name = "workspace_leases", indexes = {
+        @Index(name = "idx_workspace_leases_owner", columnList = "ownerNode")
+})
+public class WorkspaceLease {
+
+    @Id
+    private Long workspaceId;
+
+    @Column(nullable = false, length = 64)
+    private String ownerNode;
+
+    // Base URL other nodes forward the workspace's requests to
+    @Column(nullable = false)
+    private String ownerUrl;
+
+    // Incremented on every takeover, so an old owner can't renew a lease it has lost
+    private long epoch;
+
+    // Epoch millis by the owner's clock (nodes are expected to be NTP-synced to well under the lease margin)
+    private long expiresAtMillis;
+}
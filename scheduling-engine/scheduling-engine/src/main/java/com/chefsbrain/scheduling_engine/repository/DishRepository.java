@@ -2,10 +2,17 @@ package com.chefsbrain.scheduling_engine.repository;
 
 import com.chefsbrain.scheduling_engine.model.Dish;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
 
 // This interface gives us instant access to methods like .save(), .findAll(), etc.
 public interface DishRepository extends JpaRepository<Dish, Long> {
     List<Dish> findByWorkspaceId(Long workspaceId);
+
+    // Which workspace a dish belongs to, without loading the dish and its collections
+    @Query("select d.workspaceId from Dish d where d.id = :id")
+    Optional<Long> findWorkspaceIdById(@Param("id") Long id);
 }
\ No newline at end of file
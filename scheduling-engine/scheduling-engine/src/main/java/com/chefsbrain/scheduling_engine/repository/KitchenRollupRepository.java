@@ -0,0 +1,15 @@
+package com.chefsbrain.scheduling_engine.repository;
+
+import com.chefsbrain.scheduling_engine.model.KitchenRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Reads only; KitchenAnalytics writes the rollups with JDBC batches
+public interface KitchenRollupRepository extends JpaRepository<KitchenRollup, Long> {
+
+    // Buckets starting in [from, to)
+    List<KitchenRollup> findByWorkspaceIdAndBucketStartGreaterThanEqualAndBucketStartLessThan(
+            Long workspaceId, LocalDateTime from, LocalDateTime to);
+}
@@ -0,0 +1,39 @@
+package com.chefsbrain.scheduling_engine.repository;
+
+import com.chefsbrain.scheduling_engine.model.MailOutboxMessage;
+import com.chefsbrain.scheduling_engine.model.MailOutboxStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface MailOutboxRepository extends JpaRepository<MailOutboxMessage, Long> {
+
+    // Oldest due messages first (served by idx_mail_outbox_status_next_attempt)
+    @Query("select m.id from MailOutboxMessage m where m.status in :statuses and m.nextAttemptAt <= :now order by m.id")
+    List<Long> findDueIds(@Param("statuses") List<MailOutboxStatus> statuses, @Param("now") LocalDateTime now, Pageable page);
+
+    /**
+     * Claims those of the given messages that are still due for one poll: they become SENDING until claimedUntil.
+     * The conditions are re-checked per row under its write lock, so of several nodes claiming the same row
+     * exactly one succeeds.
+     */
+    @Modifying
+    @Transactional
+    @Query("update MailOutboxMessage m set m.status = :sending, m.claimToken = :token, m.nextAttemptAt = :claimedUntil " +
+            "where m.id in :ids and m.status in :statuses and m.nextAttemptAt <= :now")
+    int claim(@Param("ids") List<Long> ids, @Param("statuses") List<MailOutboxStatus> statuses, @Param("now") LocalDateTime now,
+              @Param("sending") MailOutboxStatus sending, @Param("token") String token,
+              @Param("claimedUntil") LocalDateTime claimedUntil);
+
+    List<MailOutboxMessage> findByClaimTokenOrderByIdAsc(String claimToken);
+
+    long countByStatus(MailOutboxStatus status);
+}
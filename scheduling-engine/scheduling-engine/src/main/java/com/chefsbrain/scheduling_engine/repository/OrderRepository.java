@@ -1,10 +1,41 @@
 package com.chefsbrain.scheduling_engine.repository;
 
 import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.model.OrderStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByWorkspaceId(Long workspaceId);
-}
\ No newline at end of file
+
+    // --- Startup recovery (served by idx_kitchen_orders_status_workspace) ---
+
+    @Query("select distinct o.workspaceId from Order o where o.status = :status")
+    List<Long> findWorkspaceIdsByStatus(@Param("status") OrderStatus status);
+
+    // Keyset page: pass the last id of the previous page (0 for the first page)
+    List<Order> findByStatusAndWorkspaceIdAndIdGreaterThanOrderByIdAsc(OrderStatus status, Long workspaceId, Long afterId, Pageable page);
+
+    List<Order> findByStatusAndWorkspaceIdOrderByCompletedAtDescIdDesc(OrderStatus status, Long workspaceId, Pageable page);
+
+    // --- History paging (newest first), continues after the given (completedAt, id) cursor ---
+
+    @Query("select o from Order o where o.workspaceId = :workspaceId and o.status = :status " +
+            "and (o.completedAt < :completedAt or (o.completedAt = :completedAt and o.id < :id)) " +
+            "order by o.completedAt desc, o.id desc")
+    List<Order> findCompletedBefore(@Param("workspaceId") Long workspaceId, @Param("status") OrderStatus status,
+                                    @Param("completedAt") LocalDateTime completedAt, @Param("id") Long id, Pageable page);
+
+    // Single UPDATE by primary key, no need to load the entity first
+    @Modifying
+    @Transactional
+    @Query("update Order o set o.status = :status, o.completedAt = :completedAt where o.id = :id")
+    int updateStatus(@Param("id") Long id, @Param("status") OrderStatus status, @Param("completedAt") LocalDateTime completedAt);
+}
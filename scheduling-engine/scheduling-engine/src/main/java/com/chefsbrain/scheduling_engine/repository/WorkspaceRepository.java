@@ -1,10 +1,34 @@
 package com.chefsbrain.scheduling_engine.repository;
 
 import com.chefsbrain.scheduling_engine.model.Workspace;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
 
 
 @Repository
 public interface WorkspaceRepository extends JpaRepository<Workspace, Long> {
-}
\ No newline at end of file
+
+    @Query("select w.id from Workspace w")
+    List<Long> findAllIds();
+
+    // Join code login (unique index on password_digest)
+    Optional<Workspace> findByPasswordDigest(String passwordDigest);
+
+    boolean existsByPasswordDigest(String passwordDigest);
+
+    // Workspaces created before the digest column existed, in id order
+    List<Workspace> findByPasswordDigestIsNullAndIdGreaterThanOrderByIdAsc(Long afterId, Pageable page);
+
+    // Drops plaintext join codes that are no longer needed because their digest is stored
+    @Modifying
+    @Transactional
+    @Query("update Workspace w set w.password = null where w.password is not null and w.passwordDigest is not null")
+    int clearDigestedJoinCodes();
+}
@@ -1,21 +1,101 @@
 package com.chefsbrain.scheduling_engine.service;
 
+import com.chefsbrain.scheduling_engine.dto.DishAllergyResultDTO;
+import com.chefsbrain.scheduling_engine.dto.OrderView;
 import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.model.SchedulingPolicyType;
+import com.chefsbrain.scheduling_engine.service.queue.QueueSnapshot;
 import java.util.List;
 
 public interface KitchenService {
 
+    // Throws IllegalArgumentException if the order's workspace doesn't exist
     void addOrderToQueue(Order order);
 
+    /**
+     * Queues a whole table's ticket of the given workspace in one step: booked on the stations together,
+     * persisted in one batch and added to the queue under a single lock. Returns the queued orders, in order.
+     * Throws IllegalArgumentException if the workspace doesn't exist.
+     */
+    List<Order> addTicketToQueue(Long workspaceId, List<Order> orders);
+
     Order getNextUrgentTask(Long workspaceId);
 
     boolean checkAllergyConflict(Long dishId, List<String> customerAllergies);
 
+    // Checks every dish of a cart against one allergy list; results are in the order of dishIds
+    List<DishAllergyResultDTO> checkCartAllergies(Long workspaceId, List<Long> dishIds, List<String> customerAllergies);
+
     void completeOrder(Order order);
 
+    // Returns the completed order, or null if it wasn't in the workspace's active queue
+    Order completeOrder(Long workspaceId, Long orderId);
+
+    // Returns the updated order, or null if it wasn't in the workspace's active queue
+    Order reprioritizeOrder(Long workspaceId, Long orderId, boolean isVip);
+
     void undoLastCompletion(Long workspaceId);
 
-    List<Order> getActiveQueue(Long workspaceId);
+    // Moves one specific completed order from the in-memory history back into the queue; null if it isn't there
+    Order uncompleteOrder(Long workspaceId, Long orderId);
+
+    /**
+     * Completes again the most recently undone order (undos are kept per workspace, bounded, and forgotten
+     * once another order is completed). Returns the completed order, or null if there is nothing to redo
+     * or that order is no longer in the queue.
+     */
+    Order redoCompletion(Long workspaceId);
+
+    SchedulingPolicyType getSchedulingPolicy(Long workspaceId);
+
+    /**
+     * Stores the workspace's scheduling policy and re-orders its active queue in place.
+     * Returns false if the workspace doesn't exist.
+     */
+    boolean changeSchedulingPolicy(Long workspaceId, SchedulingPolicyType type);
+
+    int getStationCount(Long workspaceId);
+
+    /**
+     * Stores how many parallel stations the workspace cooks on; later orders are projected onto them.
+     * Returns false if the workspace doesn't exist.
+     */
+    boolean changeStationCount(Long workspaceId, int stationCount);
+
+    List<OrderView> getActiveQueue(Long workspaceId);
+
+    // Versioned, pre-sorted copy of the active queue (rebuilt only when the queue changes)
+    QueueSnapshot getQueueSnapshot(Long workspaceId);
 
     List<Order> getHistory(Long workspaceId);
-}
\ No newline at end of file
+
+    /**
+     * One page of completed orders, newest first. beforeId is the id of the last order of the
+     * previous page (null for the first page). Recent pages come from memory, older ones from the database.
+     */
+    List<Order> getHistoryPage(Long workspaceId, Long beforeId, int limit);
+
+    /**
+     * Reloads a workspace's persisted state after a restart.
+     * activeOrders are QUEUED orders; completedOrders are the most recent completions, oldest first.
+     * Orders already in memory (e.g. placed while recovery was running) are not duplicated.
+     */
+    void restoreWorkspace(Long workspaceId, List<Order> activeOrders, List<Order> completedOrders);
+
+    /**
+     * Drops everything this node holds in memory for a workspace (queue, history, station board,
+     * cached menu, live screens) after another node took it over. The persisted orders are untouched.
+     */
+    void evictWorkspace(Long workspaceId);
+
+    /**
+     * Calls the visitor once per workspace held in memory with its active orders and in-memory history
+     * (oldest first), while holding that workspace's lock: nothing in it changes until the visitor returns.
+     */
+    void forEachWorkspace(WorkspaceVisitor visitor);
+
+    @FunctionalInterface
+    interface WorkspaceVisitor {
+        void visit(Long workspaceId, List<Order> activeOrders, List<Order> history);
+    }
+}
@@ -1,108 +1,526 @@
 package com.chefsbrain.scheduling_engine.service;
 
+import com.chefsbrain.scheduling_engine.dto.DishAllergyResultDTO;
+import com.chefsbrain.scheduling_engine.dto.OrderView;
+import com.chefsbrain.scheduling_engine.model.Dish;
 import com.chefsbrain.scheduling_engine.model.Order;
-import com.chefsbrain.scheduling_engine.repository.DishRepository;
+import com.chefsbrain.scheduling_engine.model.OrderStatus;
+import com.chefsbrain.scheduling_engine.model.SchedulingPolicyType;
 import com.chefsbrain.scheduling_engine.repository.OrderRepository;
-import com.chefsbrain.scheduling_engine.service.KitchenService;
+import com.chefsbrain.scheduling_engine.service.events.QueueEvent;
+import com.chefsbrain.scheduling_engine.service.events.QueueEventBroadcaster;
+import com.chefsbrain.scheduling_engine.service.events.QueueEventType;
 import com.chefsbrain.scheduling_engine.service.history.CustomOrderHistory;
+import com.chefsbrain.scheduling_engine.service.history.RedoStack;
+import com.chefsbrain.scheduling_engine.service.learning.PrepTimeLearner;
+import com.chefsbrain.scheduling_engine.service.menu.AllergenIndex;
+import com.chefsbrain.scheduling_engine.service.menu.MenuCache;
+import com.chefsbrain.scheduling_engine.service.menu.MenuSnapshot;
+import com.chefsbrain.scheduling_engine.service.analytics.KitchenAnalytics;
+import com.chefsbrain.scheduling_engine.service.metrics.KitchenMetrics;
+import com.chefsbrain.scheduling_engine.service.persistence.OrderPersistence;
+import com.chefsbrain.scheduling_engine.service.policy.SchedulingPolicies;
+import com.chefsbrain.scheduling_engine.service.policy.SchedulingPolicy;
+import com.chefsbrain.scheduling_engine.service.queue.IndexedOrderHeap;
+import com.chefsbrain.scheduling_engine.service.queue.QueueSnapshot;
+import com.chefsbrain.scheduling_engine.service.stations.StationScheduler;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
-import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.PriorityQueue;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
 @Service
 public class KitchenServiceImpl implements KitchenService {
 
-    private final Map<Long, PriorityQueue<Order>> workspaceHeaps = new ConcurrentHashMap<>();
+    private static final Logger log = LoggerFactory.getLogger(KitchenServiceImpl.class);
+
+    private final Map<Long, IndexedOrderHeap> workspaceHeaps = new ConcurrentHashMap<>();
     private final OrderRepository orderRepository;
-    private final DishRepository dishRepository;
+    private final PrepTimeLearner prepTimeLearner;
+    private final MenuCache menuCache;
+    private final SchedulingPolicies schedulingPolicies;
+    private final StationScheduler stationScheduler;
     private final Map<Long, CustomOrderHistory> workspaceHistories = new ConcurrentHashMap<>();
+    private final Map<Long, RedoStack> workspaceRedoStacks = new ConcurrentHashMap<>();
+    private final QueueEventBroadcaster eventBroadcaster;
+    private final OrderPersistence orderPersistence;
+    private final KitchenMetrics metrics;
+    private final KitchenAnalytics analytics;
+
+    @Value("${kitchen.history.capacity:" + CustomOrderHistory.DEFAULT_CAPACITY + "}")
+    private int historyCapacity = CustomOrderHistory.DEFAULT_CAPACITY;
 
-    public KitchenServiceImpl(OrderRepository orderRepository, DishRepository dishRepository) {
+    @Value("${kitchen.history.redo-capacity:" + RedoStack.DEFAULT_CAPACITY + "}")
+    private int redoCapacity = RedoStack.DEFAULT_CAPACITY;
+
+    public KitchenServiceImpl(OrderRepository orderRepository, PrepTimeLearner prepTimeLearner, MenuCache menuCache,
+                              SchedulingPolicies schedulingPolicies, StationScheduler stationScheduler,
+                              QueueEventBroadcaster eventBroadcaster, OrderPersistence orderPersistence,
+                              KitchenMetrics metrics, KitchenAnalytics analytics) {
         this.orderRepository = orderRepository;
-        this.dishRepository = dishRepository;
+        this.prepTimeLearner = prepTimeLearner;
+        this.menuCache = menuCache;
+        this.schedulingPolicies = schedulingPolicies;
+        this.stationScheduler = stationScheduler;
+        this.eventBroadcaster = eventBroadcaster;
+        this.orderPersistence = orderPersistence;
+        this.metrics = metrics;
+        this.analytics = analytics;
     }
     
-    private PriorityQueue<Order> getHeap(Long workspaceId) {
-        return workspaceHeaps.computeIfAbsent(workspaceId, k -> new PriorityQueue<>());
+    // The workspace's heap, created on first use; null if there is no such workspace
+    private IndexedOrderHeap findHeap(Long workspaceId) {
+        IndexedOrderHeap heap = workspaceId == null ? null : workspaceHeaps.get(workspaceId);
+        if (heap != null) return heap;
+        // Each heap is ordered by its workspace's scheduling policy, looked up once and before touching the map,
+        // so no other workspace's heap waits on the database
+        SchedulingPolicy policy = schedulingPolicies.findForWorkspace(workspaceId).orElse(null);
+        if (policy == null) return null;
+        return workspaceHeaps.computeIfAbsent(workspaceId, k -> {
+            IndexedOrderHeap created = new IndexedOrderHeap(policy::priorityKey);
+            metrics.registerQueue(workspaceId, created);
+            return created;
+        });
     }
-    
+
+    // Unknown workspaces read as empty: their heap isn't kept, so made-up ids don't pile up heaps and gauges
+    private IndexedOrderHeap getHeap(Long workspaceId) {
+        IndexedOrderHeap heap = findHeap(workspaceId);
+        return heap != null ? heap : new IndexedOrderHeap(schedulingPolicies.get(null)::priorityKey);
+    }
+
+    private boolean isKept(Long workspaceId) {
+        return workspaceId != null && workspaceHeaps.containsKey(workspaceId);
+    }
+
+    // Like the heap, kept (and measured) only for existing workspaces
     private CustomOrderHistory getHistoryObj(Long workspaceId) {
-        return workspaceHistories.computeIfAbsent(workspaceId, k -> new CustomOrderHistory());
+        if (!isKept(workspaceId)) return new CustomOrderHistory(historyCapacity);
+        return workspaceHistories.computeIfAbsent(workspaceId, k -> {
+            CustomOrderHistory history = new CustomOrderHistory(historyCapacity);
+            metrics.registerHistory(workspaceId, history);
+            return history;
+        });
+    }
+
+    // Guarded by the workspace's heap lock, like the history
+    private RedoStack getRedoStack(Long workspaceId) {
+        if (!isKept(workspaceId)) return new RedoStack(redoCapacity);
+        return workspaceRedoStacks.computeIfAbsent(workspaceId, k -> new RedoStack(redoCapacity));
+    }
+
+    // Caller holds the heap lock, so events are recorded in the same order as the versions and carry the order as of this change
+    private void publish(QueueEventType type, IndexedOrderHeap heap, Order order) {
+        eventBroadcaster.publish(new QueueEvent(type, order.getWorkspaceId(), heap.getEpoch(), heap.getVersion(), OrderView.of(order)));
     }
     
     @Override 
     public void addOrderToQueue(Order order) {
-        Order savedOrder = orderRepository.save(order);
-        getHeap(savedOrder.getWorkspaceId()).add(savedOrder);
+        Timer.Sample placing = Timer.start();
+        IndexedOrderHeap heap = requireHeap(order.getWorkspaceId());
+        order.setStatus(OrderStatus.QUEUED);
+        order.setCompletedAt(null);
+        // Book it on a station first: the projection is persisted with the order and drives its priority
+        StationScheduler.Reservation reservation = stationScheduler.admit(order);
+        // Synchronous save, or (write-behind mode) id assignment + queued batch insert
+        Order savedOrder;
+        try {
+            savedOrder = orderPersistence.insert(order);
+        } catch (RuntimeException e) {
+            // Never queued, so it mustn't keep its station or hold its table back
+            stationScheduler.cancel(reservation);
+            throw e;
+        }
+
+        Timer.Sample adding = Timer.start();
+        ReentrantLock lock = heap.getLock();
+        lock.lock();
+        try {
+            heap.add(savedOrder);
+            orderPersistence.recordChange(QueueEventType.ADDED, savedOrder);
+            publish(QueueEventType.ADDED, heap, savedOrder);
+        } finally {
+            lock.unlock();
+        }
+        adding.stop(metrics.heapAdd());
+        analytics.orderPlaced(savedOrder);
+        placing.stop(metrics.placeOrder());
     }
     
+    @Override
+    public List<Order> addTicketToQueue(Long workspaceId, List<Order> orders) {
+        Timer.Sample placing = Timer.start();
+        IndexedOrderHeap heap = requireHeap(workspaceId);
+        for (Order order : orders) {
+            order.setWorkspaceId(workspaceId);
+            order.setStatus(OrderStatus.QUEUED);
+            order.setCompletedAt(null);
+        }
+        StationScheduler.Reservation reservation = stationScheduler.admitTicket(workspaceId, orders);
+        List<Order> savedOrders;
+        try {
+            savedOrders = orderPersistence.insertAll(orders);
+        } catch (RuntimeException e) {
+            stationScheduler.cancel(reservation);
+            throw e;
+        }
+
+        Timer.Sample adding = Timer.start();
+        ReentrantLock lock = heap.getLock();
+        lock.lock();
+        try {
+            for (Order savedOrder : savedOrders) {
+                heap.add(savedOrder);
+                orderPersistence.recordChange(QueueEventType.ADDED, savedOrder);
+                publish(QueueEventType.ADDED, heap, savedOrder);
+            }
+        } finally {
+            lock.unlock();
+        }
+        adding.stop(metrics.heapAdd());
+        savedOrders.forEach(analytics::orderPlaced);
+        placing.stop(metrics.placeTicket());
+        return savedOrders;
+    }
+
+    // Orders are only taken for existing workspaces
+    private IndexedOrderHeap requireHeap(Long workspaceId) {
+        IndexedOrderHeap heap = findHeap(workspaceId);
+        if (heap == null) {
+            throw new IllegalArgumentException("Unknown workspace " + workspaceId);
+        }
+        return heap;
+    }
+
     @Override 
     public Order getNextUrgentTask(Long workspaceId) {
-        return getHeap(workspaceId).peek();
+        IndexedOrderHeap heap = getHeap(workspaceId);
+        return metrics.heapPeek().record(heap::peek);
     }
     
     @Override 
-    public List<Order> getActiveQueue(Long workspaceId) {
-        List<Order> sortedList = new ArrayList<>(getHeap(workspaceId));
-        Collections.sort(sortedList);
-        return sortedList;
+    public List<OrderView> getActiveQueue(Long workspaceId) {
+        return getQueueSnapshot(workspaceId).getOrders();
+    }
+
+    @Override
+    public QueueSnapshot getQueueSnapshot(Long workspaceId) {
+        IndexedOrderHeap heap = getHeap(workspaceId);
+        return metrics.heapSnapshot().record(heap::snapshot);
     }
     
-    @Override 
+    @Override
     public boolean checkAllergyConflict(Long dishId, List<String> customerAllergies) {
-        return false;
+        if (customerAllergies == null || customerAllergies.isEmpty()) return false;
+        MenuSnapshot menu = menuCache.findMenuOfDish(dishId);
+        if (menu == null) return false;
+        AllergenIndex index = menu.getAllergenIndex();
+        return index.conflicts(dishId, index.encode(customerAllergies));
+    }
+
+    @Override
+    public List<DishAllergyResultDTO> checkCartAllergies(Long workspaceId, List<Long> dishIds, List<String> customerAllergies) {
+        MenuSnapshot menu = menuCache.get(workspaceId);
+        AllergenIndex index = menu.getAllergenIndex();
+        BitSet allergies = index.encode(customerAllergies); // encoded once for the whole cart
+
+        List<DishAllergyResultDTO> results = new ArrayList<>(dishIds.size());
+        for (Long dishId : dishIds) {
+            Dish dish = menu.getDish(dishId);
+            if (dish == null) {
+                results.add(new DishAllergyResultDTO(dishId, null, false, false, List.of(), Map.of()));
+                continue;
+            }
+            List<String> conflicting = index.conflictingIngredients(dish, allergies);
+            Map<String, String> substitutions = new LinkedHashMap<>();
+            if (dish.getSubstitutions() != null) {
+                for (String ingredient : conflicting) {
+                    String substitute = dish.getSubstitutions().get(ingredient);
+                    if (substitute != null) substitutions.put(ingredient, substitute);
+                }
+            }
+            results.add(new DishAllergyResultDTO(dishId, dish.getName(), true, !conflicting.isEmpty(), conflicting, substitutions));
+        }
+        return results;
     }
     
     @Override
     public void completeOrder(Order order) {
-        getHeap(order.getWorkspaceId()).remove(order);
-        getHistoryObj(order.getWorkspaceId()).addLast(order);
-
-        // --- ADAPTIVE PREP TIME LEARNING ---
-        if (order.getOrderPlacedTime() != null && order.getDishId() != null) {
-            // Calculate actual time taken in minutes
-            long actualTimeMinutes = Duration.between(order.getOrderPlacedTime(), LocalDateTime.now()).toMinutes();
-
-            // Validate the time is reasonable (ignore immediate accidental clicks)
-            if (actualTimeMinutes > 0) {
-                dishRepository.findById(order.getDishId()).ifPresent(dish -> {
-                    // Exponential Moving Average (EMA)
-                    // 90% historical weight, 10% new actual time
-                    int updatedPrepTime = (int) Math.round((dish.getPrepTimeMinutes() * 0.9) + (actualTimeMinutes * 0.1));
-
-                    // Safety check: Ensure the prep time doesn't drop below 1 minute
-                    updatedPrepTime = Math.max(1, updatedPrepTime);
-
-                    dish.setPrepTimeMinutes(updatedPrepTime);
-                    dishRepository.save(dish);
-
-                    System.out.println("🧠 Adaptive Learning: " + dish.getName() +
-                            " took " + actualTimeMinutes + "m. Updated expected prep time to " + updatedPrepTime + "m.");
-                });
-            }
+        completeOrder(order.getWorkspaceId(), order.getId());
+    }
+
+    @Override
+    public Order completeOrder(Long workspaceId, Long orderId) {
+        return completeOrder(workspaceId, orderId, false);
+    }
+
+    // A completion other than a redo starts a new line of work, so the undos before it can't be redone any more
+    private Order completeOrder(Long workspaceId, Long orderId, boolean redo) {
+        Timer.Sample completing = Timer.start();
+        IndexedOrderHeap heap = getHeap(workspaceId);
+        Order order;
+
+        // Heap removal and history append happen as one step for this workspace
+        Timer.Sample removing = Timer.start();
+        ReentrantLock lock = heap.getLock();
+        lock.lock();
+        try {
+            order = heap.removeById(orderId);
+            if (order == null) return null;
+            if (!redo) getRedoStack(workspaceId).clear();
+            order.setStatus(OrderStatus.COMPLETED);
+            order.setCompletedAt(LocalDateTime.now());
+            getHistoryObj(workspaceId).addLast(order);
+            // Under the lock, so an undo of this completion can't book the station again before it is released
+            stationScheduler.release(order);
+            orderPersistence.recordChange(QueueEventType.COMPLETED, order);
+            publish(QueueEventType.COMPLETED, heap, order);
+            removing.stop(metrics.heapRemove());
+
+            // Persist the status so a restart rebuilds the queue and history correctly; still under the lock,
+            // so an undo's write can't overtake it
+            orderPersistence.saveStatus(order);
+        } finally {
+            lock.unlock();
         }
 
-        System.out.println("✅ Order moved to Custom DLL History: " + order.getDishName());
+        // --- ADAPTIVE PREP TIME LEARNING --- (in memory; persisted by the learner's periodic flush)
+        Order completed = order;
+        metrics.prepTimeUpdate().record(() -> prepTimeLearner.recordCompletion(completed, completed.getCompletedAt()));
+        analytics.orderCompleted(order);
+
+        completing.stop(metrics.completeOrder());
+        log.atInfo().setMessage("Order completed and moved to history")
+                .addKeyValue("workspaceId", workspaceId)
+                .addKeyValue("orderId", orderId)
+                .addKeyValue("dish", order.getDishName())
+                .log();
+        return order;
+    }
+
+    @Override
+    public Order reprioritizeOrder(Long workspaceId, Long orderId, boolean isVip) {
+        IndexedOrderHeap heap = getHeap(workspaceId);
+
+        Timer.Sample reprioritizing = Timer.start();
+        ReentrantLock lock = heap.getLock();
+        lock.lock();
+        try {
+            Order updated = heap.reprioritize(orderId, order -> order.setVip(isVip));
+            if (updated != null) {
+                orderPersistence.recordChange(QueueEventType.REPRIORITIZED, updated);
+                publish(QueueEventType.REPRIORITIZED, heap, updated);
+            }
+            return updated;
+        } finally {
+            lock.unlock();
+            reprioritizing.stop(metrics.heapReprioritize());
+        }
     }
 
     @Override
     public void undoLastCompletion(Long workspaceId) {
-        Order lastOrder = getHistoryObj(workspaceId).removeLast();
-        if (lastOrder != null) {
-            getHeap(workspaceId).add(lastOrder);
-            System.out.println("🔄 Undid completion. Order returned to Active: " + lastOrder.getDishName());
+        returnToQueue(workspaceId, CustomOrderHistory::removeLast);
+    }
+
+    @Override
+    public Order uncompleteOrder(Long workspaceId, Long orderId) {
+        return returnToQueue(workspaceId, history -> history.remove(orderId));
+    }
+
+    @Override
+    public Order redoCompletion(Long workspaceId) {
+        ReentrantLock lock = getHeap(workspaceId).getLock();
+        Long orderId;
+        lock.lock();
+        try {
+            orderId = getRedoStack(workspaceId).pop();
+        } finally {
+            lock.unlock();
+        }
+        if (orderId == null) return null;
+        // Null if the order left the queue some other way; the stale entry is dropped rather than redoing an older undo
+        return completeOrder(workspaceId, orderId, true);
+    }
+
+    // Moves the order the function takes out of the history back into the queue, and remembers it for redo
+    private Order returnToQueue(Long workspaceId, Function<CustomOrderHistory, Order> take) {
+        Timer.Sample undoing = Timer.start();
+        IndexedOrderHeap heap = getHeap(workspaceId);
+        Order order;
+        LocalDateTime undoneCompletion = null;
+
+        ReentrantLock lock = heap.getLock();
+        lock.lock();
+        try {
+            order = take.apply(getHistoryObj(workspaceId));
+            if (order != null) {
+                undoneCompletion = order.getCompletedAt();
+                order.setStatus(OrderStatus.QUEUED);
+                order.setCompletedAt(null);
+                heap.add(order);
+                stationScheduler.readmit(order);
+                getRedoStack(workspaceId).push(order.getId());
+                orderPersistence.recordChange(QueueEventType.UNDONE, order);
+                publish(QueueEventType.UNDONE, heap, order);
+                orderPersistence.saveStatus(order);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (order == null) return null;
+
+        analytics.completionUndone(order, undoneCompletion);
+        undoing.stop(metrics.undoCompletion());
+        log.atInfo().setMessage("Completion undone, order returned to the queue")
+                .addKeyValue("workspaceId", workspaceId)
+                .addKeyValue("orderId", order.getId())
+                .addKeyValue("dish", order.getDishName())
+                .log();
+        return order;
+    }
+
+    @Override
+    public SchedulingPolicyType getSchedulingPolicy(Long workspaceId) {
+        return schedulingPolicies.forWorkspace(workspaceId).type();
+    }
+
+    @Override
+    public boolean changeSchedulingPolicy(Long workspaceId, SchedulingPolicyType type) {
+        if (!schedulingPolicies.saveForWorkspace(workspaceId, type)) return false;
+
+        IndexedOrderHeap heap = getHeap(workspaceId);
+        ReentrantLock lock = heap.getLock();
+        lock.lock();
+        try {
+            // One O(N) rebuild; afterwards every change is O(log N) again
+            heap.reorder(schedulingPolicies.get(type)::priorityKey);
+            eventBroadcaster.publish(new QueueEvent(QueueEventType.POLICY_CHANGED, workspaceId, heap.getEpoch(), heap.getVersion(), null));
+        } finally {
+            lock.unlock();
         }
+        return true;
+    }
+
+    @Override
+    public int getStationCount(Long workspaceId) {
+        return stationScheduler.getStationCount(workspaceId);
+    }
+
+    @Override
+    public boolean changeStationCount(Long workspaceId, int stationCount) {
+        return stationScheduler.changeStationCount(workspaceId, stationCount);
     }
 
     @Override
     public List<Order> getHistory(Long workspaceId) {
-        return getHistoryObj(workspaceId).getAll();
+        // The history list is guarded by the same per-workspace lock as the heap
+        ReentrantLock lock = getHeap(workspaceId).getLock();
+        lock.lock();
+        try {
+            return getHistoryObj(workspaceId).getAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Order> getHistoryPage(Long workspaceId, Long beforeId, int limit) {
+        List<Order> page;
+        boolean cursorInMemory;
+
+        ReentrantLock lock = getHeap(workspaceId).getLock();
+        lock.lock();
+        try {
+            CustomOrderHistory history = getHistoryObj(workspaceId);
+            cursorInMemory = beforeId == null || history.contains(beforeId);
+            page = cursorInMemory ? history.getPageBefore(beforeId, limit) : new ArrayList<>();
+        } finally {
+            lock.unlock();
+        }
+        if (page.size() >= limit) return page;
+
+        // Older than what is kept in memory: continue from the database, after the last order we have
+        Order cursor;
+        if (!page.isEmpty()) {
+            cursor = page.get(page.size() - 1);
+        } else if (beforeId != null) {
+            cursor = orderRepository.findById(beforeId).orElse(null);
+            if (cursor == null || cursor.getCompletedAt() == null) return page;
+        } else {
+            return new ArrayList<>(orderRepository.findByStatusAndWorkspaceIdOrderByCompletedAtDescIdDesc(
+                    OrderStatus.COMPLETED, workspaceId, PageRequest.of(0, limit)));
+        }
+        page.addAll(orderRepository.findCompletedBefore(workspaceId, OrderStatus.COMPLETED,
+                cursor.getCompletedAt(), cursor.getId(), PageRequest.of(0, limit - page.size())));
+        return page;
+    }
+
+    @Override
+    public void restoreWorkspace(Long workspaceId, List<Order> activeOrders, List<Order> completedOrders) {
+        IndexedOrderHeap heap = getHeap(workspaceId);
+
+        ReentrantLock lock = heap.getLock();
+        lock.lock();
+        try {
+            CustomOrderHistory history = getHistoryObj(workspaceId);
+
+            List<Order> restored = new ArrayList<>();
+            for (Order order : activeOrders) {
+                if (heap.get(order.getId()) == null && !history.contains(order.getId())) {
+                    heap.add(order);
+                    publish(QueueEventType.ADDED, heap, order);
+                    restored.add(order);
+                }
+            }
+            stationScheduler.restore(workspaceId, restored);
+
+            // Reloaded completions are older than anything completed since boot, so they go in front
+            for (int i = completedOrders.size() - 1; i >= 0; i--) {
+                Order order = completedOrders.get(i);
+                if (!history.contains(order.getId()) && heap.get(order.getId()) == null) {
+                    history.addFirst(order);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void evictWorkspace(Long workspaceId) {
+        workspaceHeaps.remove(workspaceId);
+        workspaceHistories.remove(workspaceId);
+        workspaceRedoStacks.remove(workspaceId);
+        metrics.unregisterWorkspace(workspaceId);
+        stationScheduler.forget(workspaceId);
+        menuCache.invalidate(workspaceId);
+        // Screens reconnect and get routed to the new owner
+        eventBroadcaster.closeWorkspace(workspaceId);
+    }
+
+    @Override
+    public void forEachWorkspace(WorkspaceVisitor visitor) {
+        for (Map.Entry<Long, IndexedOrderHeap> entry : workspaceHeaps.entrySet()) {
+            ReentrantLock lock = entry.getValue().getLock();
+            lock.lock();
+            try {
+                visitor.visit(entry.getKey(), entry.getValue().toSortedList(), getHistoryObj(entry.getKey()).getAll());
+            } finally {
+                lock.unlock();
+            }
+        }
     }
-}
\ No newline at end of file
+}
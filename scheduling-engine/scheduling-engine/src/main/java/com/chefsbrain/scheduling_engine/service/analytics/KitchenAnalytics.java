@@ -0,0 +1,261 @@
+package com.chefsbrain.scheduling_engine.service.analytics;
+
+import com.chefsbrain.scheduling_engine.model.KitchenRollup;
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.repository.KitchenRollupRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hourly kitchen analytics per workspace and dish, maintained as orders are placed and completed.
+ *
+ * Each event adds to a handful of LongAdders in its (dish, hour) bucket, so recording is O(1) and never
+ * touches the database. A periodic flush writes what changed since the last flush into kitchen_rollups
+ * (a batch of increments, then a batch of inserts for buckets that had no row yet), and forgets buckets
+ * that are older than the previous hour and fully written. The dashboard reads the stored buckets of the
+ * range plus whatever hasn't been flushed yet; raw order rows are never scanned.
+ */
+@Component
+public class KitchenAnalytics {
+
+    private static final Logger log = LoggerFactory.getLogger(KitchenAnalytics.class);
+
+    // Orders placed without a menu dish are counted together
+    static final long NO_DISH = 0L;
+
+    private static final String INCREMENT_SQL = "update kitchen_rollups set dish_name = coalesce(?, dish_name), " +
+            "placed = placed + ?, vip_placed = vip_placed + ?, completed = completed + ?, vip_completed = vip_completed + ?, " +
+            "actual_seconds_sum = actual_seconds_sum + ?, predicted_seconds_sum = predicted_seconds_sum + ?, " +
+            "abs_error_seconds_sum = abs_error_seconds_sum + ?, wait_seconds_sum = wait_seconds_sum + ?, wait_samples = wait_samples + ? " +
+            "where workspace_id = ? and bucket_start = ? and dish_id = ?";
+    private static final String INSERT_SQL = "insert into kitchen_rollups (dish_name, placed, vip_placed, completed, vip_completed, " +
+            "actual_seconds_sum, predicted_seconds_sum, abs_error_seconds_sum, wait_seconds_sum, wait_samples, " +
+            "workspace_id, bucket_start, dish_id) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    record BucketKey(long dishId, LocalDateTime bucketStart) {
+    }
+
+    private final KitchenRollupRepository rollupRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    // workspace id -> its buckets that may still have unflushed counts
+    private final Map<Long, Map<BucketKey, RollupBucket>> workspaces = new ConcurrentHashMap<>();
+    // Held by the flush, and by dashboard reads so they never see a bucket both in the table and as unflushed
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public KitchenAnalytics(KitchenRollupRepository rollupRepository, JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager) {
+        this.rollupRepository = rollupRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void orderPlaced(Order order) {
+        if (order.getWorkspaceId() == null) return;
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime placedAt = order.getOrderPlacedTime() != null ? order.getOrderPlacedTime() : now;
+        RollupBucket bucket = bucket(order, now);
+        bucket.add(RollupBucket.PLACED, 1);
+        if (order.isVip()) bucket.add(RollupBucket.VIP_PLACED, 1);
+        if (order.getProjectedStartTime() != null) {
+            bucket.add(RollupBucket.WAIT_SECONDS, Math.max(0, Duration.between(placedAt, order.getProjectedStartTime()).toSeconds()));
+            bucket.add(RollupBucket.WAIT_SAMPLES, 1);
+        }
+    }
+
+    public void orderCompleted(Order order) {
+        if (order.getWorkspaceId() == null || order.getCompletedAt() == null) return;
+        addCompletion(bucket(order, order.getCompletedAt()), order, 1, order.getCompletedAt());
+    }
+
+    /**
+     * Takes back a completion that was undone. completedAt is the time the order had been completed at.
+     */
+    public void completionUndone(Order order, LocalDateTime completedAt) {
+        if (order.getWorkspaceId() == null || completedAt == null) return;
+        // compute: the bucket may be old enough to be evicted by a flush at the same moment
+        workspace(order.getWorkspaceId()).compute(key(order, completedAt), (key, bucket) -> {
+            if (bucket == null) bucket = new RollupBucket(order.getDishName());
+            addCompletion(bucket, order, -1, completedAt);
+            return bucket;
+        });
+    }
+
+    // The same inputs the prep time learner gets: actual time since placement vs the prep time predicted for the order
+    private static void addCompletion(RollupBucket bucket, Order order, int sign, LocalDateTime completedAt) {
+        bucket.add(RollupBucket.COMPLETED, sign);
+        if (order.isVip()) bucket.add(RollupBucket.VIP_COMPLETED, sign);
+        if (order.getOrderPlacedTime() == null) return;
+        long actualSeconds = Math.max(0, Duration.between(order.getOrderPlacedTime(), completedAt).toSeconds());
+        long predictedSeconds = order.getPrepTimeMinutes() * 60L;
+        bucket.add(RollupBucket.ACTUAL_SECONDS, sign * actualSeconds);
+        bucket.add(RollupBucket.PREDICTED_SECONDS, sign * predictedSeconds);
+        bucket.add(RollupBucket.ABS_ERROR_SECONDS, sign * Math.abs(actualSeconds - predictedSeconds));
+    }
+
+    // Events are only recorded in the current hour's buckets, which a flush never evicts
+    private RollupBucket bucket(Order order, LocalDateTime at) {
+        RollupBucket bucket = workspace(order.getWorkspaceId())
+                .computeIfAbsent(key(order, at), key -> new RollupBucket(order.getDishName()));
+        bucket.dishName(order.getDishName());
+        return bucket;
+    }
+
+    private Map<BucketKey, RollupBucket> workspace(Long workspaceId) {
+        return workspaces.computeIfAbsent(workspaceId, id -> new ConcurrentHashMap<>());
+    }
+
+    private static BucketKey key(Order order, LocalDateTime at) {
+        return new BucketKey(order.getDishId() == null ? NO_DISH : order.getDishId(), at.truncatedTo(ChronoUnit.HOURS));
+    }
+
+    // --- Persistence ---
+
+    private record PendingRow(Long workspaceId, BucketKey key, RollupBucket bucket, String dishName, long[] delta) {
+    }
+
+    @Scheduled(fixedDelayString = "${kitchen.analytics.flush-interval-ms:10000}")
+    public void flush() {
+        if (!flushLock.tryLock()) return;
+        try {
+            List<PendingRow> rows = new ArrayList<>();
+            workspaces.forEach((workspaceId, buckets) -> buckets.forEach((key, bucket) -> {
+                long[] delta = bucket.unflushed();
+                if (!RollupBucket.isZero(delta)) rows.add(new PendingRow(workspaceId, key, bucket, bucket.dishName(), delta));
+            }));
+            if (!rows.isEmpty()) {
+                transactionTemplate.executeWithoutResult(status -> write(rows));
+                rows.forEach(row -> row.bucket.markFlushed(row.delta));
+                log.atDebug().setMessage("Kitchen analytics flushed").addKeyValue("buckets", rows.size()).log();
+            }
+            evictFlushedBuckets();
+        } catch (RuntimeException e) {
+            // Nothing was marked flushed, so the same deltas are written next time
+            log.error("Kitchen analytics flush failed, will retry", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void write(List<PendingRow> rows) {
+        int[][] updated = jdbcTemplate.batchUpdate(INCREMENT_SQL, rows, rows.size(), KitchenAnalytics::bindRow);
+        List<PendingRow> missing = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (updated[0][i] == 0) missing.add(rows.get(i));
+        }
+        if (missing.isEmpty()) return;
+        // The unique index turns a row inserted concurrently elsewhere into a failed flush that is retried
+        jdbcTemplate.batchUpdate(INSERT_SQL, missing, missing.size(), KitchenAnalytics::bindRow);
+    }
+
+    // Both statements take the same parameters in the same order
+    private static void bindRow(PreparedStatement ps, PendingRow row) throws SQLException {
+        ps.setString(1, row.dishName);
+        for (int i = 0; i < RollupBucket.COUNTERS; i++) {
+            ps.setLong(2 + i, row.delta[i]);
+        }
+        ps.setLong(11, row.workspaceId);
+        ps.setTimestamp(12, Timestamp.valueOf(row.key.bucketStart()));
+        ps.setLong(13, row.key.dishId());
+    }
+
+    private void evictFlushedBuckets() {
+        LocalDateTime keepFrom = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusHours(1);
+        workspaces.forEach((workspaceId, buckets) -> {
+            for (BucketKey key : buckets.keySet()) {
+                if (!key.bucketStart().isBefore(keepFrom)) continue;
+                buckets.computeIfPresent(key, (k, bucket) -> RollupBucket.isZero(bucket.unflushed()) ? null : bucket);
+            }
+        });
+    }
+
+    // --- Dashboard ---
+
+    /**
+     * The workspace's rollups for the buckets starting in [from, to).
+     */
+    public KitchenDashboard dashboard(Long workspaceId, LocalDateTime from, LocalDateTime to) {
+        Map<BucketKey, long[]> sums = new HashMap<>();
+        Map<Long, String> dishNames = new HashMap<>();
+
+        flushLock.lock();
+        try {
+            for (KitchenRollup rollup : rollupRepository.findByWorkspaceIdAndBucketStartGreaterThanEqualAndBucketStartLessThan(workspaceId, from, to)) {
+                long[] stored = new long[RollupBucket.COUNTERS];
+                stored[RollupBucket.PLACED] = rollup.getPlaced();
+                stored[RollupBucket.VIP_PLACED] = rollup.getVipPlaced();
+                stored[RollupBucket.COMPLETED] = rollup.getCompleted();
+                stored[RollupBucket.VIP_COMPLETED] = rollup.getVipCompleted();
+                stored[RollupBucket.ACTUAL_SECONDS] = rollup.getActualSecondsSum();
+                stored[RollupBucket.PREDICTED_SECONDS] = rollup.getPredictedSecondsSum();
+                stored[RollupBucket.ABS_ERROR_SECONDS] = rollup.getAbsErrorSecondsSum();
+                stored[RollupBucket.WAIT_SECONDS] = rollup.getWaitSecondsSum();
+                stored[RollupBucket.WAIT_SAMPLES] = rollup.getWaitSamples();
+                add(sums, new BucketKey(rollup.getDishId(), rollup.getBucketStart()), stored);
+                if (rollup.getDishName() != null) dishNames.put(rollup.getDishId(), rollup.getDishName());
+            }
+            workspaces.getOrDefault(workspaceId, Map.of()).forEach((key, bucket) -> {
+                if (key.bucketStart().isBefore(from) || !key.bucketStart().isBefore(to)) return;
+                add(sums, key, bucket.unflushed());
+                if (bucket.dishName() != null) dishNames.put(key.dishId(), bucket.dishName());
+            });
+        } finally {
+            flushLock.unlock();
+        }
+
+        long[] total = new long[RollupBucket.COUNTERS];
+        Map<LocalDateTime, long[]> byHour = new TreeMap<>();
+        Map<Long, long[]> byDish = new HashMap<>();
+        sums.forEach((key, counts) -> {
+            addInto(total, counts);
+            addInto(byHour.computeIfAbsent(key.bucketStart(), hour -> new long[RollupBucket.COUNTERS]), counts);
+            addInto(byDish.computeIfAbsent(key.dishId(), dish -> new long[RollupBucket.COUNTERS]), counts);
+        });
+
+        List<KitchenDashboard.HourStats> hours = new ArrayList<>(byHour.size());
+        byHour.forEach((hour, counts) -> hours.add(new KitchenDashboard.HourStats(hour, KitchenDashboard.Stats.of(counts))));
+        List<KitchenDashboard.DishStats> dishes = new ArrayList<>(byDish.size());
+        byDish.forEach((dishId, counts) -> dishes.add(new KitchenDashboard.DishStats(
+                dishId == NO_DISH ? null : dishId, dishNames.get(dishId), KitchenDashboard.Stats.of(counts))));
+        dishes.sort(Comparator.comparingLong((KitchenDashboard.DishStats dish) -> dish.stats().completed())
+                .thenComparingLong(dish -> dish.stats().placed()).reversed());
+
+        return new KitchenDashboard(workspaceId, from, to, KitchenDashboard.Stats.of(total), hours, dishes);
+    }
+
+    private static void add(Map<BucketKey, long[]> sums, BucketKey key, long[] counts) {
+        addInto(sums.computeIfAbsent(key, k -> new long[RollupBucket.COUNTERS]), counts);
+    }
+
+    private static void addInto(long[] target, long[] counts) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] += counts[i];
+        }
+    }
+}
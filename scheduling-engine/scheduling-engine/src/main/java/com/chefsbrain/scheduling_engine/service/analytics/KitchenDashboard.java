@@ -0,0 +1,47 @@
+package com.chefsbrain.scheduling_engine.service.analytics;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Response of GET /api/analytics/dashboard: the workspace's totals for [from, to), the same per hour
+ * (oldest first, hours without activity left out) and per dish (busiest first).
+ */
+public record KitchenDashboard(Long workspaceId, LocalDateTime from, LocalDateTime to,
+                               Stats totals, List<HourStats> hours, List<DishStats> dishes) {
+
+    /**
+     * Averages are null when there is nothing to average.
+     * vipShare is the share of placed orders that were VIP; the prep time averages are over completions.
+     */
+    public record Stats(long placed, long vipPlaced, long completed, long vipCompleted, Double vipShare,
+                        Double avgActualMinutes, Double avgPredictedMinutes, Double meanAbsErrorMinutes,
+                        Double avgWaitMinutes) {
+
+        static Stats of(long[] sums) {
+            long placed = sums[RollupBucket.PLACED];
+            long completed = sums[RollupBucket.COMPLETED];
+            long waitSamples = sums[RollupBucket.WAIT_SAMPLES];
+            return new Stats(placed, sums[RollupBucket.VIP_PLACED], completed, sums[RollupBucket.VIP_COMPLETED],
+                    ratio(sums[RollupBucket.VIP_PLACED], placed),
+                    minutes(sums[RollupBucket.ACTUAL_SECONDS], completed),
+                    minutes(sums[RollupBucket.PREDICTED_SECONDS], completed),
+                    minutes(sums[RollupBucket.ABS_ERROR_SECONDS], completed),
+                    minutes(sums[RollupBucket.WAIT_SECONDS], waitSamples));
+        }
+
+        private static Double ratio(long part, long whole) {
+            return whole == 0 ? null : Math.round(part * 1000.0 / whole) / 1000.0;
+        }
+
+        private static Double minutes(long seconds, long count) {
+            return count == 0 ? null : Math.round(seconds * 10.0 / 60 / count) / 10.0;
+        }
+    }
+
+    public record HourStats(LocalDateTime hour, Stats stats) {
+    }
+
+    public record DishStats(Long dishId, String dishName, Stats stats) {
+    }
+}
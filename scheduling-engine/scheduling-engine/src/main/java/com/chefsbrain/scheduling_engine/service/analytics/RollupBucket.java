@@ -0,0 +1,69 @@
+package com.chefsbrain.scheduling_engine.service.analytics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory counters of one (workspace, dish, hour) bucket.
+ *
+ * The counters only ever accumulate; the flusher remembers how much of each it has already written
+ * and writes the difference. Resetting instead could lose an add that lands mid-reset.
+ */
+final class RollupBucket {
+
+    static final int PLACED = 0;
+    static final int VIP_PLACED = 1;
+    static final int COMPLETED = 2;
+    static final int VIP_COMPLETED = 3;
+    static final int ACTUAL_SECONDS = 4;
+    static final int PREDICTED_SECONDS = 5;
+    static final int ABS_ERROR_SECONDS = 6;
+    static final int WAIT_SECONDS = 7;
+    static final int WAIT_SAMPLES = 8;
+    static final int COUNTERS = 9;
+
+    private final LongAdder[] counters = new LongAdder[COUNTERS];
+    // Only read and written by the flusher (under its lock)
+    private final long[] flushed = new long[COUNTERS];
+    private volatile String dishName;
+
+    RollupBucket(String dishName) {
+        for (int i = 0; i < COUNTERS; i++) {
+            counters[i] = new LongAdder();
+        }
+        this.dishName = dishName;
+    }
+
+    void add(int counter, long value) {
+        counters[counter].add(value);
+    }
+
+    String dishName() {
+        return dishName;
+    }
+
+    void dishName(String name) {
+        if (name != null) this.dishName = name;
+    }
+
+    // Not yet written to the database, per counter
+    long[] unflushed() {
+        long[] delta = new long[COUNTERS];
+        for (int i = 0; i < COUNTERS; i++) {
+            delta[i] = counters[i].sum() - flushed[i];
+        }
+        return delta;
+    }
+
+    void markFlushed(long[] delta) {
+        for (int i = 0; i < COUNTERS; i++) {
+            flushed[i] += delta[i];
+        }
+    }
+
+    static boolean isZero(long[] delta) {
+        for (long value : delta) {
+            if (value != 0) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,66 @@
+package com.chefsbrain.scheduling_engine.service.auth;
+
+import com.chefsbrain.scheduling_engine.model.Workspace;
+import com.chefsbrain.scheduling_engine.repository.WorkspaceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Fills in the join code digest of workspaces created before the column existed, so they can still
+ * log in through the indexed lookup, and removes their plaintext code: a leaked table must not reveal
+ * codes. After the first boot these are two statements that find nothing.
+ */
+@Component
+public class JoinCodeBackfill implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(JoinCodeBackfill.class);
+    private static final int PAGE_SIZE = 500;
+
+    private final WorkspaceRepository workspaceRepository;
+    private final JoinCodeDigester digester;
+
+    public JoinCodeBackfill(WorkspaceRepository workspaceRepository, JoinCodeDigester digester) {
+        this.workspaceRepository = workspaceRepository;
+        this.digester = digester;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long afterId = 0;
+        int filled = 0;
+        while (true) {
+            List<Workspace> page = workspaceRepository.findByPasswordDigestIsNullAndIdGreaterThanOrderByIdAsc(
+                    afterId, PageRequest.of(0, PAGE_SIZE));
+            for (Workspace workspace : page) {
+                if (workspace.getPassword() == null) continue;
+                String digest = digester.digest(workspace.getPassword());
+                // Two old workspaces may share a code; only the first keeps it (as the old linear scan did)
+                if (workspaceRepository.existsByPasswordDigest(digest)) {
+                    log.warn("Workspace {} shares its join code with an older workspace; staff can't log in to it until it gets a new code",
+                            workspace.getId());
+                    // Its plaintext is the other workspace's valid code
+                    workspace.setPassword(null);
+                    workspaceRepository.saveAndFlush(workspace);
+                    continue;
+                }
+                workspace.setPasswordDigest(digest);
+                workspace.setPassword(null);
+                workspaceRepository.saveAndFlush(workspace);
+                filled++;
+            }
+            if (page.size() < PAGE_SIZE) break;
+            afterId = page.get(page.size() - 1).getId();
+        }
+        // Also covers rows that were given a digest while the plaintext code was still written alongside it
+        int cleared = workspaceRepository.clearDigestedJoinCodes();
+        if (filled > 0 || cleared > 0) {
+            log.info("Backfilled join code digests for {} workspaces, removed {} plaintext join codes", filled, cleared);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.chefsbrain.scheduling_engine.service.auth;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.HexFormat;
+
+/**
+ * Keyed digest of a workspace join code: HMAC-SHA256 under kitchen.auth.join-code-key, hex encoded.
+ * A leaked workspaces table doesn't let anyone test join codes offline without the key.
+ * Changing the key invalidates every stored digest. There is no built-in default: only the dev profile
+ * supplies a (public) key, so a deployment without one fails at startup.
+ */
+@Component
+public class JoinCodeDigester {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+    // Mac instances aren't thread-safe; one per thread
+    private final ThreadLocal<Mac> macs;
+
+    public JoinCodeDigester(@Value("${kitchen.auth.join-code-key:}") String key) {
+        if (key == null || key.isBlank()) {
+            throw new IllegalStateException("kitchen.auth.join-code-key (KITCHEN_JOIN_CODE_KEY) is not set; "
+                    + "only the dev profile has a default key");
+        }
+        this.key = new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.macs = ThreadLocal.withInitial(this::newMac);
+        newMac(); // fail at startup, not at the first login
+    }
+
+    public String digest(String joinCode) {
+        return HexFormat.of().formatHex(macs.get().doFinal(joinCode.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialise " + ALGORITHM, e);
+        }
+    }
+}
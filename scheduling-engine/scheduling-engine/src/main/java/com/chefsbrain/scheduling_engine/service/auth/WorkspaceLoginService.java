@@ -0,0 +1,161 @@
+package com.chefsbrain.scheduling_engine.service.auth;
+
+import com.chefsbrain.scheduling_engine.model.Workspace;
+import com.chefsbrain.scheduling_engine.repository.WorkspaceRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Staff login by workspace join code.
+ *
+ * A login is one indexed lookup by the code's digest, and usually not even that: hits are cached,
+ * and so are misses (for a shorter time), so guessing codes can't turn into database load.
+ * Each client (remote address, as forwarded by a trusted proxy) gets a token bucket of attempts on top of that.
+ */
+@Service
+public class WorkspaceLoginService {
+
+    public enum Outcome { OK, INVALID, RATE_LIMITED }
+
+    public record LoginResult(Outcome outcome, Long workspaceId, String kitchenName, long retryAfterSeconds) {
+
+        static LoginResult ok(CachedLookup hit) {
+            return new LoginResult(Outcome.OK, hit.workspaceId, hit.kitchenName, 0);
+        }
+
+        static final LoginResult INVALID = new LoginResult(Outcome.INVALID, null, null, 0);
+    }
+
+    // workspaceId == null: no workspace has this code
+    private record CachedLookup(Long workspaceId, String kitchenName, long expiresAtNanos) {
+    }
+
+    // Tokens and last refill of one client; only touched inside ConcurrentHashMap.compute*
+    private static final class Bucket {
+        double tokens;
+        long refilledAtNanos;
+    }
+
+    private final WorkspaceRepository workspaceRepository;
+    private final JoinCodeDigester digester;
+    private final Map<String, CachedLookup> hits = new ConcurrentHashMap<>();
+    private final Map<String, CachedLookup> misses = new ConcurrentHashMap<>();
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final long hitTtlNanos;
+    private final long missTtlNanos;
+    private final int maxCachedMisses;
+    private final int burst;
+    private final double tokensPerNano;
+
+    public WorkspaceLoginService(WorkspaceRepository workspaceRepository, JoinCodeDigester digester,
+                                 @Value("${kitchen.auth.cache-ttl-seconds:300}") long hitTtlSeconds,
+                                 @Value("${kitchen.auth.negative-cache-ttl-seconds:30}") long missTtlSeconds,
+                                 @Value("${kitchen.auth.negative-cache-size:10000}") int maxCachedMisses,
+                                 @Value("${kitchen.auth.login-burst:10}") int burst,
+                                 @Value("${kitchen.auth.logins-per-minute:30}") int loginsPerMinute) {
+        this.workspaceRepository = workspaceRepository;
+        this.digester = digester;
+        this.hitTtlNanos = TimeUnit.SECONDS.toNanos(hitTtlSeconds);
+        this.missTtlNanos = TimeUnit.SECONDS.toNanos(missTtlSeconds);
+        this.maxCachedMisses = maxCachedMisses;
+        this.burst = Math.max(1, burst);
+        this.tokensPerNano = Math.max(1, loginsPerMinute) / (double) TimeUnit.MINUTES.toNanos(1);
+    }
+
+    /**
+     * Checks a join code for the given client (its remote address).
+     */
+    public LoginResult login(String clientKey, String joinCode) {
+        long now = System.nanoTime();
+        long waitNanos = tryAcquire(clientKey, now);
+        if (waitNanos > 0) {
+            return new LoginResult(Outcome.RATE_LIMITED, null, null, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1));
+        }
+        if (joinCode == null || joinCode.isEmpty()) return LoginResult.INVALID;
+
+        String digest = digester.digest(joinCode);
+        CachedLookup cached = hits.get(digest);
+        if (cached == null) cached = misses.get(digest);
+        if (cached == null || cached.expiresAtNanos - now < 0) {
+            cached = lookup(digest, now);
+        }
+        return cached.workspaceId != null ? LoginResult.ok(cached) : LoginResult.INVALID;
+    }
+
+    /**
+     * Saves a new workspace with a join code no other workspace has. Returns the code;
+     * only its digest is stored.
+     */
+    public String saveWithNewJoinCode(Workspace workspace) {
+        while (true) {
+            // Random 6-character alphanumeric code
+            String code = UUID.randomUUID().toString().substring(0, 6).toUpperCase();
+            String digest = digester.digest(code);
+            if (workspaceRepository.existsByPasswordDigest(digest)) continue;
+            workspace.setPasswordDigest(digest);
+            try {
+                workspaceRepository.save(workspace);
+            } catch (DataIntegrityViolationException e) {
+                continue; // Taken by a workspace created at the same moment (unique index)
+            }
+            // Someone may have tried this code before; that cached miss is no longer true
+            misses.remove(digest);
+            return code;
+        }
+    }
+
+    private CachedLookup lookup(String digest, long now) {
+        CachedLookup result = workspaceRepository.findByPasswordDigest(digest)
+                .map(w -> new CachedLookup(w.getId(), w.getName(), now + hitTtlNanos))
+                .orElseGet(() -> new CachedLookup(null, null, now + missTtlNanos));
+        if (result.workspaceId != null) {
+            hits.put(digest, result);
+            misses.remove(digest);
+        } else {
+            // Bounded: a flood of random codes only ever costs maxCachedMisses entries
+            if (misses.size() >= maxCachedMisses) misses.clear();
+            misses.put(digest, result);
+        }
+        return result;
+    }
+
+    // Takes one token; returns 0, or how long until the client has a token again
+    private long tryAcquire(String clientKey, long now) {
+        long[] waitNanos = new long[1];
+        buckets.compute(clientKey, (key, bucket) -> {
+            if (bucket == null) {
+                bucket = new Bucket();
+                bucket.tokens = burst;
+            } else {
+                bucket.tokens = Math.min(burst, bucket.tokens + (now - bucket.refilledAtNanos) * tokensPerNano);
+            }
+            bucket.refilledAtNanos = now;
+            if (bucket.tokens >= 1) {
+                bucket.tokens -= 1;
+            } else {
+                waitNanos[0] = (long) Math.ceil((1 - bucket.tokens) / tokensPerNano);
+            }
+            return bucket;
+        });
+        return waitNanos[0];
+    }
+
+    // Forget clients whose bucket has refilled completely, and expired cache entries
+    @Scheduled(fixedDelayString = "${kitchen.auth.cleanup-interval-ms:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        for (String clientKey : buckets.keySet()) {
+            buckets.computeIfPresent(clientKey, (key, bucket) ->
+                    bucket.tokens + (now - bucket.refilledAtNanos) * tokensPerNano >= burst ? null : bucket);
+        }
+        hits.values().removeIf(lookup -> lookup.expiresAtNanos - now < 0);
+        misses.values().removeIf(lookup -> lookup.expiresAtNanos - now < 0);
+    }
+}
@@ -0,0 +1,90 @@
+package com.chefsbrain.scheduling_engine.service.cluster;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes the workspace_leases table shared by all engine nodes.
+ *
+ * Every write is a single conditional statement, so two nodes racing for the same workspace can't
+ * both win: the database's row lock decides, and the loser sees an update count of 0 (or a duplicate key).
+ */
+@Component
+@ConditionalOnProperty(name = "kitchen.cluster.enabled", havingValue = "true")
+public class WorkspaceLeaseStore {
+
+    public record Lease(Long workspaceId, String ownerNode, String ownerUrl, long epoch, long expiresAtMillis) {
+
+        public boolean isLive(long nowMillis) {
+            return expiresAtMillis > nowMillis;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public WorkspaceLeaseStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Lease find(Long workspaceId) {
+        List<Lease> leases = jdbcTemplate.query(
+                "select workspace_id, owner_node, owner_url, epoch, expires_at_millis from workspace_leases where workspace_id = ?",
+                (rs, i) -> new Lease(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getLong(4), rs.getLong(5)),
+                workspaceId);
+        return leases.isEmpty() ? null : leases.get(0);
+    }
+
+    /**
+     * Takes the workspace if nobody holds it, its lease has expired, or this node already holds it
+     * (e.g. after a restart). Returns the new lease, or null if another node holds a live one.
+     */
+    public Lease tryAcquire(Long workspaceId, String nodeId, String nodeUrl, long nowMillis, long expiresAtMillis) {
+        int updated = jdbcTemplate.update(
+                "update workspace_leases set owner_node = ?, owner_url = ?, epoch = epoch + 1, expires_at_millis = ? " +
+                        "where workspace_id = ? and (expires_at_millis <= ? or owner_node = ?)",
+                nodeId, nodeUrl, expiresAtMillis, workspaceId, nowMillis, nodeId);
+        if (updated == 0) {
+            try {
+                jdbcTemplate.update(
+                        "insert into workspace_leases (workspace_id, owner_node, owner_url, epoch, expires_at_millis) values (?, ?, ?, 1, ?)",
+                        workspaceId, nodeId, nodeUrl, expiresAtMillis);
+            } catch (DuplicateKeyException e) {
+                return null; // The row exists and another node's lease on it is live
+            }
+        }
+        Lease lease = find(workspaceId);
+        return lease != null && nodeId.equals(lease.ownerNode()) ? lease : null;
+    }
+
+    /**
+     * Extends the given leases in one batch. Returns the workspaces whose lease this node no longer
+     * holds at that epoch (taken over after it expired), which must be evicted.
+     */
+    public List<Long> renew(String nodeId, List<Lease> leases, long expiresAtMillis) {
+        int[] counts = batch("update workspace_leases set expires_at_millis = ? where workspace_id = ? and owner_node = ? and epoch = ?",
+                nodeId, leases, expiresAtMillis);
+        List<Long> lost = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) lost.add(leases.get(i).workspaceId());
+        }
+        return lost;
+    }
+
+    // Expires the leases right away, so other nodes can take the workspaces over without waiting them out
+    public void release(String nodeId, List<Lease> leases) {
+        batch("update workspace_leases set expires_at_millis = ? where workspace_id = ? and owner_node = ? and epoch = ?",
+                nodeId, leases, 0L);
+    }
+
+    private int[] batch(String sql, String nodeId, List<Lease> leases, long expiresAtMillis) {
+        if (leases.isEmpty()) return new int[0];
+        return jdbcTemplate.batchUpdate(sql, leases.stream()
+                .map(lease -> new Object[]{expiresAtMillis, lease.workspaceId(), nodeId, lease.epoch()})
+                .toList());
+    }
+}
@@ -0,0 +1,235 @@
+package com.chefsbrain.scheduling_engine.service.cluster;
+
+import com.chefsbrain.scheduling_engine.service.KitchenService;
+import com.chefsbrain.scheduling_engine.service.cluster.WorkspaceLeaseStore.Lease;
+import com.chefsbrain.scheduling_engine.service.persistence.OrderWriteBehindQueue;
+import com.chefsbrain.scheduling_engine.service.recovery.KitchenStateRecovery;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decides which engine node serves a workspace, in cluster mode (kitchen.cluster.enabled=true).
+ *
+ * A node takes a workspace the first time it is asked for it and nobody holds a live lease: it
+ * rebuilds the queue, history and station board from the persisted orders (the same warm start as
+ * a reboot) and then renews the lease every renew-interval-ms. If a node dies its leases run out and
+ * the next request for each of its workspaces, on any node, takes it over.
+ *
+ * A node only serves a workspace until a third of the lease before it would expire, so even with
+ * slightly skewed clocks an old owner has stopped before a new one can start. A node that finds it
+ * lost a lease (renewal matched nothing) drops the workspace's in-memory state at once.
+ */
+@Component
+@ConditionalOnProperty(name = "kitchen.cluster.enabled", havingValue = "true")
+public class WorkspaceOwnership {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkspaceOwnership.class);
+
+    /**
+     * Where a workspace's requests go: handled here (local) or forwarded to url.
+     */
+    public record Owner(String nodeId, String url, boolean local) {
+    }
+
+    // A lease this node holds, and how long it may keep serving the workspace on it
+    private record Held(Lease lease, long serveUntilMillis) {
+    }
+
+    // Another node's lease, as last read from the database
+    private record Seen(Lease lease, long readAtMillis) {
+    }
+
+    private final WorkspaceLeaseStore store;
+    private final KitchenService kitchenService;
+    private final KitchenStateRecovery recovery;
+    private final OrderWriteBehindQueue writeBehindQueue;
+    private final String nodeId;
+    private final String nodeUrl;
+    private final long leaseMillis;
+    private final long serveMillis;
+    private final long recheckMillis;
+    private final Map<Long, Held> held = new ConcurrentHashMap<>();
+    private final Map<Long, Seen> seen = new ConcurrentHashMap<>();
+    private final Map<Long, ReentrantLock> locks = new ConcurrentHashMap<>();
+
+    public WorkspaceOwnership(WorkspaceLeaseStore store, KitchenService kitchenService, KitchenStateRecovery recovery,
+                              Optional<OrderWriteBehindQueue> writeBehindQueue,
+                              @Value("${kitchen.cluster.node-id}") String nodeId,
+                              @Value("${kitchen.cluster.advertised-url}") String nodeUrl,
+                              @Value("${kitchen.cluster.lease-seconds:15}") long leaseSeconds,
+                              @Value("${kitchen.cluster.renew-interval-ms:5000}") long renewIntervalMs) {
+        if (renewIntervalMs * 2 >= TimeUnit.SECONDS.toMillis(leaseSeconds)) {
+            throw new IllegalArgumentException("kitchen.cluster.renew-interval-ms must be well under half the lease");
+        }
+        this.store = store;
+        this.kitchenService = kitchenService;
+        this.recovery = recovery;
+        this.writeBehindQueue = writeBehindQueue.orElse(null);
+        this.nodeId = nodeId;
+        this.nodeUrl = nodeUrl;
+        this.leaseMillis = TimeUnit.SECONDS.toMillis(leaseSeconds);
+        this.serveMillis = leaseMillis - leaseMillis / 3;
+        this.recheckMillis = renewIntervalMs;
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    // How long a caller should wait before retrying a workspace whose owner can't be reached
+    public long leaseSeconds() {
+        return TimeUnit.MILLISECONDS.toSeconds(leaseMillis);
+    }
+
+    /**
+     * Returns who serves the workspace, taking it over (and rebuilding its state) if nobody does.
+     * Returns null in the rare case the lease changed hands while it was being read; retry shortly.
+     */
+    public Owner ownerOf(Long workspaceId) {
+        long now = System.currentTimeMillis();
+        Held mine = held.get(workspaceId);
+        if (mine != null) {
+            if (now < mine.serveUntilMillis()) return local();
+            // Renewals have been failing (database unreachable?): stop serving before anybody else may start
+            lose(workspaceId, mine.lease().epoch(), "lease could not be renewed in time");
+        }
+
+        Seen other = seen.get(workspaceId);
+        if (other != null && now - other.readAtMillis() < recheckMillis && other.lease().isLive(now)) {
+            return remote(other.lease());
+        }
+        Lease lease = store.find(workspaceId);
+        if (lease != null && !nodeId.equals(lease.ownerNode()) && lease.isLive(now)) {
+            seen.put(workspaceId, new Seen(lease, now));
+            return remote(lease);
+        }
+        return takeOver(workspaceId);
+    }
+
+    // Called when the owner couldn't be reached, so the next request reads the lease again
+    public void forgetOwner(Long workspaceId) {
+        seen.remove(workspaceId);
+    }
+
+    private Owner takeOver(Long workspaceId) {
+        ReentrantLock lock = lock(workspaceId);
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            Held mine = held.get(workspaceId);
+            if (mine != null && now < mine.serveUntilMillis()) return local(); // Taken over while we waited
+
+            Lease lease = store.tryAcquire(workspaceId, nodeId, nodeUrl, now, now + leaseMillis);
+            if (lease == null) {
+                // Another node got there first
+                Lease current = store.find(workspaceId);
+                if (current == null) return null;
+                seen.put(workspaceId, new Seen(current, now));
+                return remote(current);
+            }
+
+            // Anything left from an earlier time this node owned the workspace is stale
+            kitchenService.evictWorkspace(workspaceId);
+            recovery.restoreWorkspace(workspaceId);
+            held.put(workspaceId, new Held(lease, now + serveMillis));
+            seen.remove(workspaceId);
+            log.atInfo().setMessage("Took over workspace")
+                    .addKeyValue("workspaceId", workspaceId)
+                    .addKeyValue("epoch", lease.epoch())
+                    .addKeyValue("durationMs", System.currentTimeMillis() - now)
+                    .log();
+            return local();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${kitchen.cluster.renew-interval-ms:5000}")
+    public void renewLeases() {
+        if (held.isEmpty()) return;
+        long now = System.currentTimeMillis();
+        List<Lease> leases = held.values().stream().map(Held::lease).toList();
+        List<Long> lost;
+        try {
+            lost = store.renew(nodeId, leases, now + leaseMillis);
+        } catch (DataAccessException e) {
+            log.warn("Could not renew {} workspace leases", leases.size(), e);
+            return; // ownerOf stops serving each workspace once its serve time runs out
+        }
+
+        for (Lease lease : leases) {
+            if (lost.contains(lease.workspaceId())) {
+                lose(lease.workspaceId(), lease.epoch(), "taken over by another node");
+            } else {
+                Lease renewed = new Lease(lease.workspaceId(), nodeId, nodeUrl, lease.epoch(), now + leaseMillis);
+                // Only if it is still the same lease (not lost and re-acquired in the meantime)
+                held.computeIfPresent(lease.workspaceId(), (id, current) ->
+                        current.lease().epoch() == lease.epoch() ? new Held(renewed, now + serveMillis) : current);
+            }
+        }
+    }
+
+    /**
+     * Hands every workspace back on shutdown, so other nodes can take them over at once instead of
+     * waiting for the leases to run out. Queued write-behind writes go to the database first: the
+     * next owner rebuilds from it.
+     */
+    @PreDestroy
+    public void releaseAll() {
+        if (held.isEmpty()) return;
+        if (writeBehindQueue != null) {
+            writeBehindQueue.drainAndStop();
+        }
+        List<Lease> leases = held.values().stream().map(Held::lease).toList();
+        held.clear();
+        try {
+            store.release(nodeId, leases);
+            log.info("Released {} workspace leases", leases.size());
+        } catch (DataAccessException e) {
+            log.warn("Could not release {} workspace leases; they expire on their own", leases.size(), e);
+        }
+    }
+
+    private void lose(Long workspaceId, long epoch, String reason) {
+        ReentrantLock lock = lock(workspaceId);
+        lock.lock();
+        try {
+            Held mine = held.get(workspaceId);
+            if (mine == null || mine.lease().epoch() != epoch) return;
+            held.remove(workspaceId);
+            kitchenService.evictWorkspace(workspaceId);
+            log.atWarn().setMessage("Gave up workspace")
+                    .addKeyValue("workspaceId", workspaceId)
+                    .addKeyValue("epoch", epoch)
+                    .addKeyValue("reason", reason)
+                    .log();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lock(Long workspaceId) {
+        return locks.computeIfAbsent(workspaceId, id -> new ReentrantLock());
+    }
+
+    private Owner local() {
+        return new Owner(nodeId, nodeUrl, true);
+    }
+
+    private static Owner remote(Lease lease) {
+        return new Owner(lease.ownerNode(), lease.ownerUrl(), false);
+    }
+}
@@ -0,0 +1,237 @@
+package com.chefsbrain.scheduling_engine.service.cluster;
+
+import com.chefsbrain.scheduling_engine.repository.DishRepository;
+import com.chefsbrain.scheduling_engine.service.cluster.WorkspaceOwnership.Owner;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sends every workspace request to the node that owns the workspace, in cluster mode.
+ *
+ * The workspace comes from the workspaceId query parameter, the path (/api/workspaces/{id}/...,
+ * /api/dishes/{id}) or the workspaceId field of a JSON body. Requests for a workspace this node owns
+ * (or just took over) go on to the controllers; the rest are forwarded to the owner and its response
+ * is streamed back as it arrives, so queue streams (SSE) and exports work through any node.
+ *
+ * A request is forwarded at most once: if the node it was forwarded to doesn't own the workspace
+ * either (ownership is moving) or the owner can't be reached (it died and its lease hasn't run out
+ * yet), the caller gets 503 with Retry-After.
+ */
+@Component
+@ConditionalOnProperty(name = "kitchen.cluster.enabled", havingValue = "true")
+public class WorkspaceRoutingFilter extends OncePerRequestFilter {
+
+    static final String FORWARDED_BY = "X-Kitchen-Forwarded-By";
+
+    private static final Logger log = LoggerFactory.getLogger(WorkspaceRoutingFilter.class);
+
+    // Order, ticket and dish bodies are small; anything bigger (menu imports) carries workspaceId in the URL
+    private static final int MAX_INSPECTED_BODY = 1 << 20;
+    private static final Pattern WORKSPACE_PATH = Pattern.compile("^/api/workspaces/(\\d+)(/.*)?$");
+    private static final Pattern DISH_PATH = Pattern.compile("^/api/dishes/(\\d+)$");
+    // Hop-by-hop headers, and those the HTTP client sets itself
+    private static final Set<String> UNFORWARDED_HEADERS = Set.of("connection", "keep-alive", "proxy-authenticate",
+            "proxy-authorization", "te", "trailer", "transfer-encoding", "upgrade", "host", "content-length", "expect");
+
+    private final WorkspaceOwnership ownership;
+    private final DishRepository dishRepository;
+    private final ObjectMapper objectMapper;
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(2))
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .build();
+
+    public WorkspaceRoutingFilter(WorkspaceOwnership ownership, DishRepository dishRepository, ObjectMapper objectMapper) {
+        this.ownership = ownership;
+        this.dishRepository = dishRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        HttpServletRequest routed = request;
+        Long workspaceId = workspaceFromUrl(request);
+        if (workspaceId == null && hasSmallJsonBody(request)) {
+            CachedBodyRequest cached = new CachedBodyRequest(request, request.getInputStream().readAllBytes());
+            routed = cached;
+            workspaceId = workspaceFromJson(cached.body());
+        }
+        if (workspaceId == null) {
+            // Not tied to a workspace (creating one, logging in): any node can answer
+            chain.doFilter(routed, response);
+            return;
+        }
+
+        Owner owner;
+        try {
+            owner = ownership.ownerOf(workspaceId);
+        } catch (DataAccessException e) {
+            log.warn("Could not look up the owner of workspace {}", workspaceId, e);
+            unavailable(response, 1, "The kitchen is not reachable right now");
+            return;
+        }
+        if (owner != null && owner.local()) {
+            chain.doFilter(routed, response);
+        } else if (owner == null || request.getHeader(FORWARDED_BY) != null) {
+            unavailable(response, 1, "The kitchen is moving to another server");
+        } else {
+            forward(routed, response, workspaceId, owner);
+        }
+    }
+
+    private void forward(HttpServletRequest request, HttpServletResponse response, Long workspaceId, Owner owner)
+            throws IOException {
+        String query = request.getQueryString();
+        HttpRequest.Builder builder = HttpRequest.newBuilder(
+                        URI.create(owner.url() + request.getRequestURI() + (query != null ? "?" + query : "")))
+                .method(request.getMethod(), bodyOf(request));
+        for (String name : Collections.list(request.getHeaderNames())) {
+            if (UNFORWARDED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) continue;
+            for (String value : Collections.list(request.getHeaders(name))) {
+                builder.header(name, value);
+            }
+        }
+        builder.header(FORWARDED_BY, ownership.nodeId());
+
+        HttpResponse<InputStream> upstream;
+        try {
+            upstream = client.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IOException e) {
+            // Usually a node that died with its lease still running; ask again once it has expired
+            ownership.forgetOwner(workspaceId);
+            log.atWarn().setMessage("Could not forward request to workspace owner")
+                    .addKeyValue("workspaceId", workspaceId)
+                    .addKeyValue("owner", owner.nodeId())
+                    .addKeyValue("error", e.toString())
+                    .log();
+            unavailable(response, ownership.leaseSeconds(), "The kitchen is moving to another server");
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            unavailable(response, 1, "The kitchen is not reachable right now");
+            return;
+        }
+
+        response.setStatus(upstream.statusCode());
+        upstream.headers().map().forEach((name, values) -> {
+            if (!name.startsWith(":") && !UNFORWARDED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                values.forEach(value -> response.addHeader(name, value));
+            }
+        });
+        // Passed on as it arrives: queue streams must not wait for a full buffer
+        try (InputStream in = upstream.body()) {
+            OutputStream out = response.getOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                out.flush();
+            }
+        }
+    }
+
+    private static HttpRequest.BodyPublisher bodyOf(HttpServletRequest request) {
+        if (request instanceof CachedBodyRequest cached) {
+            return HttpRequest.BodyPublishers.ofByteArray(cached.body());
+        }
+        if (request.getContentLengthLong() <= 0 && request.getHeader("Transfer-Encoding") == null) {
+            return HttpRequest.BodyPublishers.noBody();
+        }
+        // Large bodies (menu imports) are streamed through, not buffered
+        return HttpRequest.BodyPublishers.ofInputStream(() -> {
+            try {
+                return request.getInputStream();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private Long workspaceFromUrl(HttpServletRequest request) {
+        String query = request.getQueryString();
+        if (query != null) {
+            // Read from the query string itself: getParameter() could consume a form body
+            String value = UriComponentsBuilder.newInstance().query(query).build().getQueryParams().getFirst("workspaceId");
+            Long workspaceId = parseId(value);
+            if (workspaceId != null) return workspaceId;
+        }
+        String path = request.getRequestURI();
+        Matcher workspace = WORKSPACE_PATH.matcher(path);
+        if (workspace.matches()) {
+            return parseId(workspace.group(1));
+        }
+        Matcher dish = DISH_PATH.matcher(path);
+        if (dish.matches()) {
+            Long dishId = parseId(dish.group(1));
+            return dishId == null ? null : dishRepository.findWorkspaceIdById(dishId).orElse(null);
+        }
+        return null;
+    }
+
+    private static boolean hasSmallJsonBody(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        long length = request.getContentLengthLong();
+        return contentType != null && contentType.toLowerCase(Locale.ROOT).contains("json")
+                && length > 0 && length <= MAX_INSPECTED_BODY;
+    }
+
+    private Long workspaceFromJson(byte[] body) {
+        try {
+            JsonNode workspaceId = objectMapper.readTree(body).path("workspaceId");
+            return workspaceId.isNumber() ? Long.valueOf(workspaceId.asLong()) : parseId(workspaceId.asText(null));
+        } catch (IOException e) {
+            return null; // Malformed JSON is the controller's to reject
+        }
+    }
+
+    private static Long parseId(String value) {
+        if (value == null || value.isBlank()) return null;
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void unavailable(HttpServletResponse response, long retryAfterSeconds, String message) throws IOException {
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader("Retry-After", String.valueOf(Math.max(1, retryAfterSeconds)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of("message", message));
+    }
+}
@@ -0,0 +1,12 @@
+package com.chefsbrain.scheduling_engine.service.events;
+
+import com.chefsbrain.scheduling_engine.dto.OrderView;
+
+/**
+ * One change to a workspace's active queue.
+ * The version is the heap version right after the change, so clients can detect gaps;
+ * epoch identifies the heap (see IndexedOrderHeap), versions of different epochs are unrelated.
+ * The order is frozen when the event is published, so a replayed event shows the order as it was then.
+ */
+public record QueueEvent(QueueEventType type, Long workspaceId, long epoch, long version, OrderView order) {
+}
@@ -0,0 +1,270 @@
+package com.chefsbrain.scheduling_engine.service.events;
+
+import com.chefsbrain.scheduling_engine.config.KitchenThreads;
+import com.chefsbrain.scheduling_engine.service.queue.QueueSnapshot;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Pushes active-queue changes to kitchen screens over Server-Sent Events.
+ *
+ * publish() is called by the service while it holds the workspace lock, so it only records the
+ * event and hands the sending to a small dispatcher pool. Each workspace's sends run one at a time
+ * and in version order. A short replay buffer lets a reconnecting screen catch up from the last
+ * version it saw; if that version is too old (or from before a restart) it gets a full snapshot.
+ */
+@Component
+public class QueueEventBroadcaster {
+
+    private static final int REPLAY_BUFFER_SIZE = 256;
+    private static final long EMITTER_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(30);
+    private static final long HEARTBEAT_SECONDS = 20;
+
+    private final ObjectMapper objectMapper;
+    private final Map<Long, Channel> channels = new ConcurrentHashMap<>();
+    private final ExecutorService dispatcher;
+    private final ScheduledExecutorService heartbeat;
+
+    public QueueEventBroadcaster(ObjectMapper objectMapper, KitchenThreads threads) {
+        this.objectMapper = objectMapper;
+        // Sends block on slow screens; on virtual threads that costs no platform thread
+        this.dispatcher = Executors.newFixedThreadPool(2, threads.factory("queue-events"));
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(threads.factory("queue-events-heartbeat"));
+        // Comment lines keep idle connections from being closed by proxies
+        heartbeat.scheduleAtFixedRate(() -> channels.values().forEach(Channel::heartbeat),
+                HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Records a queue change and schedules it for delivery. Never blocks on the network.
+     */
+    public void publish(QueueEvent event) {
+        channel(event.workspaceId()).record(event);
+    }
+
+    /**
+     * Opens a stream for one screen.
+     * lastEventId is the id of the last event the screen saw (the browser's Last-Event-ID on reconnect),
+     * or null for a fresh screen, which always starts with a snapshot.
+     */
+    public SseEmitter subscribe(Long workspaceId, String lastEventId, Supplier<QueueSnapshot> snapshotSupplier) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        Channel channel = channel(workspaceId);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> channel.subscribers.remove(subscriber));
+        emitter.onTimeout(() -> channel.subscribers.remove(subscriber));
+        emitter.onError(e -> channel.subscribers.remove(subscriber));
+
+        EventPosition since = parseEventId(lastEventId);
+        channel.submit(() -> channel.handshake(subscriber, since, snapshotSupplier));
+        return emitter;
+    }
+
+    /**
+     * Ends every stream of the workspace and forgets its replay buffer (the workspace moved to another node).
+     */
+    public void closeWorkspace(Long workspaceId) {
+        Channel channel = channels.remove(workspaceId);
+        if (channel != null) {
+            channel.submit(() -> channel.subscribers.forEach(s -> s.emitter.complete()));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        dispatcher.shutdownNow();
+        channels.values().forEach(channel -> channel.subscribers.forEach(s -> s.emitter.complete()));
+    }
+
+    private Channel channel(Long workspaceId) {
+        return channels.computeIfAbsent(workspaceId, k -> new Channel());
+    }
+
+    // Event ids look like "<bootId>-<epoch>-<version>"; ids from a previous run of the server are ignored
+    private static String eventId(long epoch, long version) {
+        return QueueSnapshot.bootId() + "-" + epoch + "-" + version;
+    }
+
+    private record EventPosition(long epoch, long version) {
+    }
+
+    private static EventPosition parseEventId(String eventId) {
+        if (eventId == null) return null;
+        String prefix = QueueSnapshot.bootId() + "-";
+        if (!eventId.startsWith(prefix)) return null;
+        String[] parts = eventId.substring(prefix.length()).split("-");
+        if (parts.length != 2) return null;
+        try {
+            return new EventPosition(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static final class Subscriber {
+        final SseEmitter emitter;
+        // Highest version already delivered; only touched by the channel's drain
+        long lastVersion = -1;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+    }
+
+    /**
+     * Per-workspace state: replay buffer, subscribers, and a serial task queue drained by the dispatcher.
+     */
+    private final class Channel {
+        final ReentrantLock lock = new ReentrantLock();
+        final ArrayDeque<QueueEvent> recent = new ArrayDeque<>();
+        final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean draining = new AtomicBoolean();
+
+        void record(QueueEvent event) {
+            lock.lock();
+            try {
+                recent.addLast(event);
+                if (recent.size() > REPLAY_BUFFER_SIZE) {
+                    recent.removeFirst();
+                }
+                // Enqueued under the lock so the task order matches the replay buffer order
+                pending.add(() -> broadcast(event));
+            } finally {
+                lock.unlock();
+            }
+            scheduleDrain();
+        }
+
+        void submit(Runnable task) {
+            pending.add(task);
+            scheduleDrain();
+        }
+
+        void heartbeat() {
+            if (!subscribers.isEmpty()) {
+                submit(() -> subscribers.forEach(s -> send(s, SseEmitter.event().comment("ping"))));
+            }
+        }
+
+        void handshake(Subscriber subscriber, EventPosition since, Supplier<QueueSnapshot> snapshotSupplier) {
+            List<QueueEvent> replay = null;
+            long sinceVersion = since == null ? -1 : since.version();
+            lock.lock();
+            try {
+                // Only from the same heap: after a takeover the rebuilt queue counts its versions from 0 again
+                if (since != null && !recent.isEmpty()
+                        && recent.peekFirst().epoch() == since.epoch() && recent.peekLast().epoch() == since.epoch()
+                        && recent.peekFirst().version() <= sinceVersion + 1
+                        && sinceVersion <= recent.peekLast().version()) {
+                    replay = new ArrayList<>();
+                    for (QueueEvent event : recent) {
+                        if (event.version() > sinceVersion) replay.add(event);
+                    }
+                }
+                // Registered under the lock: anything recorded from now on is queued behind this task
+                subscribers.add(subscriber);
+            } finally {
+                lock.unlock();
+            }
+
+            if (replay != null) {
+                subscriber.lastVersion = sinceVersion;
+                for (QueueEvent event : replay) {
+                    deliver(subscriber, event);
+                }
+            } else {
+                QueueSnapshot snapshot = snapshotSupplier.get();
+                if (send(subscriber, SseEmitter.event()
+                        .id(eventId(snapshot.getEpoch(), snapshot.getVersion()))
+                        .name("snapshot")
+                        .data(toJson(Map.of("version", snapshot.getVersion(), "orders", snapshot.getOrders())), MediaType.APPLICATION_JSON))) {
+                    subscriber.lastVersion = snapshot.getVersion();
+                }
+            }
+        }
+
+        void broadcast(QueueEvent event) {
+            for (Subscriber subscriber : subscribers) {
+                deliver(subscriber, event);
+            }
+        }
+
+        void deliver(Subscriber subscriber, QueueEvent event) {
+            // Events already covered by the subscriber's snapshot/replay are skipped
+            if (event.version() <= subscriber.lastVersion) return;
+            if (send(subscriber, SseEmitter.event()
+                    .id(eventId(event.epoch(), event.version()))
+                    .name("delta")
+                    .data(toJson(event), MediaType.APPLICATION_JSON))) {
+                subscriber.lastVersion = event.version();
+            }
+        }
+
+        boolean send(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+            try {
+                subscriber.emitter.send(event);
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                // Screen went away; drop it, the browser will reconnect with its Last-Event-ID
+                subscribers.remove(subscriber);
+                return false;
+            }
+        }
+
+        void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    dispatcher.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false); // shutting down
+                }
+            }
+        }
+
+        void drain() {
+            try {
+                Runnable task;
+                while ((task = pending.poll()) != null) {
+                    task.run();
+                }
+            } finally {
+                draining.set(false);
+            }
+            if (!pending.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize queue event", e);
+        }
+    }
+}
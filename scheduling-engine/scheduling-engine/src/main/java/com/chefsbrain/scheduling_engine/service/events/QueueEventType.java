@@ -0,0 +1,10 @@
+package com.chefsbrain.scheduling_engine.service.events;
+
+public enum QueueEventType {
+    ADDED,
+    COMPLETED,
+    UNDONE,
+    REPRIORITIZED,
+    // The workspace switched scheduling policy and the whole queue was re-ordered (no single order)
+    POLICY_CHANGED
+}
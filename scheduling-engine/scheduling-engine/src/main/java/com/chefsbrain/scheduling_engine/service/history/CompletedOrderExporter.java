@@ -0,0 +1,237 @@
+package com.chefsbrain.scheduling_engine.service.history;
+
+import com.chefsbrain.scheduling_engine.service.menu.CsvFields;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports a workspace's completed orders for a date range, straight from kitchen_orders and order_allergies.
+ *
+ * One query joins the orders with their allergies, ordered so an order's rows are adjacent, and is read
+ * through a forward-only cursor with a fixed fetch size (PostgreSQL only uses a cursor inside a transaction,
+ * hence the read-only one). Each order is written as soon as its last row has been read, so memory stays
+ * the same whatever the range.
+ */
+@Component
+public class CompletedOrderExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(CompletedOrderExporter.class);
+
+    public enum Format { NDJSON, CSV }
+
+    static final String EXPORT_SQL = "select o.id, o.table_number, o.dish_id, o.dish_name, o.quantity, o.prep_time_minutes, " +
+            "o.is_vip, o.order_placed_time, o.completed_at, a.allergen " +
+            "from kitchen_orders o left join order_allergies a on a.order_id = o.id " +
+            "where o.status = 'COMPLETED' and o.workspace_id = ? and o.completed_at >= ? and o.completed_at < ? " +
+            "order by o.completed_at, o.id";
+
+    private static final String CSV_HEADER = "id,tableNumber,dishId,dishName,quantity,prepTimeMinutes,isVip,orderPlacedTime,completedAt,customerAllergies";
+
+    private final JdbcTemplate cursorTemplate;
+    private final TransactionTemplate readOnlyTx;
+    private final ObjectMapper objectMapper;
+
+    public CompletedOrderExporter(DataSource dataSource, PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                                  @Value("${kitchen.export.fetch-size:500}") int fetchSize) {
+        // A template of its own, so the fetch size only applies to exports
+        this.cursorTemplate = new JdbcTemplate(dataSource);
+        this.cursorTemplate.setFetchSize(Math.max(1, fetchSize));
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Writes the orders completed in [from, to) to out. Returns the number of orders written.
+     */
+    public long export(Long workspaceId, LocalDateTime from, LocalDateTime to, Format format, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        OrderRowWriter writer = format == Format.CSV ? new CsvRowWriter(out) : new NdjsonRowWriter(out);
+        OrderGrouper grouper = new OrderGrouper(writer);
+        try {
+            readOnlyTx.executeWithoutResult(status ->
+                    cursorTemplate.query(EXPORT_SQL, grouper, workspaceId, from, to));
+            grouper.finish();
+            writer.close();
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // Usually the client went away
+        }
+
+        log.atInfo().setMessage("Completed orders exported")
+                .addKeyValue("workspaceId", workspaceId)
+                .addKeyValue("from", from)
+                .addKeyValue("to", to)
+                .addKeyValue("format", format)
+                .addKeyValue("orders", grouper.orders)
+                .addKeyValue("durationMs", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started))
+                .log();
+        return grouper.orders;
+    }
+
+    // One exported order; allergies is reused between orders
+    private static final class ExportRow {
+        long id;
+        int tableNumber;
+        Long dishId;
+        String dishName;
+        int quantity;
+        int prepTimeMinutes;
+        boolean vip;
+        LocalDateTime orderPlacedTime;
+        LocalDateTime completedAt;
+        final List<String> allergies = new ArrayList<>();
+    }
+
+    // Folds the joined rows (one per allergy, or one with a null allergen) back into orders
+    private static final class OrderGrouper implements RowCallbackHandler {
+
+        private final OrderRowWriter writer;
+        private final ExportRow current = new ExportRow();
+        private boolean hasCurrent;
+        long orders;
+
+        OrderGrouper(OrderRowWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long id = rs.getLong("id");
+            if (!hasCurrent || current.id != id) {
+                finish();
+                current.id = id;
+                current.tableNumber = rs.getInt("table_number");
+                long dishId = rs.getLong("dish_id");
+                current.dishId = rs.wasNull() ? null : dishId;
+                current.dishName = rs.getString("dish_name");
+                current.quantity = rs.getInt("quantity");
+                current.prepTimeMinutes = rs.getInt("prep_time_minutes");
+                current.vip = rs.getBoolean("is_vip");
+                current.orderPlacedTime = rs.getObject("order_placed_time", LocalDateTime.class);
+                current.completedAt = rs.getObject("completed_at", LocalDateTime.class);
+                current.allergies.clear();
+                hasCurrent = true;
+            }
+            String allergen = rs.getString("allergen");
+            if (allergen != null) current.allergies.add(allergen);
+        }
+
+        void finish() {
+            if (!hasCurrent) return;
+            try {
+                writer.write(current);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            hasCurrent = false;
+            orders++;
+        }
+    }
+
+    private interface OrderRowWriter {
+        void write(ExportRow row) throws IOException;
+
+        void close() throws IOException;
+    }
+
+    // One JSON object per line
+    private final class NdjsonRowWriter implements OrderRowWriter {
+
+        private final JsonGenerator json;
+
+        NdjsonRowWriter(OutputStream out) throws IOException {
+            this.json = objectMapper.getFactory().createGenerator(out);
+            this.json.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(ExportRow row) throws IOException {
+            json.writeStartObject();
+            json.writeNumberField("id", row.id);
+            json.writeNumberField("tableNumber", row.tableNumber);
+            if (row.dishId == null) json.writeNullField("dishId"); else json.writeNumberField("dishId", row.dishId);
+            json.writeStringField("dishName", row.dishName);
+            json.writeNumberField("quantity", row.quantity);
+            json.writeNumberField("prepTimeMinutes", row.prepTimeMinutes);
+            json.writeBooleanField("isVip", row.vip);
+            json.writeStringField("orderPlacedTime", row.orderPlacedTime == null ? null : row.orderPlacedTime.toString());
+            json.writeStringField("completedAt", row.completedAt == null ? null : row.completedAt.toString());
+            json.writeArrayFieldStart("customerAllergies");
+            for (String allergen : row.allergies) {
+                json.writeString(allergen);
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+            json.writeRaw('\n');
+        }
+
+        @Override
+        public void close() throws IOException {
+            json.flush();
+        }
+    }
+
+    // Allergies are joined with '|', as in the menu CSV
+    private static final class CsvRowWriter implements OrderRowWriter {
+
+        private final Writer out;
+
+        CsvRowWriter(OutputStream out) throws IOException {
+            this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            this.out.write(CSV_HEADER);
+            this.out.write("\r\n");
+        }
+
+        @Override
+        public void write(ExportRow row) throws IOException {
+            out.write(Long.toString(row.id));
+            out.write(',');
+            out.write(Integer.toString(row.tableNumber));
+            out.write(',');
+            out.write(row.dishId == null ? "" : row.dishId.toString());
+            out.write(',');
+            out.write(CsvFields.field(row.dishName));
+            out.write(',');
+            out.write(Integer.toString(row.quantity));
+            out.write(',');
+            out.write(Integer.toString(row.prepTimeMinutes));
+            out.write(',');
+            out.write(Boolean.toString(row.vip));
+            out.write(',');
+            out.write(row.orderPlacedTime == null ? "" : row.orderPlacedTime.toString());
+            out.write(',');
+            out.write(row.completedAt == null ? "" : row.completedAt.toString());
+            out.write(',');
+            out.write(CsvFields.field(String.join("|", row.allergies)));
+            out.write("\r\n");
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+}
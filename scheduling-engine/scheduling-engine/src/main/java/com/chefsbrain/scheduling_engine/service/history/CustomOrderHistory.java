@@ -3,24 +3,42 @@ package com.chefsbrain.scheduling_engine.service.history;
 import com.chefsbrain.scheduling_engine.model.Order;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Custom implementation of a Doubly Linked List to manage completed orders.
+ * The list is bounded: once it holds {@code capacity} orders, adding a new one evicts the oldest
+ * (head). Evicted orders are already stored as COMPLETED in the database, where older pages are read from.
+ * An index from order id to node makes lookups and unlinking any order (targeted undo) O(1).
+ * Not thread-safe: callers hold the workspace's lock.
  */
 public class CustomOrderHistory {
+    public static final int DEFAULT_CAPACITY = 200;
+
+    private final int capacity;
     private Node head;
     private Node tail;
     private int size;
+    private final Map<Long, Node> index = new HashMap<>();
 
     public CustomOrderHistory() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public CustomOrderHistory(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("History capacity must be at least 1");
+        }
+        this.capacity = capacity;
         this.head = null;
         this.tail = null;
         this.size = 0;
     }
 
-    // Add order to the end of history
-    public void addLast(Order order) {
+    // Add order to the end of history. Returns the evicted oldest order if the list was full, else null.
+    public Order addLast(Order order) {
         Node newNode = new Node(order);
         if (tail == null) {
             head = tail = newNode;
@@ -29,33 +47,93 @@ public class CustomOrderHistory {
             newNode.prev = tail;
             tail = newNode;
         }
+        index.put(order.getId(), newNode);
+        size++;
+        return size > capacity ? removeFirst() : null;
+    }
+
+    // Add order to the front of history (used when older completions are reloaded).
+    // Ignored when the list is already full, since the order would be evicted straight away.
+    public void addFirst(Order order) {
+        if (size >= capacity) return;
+        Node newNode = new Node(order);
+        if (head == null) {
+            head = tail = newNode;
+        } else {
+            newNode.next = head;
+            head.prev = newNode;
+            head = newNode;
+        }
+        index.put(order.getId(), newNode);
         size++;
     }
 
+    // Remove first (oldest) order from history
+    public Order removeFirst() {
+        if (head == null) return null;
+        Node removed = head;
+        unlink(removed);
+        return removed.order;
+    }
+
     // Remove last order from history
     public Order removeLast() {
         if (tail == null) return null;
-        Order removedOrder = tail.order;
+        Node removed = tail;
+        unlink(removed);
+        return removed.order;
+    }
 
-        if (head == tail) {
-            head = tail = null;
-        } else {
-            tail = tail.prev;
-            tail.next = null;
-        }
-        size--;
-        return removedOrder;
+    // Remove a specific order from anywhere in the history. Returns null if it isn't held in memory.
+    public Order remove(Long orderId) {
+        Node node = index.get(orderId);
+        if (node == null) return null;
+        unlink(node);
+        return node.order;
     }
 
     public boolean isEmpty() {
         return size == 0;
     }
 
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public boolean contains(Long orderId) {
+        return findNode(orderId) != null;
+    }
+
+    /**
+     * Walks backwards from the newest order and returns at most {@code limit} orders, newest first.
+     * With a beforeId, the page starts right after (older than) that order; if it isn't in memory
+     * the page is empty and the caller continues from the database.
+     */
+    public List<Order> getPageBefore(Long beforeId, int limit) {
+        List<Order> page = new ArrayList<>(Math.min(limit, size));
+        Node current;
+        if (beforeId == null) {
+            current = tail;
+        } else {
+            Node cursor = findNode(beforeId);
+            current = cursor == null ? null : cursor.prev;
+        }
+        while (current != null && page.size() < limit) {
+            page.add(current.order);
+            current = current.prev;
+        }
+        return page;
+    }
+
     /**
      * Traverses the DLL and returns all orders as a List.
      */
     public List<Order> getAll() {
-        List<Order> orderList = new ArrayList<>();
+        List<Order> orderList = new ArrayList<>(size);
         Node current = head;
         while (current != null) {
             orderList.add(current.order);
@@ -63,4 +141,24 @@ public class CustomOrderHistory {
         }
         return orderList;
     }
-}
\ No newline at end of file
+
+    private Node findNode(Long orderId) {
+        return index.get(orderId);
+    }
+
+    private void unlink(Node node) {
+        if (node.prev == null) {
+            head = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next == null) {
+            tail = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+        node.prev = node.next = null;
+        index.remove(node.order.getId());
+        size--;
+    }
+}
@@ -0,0 +1,45 @@
+package com.chefsbrain.scheduling_engine.service.history;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Ids of the orders whose completion was undone, newest on top, so the undos can be redone in reverse.
+ * Bounded: once it holds {@code capacity} ids, pushing another drops the oldest.
+ * A new completion clears it, as in an editor: redo only replays the undos made since the last completion.
+ * An entry can still go stale (the order left the queue some other way); redoing it then does nothing.
+ * Not thread-safe: callers hold the workspace's lock.
+ */
+public class RedoStack {
+    public static final int DEFAULT_CAPACITY = 50;
+
+    private final int capacity;
+    private final Deque<Long> orderIds = new ArrayDeque<>();
+
+    public RedoStack(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Redo capacity must be at least 1");
+        }
+        this.capacity = capacity;
+    }
+
+    public void push(Long orderId) {
+        orderIds.push(orderId);
+        if (orderIds.size() > capacity) {
+            orderIds.removeLast();
+        }
+    }
+
+    // The most recently undone order id, or null if there is nothing to redo
+    public Long pop() {
+        return orderIds.poll();
+    }
+
+    public void clear() {
+        orderIds.clear();
+    }
+
+    public int size() {
+        return orderIds.size();
+    }
+}
@@ -0,0 +1,227 @@
+package com.chefsbrain.scheduling_engine.service.learning;
+
+import com.chefsbrain.scheduling_engine.model.Dish;
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.repository.DishRepository;
+import com.chefsbrain.scheduling_engine.service.menu.MenuCache;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Adaptive prep time learning, off the request path.
+ *
+ * Each dish keeps its learned estimate in memory as a double and folds new samples in with a
+ * compare-and-set loop, so two chefs finishing the same dish at once can't lose an update.
+ * Completions of dishes we haven't loaded yet wait in a lock-free queue until the next flush.
+ * A periodic flush writes every changed estimate back to Dish.prepTimeMinutes in one JDBC batch.
+ */
+@Component
+public class PrepTimeLearner {
+
+    private static final Logger log = LoggerFactory.getLogger(PrepTimeLearner.class);
+
+    // Exponential Moving Average (EMA): 90% historical weight, 10% new actual time
+    static final double HISTORY_WEIGHT = 0.9;
+    static final double SAMPLE_WEIGHT = 0.1;
+
+    private static final String UPDATE_PREP_TIME_SQL = "update dish set prep_time_minutes = ? where id = ?";
+
+    private final DishRepository dishRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final MenuCache menuCache;
+    private final Map<Long, DishEstimate> estimates = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public PrepTimeLearner(DishRepository dishRepository, JdbcTemplate jdbcTemplate, MenuCache menuCache) {
+        this.dishRepository = dishRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.menuCache = menuCache;
+    }
+
+    /**
+     * Records how long a completed order actually took. Never touches the database.
+     */
+    public void recordCompletion(Order order, LocalDateTime completedAt) {
+        if (order.getOrderPlacedTime() == null || order.getDishId() == null) return;
+
+        // Calculate actual time taken in minutes
+        long actualTimeMinutes = Duration.between(order.getOrderPlacedTime(), completedAt).toMinutes();
+
+        // Validate the time is reasonable (ignore immediate accidental clicks)
+        if (actualTimeMinutes <= 0) return;
+
+        estimates.computeIfAbsent(order.getDishId(), id -> new DishEstimate()).record(actualTimeMinutes);
+    }
+
+    /**
+     * The latest learned prep time for a dish, read from memory.
+     * The first request for a dish loads it once from the database.
+     */
+    public OptionalInt prepTimeMinutes(Long dishId) {
+        return prepTimeMinutes(null, dishId);
+    }
+
+    /**
+     * Same as {@link #prepTimeMinutes(Long)}, but a dish we haven't seen yet is looked up in the
+     * workspace's cached menu instead of the database.
+     */
+    public OptionalInt prepTimeMinutes(Long workspaceId, Long dishId) {
+        if (dishId == null) return OptionalInt.empty();
+        DishEstimate estimate = estimates.get(dishId);
+        if (estimate == null || !estimate.isSeeded()) {
+            Dish dish = workspaceId != null
+                    ? menuCache.getDish(workspaceId, dishId)
+                    : dishRepository.findById(dishId).orElse(null);
+            if (dish == null) return OptionalInt.empty();
+            estimate = estimates.computeIfAbsent(dishId, id -> new DishEstimate());
+            estimate.seed(dish.getPrepTimeMinutes());
+        }
+        return OptionalInt.of(estimate.minutes());
+    }
+
+    /**
+     * An admin edited the prep time: start learning again from the new value.
+     * Waits for a running flush, which may have written the old learned value over the admin's, and
+     * marks the new value dirty so the next flush writes it back.
+     */
+    public void reset(Long dishId, int prepTimeMinutes) {
+        DishEstimate fresh = new DishEstimate();
+        fresh.seed(prepTimeMinutes);
+        fresh.dirty.set(true);
+        flushLock.lock();
+        try {
+            estimates.put(dishId, fresh);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public void forget(Long dishId) {
+        estimates.remove(dishId);
+    }
+
+    @Scheduled(fixedDelayString = "${kitchen.learning.flush-interval-ms:5000}")
+    public void flush() {
+        if (!flushLock.tryLock()) return;
+        List<DishEstimate> written = new ArrayList<>();
+        try {
+            seedPendingDishes();
+
+            List<Object[]> updates = new ArrayList<>();
+            for (Map.Entry<Long, DishEstimate> entry : estimates.entrySet()) {
+                DishEstimate estimate = entry.getValue();
+                estimate.foldPending();
+                // Cleared before reading: a sample arriving after this marks it dirty for the next flush
+                if (estimate.dirty.getAndSet(false)) {
+                    updates.add(new Object[]{estimate.minutes(), entry.getKey()});
+                    written.add(estimate);
+                }
+            }
+            if (!updates.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPDATE_PREP_TIME_SQL, updates);
+                menuCache.invalidateDishes(updates.stream().map(update -> (Long) update[1]).toList());
+                log.info("Adaptive Learning: updated expected prep time of {} dishes", updates.size());
+            }
+        } catch (RuntimeException e) {
+            log.error("Adaptive Learning flush failed, will retry", e);
+            // Only what this flush tried to write; the rest was either written before or is still dirty
+            written.forEach(estimate -> estimate.dirty.set(true));
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    // Dishes that only have queued samples get their starting value in one query
+    private void seedPendingDishes() {
+        List<Long> unseeded = new ArrayList<>();
+        estimates.forEach((dishId, estimate) -> {
+            if (!estimate.isSeeded()) unseeded.add(dishId);
+        });
+        if (unseeded.isEmpty()) return;
+
+        for (Dish dish : dishRepository.findAllById(unseeded)) {
+            DishEstimate estimate = estimates.get(dish.getId());
+            if (estimate != null) estimate.seed(dish.getPrepTimeMinutes());
+        }
+        // Samples for dishes that no longer exist are dropped
+        for (Long dishId : unseeded) {
+            DishEstimate estimate = estimates.get(dishId);
+            if (estimate != null && !estimate.isSeeded()) estimates.remove(dishId);
+        }
+    }
+
+    /**
+     * Learned estimate for one dish. NaN means "not loaded from the database yet".
+     */
+    static final class DishEstimate {
+        private final AtomicLong bits = new AtomicLong(Double.doubleToRawLongBits(Double.NaN));
+        private final Queue<Long> pending = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean dirty = new AtomicBoolean();
+
+        boolean isSeeded() {
+            return !Double.isNaN(Double.longBitsToDouble(bits.get()));
+        }
+
+        // Only sets the value if nobody seeded it first
+        void seed(int prepTimeMinutes) {
+            bits.compareAndSet(Double.doubleToRawLongBits(Double.NaN), Double.doubleToRawLongBits(prepTimeMinutes));
+        }
+
+        void record(long actualMinutes) {
+            if (!isSeeded()) {
+                pending.add(actualMinutes);
+                // Seeded in the meantime? Fold right away rather than waiting for the flush
+                if (isSeeded()) foldPending();
+                return;
+            }
+            fold(actualMinutes);
+        }
+
+        void foldPending() {
+            if (!isSeeded()) return;
+            Long sample;
+            while ((sample = pending.poll()) != null) {
+                fold(sample);
+            }
+        }
+
+        private void fold(long actualMinutes) {
+            while (true) {
+                long current = bits.get();
+                double updated = Double.longBitsToDouble(current) * HISTORY_WEIGHT + actualMinutes * SAMPLE_WEIGHT;
+                // Safety check: Ensure the prep time doesn't drop below 1 minute
+                updated = Math.max(1.0, updated);
+                if (bits.compareAndSet(current, Double.doubleToRawLongBits(updated))) {
+                    dirty.set(true);
+                    return;
+                }
+            }
+        }
+
+        int minutes() {
+            return (int) Math.max(1, Math.round(Double.longBitsToDouble(bits.get())));
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.chefsbrain.scheduling_engine.service.mail;
+
+import com.chefsbrain.scheduling_engine.model.MailOutboxMessage;
+import com.chefsbrain.scheduling_engine.model.MailOutboxStatus;
+import com.chefsbrain.scheduling_engine.repository.MailOutboxRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Queues invitation emails for MailOutboxWorker. Only writes rows; never talks to the SMTP server.
+ */
+@Service
+public class MailOutbox {
+
+    private final MailOutboxRepository outboxRepository;
+
+    public MailOutbox(MailOutboxRepository outboxRepository) {
+        this.outboxRepository = outboxRepository;
+    }
+
+    /**
+     * Queues one invitation per (non-blank) recipient, all in one transaction. Returns how many were queued.
+     */
+    @Transactional
+    public int enqueueInvitations(String workspaceName, String adminEmail, String workspacePassword,
+                                  Collection<String> recipients) {
+        LocalDateTime now = LocalDateTime.now();
+        List<MailOutboxMessage> messages = new ArrayList<>(recipients.size());
+        for (String recipient : recipients) {
+            if (recipient == null || recipient.isBlank()) continue;
+            MailOutboxMessage message = new MailOutboxMessage();
+            message.setRecipient(recipient.trim());
+            message.setWorkspaceName(workspaceName);
+            message.setAdminEmail(adminEmail);
+            message.setWorkspacePassword(workspacePassword);
+            message.setStatus(MailOutboxStatus.PENDING);
+            message.setCreatedAt(now);
+            message.setNextAttemptAt(now);
+            messages.add(message);
+        }
+        outboxRepository.saveAll(messages);
+        return messages.size();
+    }
+}
@@ -0,0 +1,238 @@
+package com.chefsbrain.scheduling_engine.service.mail;
+
+import com.chefsbrain.scheduling_engine.config.KitchenThreads;
+import com.chefsbrain.scheduling_engine.model.MailOutboxMessage;
+import com.chefsbrain.scheduling_engine.model.MailOutboxStatus;
+import com.chefsbrain.scheduling_engine.repository.MailOutboxRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Sends the mail outbox.
+ *
+ * Every poll drains the due messages in pages: each page is cut into batches, and a small fixed pool of
+ * workers sends each batch over one SMTP connection (JavaMailSender.send(MimeMessage...) connects once
+ * per call). A message that fails for a transient reason (server down, connection dropped) is retried
+ * with exponential backoff, up to max-attempts; one that can't be built at all (bad address) fails at once.
+ *
+ * Several engine nodes may poll the same table, so each page is claimed before it is sent: one conditional
+ * UPDATE marks the due rows SENDING for claim-seconds under a token of this poll, and only the rows that
+ * carry the token are sent. Rows a crashed node had claimed become due again when the claim runs out.
+ */
+@Component
+public class MailOutboxWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(MailOutboxWorker.class);
+    private static final List<MailOutboxStatus> CLAIMABLE = List.of(MailOutboxStatus.PENDING, MailOutboxStatus.SENDING);
+
+    private final MailOutboxRepository outboxRepository;
+    private final JavaMailSender mailSender;
+    private final MailTemplate inviteTemplate;
+    private final ExecutorService senders;
+    private final int workers;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long backoffSeconds;
+    private final long maxBackoffSeconds;
+    private final long claimSeconds;
+    private final String loginUrl;
+
+    public MailOutboxWorker(MailOutboxRepository outboxRepository, JavaMailSender mailSender,
+                            ResourceLoader resourceLoader, KitchenThreads threads,
+                            @Value("${kitchen.mail.workers:2}") int workers,
+                            @Value("${kitchen.mail.batch-size:20}") int batchSize,
+                            @Value("${kitchen.mail.max-attempts:6}") int maxAttempts,
+                            @Value("${kitchen.mail.backoff-seconds:30}") long backoffSeconds,
+                            @Value("${kitchen.mail.max-backoff-seconds:3600}") long maxBackoffSeconds,
+                            @Value("${kitchen.mail.claim-seconds:300}") long claimSeconds,
+                            @Value("${kitchen.mail.login-url:http://localhost:5173}") String loginUrl) {
+        this.outboxRepository = outboxRepository;
+        this.mailSender = mailSender;
+        // Parsed once; each message only fills in the placeholders
+        this.inviteTemplate = MailTemplate.load(resourceLoader.getResource("classpath:mail/invite-email.html"));
+        this.workers = Math.max(1, workers);
+        this.senders = Executors.newFixedThreadPool(this.workers, threads.factory("mail-outbox"));
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffSeconds = backoffSeconds;
+        this.maxBackoffSeconds = maxBackoffSeconds;
+        this.claimSeconds = claimSeconds;
+        this.loginUrl = loginUrl;
+    }
+
+    /**
+     * Sends everything that is due. Returns the number of messages attempted.
+     */
+    @Scheduled(fixedDelayString = "${kitchen.mail.poll-interval-ms:2000}")
+    public int sendDue() {
+        int pageSize = batchSize * workers;
+        int attempted = 0;
+        List<Long> due;
+        do {
+            LocalDateTime polledAt = LocalDateTime.now();
+            due = outboxRepository.findDueIds(CLAIMABLE, polledAt, PageRequest.of(0, pageSize));
+            if (due.isEmpty()) break;
+            String token = UUID.randomUUID().toString();
+            outboxRepository.claim(due, CLAIMABLE, polledAt, MailOutboxStatus.SENDING, token, polledAt.plusSeconds(claimSeconds));
+            // Rows another node claimed first are not in here
+            List<MailOutboxMessage> page = outboxRepository.findByClaimTokenOrderByIdAsc(token);
+
+            List<List<MailOutboxMessage>> batches = new ArrayList<>();
+            List<Future<?>> sends = new ArrayList<>();
+            for (int from = 0; from < page.size(); from += batchSize) {
+                List<MailOutboxMessage> batch = page.subList(from, Math.min(page.size(), from + batchSize));
+                batches.add(batch);
+                sends.add(senders.submit(() -> sendBatch(batch)));
+            }
+            for (int i = 0; i < sends.size(); i++) {
+                try {
+                    sends.get(i).get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return attempted;
+                } catch (ExecutionException e) {
+                    log.error("Mail outbox batch failed", e.getCause());
+                    // Otherwise its messages stay due and the next page fetches them straight away
+                    Exception cause = e.getCause() instanceof Exception ex ? ex : e;
+                    for (MailOutboxMessage outboxMessage : batches.get(i)) {
+                        if (isUnhandled(outboxMessage)) retryLater(outboxMessage, cause);
+                    }
+                }
+            }
+            // Every message of the page is now SENT, FAILED or PENDING with a later nextAttemptAt
+            page.forEach(outboxMessage -> outboxMessage.setClaimToken(null));
+            outboxRepository.saveAll(page);
+            attempted += page.size();
+        } while (due.size() == pageSize);
+        return attempted;
+    }
+
+    private void sendBatch(List<MailOutboxMessage> batch) {
+        Map<MimeMessage, MailOutboxMessage> composed = new IdentityHashMap<>();
+        List<MimeMessage> messages = new ArrayList<>(batch.size());
+        for (MailOutboxMessage outboxMessage : batch) {
+            try {
+                MimeMessage message = composeInvitation(outboxMessage);
+                composed.put(message, outboxMessage);
+                messages.add(message);
+            } catch (MessagingException | RuntimeException e) {
+                giveUp(outboxMessage, e); // Retrying won't fix a message that can't be built
+            }
+        }
+        if (messages.isEmpty()) return;
+
+        Map<Object, Exception> failures = Map.of();
+        try {
+            mailSender.send(messages.toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            failures = e.getFailedMessages();
+            if (failures.isEmpty()) {
+                composed.values().forEach(outboxMessage -> retryLater(outboxMessage, e));
+                return;
+            }
+        } catch (MailException e) {
+            // Could not connect or authenticate: nothing in the batch went out
+            composed.values().forEach(outboxMessage -> retryLater(outboxMessage, e));
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (MimeMessage message : messages) {
+            MailOutboxMessage outboxMessage = composed.get(message);
+            Exception failure = failures.get(message);
+            if (failure != null) {
+                retryLater(outboxMessage, failure);
+            } else {
+                outboxMessage.setStatus(MailOutboxStatus.SENT);
+                outboxMessage.setSentAt(now);
+                outboxMessage.setAttempts(outboxMessage.getAttempts() + 1);
+                outboxMessage.setWorkspacePassword(null);
+                outboxMessage.setLastError(null);
+            }
+        }
+    }
+
+    // Still as it was claimed: the failed batch neither sent it nor scheduled a retry
+    private static boolean isUnhandled(MailOutboxMessage outboxMessage) {
+        return outboxMessage.getStatus() == MailOutboxStatus.SENDING;
+    }
+
+    private MimeMessage composeInvitation(MailOutboxMessage outboxMessage) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setTo(outboxMessage.getRecipient());
+        helper.setSubject("🔥 You're invited to join " + outboxMessage.getWorkspaceName() + " on Chef's Brain!");
+        helper.setText(inviteTemplate.render(Map.of(
+                "adminEmail", String.valueOf(outboxMessage.getAdminEmail()),
+                "workspaceName", String.valueOf(outboxMessage.getWorkspaceName()),
+                "password", String.valueOf(outboxMessage.getWorkspacePassword()),
+                "loginUrl", loginUrl)), true);
+        return message;
+    }
+
+    private void retryLater(MailOutboxMessage outboxMessage, Exception cause) {
+        int attempts = outboxMessage.getAttempts() + 1;
+        outboxMessage.setAttempts(attempts);
+        outboxMessage.setStatus(MailOutboxStatus.PENDING);
+        outboxMessage.setLastError(describe(cause));
+        if (attempts >= maxAttempts) {
+            giveUp(outboxMessage, cause);
+            return;
+        }
+        // 30 s, 1 min, 2 min, ... capped at max-backoff-seconds
+        long delay = Math.min(maxBackoffSeconds, backoffSeconds << Math.min(attempts - 1, 20));
+        outboxMessage.setNextAttemptAt(LocalDateTime.now().plusSeconds(delay));
+        log.atWarn().setMessage("Invitation email not sent, will retry")
+                .addKeyValue("outboxId", outboxMessage.getId())
+                .addKeyValue("attempt", attempts)
+                .addKeyValue("retryInSeconds", delay)
+                .addKeyValue("error", outboxMessage.getLastError())
+                .log();
+    }
+
+    private void giveUp(MailOutboxMessage outboxMessage, Exception cause) {
+        outboxMessage.setStatus(MailOutboxStatus.FAILED);
+        outboxMessage.setLastError(describe(cause));
+        outboxMessage.setWorkspacePassword(null);
+        log.atError().setMessage("Giving up on invitation email")
+                .addKeyValue("outboxId", outboxMessage.getId())
+                .addKeyValue("to", outboxMessage.getRecipient())
+                .addKeyValue("workspace", outboxMessage.getWorkspaceName())
+                .addKeyValue("attempts", outboxMessage.getAttempts())
+                .setCause(cause)
+                .log();
+    }
+
+    private static String describe(Exception e) {
+        String text = e.getClass().getSimpleName() + ": " + e.getMessage();
+        return text.length() > 1000 ? text.substring(0, 1000) : text;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdown();
+    }
+}
@@ -0,0 +1,69 @@
+package com.chefsbrain.scheduling_engine.service.mail;
+
+import org.springframework.core.io.Resource;
+import org.springframework.web.util.HtmlUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An HTML template with {{name}} placeholders, split into literal text and placeholder names once,
+ * so rendering a message is a single pass that appends pieces into a pre-sized buffer.
+ * Values are HTML-escaped.
+ */
+public final class MailTemplate {
+
+    private final String[] literals;     // literals[i] comes before names[i]; one more literal than names
+    private final String[] names;
+    private final int literalLength;
+
+    private MailTemplate(List<String> literals, List<String> names) {
+        this.literals = literals.toArray(new String[0]);
+        this.names = names.toArray(new String[0]);
+        this.literalLength = literals.stream().mapToInt(String::length).sum();
+    }
+
+    public static MailTemplate load(Resource resource) {
+        try {
+            return compile(resource.getContentAsString(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read mail template " + resource, e);
+        }
+    }
+
+    public static MailTemplate compile(String source) {
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        int from = 0;
+        while (true) {
+            int open = source.indexOf("{{", from);
+            int close = open < 0 ? -1 : source.indexOf("}}", open + 2);
+            if (close < 0) break;
+            literals.add(source.substring(from, open));
+            names.add(source.substring(open + 2, close).trim());
+            from = close + 2;
+        }
+        literals.add(source.substring(from));
+        return new MailTemplate(literals, names);
+    }
+
+    /**
+     * Fills in the placeholders. A placeholder without a value fails, rather than sending "{{name}}" to a guest.
+     */
+    public String render(Map<String, String> values) {
+        StringBuilder out = new StringBuilder(literalLength + 64 * names.length);
+        for (int i = 0; i < names.length; i++) {
+            out.append(literals[i]);
+            String value = values.get(names[i]);
+            if (value == null) {
+                throw new IllegalArgumentException("No value for mail template placeholder " + names[i]);
+            }
+            out.append(HtmlUtils.htmlEscape(value, "UTF-8"));
+        }
+        return out.append(literals[names.length]).toString();
+    }
+}
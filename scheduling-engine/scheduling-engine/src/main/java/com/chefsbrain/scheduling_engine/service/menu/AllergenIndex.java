@@ -0,0 +1,79 @@
+package com.chefsbrain.scheduling_engine.service.menu;
+
+import com.chefsbrain.scheduling_engine.model.Dish;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Allergy lookup for one workspace's menu, built once per {@link MenuSnapshot}.
+ *
+ * Every ingredient name on the menu is normalized (trimmed, lower-case) and interned to a small
+ * int id, and every dish keeps a BitSet of its ingredient ids. A customer's allergy list is encoded
+ * the same way once per request, so checking a dish is a single BitSet intersection.
+ * Allergies that no dish on the menu contains get no id: they can't conflict with anything.
+ */
+public final class AllergenIndex {
+
+    private static final BitSet NONE = new BitSet();
+
+    private final Map<String, Integer> vocabulary = new HashMap<>();
+    private final Map<Long, BitSet> dishIngredients = new HashMap<>();
+
+    AllergenIndex(List<Dish> dishes) {
+        for (Dish dish : dishes) {
+            BitSet bits = new BitSet();
+            if (dish.getIngredients() != null) {
+                for (String ingredient : dish.getIngredients()) {
+                    String term = normalize(ingredient);
+                    if (term.isEmpty()) continue;
+                    bits.set(vocabulary.computeIfAbsent(term, t -> vocabulary.size()));
+                }
+            }
+            dishIngredients.put(dish.getId(), bits);
+        }
+    }
+
+    public static String normalize(String term) {
+        return term == null ? "" : term.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Encodes a customer's allergy list against this menu's vocabulary. Do this once per request
+     * and reuse the result for every dish checked.
+     */
+    public BitSet encode(Collection<String> allergies) {
+        if (allergies == null || allergies.isEmpty()) return NONE;
+        BitSet bits = new BitSet(vocabulary.size());
+        for (String allergy : allergies) {
+            Integer id = vocabulary.get(normalize(allergy));
+            if (id != null) bits.set(id);
+        }
+        return bits;
+    }
+
+    // True if the dish contains at least one of the encoded allergies (false for unknown dishes)
+    public boolean conflicts(Long dishId, BitSet allergies) {
+        BitSet ingredients = dishIngredients.get(dishId);
+        return ingredients != null && ingredients.intersects(allergies);
+    }
+
+    /**
+     * The dish's own ingredient names that the customer is allergic to, in menu order.
+     * Only walks the ingredient list when there is a conflict.
+     */
+    public List<String> conflictingIngredients(Dish dish, BitSet allergies) {
+        if (dish == null || !conflicts(dish.getId(), allergies)) return List.of();
+        List<String> conflicting = new ArrayList<>();
+        for (String ingredient : dish.getIngredients()) {
+            Integer id = vocabulary.get(normalize(ingredient));
+            if (id != null && allergies.get(id)) conflicting.add(ingredient);
+        }
+        return conflicting;
+    }
+}
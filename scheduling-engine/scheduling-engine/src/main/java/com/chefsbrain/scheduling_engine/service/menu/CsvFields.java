@@ -0,0 +1,20 @@
+package com.chefsbrain.scheduling_engine.service.menu;
+
+/**
+ * Writing side of {@link CsvRecordReader}: quotes a field only when it has to (RFC 4180).
+ * Shared by the menu export and the completed-order export.
+ */
+public final class CsvFields {
+
+    private CsvFields() {
+    }
+
+    // The value as one CSV field; null is written as an empty field
+    public static String field(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
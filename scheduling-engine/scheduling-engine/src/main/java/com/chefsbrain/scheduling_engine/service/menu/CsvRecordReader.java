@@ -0,0 +1,105 @@
+package com.chefsbrain.scheduling_engine.service.menu;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads CSV (RFC 4180: comma separated, fields optionally in double quotes, "" for a quote inside one)
+ * one record at a time, so a file of any size is never held in memory.
+ * Quoted fields may contain commas and line breaks. Blank lines are skipped.
+ */
+final class CsvRecordReader {
+
+    private final Reader in;
+    private int line = 1;       // line the reader is on
+    private int recordLine = 1; // line the last record returned by next() started on
+    private int pushedBack = -2; // -2: nothing pushed back
+    private boolean firstChar = true;
+
+    CsvRecordReader(Reader in) {
+        this.in = in;
+    }
+
+    // Line the last record returned by next() started on, for error messages (blank lines before it are skipped)
+    int line() {
+        return recordLine;
+    }
+
+    /**
+     * The next record's fields, or null at the end of the input.
+     */
+    List<String> next() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean sawAnything = false;
+        recordLine = line;
+        int c;
+        while ((c = read()) != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    int following = read();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        unread(following);
+                    }
+                } else {
+                    if (c == '\n') line++;
+                    field.append((char) c);
+                }
+                continue;
+            }
+            if (c == '"' && field.isEmpty()) {
+                quoted = true;
+                sawAnything = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                sawAnything = true;
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r') {
+                    int following = read();
+                    if (following != '\n') unread(following);
+                }
+                line++;
+                if (!sawAnything && field.isEmpty()) {
+                    recordLine = line; // blank line
+                    continue;
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+                sawAnything = true;
+            }
+        }
+        if (quoted) {
+            throw new MenuImportException("Line " + recordLine + ": unterminated quoted field");
+        }
+        if (!sawAnything && field.isEmpty()) return null;
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != -2) {
+            int c = pushedBack;
+            pushedBack = -2;
+            return c;
+        }
+        int c = in.read();
+        if (firstChar) {
+            firstChar = false;
+            if (c == '\uFEFF') c = in.read(); // Byte order mark written by spreadsheet exports
+        }
+        return c;
+    }
+
+    private void unread(int c) {
+        pushedBack = c;
+    }
+}
@@ -0,0 +1,349 @@
+package com.chefsbrain.scheduling_engine.service.menu;
+
+import com.chefsbrain.scheduling_engine.model.Dish;
+import com.chefsbrain.scheduling_engine.service.learning.PrepTimeLearner;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Whole-menu writes: import from a POS export (JSON or CSV), export, and unloading a workspace's menu.
+ *
+ * Imports are parsed as a stream, one dish at a time, and written every import-batch-size dishes as three
+ * JDBC batches (dishes, their ingredients, their substitutions), all in one transaction: a file that is
+ * bad halfway through leaves the menu as it was. Dish ids are IDENTITY columns, so the dish batch returns
+ * its generated keys for the collection rows. Unloading is three set-based deletes.
+ *
+ * CSV columns (header row required, any order, matched case-insensitively):
+ * name, prepTimeMinutes, imageUrl, ingredients ("Dairy|Nuts"), substitutions ("Dairy=Oat Milk|Nuts=Seeds").
+ * Names containing '|' or '=' can only be imported as JSON.
+ */
+@Service
+public class MenuBulkService {
+
+    private static final Logger log = LoggerFactory.getLogger(MenuBulkService.class);
+
+    public enum Format { JSON, CSV }
+
+    public record ImportResult(int imported, int removed) {
+    }
+
+    static final String INSERT_DISH_SQL = "insert into dish (name, prep_time_minutes, image_url, workspace_id) values (?, ?, ?, ?)";
+    static final String INSERT_INGREDIENT_SQL = "insert into dish_ingredients (dish_id, ingredients) values (?, ?)";
+    static final String INSERT_SUBSTITUTION_SQL = "insert into dish_substitutions (dish_id, ingredient_name, substitute_name) values (?, ?, ?)";
+
+    private static final List<String> CSV_COLUMNS = List.of("name", "prepTimeMinutes", "imageUrl", "ingredients", "substitutions");
+    private static final String LIST_SEPARATOR = "|";
+    private static final String PAIR_SEPARATOR = "=";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final MenuCache menuCache;
+    private final PrepTimeLearner prepTimeLearner;
+    private final int batchSize;
+
+    public MenuBulkService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                           MenuCache menuCache, PrepTimeLearner prepTimeLearner,
+                           @Value("${kitchen.menu.import-batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.menuCache = menuCache;
+        this.prepTimeLearner = prepTimeLearner;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Imports the dishes in the body into the workspace's menu; with replace, the current menu is removed first
+     * (in the same transaction). Throws MenuImportException if the body can't be read, and then changes nothing.
+     */
+    public ImportResult importMenu(Long workspaceId, InputStream body, Format format, boolean replace) {
+        List<Long> removedIds = new ArrayList<>();
+        Integer imported = transactionTemplate.execute(status -> {
+            if (replace) removedIds.addAll(deleteMenuRows(workspaceId));
+            DishBatch batch = new DishBatch(workspaceId);
+            try {
+                if (format == Format.CSV) {
+                    readCsv(body, batch);
+                } else {
+                    readJson(body, batch);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read the menu import", e);
+            }
+            batch.flush();
+            return batch.written;
+        });
+        removedIds.forEach(prepTimeLearner::forget);
+        menuCache.invalidate(workspaceId);
+
+        log.atInfo().setMessage("Menu imported")
+                .addKeyValue("workspaceId", workspaceId)
+                .addKeyValue("format", format)
+                .addKeyValue("dishes", imported)
+                .addKeyValue("removed", removedIds.size())
+                .log();
+        return new ImportResult(imported == null ? 0 : imported, removedIds.size());
+    }
+
+    /**
+     * Adds the given dishes to the workspace's menu in one transaction of JDBC batches.
+     */
+    public int insertDishes(Long workspaceId, List<Dish> dishes) {
+        Integer written = transactionTemplate.execute(status -> {
+            DishBatch batch = new DishBatch(workspaceId);
+            dishes.forEach(batch::add);
+            batch.flush();
+            return batch.written;
+        });
+        menuCache.invalidate(workspaceId);
+        return written == null ? 0 : written;
+    }
+
+    /**
+     * Removes every dish of the workspace with three set-based deletes. Returns the number of dishes removed.
+     */
+    public int unloadMenu(Long workspaceId) {
+        List<Long> removedIds = transactionTemplate.execute(status -> deleteMenuRows(workspaceId));
+        removedIds.forEach(prepTimeLearner::forget);
+        menuCache.invalidate(workspaceId);
+        return removedIds.size();
+    }
+
+    // The dish ids are only read so the learner can forget them; the deletes don't need them
+    private List<Long> deleteMenuRows(Long workspaceId) {
+        List<Long> ids = jdbcTemplate.queryForList("select id from dish where workspace_id = ?", Long.class, workspaceId);
+        if (ids.isEmpty()) return ids;
+        jdbcTemplate.update("delete from dish_ingredients where dish_id in (select id from dish where workspace_id = ?)", workspaceId);
+        jdbcTemplate.update("delete from dish_substitutions where dish_id in (select id from dish where workspace_id = ?)", workspaceId);
+        jdbcTemplate.update("delete from dish where workspace_id = ?", workspaceId);
+        return ids;
+    }
+
+    // --- Import parsing ---
+
+    // A JSON array of dishes, in the shape GET /api/dishes returns (id and workspaceId are ignored)
+    private void readJson(InputStream body, DishBatch batch) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new MenuImportException("Expected a JSON array of dishes");
+            }
+            int index = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+                Dish dish = objectMapper.readValue(parser, Dish.class);
+                validate(dish, "Dish " + index);
+                batch.add(dish);
+                index++;
+            }
+            if (token != JsonToken.END_ARRAY) {
+                throw new MenuImportException("Dish " + index + ": expected a JSON object");
+            }
+        } catch (JsonProcessingException e) {
+            throw new MenuImportException("Malformed JSON at line " + e.getLocation().getLineNr() + ": " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private void readCsv(InputStream body, DishBatch batch) throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)));
+        List<String> header = reader.next();
+        if (header == null) return;
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        Integer nameColumn = columns.get("name");
+        Integer prepColumn = columns.get("preptimeminutes");
+        if (nameColumn == null || prepColumn == null) {
+            throw new MenuImportException("CSV header must have the columns " + String.join(",", CSV_COLUMNS)
+                    + " (name and prepTimeMinutes are required)");
+        }
+        Integer imageColumn = columns.get("imageurl");
+        Integer ingredientsColumn = columns.get("ingredients");
+        Integer substitutionsColumn = columns.get("substitutions");
+
+        while (true) {
+            List<String> record = reader.next();
+            if (record == null) break;
+            String where = "Line " + reader.line();
+
+            Dish dish = new Dish();
+            dish.setName(field(record, nameColumn));
+            String prepTime = field(record, prepColumn);
+            try {
+                dish.setPrepTimeMinutes(Integer.parseInt(prepTime));
+            } catch (NumberFormatException e) {
+                throw new MenuImportException(where + ": prepTimeMinutes must be a whole number, got '" + prepTime + "'");
+            }
+            String imageUrl = field(record, imageColumn);
+            dish.setImageUrl(imageUrl.isEmpty() ? null : imageUrl);
+            dish.setIngredients(splitList(field(record, ingredientsColumn)));
+            Map<String, String> substitutions = new LinkedHashMap<>();
+            for (String pair : splitList(field(record, substitutionsColumn))) {
+                int separator = pair.indexOf(PAIR_SEPARATOR);
+                if (separator <= 0) {
+                    throw new MenuImportException(where + ": substitution '" + pair + "' must look like Ingredient=Substitute");
+                }
+                substitutions.put(pair.substring(0, separator).trim(), pair.substring(separator + 1).trim());
+            }
+            dish.setSubstitutions(substitutions);
+            validate(dish, where);
+            batch.add(dish);
+        }
+    }
+
+    private static String field(List<String> record, Integer column) {
+        if (column == null || column >= record.size()) return "";
+        return record.get(column).trim();
+    }
+
+    private static List<String> splitList(String value) {
+        List<String> items = new ArrayList<>();
+        if (value.isEmpty()) return items;
+        for (String item : value.split("\\" + LIST_SEPARATOR)) {
+            if (!item.isBlank()) items.add(item.trim());
+        }
+        return items;
+    }
+
+    private static void validate(Dish dish, String where) {
+        if (dish.getName() == null || dish.getName().isBlank()) {
+            throw new MenuImportException(where + ": name is required");
+        }
+        if (dish.getPrepTimeMinutes() < 0) {
+            throw new MenuImportException(where + ": prepTimeMinutes can't be negative");
+        }
+    }
+
+    // --- Export (written straight to the response from the cached menu, no database round trips) ---
+
+    public void writeJson(MenuSnapshot menu, OutputStream out) throws IOException {
+        out.write(menu.getJson()); // Already serialized for GET /api/dishes
+    }
+
+    public void writeCsv(MenuSnapshot menu, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(String.join(",", CSV_COLUMNS));
+        writer.write("\r\n");
+        for (Dish dish : menu.getDishes()) {
+            StringJoiner substitutions = new StringJoiner(LIST_SEPARATOR);
+            if (dish.getSubstitutions() != null) {
+                dish.getSubstitutions().forEach((ingredient, substitute) -> substitutions.add(ingredient + PAIR_SEPARATOR + substitute));
+            }
+            writer.write(CsvFields.field(dish.getName()));
+            writer.write(',');
+            writer.write(Integer.toString(dish.getPrepTimeMinutes()));
+            writer.write(',');
+            writer.write(CsvFields.field(dish.getImageUrl()));
+            writer.write(',');
+            writer.write(CsvFields.field(dish.getIngredients() == null ? "" : String.join(LIST_SEPARATOR, dish.getIngredients())));
+            writer.write(',');
+            writer.write(CsvFields.field(substitutions.toString()));
+            writer.write("\r\n");
+        }
+        writer.flush();
+    }
+
+    // --- Batched writes ---
+
+    // Collects parsed dishes and writes them every batchSize; must be used inside the import's transaction
+    private final class DishBatch {
+
+        private final Long workspaceId;
+        private final List<Dish> pending = new ArrayList<>(batchSize);
+        private int written;
+
+        DishBatch(Long workspaceId) {
+            this.workspaceId = workspaceId;
+        }
+
+        void add(Dish dish) {
+            pending.add(dish);
+            if (pending.size() >= batchSize) flush();
+        }
+
+        void flush() {
+            if (pending.isEmpty()) return;
+            List<Long> ids = insertDishRows(workspaceId, pending);
+
+            List<Object[]> ingredientRows = new ArrayList<>();
+            List<Object[]> substitutionRows = new ArrayList<>();
+            for (int i = 0; i < pending.size(); i++) {
+                Dish dish = pending.get(i);
+                Long id = ids.get(i);
+                if (dish.getIngredients() != null) {
+                    for (String ingredient : dish.getIngredients()) {
+                        ingredientRows.add(new Object[]{id, ingredient});
+                    }
+                }
+                if (dish.getSubstitutions() != null) {
+                    dish.getSubstitutions().forEach((ingredient, substitute) ->
+                            substitutionRows.add(new Object[]{id, ingredient, substitute}));
+                }
+            }
+            if (!ingredientRows.isEmpty()) jdbcTemplate.batchUpdate(INSERT_INGREDIENT_SQL, ingredientRows);
+            if (!substitutionRows.isEmpty()) jdbcTemplate.batchUpdate(INSERT_SUBSTITUTION_SQL, substitutionRows);
+
+            written += pending.size();
+            pending.clear();
+        }
+    }
+
+    // One batch for all the dishes; the generated ids come back in insert order
+    private List<Long> insertDishRows(Long workspaceId, List<Dish> dishes) {
+        List<Long> ids = jdbcTemplate.execute((ConnectionCallback<List<Long>>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_DISH_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (Dish dish : dishes) {
+                    ps.setString(1, dish.getName().trim());
+                    ps.setInt(2, dish.getPrepTimeMinutes());
+                    ps.setString(3, dish.getImageUrl());
+                    ps.setLong(4, workspaceId);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                List<Long> generated = new ArrayList<>(dishes.size());
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        generated.add(keys.getLong("id"));
+                    }
+                }
+                return generated;
+            }
+        });
+        if (ids == null || ids.size() != dishes.size()) {
+            throw new IllegalStateException("Expected " + dishes.size() + " generated dish ids, got " + (ids == null ? 0 : ids.size()));
+        }
+        return ids;
+    }
+}
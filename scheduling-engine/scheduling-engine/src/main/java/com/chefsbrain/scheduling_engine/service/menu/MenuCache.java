@@ -0,0 +1,136 @@
+package com.chefsbrain.scheduling_engine.service.menu;
+
+import com.chefsbrain.scheduling_engine.model.Dish;
+import com.chefsbrain.scheduling_engine.repository.DishRepository;
+import com.chefsbrain.scheduling_engine.repository.WorkspaceRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory read model of each workspace's menu.
+ *
+ * The kitchen screens poll the menu every few seconds, but it only changes when an admin edits it
+ * or the learner writes new prep times. The first read loads the dishes and their collections in a
+ * handful of queries and serializes them once; every later read is served from memory until a write
+ * invalidates the workspace.
+ *
+ * A load that raced with an invalidation is thrown away instead of being cached, so a reader can
+ * never put a stale menu back after an admin's change. Workspaces that don't exist read as an empty
+ * menu that isn't cached, so made-up ids don't fill the cache.
+ */
+@Component
+public class MenuCache {
+
+    private static final Logger log = LoggerFactory.getLogger(MenuCache.class);
+
+    private final DishRepository dishRepository;
+    private final WorkspaceRepository workspaceRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTx;
+
+    private final Map<Long, MenuSnapshot> menus = new ConcurrentHashMap<>();
+    // Bumped by every invalidation; a load is only cached if its workspace's stamp didn't move meanwhile
+    private final Map<Long, Long> stamps = new ConcurrentHashMap<>();
+    // dish id -> workspace id, so a change that only knows the dish id finds the right menu
+    private final Map<Long, Long> dishWorkspaces = new ConcurrentHashMap<>();
+
+    public MenuCache(DishRepository dishRepository, WorkspaceRepository workspaceRepository, ObjectMapper objectMapper,
+                     PlatformTransactionManager transactionManager) {
+        this.dishRepository = dishRepository;
+        this.workspaceRepository = workspaceRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+    }
+
+    public MenuSnapshot get(Long workspaceId) {
+        MenuSnapshot cached = menus.get(workspaceId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long stamp = stamps.getOrDefault(workspaceId, 0L);
+        MenuSnapshot loaded = load(workspaceId);
+        // Only an empty menu needs the extra lookup: a workspace with dishes exists
+        if (loaded.getDishes().isEmpty() && (workspaceId == null || !workspaceRepository.existsById(workspaceId))) {
+            return loaded;
+        }
+        MenuSnapshot result = menus.compute(workspaceId, (id, current) -> {
+            if (current != null) return current; // another reader got there first
+            return stamps.getOrDefault(workspaceId, 0L) == stamp ? loaded : null;
+        });
+        loaded.getDishes().forEach(dish -> dishWorkspaces.put(dish.getId(), workspaceId));
+        return result != null ? result : loaded;
+    }
+
+    // Looks up a dish through its workspace's cached menu
+    public Dish getDish(Long workspaceId, Long dishId) {
+        return get(workspaceId).getDish(dishId);
+    }
+
+    /**
+     * The cached menu that contains the given dish, for callers that only know the dish id.
+     * Returns null if the dish doesn't exist.
+     */
+    public MenuSnapshot findMenuOfDish(Long dishId) {
+        if (dishId == null) return null;
+        Long workspaceId = dishWorkspaces.get(dishId);
+        if (workspaceId == null) {
+            workspaceId = dishRepository.findWorkspaceIdById(dishId).orElse(null);
+            if (workspaceId == null) return null;
+        }
+        MenuSnapshot menu = get(workspaceId);
+        return menu.getDish(dishId) != null ? menu : null;
+    }
+
+    /**
+     * Drops the workspace's menu; the next read reloads it. Call after any write to its dishes.
+     */
+    public void invalidate(Long workspaceId) {
+        if (workspaceId == null) return;
+        stamps.merge(workspaceId, 1L, Long::sum);
+        MenuSnapshot removed = menus.remove(workspaceId);
+        if (removed != null) {
+            removed.getDishes().forEach(dish -> dishWorkspaces.remove(dish.getId(), workspaceId));
+        }
+    }
+
+    /**
+     * Invalidates the menus that contain any of the given dishes (e.g. after a prep time update).
+     * Menus that were never loaded have nothing to invalidate.
+     */
+    public void invalidateDishes(Collection<Long> dishIds) {
+        dishIds.stream()
+                .map(dishWorkspaces::get)
+                .filter(workspaceId -> workspaceId != null)
+                .distinct()
+                .forEach(this::invalidate);
+    }
+
+    private MenuSnapshot load(Long workspaceId) {
+        return readOnlyTx.execute(status -> {
+            var dishes = dishRepository.findByWorkspaceId(workspaceId);
+            // Batch-fetched (see Dish), so this is one query per collection for the whole menu
+            for (Dish dish : dishes) {
+                Hibernate.initialize(dish.getIngredients());
+                Hibernate.initialize(dish.getSubstitutions());
+            }
+            try {
+                return new MenuSnapshot(workspaceId, dishes, objectMapper.writeValueAsBytes(dishes));
+            } catch (JsonProcessingException e) {
+                log.error("Could not serialize the menu of workspace {}", workspaceId, e);
+                throw new IllegalStateException("Could not serialize menu", e);
+            }
+        });
+    }
+}
@@ -0,0 +1,16 @@
+package com.chefsbrain.scheduling_engine.service.menu;
+
+/**
+ * A menu import that can't be read (malformed JSON or CSV, a missing name, a bad prep time).
+ * Nothing of that import is kept.
+ */
+public class MenuImportException extends RuntimeException {
+
+    public MenuImportException(String message) {
+        super(message);
+    }
+
+    public MenuImportException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,70 @@
+package com.chefsbrain.scheduling_engine.service.menu;
+
+import com.chefsbrain.scheduling_engine.model.Dish;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * One workspace's menu as it was last loaded: the dishes (with ingredients and substitutions
+ * already loaded), the JSON body GET /api/dishes sends, an ETag derived from that body and the
+ * menu's {@link AllergenIndex}.
+ * Never modified after it is built; a menu change replaces the whole snapshot.
+ */
+public final class MenuSnapshot {
+
+    private final Long workspaceId;
+    private final List<Dish> dishes;
+    private final Map<Long, Dish> dishesById;
+    private final byte[] json;
+    private final String etag;
+    private final AllergenIndex allergenIndex;
+
+    MenuSnapshot(Long workspaceId, List<Dish> dishes, byte[] json) {
+        this.workspaceId = workspaceId;
+        this.dishes = List.copyOf(dishes);
+        Map<Long, Dish> byId = new LinkedHashMap<>();
+        for (Dish dish : dishes) {
+            byId.put(dish.getId(), dish);
+        }
+        this.dishesById = Map.copyOf(byId);
+        this.json = json;
+        this.allergenIndex = new AllergenIndex(this.dishes);
+
+        // Based on the content, so a rebuild that changed nothing keeps the clients' cached copy valid
+        CRC32C crc = new CRC32C();
+        crc.update(json);
+        this.etag = "\"m-" + Long.toHexString(crc.getValue()) + "-" + json.length + "\"";
+    }
+
+    public Long getWorkspaceId() {
+        return workspaceId;
+    }
+
+    public List<Dish> getDishes() {
+        return dishes;
+    }
+
+    public Dish getDish(Long dishId) {
+        return dishId == null ? null : dishesById.get(dishId);
+    }
+
+    public boolean isEmpty() {
+        return dishes.isEmpty();
+    }
+
+    // Shared by every response; callers must not modify it
+    public byte[] getJson() {
+        return json;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public AllergenIndex getAllergenIndex() {
+        return allergenIndex;
+    }
+}
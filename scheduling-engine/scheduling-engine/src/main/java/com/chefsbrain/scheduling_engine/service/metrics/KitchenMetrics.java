@@ -0,0 +1,125 @@
+package com.chefsbrain.scheduling_engine.service.metrics;
+
+import com.chefsbrain.scheduling_engine.service.history.CustomOrderHistory;
+import com.chefsbrain.scheduling_engine.service.queue.IndexedOrderHeap;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Micrometer meters of the scheduling engine, scraped from /actuator/prometheus.
+ *
+ * Gauges read the live per-workspace structures on scrape, so keeping them current costs nothing
+ * on the request path. Timers are created once here and shared by every workspace.
+ */
+@Component
+public class KitchenMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Timer placeOrder;
+    private final Timer placeTicket;
+    private final Timer completeOrder;
+    private final Timer undoCompletion;
+    private final Timer prepTimeUpdate;
+    private final Timer heapAdd;
+    private final Timer heapRemove;
+    private final Timer heapPeek;
+    private final Timer heapReprioritize;
+    private final Timer heapSnapshot;
+
+    public KitchenMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.placeOrder = Timer.builder("kitchen.orders.place")
+                .description("Queueing a new order: station booking, persistence and heap insert")
+                .register(registry);
+        this.placeTicket = Timer.builder("kitchen.orders.ticket")
+                .description("Queueing a whole table's ticket: one station booking, one persistence batch, one heap lock")
+                .register(registry);
+        this.completeOrder = Timer.builder("kitchen.orders.complete")
+                .description("Completing an order: heap removal, history append, persistence and learning")
+                .register(registry);
+        this.undoCompletion = Timer.builder("kitchen.orders.undo")
+                .description("Moving the last completed order back into the queue")
+                .register(registry);
+        this.prepTimeUpdate = Timer.builder("kitchen.learning.ema.update")
+                .description("Folding one completion into the dish's learned prep time")
+                .register(registry);
+        this.heapAdd = heapTimer("add");
+        this.heapRemove = heapTimer("remove");
+        this.heapPeek = heapTimer("peek");
+        this.heapReprioritize = heapTimer("reprioritize");
+        this.heapSnapshot = heapTimer("snapshot");
+    }
+
+    private Timer heapTimer(String operation) {
+        return Timer.builder("kitchen.heap.operation")
+                .description("Indexed order heap operations (including waiting for the workspace lock)")
+                .tag("operation", operation)
+                .register(registry);
+    }
+
+    // Called once per workspace, when its heap is created
+    public void registerQueue(Long workspaceId, IndexedOrderHeap heap) {
+        Gauge.builder("kitchen.queue.depth", heap, IndexedOrderHeap::size)
+                .description("Orders waiting in the workspace's active queue")
+                .tag("workspace", String.valueOf(workspaceId))
+                .register(registry);
+    }
+
+    // Called once per workspace, when its history is created
+    public void registerHistory(Long workspaceId, CustomOrderHistory history) {
+        Gauge.builder("kitchen.history.size", history, CustomOrderHistory::size)
+                .description("Completed orders kept in the workspace's in-memory history")
+                .tag("workspace", String.valueOf(workspaceId))
+                .register(registry);
+    }
+
+    // Removes the workspace's gauges once its queue and history are dropped, so a later heap can register fresh ones
+    public void unregisterWorkspace(Long workspaceId) {
+        String workspace = String.valueOf(workspaceId);
+        registry.find("kitchen.queue.depth").tag("workspace", workspace).meters().forEach(registry::remove);
+        registry.find("kitchen.history.size").tag("workspace", workspace).meters().forEach(registry::remove);
+    }
+
+    public Timer placeOrder() {
+        return placeOrder;
+    }
+
+    public Timer placeTicket() {
+        return placeTicket;
+    }
+
+    public Timer completeOrder() {
+        return completeOrder;
+    }
+
+    public Timer undoCompletion() {
+        return undoCompletion;
+    }
+
+    public Timer prepTimeUpdate() {
+        return prepTimeUpdate;
+    }
+
+    public Timer heapAdd() {
+        return heapAdd;
+    }
+
+    public Timer heapRemove() {
+        return heapRemove;
+    }
+
+    public Timer heapPeek() {
+        return heapPeek;
+    }
+
+    public Timer heapReprioritize() {
+        return heapReprioritize;
+    }
+
+    public Timer heapSnapshot() {
+        return heapSnapshot;
+    }
+}
@@ -0,0 +1,168 @@
+package com.chefsbrain.scheduling_engine.service.persistence;
+
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.service.KitchenService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Snapshots and compaction for the {@link OrderJournal}, and rebuilding the kitchen from it at boot.
+ *
+ * Every snapshot-interval-ms each workspace's active queue and history are captured under its lock,
+ * together with the journal position at that moment, and written as one JSON file. Segments that
+ * are covered by the snapshot and already shipped to the database are then deleted, so a restart
+ * replays at most one interval of records on top of the snapshot.
+ */
+@Component
+@ConditionalOnProperty(name = "kitchen.journal.enabled", havingValue = "true")
+public class JournalCheckpointer {
+
+    private static final Logger log = LoggerFactory.getLogger(JournalCheckpointer.class);
+
+    private static final long SHIP_WAIT_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private final OrderJournal journal;
+    private final JournalShipper shipper;
+    private final KitchenService kitchenService;
+    private final ObjectMapper objectMapper;
+    // No snapshot until the kitchen is restored: a snapshot of a half-restored kitchen would lose orders
+    private volatile boolean restored;
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+    private long lastSnapshotSeq = -1;
+
+    public JournalCheckpointer(OrderJournal journal, JournalShipper shipper, KitchenService kitchenService,
+                               ObjectMapper objectMapper) {
+        this.journal = journal;
+        this.shipper = shipper;
+        this.kitchenService = kitchenService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Rebuilds every workspace from the latest snapshot and the records after it.
+     * Returns false (and restores nothing) if there is no snapshot yet, i.e. the journal is new.
+     */
+    public boolean restoreAll(int historySize) {
+        Path snapshot = journal.latestSnapshot();
+        if (snapshot == null) return false;
+
+        long started = System.currentTimeMillis();
+        JournalState state = new JournalState(historySize);
+        long fromSeq;
+        try {
+            JsonNode root = objectMapper.readTree(Files.readAllBytes(snapshot));
+            fromSeq = root.path("seq").asLong();
+            for (JsonNode workspace : root.path("workspaces")) {
+                state.load(workspace.path("workspaceId").asLong(), workspace.path("seq").asLong(),
+                        orders(workspace.path("active")), orders(workspace.path("history")));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read journal snapshot " + snapshot, e);
+        }
+
+        OrderJournal.Cursor cursor = journal.readAfter(fromSeq);
+        long replayed = 0;
+        JournalRecord record;
+        while ((record = cursor.next()) != null) {
+            state.apply(record);
+            replayed++;
+        }
+
+        Map<Long, List<Order>> completed = state.completedOrders();
+        state.activeOrders().forEach((workspaceId, active) ->
+                kitchenService.restoreWorkspace(workspaceId, active, completed.get(workspaceId)));
+        markRestored();
+        log.atInfo().setMessage("Rebuilt kitchen state from the order journal")
+                .addKeyValue("snapshot", snapshot.getFileName())
+                .addKeyValue("replayedRecords", replayed)
+                .addKeyValue("workspaces", completed.size())
+                .addKeyValue("durationMs", System.currentTimeMillis() - started)
+                .log();
+        return true;
+    }
+
+    /**
+     * Before the first restore from the database: waits until every journaled change is in the database,
+     * so the restore sees it.
+     */
+    public void awaitShipped() {
+        if (!shipper.awaitShipped(journal.lastSeq(), SHIP_WAIT_MS)) {
+            log.warn("Journal records up to {} are not in the database yet; restoring without them", journal.lastSeq());
+        }
+    }
+
+    // After a restore from the database: from now on the journal (via its first snapshot) is the source for restarts
+    public void markRestored() {
+        restored = true;
+        checkpoint();
+    }
+
+    @Scheduled(fixedDelayString = "${kitchen.journal.snapshot-interval-ms:60000}")
+    public void checkpoint() {
+        if (!restored) return;
+        checkpointLock.lock();
+        try {
+            if (journal.lastSeq() != lastSnapshotSeq) writeSnapshot();
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    private void writeSnapshot() {
+        long started = System.currentTimeMillis();
+        // Replay starts from here, so workspaces created while the others are captured are replayed in full
+        long seq = journal.lastSeq();
+        ArrayNode workspaces = objectMapper.createArrayNode();
+        kitchenService.forEachWorkspace((workspaceId, active, history) -> {
+            // Under the workspace lock: the records of this workspace up to here are in the copy, later ones aren't
+            ObjectNode workspace = workspaces.addObject();
+            workspace.put("workspaceId", workspaceId);
+            workspace.put("seq", journal.lastSeq());
+            workspace.set("active", objectMapper.valueToTree(active));
+            workspace.set("history", objectMapper.valueToTree(history));
+        });
+
+        ObjectNode root = objectMapper.createObjectNode();
+        root.put("seq", seq);
+        root.set("workspaces", workspaces);
+        try {
+            journal.writeSnapshot(seq, objectMapper.writeValueAsBytes(root));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write journal snapshot", e);
+        }
+        lastSnapshotSeq = seq;
+
+        int deleted = journal.compact(Math.min(seq, shipper.shippedSeq()));
+        log.atDebug().setMessage("Journal snapshot written")
+                .addKeyValue("seq", seq)
+                .addKeyValue("workspaces", workspaces.size())
+                .addKeyValue("segmentsDeleted", deleted)
+                .addKeyValue("durationMs", System.currentTimeMillis() - started)
+                .log();
+    }
+
+    private List<Order> orders(JsonNode array) throws IOException {
+        List<Order> orders = new ArrayList<>();
+        for (JsonNode order : array) {
+            orders.add(objectMapper.treeToValue(order, Order.class));
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,114 @@
+package com.chefsbrain.scheduling_engine.service.persistence;
+
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.service.events.QueueEventType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Binary form of a journal record's payload:
+ * type (1 byte), seq, workspaceId, orderId (8 bytes each), then by type: the order as JSON (ADDED),
+ * completedAt as epoch second + nano (COMPLETED), the VIP flag (REPRIORITIZED), nothing (UNDONE).
+ */
+final class JournalCodec {
+
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private final ObjectMapper objectMapper;
+
+    JournalCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    byte[] encode(long seq, QueueEventType type, Order order) {
+        byte[] json = type == QueueEventType.ADDED ? toJson(order) : null;
+        int size = 1 + 3 * Long.BYTES + switch (type) {
+            case ADDED -> json.length;
+            case COMPLETED -> Long.BYTES + Integer.BYTES;
+            case REPRIORITIZED -> 1;
+            case UNDONE -> 0;
+            case POLICY_CHANGED -> throw new IllegalArgumentException("Policy changes are not journaled");
+        };
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(code(type));
+        buffer.putLong(seq);
+        buffer.putLong(order.getWorkspaceId() == null ? 0 : order.getWorkspaceId());
+        buffer.putLong(order.getId());
+        switch (type) {
+            case ADDED -> buffer.put(json);
+            case COMPLETED -> {
+                LocalDateTime completedAt = order.getCompletedAt();
+                buffer.putLong(completedAt == null ? NO_TIME : completedAt.toEpochSecond(ZoneOffset.UTC));
+                buffer.putInt(completedAt == null ? 0 : completedAt.getNano());
+            }
+            case REPRIORITIZED -> buffer.put((byte) (order.isVip() ? 1 : 0));
+            default -> {
+            }
+        }
+        return buffer.array();
+    }
+
+    JournalRecord decode(ByteBuffer payload) {
+        QueueEventType type = type(payload.get());
+        long seq = payload.getLong();
+        Long workspaceId = payload.getLong();
+        Long orderId = payload.getLong();
+        return switch (type) {
+            case ADDED -> {
+                byte[] json = new byte[payload.remaining()];
+                payload.get(json);
+                yield new JournalRecord(seq, type, workspaceId, orderId, fromJson(json), null, false);
+            }
+            case COMPLETED -> {
+                long second = payload.getLong();
+                int nano = payload.getInt();
+                LocalDateTime completedAt = second == NO_TIME ? null : LocalDateTime.ofEpochSecond(second, nano, ZoneOffset.UTC);
+                yield new JournalRecord(seq, type, workspaceId, orderId, null, completedAt, false);
+            }
+            case REPRIORITIZED -> new JournalRecord(seq, type, workspaceId, orderId, null, null, payload.get() == 1);
+            default -> new JournalRecord(seq, type, workspaceId, orderId, null, null, false);
+        };
+    }
+
+    // Stable codes: the ordinal of QueueEventType may change, files on disk must not
+    private static byte code(QueueEventType type) {
+        return switch (type) {
+            case ADDED -> 1;
+            case COMPLETED -> 2;
+            case UNDONE -> 3;
+            case REPRIORITIZED -> 4;
+            case POLICY_CHANGED -> throw new IllegalArgumentException("Policy changes are not journaled");
+        };
+    }
+
+    private static QueueEventType type(byte code) {
+        return switch (code) {
+            case 1 -> QueueEventType.ADDED;
+            case 2 -> QueueEventType.COMPLETED;
+            case 3 -> QueueEventType.UNDONE;
+            case 4 -> QueueEventType.REPRIORITIZED;
+            default -> throw new IllegalStateException("Unknown journal record type " + code);
+        };
+    }
+
+    private byte[] toJson(Order order) {
+        try {
+            return objectMapper.writeValueAsBytes(order);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not serialize order " + order.getId(), e);
+        }
+    }
+
+    private Order fromJson(byte[] json) {
+        try {
+            return objectMapper.readValue(json, Order.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read journaled order", e);
+        }
+    }
+}
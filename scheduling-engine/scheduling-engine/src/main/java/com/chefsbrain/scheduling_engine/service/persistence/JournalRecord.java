@@ -0,0 +1,15 @@
+package com.chefsbrain.scheduling_engine.service.persistence;
+
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.service.events.QueueEventType;
+
+import java.time.LocalDateTime;
+
+/**
+ * One queue change read back from the {@link OrderJournal}.
+ * ADDED carries the whole order; COMPLETED its completedAt; REPRIORITIZED the new VIP flag;
+ * UNDONE only the order id.
+ */
+public record JournalRecord(long seq, QueueEventType type, Long workspaceId, Long orderId,
+                            Order order, LocalDateTime completedAt, boolean vip) {
+}
@@ -0,0 +1,256 @@
+package com.chefsbrain.scheduling_engine.service.persistence;
+
+import com.chefsbrain.scheduling_engine.config.KitchenThreads;
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.model.OrderStatus;
+import com.chefsbrain.scheduling_engine.service.events.QueueEventType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copies the order journal into the database in the background: one transaction of JDBC batches
+ * per ship-batch-size records, after which the shipped sequence number is recorded next to the journal.
+ *
+ * Shipping is idempotent (orders that already exist aren't inserted again; status and VIP updates
+ * write the latest value), so after a crash it simply resumes from the last recorded position.
+ * While the database is down the batch is retried with backoff; the journal keeps everything meanwhile.
+ * A batch rejected for its data is split like in {@link OrderWriteBehindQueue}; a record still rejected
+ * after ship-max-attempts is quarantined ({@link OrderJournal#quarantine}) so shipping, and with it
+ * compaction, moves past it.
+ */
+@Component
+@ConditionalOnProperty(name = "kitchen.journal.enabled", havingValue = "true")
+public class JournalShipper {
+
+    private static final Logger log = LoggerFactory.getLogger(JournalShipper.class);
+
+    static final String UPDATE_VIP_SQL = "update kitchen_orders set is_vip = ? where id = ?";
+
+    private final OrderJournal journal;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long intervalMs;
+    private final int maxAttempts;
+    private final Thread shipper;
+    private volatile boolean running = true;
+    private volatile long shippedSeq;
+
+    public JournalShipper(OrderJournal journal, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                          KitchenThreads threads,
+                          @Value("${kitchen.journal.ship-batch-size:500}") int batchSize,
+                          @Value("${kitchen.journal.ship-interval-ms:100}") long intervalMs,
+                          @Value("${kitchen.journal.ship-max-attempts:5}") int maxAttempts) {
+        this.journal = journal;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.intervalMs = intervalMs;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.shippedSeq = journal.shippedSeq();
+        this.shipper = threads.factory("order-journal-shipper").newThread(this::runShipper);
+    }
+
+    @PostConstruct
+    void start() {
+        shipper.start();
+    }
+
+    public long shippedSeq() {
+        return shippedSeq;
+    }
+
+    /**
+     * Waits until every record up to seq is in the database. Returns false if that took longer than the timeout.
+     */
+    public boolean awaitShipped(long seq, long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (shippedSeq < seq) {
+            if (System.currentTimeMillis() >= deadline) return false;
+            sleepQuietly(Math.min(intervalMs, 50));
+        }
+        return true;
+    }
+
+    // Ships what the journal holds before the DataSource closes
+    @PreDestroy
+    public void drainAndStop() {
+        running = false;
+        if (!shipper.isAlive()) return;
+        try {
+            shipper.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (shippedSeq < journal.lastSeq()) {
+            log.warn("Shutting down with journal records {}..{} not yet in the database; they are shipped on the next start",
+                    shippedSeq + 1, journal.lastSeq());
+        }
+    }
+
+    private void runShipper() {
+        OrderJournal.Cursor cursor = journal.readAfter(shippedSeq);
+        // Batches still to ship, in sequence order; a batch rejected for its data is replaced by its two halves
+        Deque<List<JournalRecord>> work = new ArrayDeque<>();
+        int failures = 0;
+        while (true) {
+            List<JournalRecord> batch = work.peek();
+            if (batch == null) {
+                batch = new ArrayList<>(batchSize);
+                JournalRecord record;
+                while (batch.size() < batchSize && (record = cursor.next()) != null) {
+                    batch.add(record);
+                }
+                if (batch.isEmpty()) {
+                    if (!running) return;
+                    sleepQuietly(intervalMs);
+                    continue;
+                }
+                work.push(batch);
+            }
+            try {
+                ship(batch);
+            } catch (RuntimeException e) {
+                if (OrderWriteBehindQueue.isRowLevelFailure(e) && batch.size() > 1) {
+                    work.pop();
+                    int half = batch.size() / 2;
+                    work.push(new ArrayList<>(batch.subList(half, batch.size())));
+                    work.push(new ArrayList<>(batch.subList(0, half)));
+                    log.warn("Shipping {} journal records was rejected, splitting them to find the bad record: {}",
+                            batch.size(), e.getMessage());
+                    continue;
+                }
+                failures++;
+                if (OrderWriteBehindQueue.isRowLevelFailure(e) && failures >= maxAttempts) {
+                    work.pop();
+                    failures = 0;
+                    quarantine(batch.get(0), e);
+                    advance(batch.get(0).seq());
+                    continue;
+                }
+                // Keep the batch and retry it; the journal holds the records until they are written
+                long backoffMs = Math.min(5_000, 100L << Math.min(failures, 6));
+                log.error("Shipping {} journal records failed (attempt {}), retrying in {} ms", batch.size(), failures, backoffMs, e);
+                if (!running && failures > 3) return;
+                sleepQuietly(backoffMs);
+                continue;
+            }
+            work.pop();
+            failures = 0;
+            advance(batch.get(batch.size() - 1).seq());
+        }
+    }
+
+    // Recorded next to the journal first, so anyone who saw shippedSeq move also finds it in shipped.seq
+    private void advance(long seq) {
+        try {
+            journal.markShipped(seq);
+        } catch (UncheckedIOException e) {
+            // Only means these records are shipped again after a restart
+            log.warn("Could not record journal position {}", seq, e);
+        }
+        shippedSeq = seq;
+    }
+
+    private void quarantine(JournalRecord record, RuntimeException cause) {
+        log.atError().setMessage("Journal record quarantined after repeated rejection; the order is not in the database")
+                .addKeyValue("seq", record.seq())
+                .addKeyValue("type", record.type())
+                .addKeyValue("orderId", record.orderId())
+                .addKeyValue("workspaceId", record.workspaceId())
+                .setCause(cause)
+                .log();
+        try {
+            journal.quarantine(record, cause.getMessage());
+        } catch (UncheckedIOException e) {
+            log.error("Could not write journal record {} to the quarantine file", record.seq(), e);
+        }
+    }
+
+    private void ship(List<JournalRecord> batch) {
+        Map<Long, Order> inserts = new LinkedHashMap<>();
+        // Several changes of one order collapse into one UPDATE of its latest state
+        Map<Long, JournalRecord> statusChanges = new LinkedHashMap<>();
+        Map<Long, Boolean> vipChanges = new LinkedHashMap<>();
+        for (JournalRecord record : batch) {
+            switch (record.type()) {
+                case ADDED -> inserts.put(record.orderId(), record.order());
+                case COMPLETED, UNDONE -> statusChanges.put(record.orderId(), record);
+                case REPRIORITIZED -> vipChanges.put(record.orderId(), record.vip());
+                default -> {
+                }
+            }
+        }
+        inserts.keySet().removeAll(existingIds(inserts.keySet()));
+
+        List<Object[]> allergyRows = new ArrayList<>();
+        for (Order order : inserts.values()) {
+            if (order.getCustomerAllergies() == null) continue;
+            for (String allergen : order.getCustomerAllergies()) {
+                allergyRows.add(new Object[]{order.getId(), allergen});
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!inserts.isEmpty()) {
+                jdbcTemplate.batchUpdate(OrderWriteBehindQueue.INSERT_ORDER_SQL, new ArrayList<>(inserts.values()), batchSize,
+                        OrderWriteBehindQueue::bindInsert);
+            }
+            if (!allergyRows.isEmpty()) {
+                jdbcTemplate.batchUpdate(OrderWriteBehindQueue.INSERT_ALLERGY_SQL, allergyRows);
+            }
+            if (!statusChanges.isEmpty()) {
+                jdbcTemplate.batchUpdate(OrderWriteBehindQueue.UPDATE_STATUS_SQL, new ArrayList<>(statusChanges.values()), batchSize,
+                        (ps, record) -> {
+                            boolean completed = record.type() == QueueEventType.COMPLETED;
+                            ps.setString(1, (completed ? OrderStatus.COMPLETED : OrderStatus.QUEUED).name());
+                            OrderWriteBehindQueue.setTimestamp(ps, 2, completed ? record.completedAt() : null);
+                            ps.setLong(3, record.orderId());
+                        });
+            }
+            if (!vipChanges.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPDATE_VIP_SQL, new ArrayList<>(vipChanges.entrySet()), batchSize,
+                        (ps, change) -> {
+                            ps.setBoolean(1, change.getValue());
+                            ps.setLong(2, change.getKey());
+                        });
+            }
+        });
+    }
+
+    // Orders a previous run already shipped (it stopped before recording how far it got)
+    private Set<Long> existingIds(Set<Long> ids) {
+        if (ids.isEmpty()) return Set.of();
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "select id from kitchen_orders where id in (" + placeholders + ")", Long.class, ids.toArray()));
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.chefsbrain.scheduling_engine.service.persistence;
+
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.model.OrderStatus;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Rebuilds the workspaces' active queues and recent histories from a snapshot plus the journal
+ * records written after it, the same way KitchenServiceImpl changed them.
+ *
+ * Each workspace in the snapshot was captured at its own sequence number, so records at or below
+ * it are already part of the snapshot and are skipped.
+ */
+final class JournalState {
+
+    private static final class Workspace {
+        final Map<Long, Order> active = new LinkedHashMap<>();
+        // Oldest first; keyed by id because an undo can take back any order in it
+        final Map<Long, Order> history = new LinkedHashMap<>();
+        long capturedSeq;
+    }
+
+    private final int historySize;
+    private final Map<Long, Workspace> workspaces = new TreeMap<>();
+
+    JournalState(int historySize) {
+        this.historySize = historySize;
+    }
+
+    // Loads one workspace of a snapshot; history is oldest first
+    void load(Long workspaceId, long capturedSeq, List<Order> active, List<Order> history) {
+        Workspace workspace = workspace(workspaceId);
+        workspace.capturedSeq = capturedSeq;
+        active.forEach(order -> workspace.active.put(order.getId(), order));
+        history.forEach(order -> addToHistory(workspace, order));
+    }
+
+    void apply(JournalRecord record) {
+        Workspace workspace = workspace(record.workspaceId());
+        if (record.seq() <= workspace.capturedSeq) return;
+
+        switch (record.type()) {
+            case ADDED -> workspace.active.put(record.orderId(), record.order());
+            case COMPLETED -> {
+                Order order = workspace.active.remove(record.orderId());
+                if (order != null) {
+                    order.setStatus(OrderStatus.COMPLETED);
+                    order.setCompletedAt(record.completedAt());
+                    addToHistory(workspace, order);
+                }
+            }
+            case UNDONE -> {
+                Order order = workspace.history.remove(record.orderId());
+                if (order != null) {
+                    order.setStatus(OrderStatus.QUEUED);
+                    order.setCompletedAt(null);
+                    workspace.active.put(order.getId(), order);
+                }
+            }
+            case REPRIORITIZED -> {
+                Order order = workspace.active.get(record.orderId());
+                if (order != null) order.setVip(record.vip());
+            }
+            default -> {
+            }
+        }
+    }
+
+    Map<Long, List<Order>> activeOrders() {
+        Map<Long, List<Order>> active = new HashMap<>();
+        workspaces.forEach((id, workspace) -> active.put(id, new ArrayList<>(workspace.active.values())));
+        return active;
+    }
+
+    // Oldest first, at most historySize per workspace
+    Map<Long, List<Order>> completedOrders() {
+        Map<Long, List<Order>> completed = new HashMap<>();
+        workspaces.forEach((id, workspace) -> completed.put(id, new ArrayList<>(workspace.history.values())));
+        return completed;
+    }
+
+    private void addToHistory(Workspace workspace, Order order) {
+        workspace.history.put(order.getId(), order);
+        if (workspace.history.size() > historySize) {
+            Iterator<Order> oldest = workspace.history.values().iterator();
+            oldest.next();
+            oldest.remove();
+        }
+    }
+
+    private Workspace workspace(Long workspaceId) {
+        return workspaces.computeIfAbsent(workspaceId, id -> new Workspace());
+    }
+}
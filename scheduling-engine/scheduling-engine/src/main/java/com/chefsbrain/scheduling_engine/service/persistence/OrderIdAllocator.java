@@ -0,0 +1,99 @@
+package com.chefsbrain.scheduling_engine.service.persistence;
+
+import com.chefsbrain.scheduling_engine.model.Order;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out order ids from the kitchen_orders_seq sequence, one block of
+ * {@link Order#ID_ALLOCATION_SIZE} ids per round trip.
+ *
+ * Hibernate uses the same sequence with the "pooled-lo" optimizer (see application.properties),
+ * so a sequence value v always means "ids v .. v + size - 1" for both, and they never overlap.
+ */
+@Component
+public class OrderIdAllocator {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderIdAllocator.class);
+    static final String SEQUENCE_NAME = "kitchen_orders_seq";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String nextValueSql;
+    private final boolean postgres;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Current block is [next, limit)
+    private long next;
+    private long limit;
+
+    public OrderIdAllocator(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        this.nextValueSql = dialect.getSequenceSupport().getSequenceNextValString(SEQUENCE_NAME);
+        this.postgres = dialect instanceof PostgreSQLDialect;
+    }
+
+    /**
+     * Orders used to get IDENTITY ids. On the first start after switching to the sequence,
+     * the new sequence begins at 1 and would collide with existing rows, so move it past them.
+     * Every cluster node runs this at startup, so the sequence is only ever moved forward.
+     */
+    @PostConstruct
+    void alignWithExistingRows() {
+        Long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from kitchen_orders", Long.class);
+        long start = nextSequenceValue();
+        if (maxId != null && start <= maxId) {
+            log.info("Moving {} past existing order ids (max id {})", SEQUENCE_NAME, maxId);
+            movePast(maxId);
+            start = nextSequenceValue();
+        }
+        lock.lock();
+        try {
+            next = start;
+            limit = start + Order.ID_ALLOCATION_SIZE;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long nextId() {
+        lock.lock();
+        try {
+            if (next >= limit) {
+                next = nextSequenceValue();
+                limit = next + Order.ID_ALLOCATION_SIZE;
+            }
+            return next++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void movePast(long maxId) {
+        if (postgres) {
+            // Another node may have taken values past maxId since it was read; never go back behind those
+            jdbcTemplate.queryForObject("select setval('" + SEQUENCE_NAME + "', greatest(?, (select last_value from "
+                    + SEQUENCE_NAME + ")))", Long.class, maxId);
+        } else {
+            // H2 (development and tests) has no setval, and runs a single node
+            jdbcTemplate.execute("alter sequence " + SEQUENCE_NAME + " restart with " + (maxId + 1));
+        }
+    }
+
+    private long nextSequenceValue() {
+        Long value = jdbcTemplate.queryForObject(nextValueSql, Long.class);
+        if (value == null) {
+            throw new IllegalStateException("Sequence " + SEQUENCE_NAME + " returned no value");
+        }
+        return value;
+    }
+}
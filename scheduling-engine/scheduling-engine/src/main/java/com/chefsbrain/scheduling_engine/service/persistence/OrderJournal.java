@@ -0,0 +1,398 @@
+package com.chefsbrain.scheduling_engine.service.persistence;
+
+import com.chefsbrain.scheduling_engine.config.KitchenThreads;
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.service.events.QueueEventType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Local write-ahead journal of queue changes (kitchen.journal.enabled=true).
+ *
+ * Every add, completion, undo and reprioritization is appended, under its workspace's lock, to a
+ * memory-mapped segment file: an append is a copy into the page cache, with no system call and no
+ * database round trip, and it survives a crash of the process. The mapped pages are forced to disk
+ * every force-interval-ms (0 forces on every append), which bounds what a power loss can take.
+ *
+ * Segments are preallocated files named after their first sequence number. A record is framed as
+ * length, CRC32C, payload ({@link JournalCodec}); the length is written last, so a torn append reads
+ * as the end of the journal and is overwritten after a restart.
+ *
+ * {@link JournalShipper} writes the records to the database in the background, {@link JournalCheckpointer}
+ * snapshots the in-memory state and drops segments that are both shipped and covered by a snapshot.
+ */
+@Component
+@ConditionalOnProperty(name = "kitchen.journal.enabled", havingValue = "true")
+public class OrderJournal {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderJournal.class);
+
+    static final int HEADER_BYTES = 2 * Integer.BYTES;
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".json";
+    private static final String SHIPPED_FILE = "shipped.seq";
+    private static final String QUARANTINE_FILE = "quarantine.ndjson";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final long forceIntervalMs;
+    private final JournalCodec codec;
+    private final ObjectMapper objectMapper;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final CRC32C crc = new CRC32C();
+    // First sequence number -> segment file
+    private final NavigableMap<Long, Path> segments = new ConcurrentSkipListMap<>();
+    private final ScheduledExecutorService forcer;
+
+    private MappedByteBuffer current;
+    private boolean dirty;
+    private volatile long lastSeq;
+
+    public OrderJournal(ObjectMapper objectMapper, KitchenThreads threads,
+                        @Value("${kitchen.journal.dir:data/journal}") String directory,
+                        @Value("${kitchen.journal.segment-size-mb:64}") int segmentSizeMb,
+                        @Value("${kitchen.journal.force-interval-ms:200}") long forceIntervalMs,
+                        @Value("${kitchen.persistence.write-behind:false}") boolean writeBehind,
+                        @Value("${kitchen.cluster.enabled:false}") boolean clusterMode) {
+        if (writeBehind) {
+            throw new IllegalStateException("kitchen.journal.enabled replaces kitchen.persistence.write-behind; enable only one");
+        }
+        if (clusterMode) {
+            // A node's journal only knows the workspaces it owned; a takeover must rebuild from the database
+            throw new IllegalStateException("kitchen.journal.enabled can't be combined with kitchen.cluster.enabled");
+        }
+        this.directory = Path.of(directory);
+        this.segmentBytes = segmentSizeMb * 1024 * 1024;
+        this.forceIntervalMs = forceIntervalMs;
+        this.codec = new JournalCodec(objectMapper);
+        this.objectMapper = objectMapper;
+        try {
+            Files.createDirectories(this.directory);
+            open();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open the order journal in " + this.directory.toAbsolutePath(), e);
+        }
+        if (forceIntervalMs > 0) {
+            this.forcer = Executors.newSingleThreadScheduledExecutor(threads.factory("order-journal-force"));
+            forcer.scheduleWithFixedDelay(this::forceQuietly, forceIntervalMs, forceIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.forcer = null;
+        }
+    }
+
+    /**
+     * Appends one queue change and returns its sequence number. Called while holding the workspace lock,
+     * so a workspace's records are in the same order as its changes.
+     */
+    public long append(QueueEventType type, Order order) {
+        lock.lock();
+        try {
+            long seq = lastSeq + 1;
+            byte[] payload = codec.encode(seq, type, order);
+            if (current.remaining() < HEADER_BYTES + payload.length) {
+                rotate(seq, payload.length);
+            }
+            int position = current.position();
+            crc.reset();
+            crc.update(payload);
+            current.put(position + HEADER_BYTES, payload);
+            current.putInt(position + Integer.BYTES, (int) crc.getValue());
+            current.putInt(position, payload.length); // Last: until now the record reads as the end of the journal
+            current.position(position + HEADER_BYTES + payload.length);
+            lastSeq = seq;
+            if (forceIntervalMs == 0) {
+                current.force();
+            } else {
+                dirty = true;
+            }
+            return seq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Sequence number of the newest record (0 if nothing was ever appended)
+    public long lastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * Reads the records after the given sequence number, oldest first. A cursor sees records appended
+     * after it was opened, and is meant for one thread.
+     */
+    public Cursor readAfter(long seq) {
+        return new Cursor(seq + 1);
+    }
+
+    public long shippedSeq() {
+        Path file = directory.resolve(SHIPPED_FILE);
+        try {
+            return Files.exists(file) ? Long.parseLong(Files.readString(file).trim()) : 0;
+        } catch (IOException | NumberFormatException e) {
+            log.warn("Unreadable {}, shipping the whole journal again", file, e);
+            return 0;
+        }
+    }
+
+    // Shipping is idempotent, so losing this file only means some records are written to the database twice
+    public void markShipped(long seq) {
+        writeAtomically(directory.resolve(SHIPPED_FILE), String.valueOf(seq).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Sets aside a record the database keeps rejecting, one JSON line per record in quarantine.ndjson,
+     * so shipping can move past it and it can still be looked at (or replayed by hand) once the segment is gone.
+     */
+    public void quarantine(JournalRecord record, String reason) {
+        try {
+            String line = objectMapper.writeValueAsString(Map.of("reason", String.valueOf(reason), "record", record)) + "\n";
+            Files.writeString(directory.resolve(QUARANTINE_FILE), line, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not quarantine journal record " + record.seq(), e);
+        }
+    }
+
+    public void writeSnapshot(long seq, byte[] content) {
+        Path snapshot = directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, seq, SNAPSHOT_SUFFIX));
+        writeAtomically(snapshot, content);
+        for (Path older : snapshots()) {
+            if (!older.equals(snapshot)) deleteQuietly(older);
+        }
+    }
+
+    // The newest snapshot, or null if none was written yet
+    public Path latestSnapshot() {
+        List<Path> snapshots = snapshots();
+        return snapshots.isEmpty() ? null : snapshots.get(snapshots.size() - 1);
+    }
+
+    /**
+     * Deletes the segments whose records are all at or below seq. The segment being written is kept.
+     */
+    public int compact(long seq) {
+        int deleted = 0;
+        for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+            Long next = segments.higherKey(segment.getKey());
+            if (next == null || next > seq + 1) break;
+            segments.remove(segment.getKey());
+            deleteQuietly(segment.getValue());
+            deleted++;
+        }
+        return deleted;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (forcer != null) forcer.shutdownNow();
+        lock.lock();
+        try {
+            current.force();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sequential reader over the segments.
+     */
+    public final class Cursor {
+        private long nextSeq;
+        private long segmentFirstSeq = -1;
+        private ByteBuffer buffer;
+
+        private Cursor(long nextSeq) {
+            this.nextSeq = nextSeq;
+        }
+
+        // The next record, or null if the cursor has caught up with the writer
+        public JournalRecord next() {
+            while (nextSeq <= lastSeq) {
+                if (buffer == null && !openSegmentFor(nextSeq)) return null;
+                int length = frameLength(buffer);
+                if (length < 0) {
+                    // End of this segment: the rest is in the next one
+                    Long following = segments.higherKey(segmentFirstSeq);
+                    if (following == null || !openSegment(following)) return null;
+                    continue;
+                }
+                long seq = seqOf(buffer);
+                int start = buffer.position() + HEADER_BYTES;
+                buffer.position(start + length);
+                if (seq < nextSeq) continue;
+                nextSeq = seq + 1;
+                return codec.decode(buffer.slice(start, length));
+            }
+            return null;
+        }
+
+        private boolean openSegmentFor(long seq) {
+            Long first = segments.floorKey(seq);
+            if (first == null) first = segments.isEmpty() ? null : segments.firstKey();
+            return first != null && openSegment(first);
+        }
+
+        private boolean openSegment(long first) {
+            Path file = segments.get(first);
+            if (file == null) return false;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                segmentFirstSeq = first;
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read journal segment " + file, e);
+            }
+        }
+    }
+
+    // Payload length of the intact frame at the buffer's position, or -1 at the end of the written part
+    private static int frameLength(ByteBuffer buffer) {
+        int position = buffer.position();
+        if (buffer.limit() - position < HEADER_BYTES) return -1;
+        int length = buffer.getInt(position);
+        if (length <= 0 || length > buffer.limit() - position - HEADER_BYTES) return -1;
+        CRC32C check = new CRC32C();
+        check.update(buffer.slice(position + HEADER_BYTES, length));
+        return (int) check.getValue() == buffer.getInt(position + Integer.BYTES) ? length : -1;
+    }
+
+    // Sequence number of the frame at the buffer's position, without decoding the payload
+    private static long seqOf(ByteBuffer buffer) {
+        return buffer.getLong(buffer.position() + HEADER_BYTES + 1);
+    }
+
+    private void open() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .forEach(file -> segments.put(firstSeqOf(file), file));
+        }
+        if (segments.isEmpty()) {
+            current = createSegment(1);
+            lastSeq = 0;
+            return;
+        }
+
+        Map.Entry<Long, Path> last = segments.lastEntry();
+        current = map(last.getValue());
+        lastSeq = last.getKey() - 1;
+        int length;
+        while ((length = frameLength(current)) >= 0) {
+            lastSeq = seqOf(current);
+            current.position(current.position() + HEADER_BYTES + length);
+        }
+        int end = current.position();
+        if (end + HEADER_BYTES <= current.limit() && current.getInt(end) != 0) {
+            // A torn append from before a crash: clear it so it can't be mistaken for a record later
+            log.warn("Discarding a partly written record at the end of journal segment {}", last.getValue());
+            for (int i = end; i < current.limit(); i++) {
+                if (current.get(i) != 0) current.put(i, (byte) 0);
+            }
+        }
+        log.info("Opened order journal {} at sequence {}", directory.toAbsolutePath(), lastSeq);
+    }
+
+    private void rotate(long firstSeq, int payloadLength) {
+        if (HEADER_BYTES + payloadLength > segmentBytes) {
+            throw new IllegalStateException("Journal record of " + payloadLength + " bytes doesn't fit in a segment");
+        }
+        current.force();
+        try {
+            current = createSegment(firstSeq);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create journal segment", e);
+        }
+    }
+
+    private MappedByteBuffer createSegment(long firstSeq) throws IOException {
+        Path file = directory.resolve(String.format("%020d%s", firstSeq, SEGMENT_SUFFIX));
+        MappedByteBuffer buffer = map(file);
+        segments.put(firstSeq, file);
+        return buffer;
+    }
+
+    private MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping outlives the channel; mapping past the end preallocates the segment
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentBytes, channel.size()));
+        }
+    }
+
+    private void forceQuietly() {
+        MappedByteBuffer toForce;
+        lock.lock();
+        try {
+            if (!dirty) return;
+            dirty = false;
+            toForce = current;
+        } finally {
+            lock.unlock();
+        }
+        // Outside the lock: appends carry on while the pages are written out
+        try {
+            toForce.force();
+        } catch (RuntimeException e) {
+            log.error("Could not force the order journal to disk", e);
+        }
+    }
+
+    private List<Path> snapshots() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return new ArrayList<>(files.filter(file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+            }).sorted().toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list journal snapshots", e);
+        }
+    }
+
+    private static long firstSeqOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static void writeAtomically(Path target, byte[] content) {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            Files.write(temp, content);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write " + target, e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.chefsbrain.scheduling_engine.service.persistence;
+
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.repository.OrderRepository;
+import com.chefsbrain.scheduling_engine.service.events.QueueEventType;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Single entry point for writing orders from the scheduling service.
+ *
+ * Default mode writes synchronously through the repository.
+ * With kitchen.persistence.write-behind=true the order gets its id from {@link OrderIdAllocator}
+ * right away (so it can enter the heap immediately) and the row is written later by
+ * {@link OrderWriteBehindQueue} in a batch.
+ * With kitchen.journal.enabled=true ids also come from the allocator, every queue change is appended
+ * to the local {@link OrderJournal} instead, and {@link JournalShipper} writes it to the database.
+ */
+@Component
+public class OrderPersistence {
+
+    private final OrderRepository orderRepository;
+    private final OrderIdAllocator idAllocator;
+    private final OrderWriteBehindQueue writeBehindQueue;
+    private final OrderJournal journal;
+
+    public OrderPersistence(OrderRepository orderRepository, OrderIdAllocator idAllocator,
+                            Optional<OrderWriteBehindQueue> writeBehindQueue, Optional<OrderJournal> journal) {
+        this.orderRepository = orderRepository;
+        this.idAllocator = idAllocator;
+        this.writeBehindQueue = writeBehindQueue.orElse(null);
+        this.journal = journal.orElse(null);
+    }
+
+    public boolean isWriteBehind() {
+        return writeBehindQueue != null;
+    }
+
+    /**
+     * Journals a queue change (journal mode only). Called under the workspace lock, right after the change.
+     */
+    public void recordChange(QueueEventType type, Order order) {
+        if (journal != null) {
+            journal.append(type, order);
+        }
+    }
+
+    /**
+     * Persists a new order (or schedules it) and returns the instance that carries the id.
+     */
+    public Order insert(Order order) {
+        if (journal != null) {
+            order.setId(idAllocator.nextId()); // Written with its ADDED journal record
+            return order;
+        }
+        if (writeBehindQueue == null) {
+            return orderRepository.save(order);
+        }
+        order.setId(idAllocator.nextId());
+        writeBehindQueue.enqueueInsert(order);
+        return order;
+    }
+
+    /**
+     * Persists (or schedules) several new orders at once: one transaction of batched inserts,
+     * or ids for all of them from the allocator in write-behind mode. Returns the saved instances, in order.
+     */
+    public List<Order> insertAll(List<Order> orders) {
+        if (journal != null) {
+            orders.forEach(order -> order.setId(idAllocator.nextId()));
+            return orders;
+        }
+        if (writeBehindQueue == null) {
+            return orderRepository.saveAll(orders); // One transaction; sequence ids let Hibernate batch the inserts
+        }
+        for (Order order : orders) {
+            order.setId(idAllocator.nextId());
+            writeBehindQueue.enqueueInsert(order);
+        }
+        return orders;
+    }
+
+    /**
+     * Writes the order's current status and completedAt. Called under the workspace lock, so a completion
+     * and its undo reach the database (or the write-behind queue) in the order they happened.
+     */
+    public void saveStatus(Order order) {
+        if (journal != null) return; // Already journaled by recordChange
+        if (writeBehindQueue == null) {
+            orderRepository.updateStatus(order.getId(), order.getStatus(), order.getCompletedAt());
+        } else {
+            writeBehindQueue.enqueueStatus(order);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.chefsbrain.scheduling_engine.service.persistence;
+
+import com.chefsbrain.scheduling_engine.config.KitchenThreads;
+import com.chefsbrain.scheduling_engine.model.Order;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Group commit for orders: request threads only enqueue, and one background flusher writes
+ * everything that arrived within {@code max-delay-ms} as a single transaction of JDBC batches
+ * (orders, their order_allergies rows, then status changes).
+ *
+ * Durability bound: an accepted write reaches the database within max-delay-ms plus one
+ * batch round trip, unless the database is down, in which case the batch is retried with
+ * backoff and producers block once {@code max-pending} writes are waiting.
+ * A batch that fails because of its data (a constraint violation, a value that can't be bound) is split
+ * in halves until the bad write is alone; that write is retried up to max-attempts times and then
+ * dead-lettered (logged with its order and counted), so one bad row can't hold up all later writes.
+ * On shutdown the queue is drained before the DataSource closes.
+ *
+ * Only created when kitchen.persistence.write-behind=true.
+ */
+@Component
+@ConditionalOnProperty(name = "kitchen.persistence.write-behind", havingValue = "true")
+public class OrderWriteBehindQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderWriteBehindQueue.class);
+
+    static final String INSERT_ORDER_SQL = "insert into kitchen_orders (id, table_number, dish_name, dish_id, " +
+            "prep_time_minutes, quantity, is_vip, order_placed_time, calculated_start_time, workspace_id, " +
+            "status, completed_at, projected_start_time, projected_finish_time, station_index) " +
+            "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    static final String INSERT_ALLERGY_SQL = "insert into order_allergies (order_id, allergen) values (?, ?)";
+    static final String UPDATE_STATUS_SQL = "update kitchen_orders set status = ?, completed_at = ? where id = ?";
+
+    private enum WriteType { INSERT, STATUS }
+
+    private record PendingWrite(WriteType type, Order order, long enqueuedAtNanos) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<PendingWrite> queue;
+    private final int batchSize;
+    private final long maxDelayNanos;
+    private final int maxAttempts;
+    private final Thread flusher;
+    private final AtomicLong deadLettered = new AtomicLong();
+    private volatile boolean running = true;
+
+    public OrderWriteBehindQueue(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager, KitchenThreads threads,
+                                 @Value("${kitchen.persistence.batch-size:200}") int batchSize,
+                                 @Value("${kitchen.persistence.max-delay-ms:100}") long maxDelayMs,
+                                 @Value("${kitchen.persistence.max-pending:10000}") int maxPending,
+                                 @Value("${kitchen.persistence.max-attempts:5}") int maxAttempts) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new LinkedBlockingQueue<>(maxPending);
+        this.batchSize = batchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.flusher = threads.factory("order-write-behind").newThread(this::runFlusher);
+    }
+
+    @PostConstruct
+    void start() {
+        flusher.start();
+    }
+
+    public void enqueueInsert(Order order) {
+        enqueue(new PendingWrite(WriteType.INSERT, order, System.nanoTime()));
+    }
+
+    // The flusher writes the order's status as it is at flush time, so the last change always wins
+    public void enqueueStatus(Order order) {
+        enqueue(new PendingWrite(WriteType.STATUS, order, System.nanoTime()));
+    }
+
+    public int pendingCount() {
+        return queue.size();
+    }
+
+    // Writes given up on because the database rejected their data
+    public long deadLetteredCount() {
+        return deadLettered.get();
+    }
+
+    private void enqueue(PendingWrite write) {
+        try {
+            queue.put(write); // Blocks only when max-pending writes are already waiting (backpressure)
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing order write", e);
+        }
+    }
+
+    @PreDestroy
+    public void drainAndStop() {
+        running = false;
+        if (!flusher.isAlive()) return;
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            log.error("Shutting down with {} order writes not persisted", queue.size());
+        }
+    }
+
+    private void runFlusher() {
+        // Batches still to write, in order; a batch rejected for its data is replaced by its two halves
+        Deque<List<PendingWrite>> work = new ArrayDeque<>();
+        int failures = 0;
+        while (running || !queue.isEmpty() || !work.isEmpty()) {
+            List<PendingWrite> batch = work.peek();
+            try {
+                if (batch == null) {
+                    batch = new ArrayList<>(batchSize);
+                    if (!collect(batch)) continue;
+                    work.push(batch);
+                }
+                writeBatch(batch);
+                work.pop();
+                failures = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            } catch (RuntimeException e) {
+                if (isRowLevelFailure(e) && batch.size() > 1) {
+                    work.pop();
+                    int half = batch.size() / 2;
+                    work.push(new ArrayList<>(batch.subList(half, batch.size())));
+                    work.push(new ArrayList<>(batch.subList(0, half)));
+                    log.warn("Order write-behind flush of {} writes was rejected, splitting it to find the bad write: {}",
+                            batch.size(), e.getMessage());
+                    continue;
+                }
+                failures++;
+                if (isRowLevelFailure(e) && failures >= maxAttempts) {
+                    work.pop();
+                    failures = 0;
+                    deadLetter(batch.get(0), e);
+                    continue;
+                }
+                // Keep the batch and retry it; nothing is dropped while the database is unavailable
+                long backoffMs = Math.min(5_000, 100L << Math.min(failures, 6));
+                log.error("Order write-behind flush of {} writes failed (attempt {}), retrying in {} ms",
+                        batch.size(), failures, backoffMs, e);
+                sleepQuietly(backoffMs);
+            }
+        }
+    }
+
+    /**
+     * Whether the database rejected the data of a write (or it couldn't even be bound), as opposed to being
+     * unreachable or failing as a whole (connection, transaction, SQL errors), where every write is retried.
+     */
+    static boolean isRowLevelFailure(RuntimeException e) {
+        if (e instanceof DataIntegrityViolationException) return true;
+        return !(e instanceof DataAccessException) && !(e instanceof TransactionException);
+    }
+
+    private void deadLetter(PendingWrite write, RuntimeException cause) {
+        deadLettered.incrementAndGet();
+        Order order = write.order();
+        log.atError().setMessage("Order write dead-lettered after repeated rejection; the order stays in memory but not in the database")
+                .addKeyValue("write", write.type())
+                .addKeyValue("orderId", order.getId())
+                .addKeyValue("workspaceId", order.getWorkspaceId())
+                .addKeyValue("dish", order.getDishName())
+                .addKeyValue("status", order.getStatus())
+                .setCause(cause)
+                .log();
+    }
+
+    // Waits for the first write, then gathers more until the batch is full or the oldest write is due
+    private boolean collect(List<PendingWrite> batch) throws InterruptedException {
+        PendingWrite first = queue.poll(200, TimeUnit.MILLISECONDS);
+        if (first == null) return false;
+        batch.add(first);
+        long deadline = first.enqueuedAtNanos() + maxDelayNanos;
+        while (batch.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || !running) {
+                queue.drainTo(batch, batchSize - batch.size());
+                break;
+            }
+            PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) break;
+            batch.add(next);
+        }
+        return true;
+    }
+
+    private void writeBatch(List<PendingWrite> batch) {
+        List<Order> inserts = new ArrayList<>();
+        // Several status changes of one order collapse into one UPDATE of its latest state
+        Map<Long, Order> statusChanges = new LinkedHashMap<>();
+        for (PendingWrite write : batch) {
+            if (write.type() == WriteType.INSERT) {
+                inserts.add(write.order());
+            } else {
+                statusChanges.put(write.order().getId(), write.order());
+            }
+        }
+
+        List<Object[]> allergyRows = new ArrayList<>();
+        for (Order order : inserts) {
+            if (order.getCustomerAllergies() == null) continue;
+            for (String allergen : order.getCustomerAllergies()) {
+                allergyRows.add(new Object[]{order.getId(), allergen});
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!inserts.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_ORDER_SQL, inserts, batchSize, OrderWriteBehindQueue::bindInsert);
+            }
+            if (!allergyRows.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_ALLERGY_SQL, allergyRows);
+            }
+            if (!statusChanges.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPDATE_STATUS_SQL, new ArrayList<>(statusChanges.values()), batchSize,
+                        (ps, order) -> {
+                            ps.setString(1, order.getStatus() == null ? null : order.getStatus().name());
+                            setTimestamp(ps, 2, order.getCompletedAt());
+                            ps.setLong(3, order.getId());
+                        });
+            }
+        });
+    }
+
+    static void bindInsert(PreparedStatement ps, Order order) throws SQLException {
+        ps.setLong(1, order.getId());
+        ps.setInt(2, order.getTableNumber());
+        ps.setString(3, order.getDishName());
+        if (order.getDishId() == null) ps.setNull(4, Types.BIGINT); else ps.setLong(4, order.getDishId());
+        ps.setInt(5, order.getPrepTimeMinutes());
+        ps.setInt(6, order.getQuantity());
+        ps.setBoolean(7, order.isVip());
+        setTimestamp(ps, 8, order.getOrderPlacedTime());
+        setTimestamp(ps, 9, order.getCalculatedStartTime());
+        if (order.getWorkspaceId() == null) ps.setNull(10, Types.BIGINT); else ps.setLong(10, order.getWorkspaceId());
+        ps.setString(11, order.getStatus() == null ? null : order.getStatus().name());
+        setTimestamp(ps, 12, order.getCompletedAt());
+        setTimestamp(ps, 13, order.getProjectedStartTime());
+        setTimestamp(ps, 14, order.getProjectedFinishTime());
+        if (order.getStationIndex() == null) ps.setNull(15, Types.INTEGER); else ps.setInt(15, order.getStationIndex());
+    }
+
+    static void setTimestamp(PreparedStatement ps, int index, LocalDateTime value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.TIMESTAMP);
+        } else {
+            ps.setObject(index, value);
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.chefsbrain.scheduling_engine.service.policy;
+
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.model.SchedulingPolicyType;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Aging: priority grows with waiting time, and a VIP order starts with a fixed head start.
+ * A VIP jumps ahead of regular orders placed less than vipBonus earlier, but a regular order that
+ * has waited longer than that is served before any new VIP, so regular tables can't starve.
+ */
+class AgingPolicy implements SchedulingPolicy {
+
+    private final long vipBonusMillis;
+
+    AgingPolicy(Duration vipBonus) {
+        this.vipBonusMillis = vipBonus.toMillis();
+    }
+
+    // "Effective arrival time": when the order was placed, moved earlier by the VIP bonus
+    @Override
+    public long priorityKey(Order order) {
+        long placed = epochMillis(order.getOrderPlacedTime() != null ? order.getOrderPlacedTime() : order.getCalculatedStartTime());
+        return order.isVip() ? placed - vipBonusMillis : placed;
+    }
+
+    static long epochMillis(LocalDateTime time) {
+        return time == null ? Long.MAX_VALUE : time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    @Override
+    public SchedulingPolicyType type() {
+        return SchedulingPolicyType.AGING;
+    }
+}
@@ -0,0 +1,69 @@
+package com.chefsbrain.scheduling_engine.service.policy;
+
+import com.chefsbrain.scheduling_engine.model.SchedulingPolicyType;
+import com.chefsbrain.scheduling_engine.model.Workspace;
+import com.chefsbrain.scheduling_engine.repository.WorkspaceRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The available scheduling policies (tuned from kitchen.policy.*) and each workspace's choice.
+ */
+@Component
+public class SchedulingPolicies {
+
+    private final WorkspaceRepository workspaceRepository;
+    private final SchedulingPolicyType defaultType;
+    private final Map<SchedulingPolicyType, SchedulingPolicy> policies = new EnumMap<>(SchedulingPolicyType.class);
+
+    public SchedulingPolicies(WorkspaceRepository workspaceRepository,
+                              @Value("${kitchen.policy.default:STRICT_VIP}") SchedulingPolicyType defaultType,
+                              @Value("${kitchen.policy.aging.vip-bonus-minutes:10}") long vipBonusMinutes,
+                              @Value("${kitchen.policy.slack.promise-factor:1.5}") double promiseFactor,
+                              @Value("${kitchen.policy.slack.vip-promise-factor:1.2}") double vipPromiseFactor,
+                              @Value("${kitchen.policy.slack.grace-minutes:5}") long graceMinutes) {
+        this.workspaceRepository = workspaceRepository;
+        this.defaultType = defaultType;
+        register(new StrictVipPolicy());
+        register(new AgingPolicy(Duration.ofMinutes(vipBonusMinutes)));
+        register(new WeightedSlackPolicy(promiseFactor, vipPromiseFactor, Duration.ofMinutes(graceMinutes)));
+    }
+
+    private void register(SchedulingPolicy policy) {
+        policies.put(policy.type(), policy);
+    }
+
+    public SchedulingPolicy get(SchedulingPolicyType type) {
+        return policies.get(type != null ? type : defaultType);
+    }
+
+    // The workspace's stored policy, or the default for unknown workspaces and workspaces that never chose one
+    public SchedulingPolicy forWorkspace(Long workspaceId) {
+        SchedulingPolicyType type = workspaceRepository.findById(workspaceId)
+                .map(Workspace::getSchedulingPolicy)
+                .orElse(null);
+        return get(type);
+    }
+
+    // The workspace's policy as above, or empty if there is no such workspace
+    public Optional<SchedulingPolicy> findForWorkspace(Long workspaceId) {
+        if (workspaceId == null) return Optional.empty();
+        return workspaceRepository.findById(workspaceId).map(workspace -> get(workspace.getSchedulingPolicy()));
+    }
+
+    /**
+     * Stores the workspace's choice. Returns false if the workspace doesn't exist.
+     */
+    public boolean saveForWorkspace(Long workspaceId, SchedulingPolicyType type) {
+        return workspaceRepository.findById(workspaceId).map(workspace -> {
+            workspace.setSchedulingPolicy(type);
+            workspaceRepository.save(workspace);
+            return true;
+        }).orElse(false);
+    }
+}
@@ -0,0 +1,30 @@
+package com.chefsbrain.scheduling_engine.service.policy;
+
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.model.SchedulingPolicyType;
+
+import java.util.Comparator;
+
+/**
+ * Orders a workspace's active queue.
+ *
+ * Every policy ranks orders by a key that is fixed when the order is queued. Time-aware policies
+ * still work with fixed keys because waiting time grows at the same rate for every order: ranking by
+ * "placed time minus bonus" is the same as ranking by "time waited plus bonus" at any instant.
+ * So the heap never has to be re-sorted as the clock moves, only when an order itself changes.
+ *
+ * The key is a plain long so the heap can keep it next to the order id in primitive arrays and
+ * compare two entries without touching the Order objects (or their LocalDateTimes).
+ */
+public interface SchedulingPolicy {
+
+    SchedulingPolicyType type();
+
+    // Smaller runs first; the heap breaks ties by order id so the ordering is total and stable
+    long priorityKey(Order order);
+
+    // The same ordering for sorting full orders
+    default Comparator<Order> comparator() {
+        return Comparator.comparingLong(this::priorityKey).thenComparing(Order::getId);
+    }
+}
@@ -0,0 +1,26 @@
+package com.chefsbrain.scheduling_engine.service.policy;
+
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.model.SchedulingPolicyType;
+
+/**
+ * VIP first, then earliest calculated start (Order's natural ordering, to the millisecond).
+ * A steady stream of VIP orders can starve regular tables; use AGING when that matters.
+ */
+class StrictVipPolicy implements SchedulingPolicy {
+
+    // Set for regular orders, so every VIP key is smaller; start times stay far below it (year ~146 million)
+    private static final long REGULAR_BIT = 1L << 62;
+
+    // VIP bit + calculated start in epoch millis, packed into one key
+    @Override
+    public long priorityKey(Order order) {
+        long start = Math.min(Math.max(AgingPolicy.epochMillis(order.getCalculatedStartTime()), 0), REGULAR_BIT - 1);
+        return order.isVip() ? start : REGULAR_BIT | start;
+    }
+
+    @Override
+    public SchedulingPolicyType type() {
+        return SchedulingPolicyType.STRICT_VIP;
+    }
+}
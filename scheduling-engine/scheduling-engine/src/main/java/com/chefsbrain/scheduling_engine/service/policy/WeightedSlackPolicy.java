@@ -0,0 +1,43 @@
+package com.chefsbrain.scheduling_engine.service.policy;
+
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.model.SchedulingPolicyType;
+
+import java.time.Duration;
+
+/**
+ * Least slack first. Each order is promised to be ready by
+ * placed + prep x promiseFactor + grace (VIPs get a smaller factor), and slack is how long
+ * the kitchen can still wait before it must start the order to keep that promise.
+ *
+ * Slack shrinks at the same rate for every order, so ordering by the latest possible start
+ * (promised ready time minus prep time) gives the same ranking at every instant.
+ */
+class WeightedSlackPolicy implements SchedulingPolicy {
+
+    private final double promiseFactor;
+    private final double vipPromiseFactor;
+    private final long graceMillis;
+
+    WeightedSlackPolicy(double promiseFactor, double vipPromiseFactor, Duration grace) {
+        this.promiseFactor = promiseFactor;
+        this.vipPromiseFactor = vipPromiseFactor;
+        this.graceMillis = grace.toMillis();
+    }
+
+    // Latest start that still meets the promised ready time
+    @Override
+    public long priorityKey(Order order) {
+        long placed = AgingPolicy.epochMillis(order.getOrderPlacedTime() != null ? order.getOrderPlacedTime() : order.getCalculatedStartTime());
+        if (placed == Long.MAX_VALUE) return placed;
+        long prepMillis = Duration.ofMinutes(order.getPrepTimeMinutes()).toMillis();
+        double factor = order.isVip() ? vipPromiseFactor : promiseFactor;
+        long promisedReady = placed + Math.round(prepMillis * factor) + graceMillis;
+        return promisedReady - prepMillis;
+    }
+
+    @Override
+    public SchedulingPolicyType type() {
+        return SchedulingPolicyType.WEIGHTED_SLACK;
+    }
+}
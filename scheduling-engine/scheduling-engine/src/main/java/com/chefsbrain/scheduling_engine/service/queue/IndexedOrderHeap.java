@@ -0,0 +1,341 @@
+package com.chefsbrain.scheduling_engine.service.queue;
+
+import com.chefsbrain.scheduling_engine.dto.OrderView;
+import com.chefsbrain.scheduling_engine.model.Order;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Binary Min-Heap of active orders with an "order id -> array slot" index.
+ * The index lets us remove or re-prioritize a specific order in O(log N)
+ * instead of the linear scan java.util.PriorityQueue does.
+ *
+ * The heap itself is two parallel primitive arrays: each slot holds the order's scheduling key
+ * (from the workspace's policy, computed when the order is added or changed) and its id, and sifts
+ * compare those only. The Order objects sit in a side array that moves along but is never read
+ * while sifting, so comparisons don't dereference or allocate anything.
+ *
+ * Every workspace owns one heap, and every operation runs under that heap's lock,
+ * so concurrent requests from several kitchen screens can't corrupt the array.
+ * Each change bumps a version number, which drives the cached {@link QueueSnapshot}. Versions restart
+ * at 0 in every heap, so each heap also gets an epoch: a workspace that is evicted and rebuilt (cluster
+ * takeover) gets a new one, and a screen's old version can't be mistaken for one of the new heap.
+ */
+public class IndexedOrderHeap {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final AtomicLong EPOCHS = new AtomicLong();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private ToLongFunction<Order> priorityKey;
+    private final OrderSlotIndex positions = new OrderSlotIndex();
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private Order[] orders = new Order[INITIAL_CAPACITY];
+    private int size;
+
+    private final long epoch = EPOCHS.incrementAndGet();
+    // Written under the lock, read without it by snapshot()
+    private volatile long version;
+    private volatile QueueSnapshot snapshot = new QueueSnapshot(epoch, 0, List.of());
+
+    // Smaller keys run first; equal keys by order id (see SchedulingPolicy)
+    public IndexedOrderHeap(ToLongFunction<Order> priorityKey) {
+        this.priorityKey = priorityKey;
+    }
+
+    /**
+     * The per-workspace lock. Callers hold it when a state change spans the heap
+     * and something else (e.g. moving an order between the heap and the history).
+     */
+    public ReentrantLock getLock() {
+        return lock;
+    }
+
+    // Insert a new order, or re-position it if an order with the same id is already queued
+    public void add(Order order) {
+        if (order.getId() == null) {
+            throw new IllegalArgumentException("Only persisted orders (with an id) can be queued");
+        }
+        lock.lock();
+        try {
+            long key = priorityKey.applyAsLong(order);
+            int existing = positions.get(order.getId());
+            if (existing >= 0) {
+                orders[existing] = order;
+                keys[existing] = key;
+                restore(existing);
+                version++;
+                return;
+            }
+            if (size == orders.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+                orders = Arrays.copyOf(orders, size * 2);
+            }
+            keys[size] = key;
+            ids[size] = order.getId();
+            orders[size] = order;
+            positions.put(order.getId(), size);
+            siftUp(size++);
+            version++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Most urgent order (root of the heap) in O(1)
+    public Order peek() {
+        lock.lock();
+        try {
+            return size == 0 ? null : orders[0];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Order get(Long orderId) {
+        lock.lock();
+        try {
+            int index = slotOf(orderId);
+            return index < 0 ? null : orders[index];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the order with the given id in O(log N).
+     * Returns the queued order, or null if it is not in this heap.
+     */
+    public Order removeById(Long orderId) {
+        lock.lock();
+        try {
+            int index = slotOf(orderId);
+            return index < 0 ? null : removeAt(index);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies a change that affects the ordering of a queued order (e.g. VIP flag)
+     * and moves it to its new position in O(log N).
+     * Returns the updated order, or null if it is not in this heap.
+     */
+    public Order reprioritize(Long orderId, Consumer<Order> change) {
+        lock.lock();
+        try {
+            int index = slotOf(orderId);
+            if (index < 0) return null;
+            Order order = orders[index];
+            change.accept(order);
+            keys[index] = priorityKey.applyAsLong(order);
+            restore(index);
+            version++;
+            return order;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Switches to a new ordering (e.g. another scheduling policy), recomputes every key and
+     * rebuilds the heap bottom-up in O(N). Orders keep their ids and index entries.
+     */
+    public void reorder(ToLongFunction<Order> newPriorityKey) {
+        lock.lock();
+        try {
+            priorityKey = newPriorityKey;
+            for (int i = 0; i < size; i++) {
+                keys[i] = newPriorityKey.applyAsLong(orders[i]);
+            }
+            for (int i = size / 2 - 1; i >= 0; i--) {
+                siftDown(i);
+            }
+            version++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // Unique per heap within this run of the server; versions are only comparable within one epoch
+    public long getEpoch() {
+        return epoch;
+    }
+
+    // Monotonically increasing; bumped by every add, remove and reprioritize
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Sorted, immutable view of the queue. Rebuilt only when the version has moved
+     * since the last call, so polls of an unchanged queue don't copy or sort anything.
+     * The orders are copied into OrderViews under the lock; later changes to them don't reach the snapshot.
+     */
+    public QueueSnapshot snapshot() {
+        QueueSnapshot current = snapshot;
+        if (current.getVersion() == version) {
+            return current;
+        }
+        lock.lock();
+        try {
+            current = snapshot;
+            if (current.getVersion() != version) {
+                List<Order> sorted = toSortedList();
+                List<OrderView> views = new ArrayList<>(sorted.size());
+                for (Order order : sorted) {
+                    views.add(OrderView.of(order));
+                }
+                current = new QueueSnapshot(epoch, version, views);
+                snapshot = current;
+            }
+            return current;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copies the queued orders into a list sorted by priority.
+     * Pops a copy of the heap's keys and ids (with the slot each came from) until it is empty:
+     * O(N log N) on primitive arrays, without boxing or a comparator.
+     */
+    public List<Order> toSortedList() {
+        lock.lock();
+        try {
+            long[] heapKeys = Arrays.copyOf(keys, size);
+            long[] heapIds = Arrays.copyOf(ids, size);
+            int[] slots = new int[size];
+            for (int i = 0; i < size; i++) {
+                slots[i] = i;
+            }
+            List<Order> sorted = new ArrayList<>(size);
+            for (int remaining = size; remaining > 0; remaining--) {
+                sorted.add(orders[slots[0]]);
+                popRoot(heapKeys, heapIds, slots, remaining - 1);
+            }
+            return sorted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // --- Heap internals (caller holds the lock) ---
+
+    private int slotOf(Long orderId) {
+        return orderId == null ? -1 : positions.get(orderId);
+    }
+
+    private Order removeAt(int index) {
+        Order removed = orders[index];
+        positions.remove(ids[index]);
+        version++;
+        int last = --size;
+        if (index != last) {
+            place(keys[last], ids[last], orders[last], index);
+            orders[last] = null;
+            restore(index);
+        } else {
+            orders[last] = null;
+        }
+        return removed;
+    }
+
+    // Whether slot a runs before slot b
+    private boolean less(int a, int b) {
+        return keys[a] < keys[b] || (keys[a] == keys[b] && ids[a] < ids[b]);
+    }
+
+    // Move the entry at index up or down until the heap property holds again
+    private void restore(int index) {
+        if (index > 0 && less(index, (index - 1) / 2)) {
+            siftUp(index);
+        } else {
+            siftDown(index);
+        }
+    }
+
+    private void siftUp(int index) {
+        long key = keys[index];
+        long id = ids[index];
+        Order order = orders[index];
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (key > keys[parent] || (key == keys[parent] && id >= ids[parent])) break;
+            place(keys[parent], ids[parent], orders[parent], index);
+            index = parent;
+        }
+        place(key, id, order, index);
+    }
+
+    private void siftDown(int index) {
+        long key = keys[index];
+        long id = ids[index];
+        Order order = orders[index];
+        int half = size / 2;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < size && less(right, child)) {
+                child = right;
+            }
+            if (key < keys[child] || (key == keys[child] && id <= ids[child])) break;
+            place(keys[child], ids[child], orders[child], index);
+            index = child;
+        }
+        place(key, id, order, index);
+    }
+
+    // Moves the copy's last entry (at index last) to the root and sifts it down through the first last entries
+    private static void popRoot(long[] heapKeys, long[] heapIds, int[] slots, int last) {
+        long key = heapKeys[last];
+        long id = heapIds[last];
+        int slot = slots[last];
+        int index = 0;
+        int half = last / 2;
+        while (index < half) {
+            int child = 2 * index + 1;
+            int right = child + 1;
+            if (right < last && (heapKeys[right] < heapKeys[child]
+                    || (heapKeys[right] == heapKeys[child] && heapIds[right] < heapIds[child]))) {
+                child = right;
+            }
+            if (key < heapKeys[child] || (key == heapKeys[child] && id <= heapIds[child])) break;
+            heapKeys[index] = heapKeys[child];
+            heapIds[index] = heapIds[child];
+            slots[index] = slots[child];
+            index = child;
+        }
+        heapKeys[index] = key;
+        heapIds[index] = id;
+        slots[index] = slot;
+    }
+
+    private void place(long key, long id, Order order, int index) {
+        keys[index] = key;
+        ids[index] = id;
+        orders[index] = order;
+        positions.put(id, index);
+    }
+}
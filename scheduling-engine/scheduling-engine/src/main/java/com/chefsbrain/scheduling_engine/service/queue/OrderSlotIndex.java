@@ -0,0 +1,86 @@
+package com.chefsbrain.scheduling_engine.service.queue;
+
+import java.util.Arrays;
+
+/**
+ * "Order id -> heap slot" map on two primitive arrays (open addressing, linear probing).
+ * A HashMap<Long, Integer> allocates an entry and a boxed Integer for nearly every put, and a heap
+ * sift updates the index once per level; this one never allocates except when it grows.
+ * Not thread-safe: used only under the heap's lock.
+ */
+final class OrderSlotIndex {
+
+    private static final long EMPTY = Long.MIN_VALUE; // never an order id
+    private static final int INITIAL_CAPACITY = 32;   // power of two, kept at most half full
+
+    private long[] ids = newIds(INITIAL_CAPACITY);
+    private int[] slots = new int[INITIAL_CAPACITY];
+    private int size;
+
+    // Slot of the order, or -1 if it isn't indexed
+    int get(long orderId) {
+        int mask = ids.length - 1;
+        for (int i = home(orderId, mask); ; i = (i + 1) & mask) {
+            if (ids[i] == orderId) return slots[i];
+            if (ids[i] == EMPTY) return -1;
+        }
+    }
+
+    void put(long orderId, int slot) {
+        int mask = ids.length - 1;
+        int i = home(orderId, mask);
+        while (ids[i] != EMPTY) {
+            if (ids[i] == orderId) {
+                slots[i] = slot;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        ids[i] = orderId;
+        slots[i] = slot;
+        if (++size * 2 > ids.length) grow();
+    }
+
+    void remove(long orderId) {
+        int mask = ids.length - 1;
+        int i = home(orderId, mask);
+        while (ids[i] != orderId) {
+            if (ids[i] == EMPTY) return;
+            i = (i + 1) & mask;
+        }
+        // Backward shift: move later entries of the probe run into the gap, so lookups never stop early
+        for (int j = (i + 1) & mask; ids[j] != EMPTY; j = (j + 1) & mask) {
+            int h = home(ids[j], mask);
+            boolean stays = i <= j ? (i < h && h <= j) : (i < h || h <= j);
+            if (!stays) {
+                ids[i] = ids[j];
+                slots[i] = slots[j];
+                i = j;
+            }
+        }
+        ids[i] = EMPTY;
+        size--;
+    }
+
+    private void grow() {
+        long[] oldIds = ids;
+        int[] oldSlots = slots;
+        ids = newIds(oldIds.length * 2);
+        slots = new int[oldIds.length * 2];
+        size = 0;
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldIds[i] != EMPTY) put(oldIds[i], oldSlots[i]);
+        }
+    }
+
+    private static int home(long orderId, int mask) {
+        long h = orderId * 0x9E3779B97F4A7C15L; // ids are sequential; spread them over the table
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private static long[] newIds(int capacity) {
+        long[] ids = new long[capacity];
+        Arrays.fill(ids, EMPTY);
+        return ids;
+    }
+}
@@ -0,0 +1,49 @@
+package com.chefsbrain.scheduling_engine.service.queue;
+
+import com.chefsbrain.scheduling_engine.dto.OrderView;
+
+import java.util.List;
+
+/**
+ * Immutable, priority-sorted view of one workspace's active queue at a given (heap epoch, version).
+ * The heap rebuilds it only after a change, so repeated polls of an unchanged queue share one copy.
+ * The orders are frozen copies taken under the heap's lock, so the body always matches the ETag.
+ */
+public final class QueueSnapshot {
+
+    // Makes ETags from a previous run of the server unusable (versions restart at 0 on boot)
+    private static final String BOOT_ID = Long.toString(System.currentTimeMillis(), 36);
+
+    private final long epoch;
+    private final long version;
+    private final List<OrderView> orders;
+    private final String etag;
+
+    public QueueSnapshot(long epoch, long version, List<OrderView> orders) {
+        this.epoch = epoch;
+        this.version = version;
+        this.orders = List.copyOf(orders);
+        this.etag = "\"q-" + BOOT_ID + "-" + epoch + "-" + version + "\"";
+    }
+
+    // Identifies this run of the server; versions are only comparable within one run (and one heap epoch)
+    public static String bootId() {
+        return BOOT_ID;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<OrderView> getOrders() {
+        return orders;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+}
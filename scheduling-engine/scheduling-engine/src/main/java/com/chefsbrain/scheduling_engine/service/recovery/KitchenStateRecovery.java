@@ -0,0 +1,148 @@
+package com.chefsbrain.scheduling_engine.service.recovery;
+
+import com.chefsbrain.scheduling_engine.config.KitchenThreads;
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.model.OrderStatus;
+import com.chefsbrain.scheduling_engine.repository.OrderRepository;
+import com.chefsbrain.scheduling_engine.repository.WorkspaceRepository;
+import com.chefsbrain.scheduling_engine.service.KitchenService;
+import com.chefsbrain.scheduling_engine.service.persistence.JournalCheckpointer;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Warm start: rebuilds every workspace's active heap and recent history from the database
+ * when the application boots, so a restart or deploy doesn't wipe the kitchens' live queues.
+ *
+ * Only QUEUED rows are paged through in full (keyset pages, never the whole table), and only the
+ * latest completions per workspace are loaded. Workspaces are restored in parallel.
+ * In cluster mode nothing is restored at boot; restoreWorkspace runs when a node takes a workspace over.
+ * With the order journal enabled the kitchen is rebuilt from its latest snapshot and the records after it;
+ * the database is only read the first time (before the journal has a snapshot).
+ */
+@Component
+public class KitchenStateRecovery implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(KitchenStateRecovery.class);
+
+    private final OrderRepository orderRepository;
+    private final WorkspaceRepository workspaceRepository;
+    private final KitchenService kitchenService;
+    private final TransactionTemplate readOnlyTx;
+    private final KitchenThreads threads;
+    private final JournalCheckpointer journal;
+
+    @Value("${kitchen.recovery.page-size:500}")
+    private int pageSize;
+
+    @Value("${kitchen.recovery.history-size:100}")
+    private int historySize;
+
+    @Value("${kitchen.recovery.parallelism:4}")
+    private int parallelism;
+
+    // In cluster mode each workspace is restored by the node that takes it over (WorkspaceOwnership)
+    @Value("${kitchen.cluster.enabled:false}")
+    private boolean clusterMode;
+
+    public KitchenStateRecovery(OrderRepository orderRepository, WorkspaceRepository workspaceRepository,
+                                KitchenService kitchenService, PlatformTransactionManager transactionManager,
+                                KitchenThreads threads, Optional<JournalCheckpointer> journal) {
+        this.orderRepository = orderRepository;
+        this.workspaceRepository = workspaceRepository;
+        this.kitchenService = kitchenService;
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.threads = threads;
+        this.journal = journal.orElse(null);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (clusterMode) return;
+        if (journal != null) {
+            if (journal.restoreAll(historySize)) return;
+            // New journal: changes it already holds must reach the database before it is read
+            journal.awaitShipped();
+        }
+        restoreFromDatabase();
+        if (journal != null) {
+            journal.markRestored(); // Takes the journal's first snapshot
+        }
+    }
+
+    private void restoreFromDatabase() {
+        long started = System.currentTimeMillis();
+
+        Set<Long> workspaceIds = new TreeSet<>(workspaceRepository.findAllIds());
+        workspaceIds.addAll(orderRepository.findWorkspaceIdsByStatus(OrderStatus.QUEUED));
+        if (workspaceIds.isEmpty()) return;
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, workspaceIds.size())),
+                threads.factory("kitchen-recovery"));
+        try {
+            List<CompletableFuture<Void>> restores = new ArrayList<>();
+            for (Long workspaceId : workspaceIds) {
+                restores.add(CompletableFuture.runAsync(() -> restoreWorkspace(workspaceId), pool));
+            }
+            CompletableFuture.allOf(restores.toArray(new CompletableFuture[0])).join();
+        } finally {
+            pool.shutdown();
+        }
+
+        log.info("Restored kitchen state for {} workspaces in {} ms", workspaceIds.size(), System.currentTimeMillis() - started);
+    }
+
+    public void restoreWorkspace(Long workspaceId) {
+        try {
+            List<Order> active = new ArrayList<>();
+            long afterId = 0;
+            while (true) {
+                long cursor = afterId;
+                List<Order> page = readOnlyTx.execute(status -> initialized(
+                        orderRepository.findByStatusAndWorkspaceIdAndIdGreaterThanOrderByIdAsc(
+                                OrderStatus.QUEUED, workspaceId, cursor, PageRequest.of(0, pageSize))));
+                active.addAll(page);
+                if (page.size() < pageSize) break;
+                afterId = page.get(page.size() - 1).getId();
+            }
+
+            // Newest first from the index, restored oldest first
+            List<Order> completed = new ArrayList<>(readOnlyTx.execute(status -> initialized(
+                    orderRepository.findByStatusAndWorkspaceIdOrderByCompletedAtDescIdDesc(
+                            OrderStatus.COMPLETED, workspaceId, PageRequest.of(0, historySize)))));
+            Collections.reverse(completed);
+
+            kitchenService.restoreWorkspace(workspaceId, active, completed);
+        } catch (RuntimeException e) {
+            // One broken workspace must not keep the others (or the app) from starting
+            log.error("Could not restore kitchen state for workspace {}", workspaceId, e);
+        }
+    }
+
+    // Load the lazy allergy lists while the page's session is open (batched by @BatchSize)
+    private static List<Order> initialized(List<Order> orders) {
+        for (Order order : orders) {
+            Hibernate.initialize(order.getCustomerAllergies());
+        }
+        return orders;
+    }
+}
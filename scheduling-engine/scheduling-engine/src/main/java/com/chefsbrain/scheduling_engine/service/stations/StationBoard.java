@@ -0,0 +1,239 @@
+package com.chefsbrain.scheduling_engine.service.stations;
+
+import com.chefsbrain.scheduling_engine.model.Order;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One workspace's cooking stations, as the time (epoch millis) each one becomes free.
+ *
+ * Stations sit in an indexed binary min-heap keyed by that time, so the next free station is the
+ * root, and moving one station after an admission or completion is O(log N).
+ * Each table remembers the finish time its dishes are aligned to, so dishes of the same table
+ * are fired to come out together.
+ *
+ * Not thread-safe on its own; {@link StationScheduler} holds the board's lock around every call.
+ */
+class StationBoard {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long[] freeAt;
+    private Order[] lastOrder; // last order assigned to each station, so a completion can free it
+    private int[] heap;        // station indexes, earliest free first
+    private int[] position;    // station index -> slot in heap
+    private int size;
+
+    private final Map<Integer, TableTarget> tables = new HashMap<>();
+
+    StationBoard(int stationCount) {
+        freeAt = new long[0];
+        lastOrder = new Order[0];
+        heap = new int[0];
+        position = new int[0];
+        resize(stationCount);
+    }
+
+    ReentrantLock getLock() {
+        return lock;
+    }
+
+    int stationCount() {
+        return size;
+    }
+
+    /**
+     * Projects an order onto the earliest free station and sets its projected start, projected finish,
+     * station and calculated (ready) time. A dish that would finish before the rest of its table is
+     * held back so it finishes with them, on the station that frees up closest before its later start.
+     * O(log N), plus an O(N) scan for a held-back dish.
+     * Returns what the booking changed, so it can be taken back with {@link #cancel}.
+     */
+    Booking admit(Order order, long now) {
+        long prep = Math.max(0, order.getPrepTimeMinutes()) * 60_000L;
+        int station = heap[0];
+        long start = Math.max(now, freeAt[station]);
+        long finish = start + prep;
+
+        TableTarget table = tables.get(order.getTableNumber());
+        if (table == null) {
+            table = new TableTarget();
+            tables.put(order.getTableNumber(), table);
+        }
+        if (table.finishAt > finish) {
+            // Fire later so this dish doesn't sit under the heat lamp waiting for the slower ones
+            finish = table.finishAt;
+            start = finish - prep;
+            // The station stays idle until start, so leave the ones that free up earlier to the next orders
+            station = latestFreeBy(start);
+        } else {
+            // Dishes already projected keep their times; later dishes of the table align to this one
+            table.finishAt = finish;
+        }
+        table.open++;
+
+        Booking booking = new Booking(order, station, freeAt[station], lastOrder[station]);
+        freeAt[station] = finish;
+        lastOrder[station] = order;
+        restore(position[station]);
+
+        order.setStationIndex(station);
+        order.setProjectedStartTime(TimeConversions.toLocal(start));
+        order.setProjectedFinishTime(TimeConversions.toLocal(finish));
+        order.setCalculatedStartTime(order.getProjectedFinishTime());
+        return booking;
+    }
+
+    /**
+     * Takes back bookings whose orders never made it into the queue (saving them failed), newest first.
+     * Each station goes back to how it was before, unless more work was booked on it since; the orders
+     * no longer count as open dishes of their table. O(log N) per booking.
+     */
+    void cancel(List<Booking> bookings) {
+        for (int i = bookings.size() - 1; i >= 0; i--) {
+            Booking booking = bookings.get(i);
+            closeTableSlot(booking.order().getTableNumber());
+            int station = booking.station();
+            // Compared by identity: an order that was never saved has no id yet
+            if (station < size && lastOrder[station] == booking.order()) {
+                freeAt[station] = booking.freeAtBefore();
+                lastOrder[station] = booking.lastOrderBefore();
+                restore(position[station]);
+            }
+        }
+    }
+
+    /**
+     * The order left the station (completed). If nothing was projected after it on that station,
+     * the station is free from now on, even if the dish was done early. O(log N).
+     * Orders without a station were never booked, so they don't close a slot of their table either.
+     */
+    void release(Order order, long now) {
+        Integer station = order.getStationIndex();
+        if (station == null) return;
+        closeTableSlot(order.getTableNumber());
+        if (station >= size) return;
+        Order last = lastOrder[station];
+        if (last != null && Objects.equals(last.getId(), order.getId())) {
+            lastOrder[station] = null;
+            freeAt[station] = now;
+            restore(position[station]);
+        }
+    }
+
+    /**
+     * Re-applies an order's existing projection: after a restart, or when a completion is undone and the
+     * order is back in the queue. The order keeps its times; it holds its station again only if nothing
+     * was booked there after it, and counts as an open dish of its table again either way.
+     * Orders without a projection (placed before stations existed) don't occupy a station.
+     */
+    void restore(Order order) {
+        Integer station = order.getStationIndex();
+        if (station == null || order.getProjectedFinishTime() == null) return;
+        long finish = TimeConversions.toEpochMillis(order.getProjectedFinishTime());
+        if (station < size && finish >= freeAt[station]) {
+            freeAt[station] = finish;
+            lastOrder[station] = order;
+            restore(position[station]);
+        }
+        TableTarget table = tables.computeIfAbsent(order.getTableNumber(), t -> new TableTarget());
+        table.finishAt = Math.max(table.finishAt, finish);
+        table.open++;
+    }
+
+    /**
+     * Changes the number of stations. New stations are free immediately; removed stations
+     * (the highest indexes) are simply no longer used, their orders keep their projections.
+     */
+    void resize(int stationCount) {
+        int oldSize = size;
+        freeAt = Arrays.copyOf(freeAt, stationCount);
+        lastOrder = Arrays.copyOf(lastOrder, stationCount);
+        heap = new int[stationCount];
+        position = new int[stationCount];
+        size = stationCount;
+        for (int i = 0; i < stationCount; i++) {
+            if (i >= oldSize) freeAt[i] = 0;
+            heap[i] = i;
+            position[i] = i;
+        }
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    // The station that becomes free last while still being free by the given time; the root is always free by then
+    private int latestFreeBy(long time) {
+        int best = heap[0];
+        for (int i = 0; i < size; i++) {
+            if (freeAt[i] <= time && freeAt[i] > freeAt[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private void closeTableSlot(int tableNumber) {
+        TableTarget table = tables.get(tableNumber);
+        if (table != null && --table.open <= 0) {
+            tables.remove(tableNumber);
+        }
+    }
+
+    // --- Station heap internals ---
+
+    private void restore(int slot) {
+        if (slot > 0 && freeAt[heap[slot]] < freeAt[heap[(slot - 1) / 2]]) {
+            siftUp(slot);
+        } else {
+            siftDown(slot);
+        }
+    }
+
+    private void siftUp(int slot) {
+        int station = heap[slot];
+        while (slot > 0) {
+            int parent = (slot - 1) / 2;
+            if (freeAt[station] >= freeAt[heap[parent]]) break;
+            place(heap[parent], slot);
+            slot = parent;
+        }
+        place(station, slot);
+    }
+
+    private void siftDown(int slot) {
+        int station = heap[slot];
+        int half = size / 2;
+        while (slot < half) {
+            int child = 2 * slot + 1;
+            int right = child + 1;
+            if (right < size && freeAt[heap[right]] < freeAt[heap[child]]) {
+                child = right;
+            }
+            if (freeAt[station] <= freeAt[heap[child]]) break;
+            place(heap[child], slot);
+            slot = child;
+        }
+        place(station, slot);
+    }
+
+    private void place(int station, int slot) {
+        heap[slot] = station;
+        position[station] = slot;
+    }
+
+    // The station an order was booked on, and what that station looked like just before
+    record Booking(Order order, int station, long freeAtBefore, Order lastOrderBefore) {
+    }
+
+    // Finish time the table's dishes are aligned to, and how many of them are still in the queue
+    private static final class TableTarget {
+        long finishAt;
+        int open;
+    }
+}
@@ -0,0 +1,180 @@
+package com.chefsbrain.scheduling_engine.service.stations;
+
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.model.Workspace;
+import com.chefsbrain.scheduling_engine.repository.WorkspaceRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Capacity-aware fire times. Models each workspace's kitchen as N parallel stations and, when an
+ * order is queued, books it on the station that frees up first: its projected start is when that
+ * station (and the order) are ready, its projected finish is start + prep time. Dishes of the same
+ * table are fired so they finish together.
+ *
+ * Work is booked incrementally as orders arrive and handed back as they complete, O(log N) per
+ * event; the queue is never re-planned as a whole.
+ */
+@Component
+public class StationScheduler {
+
+    private final WorkspaceRepository workspaceRepository;
+    private final int defaultStationCount;
+    private final Clock clock;
+    private final Map<Long, StationBoard> boards = new ConcurrentHashMap<>();
+
+    public StationScheduler(WorkspaceRepository workspaceRepository,
+                            @Value("${kitchen.stations.default-count:3}") int defaultStationCount) {
+        this.workspaceRepository = workspaceRepository;
+        this.defaultStationCount = Math.max(1, defaultStationCount);
+        this.clock = Clock.systemDefaultZone();
+    }
+
+    /**
+     * Books a new order and fills in its projected start/finish, station and calculatedStartTime
+     * (the time it should be ready, which the kitchen screen counts down to).
+     */
+    public Reservation admit(Order order) {
+        StationBoard board = board(order.getWorkspaceId());
+        ReentrantLock lock = board.getLock();
+        lock.lock();
+        try {
+            return new Reservation(board, List.of(board.admit(order, clock.millis())));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Books a whole ticket under one lock acquisition. The slowest dishes are booked first, so the
+     * rest of the table is fired to finish with them instead of waiting under the heat lamp.
+     */
+    public Reservation admitTicket(Long workspaceId, List<Order> orders) {
+        List<Order> slowestFirst = new ArrayList<>(orders);
+        slowestFirst.sort(Comparator.comparingInt(Order::getPrepTimeMinutes).reversed());
+        StationBoard board = board(workspaceId);
+        ReentrantLock lock = board.getLock();
+        lock.lock();
+        try {
+            long now = clock.millis();
+            List<StationBoard.Booking> bookings = new ArrayList<>(slowestFirst.size());
+            slowestFirst.forEach(order -> bookings.add(board.admit(order, now)));
+            return new Reservation(board, bookings);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The reserved orders were never queued (saving them failed): their stations and table slots are handed back
+    public void cancel(Reservation reservation) {
+        StationBoard board = reservation.board;
+        ReentrantLock lock = board.getLock();
+        lock.lock();
+        try {
+            board.cancel(reservation.bookings);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The order was completed: its station is free again unless more work was booked behind it
+    public void release(Order order) {
+        StationBoard board = board(order.getWorkspaceId());
+        ReentrantLock lock = board.getLock();
+        lock.lock();
+        try {
+            board.release(order, clock.millis());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The completion was undone: the order is booked again with the projection it had
+    public void readmit(Order order) {
+        StationBoard board = board(order.getWorkspaceId());
+        ReentrantLock lock = board.getLock();
+        lock.lock();
+        try {
+            board.restore(order);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Re-books active orders reloaded after a restart, using their persisted projections
+    public void restore(Long workspaceId, List<Order> activeOrders) {
+        StationBoard board = board(workspaceId);
+        ReentrantLock lock = board.getLock();
+        lock.lock();
+        try {
+            activeOrders.forEach(board::restore);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Drops the workspace's board; the next order rebuilds it from the stored station count
+    public void forget(Long workspaceId) {
+        boards.remove(workspaceId);
+    }
+
+    public int getStationCount(Long workspaceId) {
+        return board(workspaceId).stationCount();
+    }
+
+    /**
+     * Stores the workspace's station count and resizes its board. Returns false if the workspace doesn't exist.
+     */
+    public boolean changeStationCount(Long workspaceId, int stationCount) {
+        if (stationCount < 1) {
+            throw new IllegalArgumentException("A kitchen needs at least one station");
+        }
+        boolean saved = workspaceRepository.findById(workspaceId).map(workspace -> {
+            workspace.setStationCount(stationCount);
+            workspaceRepository.save(workspace);
+            return true;
+        }).orElse(false);
+        if (!saved) return false;
+
+        StationBoard board = board(workspaceId);
+        ReentrantLock lock = board.getLock();
+        lock.lock();
+        try {
+            board.resize(stationCount);
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+
+    private StationBoard board(Long workspaceId) {
+        return boards.computeIfAbsent(workspaceId, id -> new StationBoard(storedStationCount(id)));
+    }
+
+    private int storedStationCount(Long workspaceId) {
+        Integer count = workspaceRepository.findById(workspaceId).map(Workspace::getStationCount).orElse(null);
+        return count != null && count > 0 ? count : defaultStationCount;
+    }
+
+    /**
+     * The bookings made by one admission, kept until the orders are safely saved. Holds the board it was
+     * made on, so a board dropped and rebuilt meanwhile isn't touched.
+     */
+    public static final class Reservation {
+        private final StationBoard board;
+        private final List<StationBoard.Booking> bookings;
+
+        private Reservation(StationBoard board, List<StationBoard.Booking> bookings) {
+            this.board = board;
+            this.bookings = bookings;
+        }
+    }
+}
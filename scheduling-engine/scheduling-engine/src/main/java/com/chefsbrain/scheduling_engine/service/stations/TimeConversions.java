@@ -0,0 +1,20 @@
+package com.chefsbrain.scheduling_engine.service.stations;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+// Orders store LocalDateTime in the server's zone (LocalDateTime.now()); the board works in epoch millis
+final class TimeConversions {
+
+    private TimeConversions() {
+    }
+
+    static long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    static LocalDateTime toLocal(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
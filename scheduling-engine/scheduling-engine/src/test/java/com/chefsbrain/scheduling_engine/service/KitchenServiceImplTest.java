@@ -0,0 +1,131 @@
+package com.chefsbrain.scheduling_engine.service;
+
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.model.OrderStatus;
+import com.chefsbrain.scheduling_engine.model.SchedulingPolicyType;
+import com.chefsbrain.scheduling_engine.model.Workspace;
+import com.chefsbrain.scheduling_engine.repository.OrderRepository;
+import com.chefsbrain.scheduling_engine.repository.WorkspaceRepository;
+import com.chefsbrain.scheduling_engine.service.analytics.KitchenAnalytics;
+import com.chefsbrain.scheduling_engine.service.events.QueueEventBroadcaster;
+import com.chefsbrain.scheduling_engine.service.learning.PrepTimeLearner;
+import com.chefsbrain.scheduling_engine.service.menu.MenuCache;
+import com.chefsbrain.scheduling_engine.service.metrics.KitchenMetrics;
+import com.chefsbrain.scheduling_engine.service.persistence.OrderPersistence;
+import com.chefsbrain.scheduling_engine.service.policy.SchedulingPolicies;
+import com.chefsbrain.scheduling_engine.service.stations.StationScheduler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class KitchenServiceImplTest {
+
+    private static final Long WORKSPACE = 7L;
+
+    private final WorkspaceRepository workspaceRepository = mock(WorkspaceRepository.class);
+    private final OrderPersistence orderPersistence = mock(OrderPersistence.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final KitchenServiceImpl service = new KitchenServiceImpl(mock(OrderRepository.class),
+            mock(PrepTimeLearner.class), mock(MenuCache.class),
+            new SchedulingPolicies(workspaceRepository, SchedulingPolicyType.STRICT_VIP, 10, 1.5, 1.2, 5),
+            new StationScheduler(workspaceRepository, 3), mock(QueueEventBroadcaster.class), orderPersistence,
+            new KitchenMetrics(registry), mock(KitchenAnalytics.class));
+
+    private final Workspace workspace = new Workspace();
+    private final AtomicLong ids = new AtomicLong();
+
+    @BeforeEach
+    void stubCollaborators() {
+        workspace.setId(WORKSPACE);
+        when(workspaceRepository.findById(WORKSPACE)).thenReturn(Optional.of(workspace));
+        // Synchronous save: hands out ids like the database would
+        when(orderPersistence.insert(any())).thenAnswer(invocation -> {
+            Order order = invocation.getArgument(0);
+            order.setId(ids.incrementAndGet());
+            return order;
+        });
+    }
+
+    private Order place(String dish) {
+        Order order = new Order();
+        order.setWorkspaceId(WORKSPACE);
+        order.setTableNumber(4);
+        order.setDishName(dish);
+        order.setPrepTimeMinutes(10);
+        order.setQuantity(1);
+        order.setOrderPlacedTime(LocalDateTime.now());
+        order.setCustomerAllergies(List.of());
+        service.addOrderToQueue(order);
+        return order;
+    }
+
+    @Test
+    void completionAfterAnUndoLeavesNothingToRedo() {
+        Order soup = place("soup");
+        Order steak = place("steak");
+        Order tart = place("tart");
+
+        service.completeOrder(WORKSPACE, steak.getId());
+        service.undoLastCompletion(WORKSPACE);
+        service.completeOrder(WORKSPACE, tart.getId());
+
+        assertNull(service.redoCompletion(WORKSPACE));
+        assertEquals(OrderStatus.QUEUED, steak.getStatus());
+        assertEquals(List.of(soup.getId(), steak.getId()),
+                service.getActiveQueue(WORKSPACE).stream().map(order -> order.id()).toList());
+    }
+
+    @Test
+    void redoReplaysTheUndosSinceTheLastCompletionNewestFirst() {
+        Order soup = place("soup");
+        Order steak = place("steak");
+
+        service.completeOrder(WORKSPACE, soup.getId());
+        service.completeOrder(WORKSPACE, steak.getId());
+        service.undoLastCompletion(WORKSPACE);
+        service.undoLastCompletion(WORKSPACE);
+
+        assertEquals(soup.getId(), service.redoCompletion(WORKSPACE).getId());
+        assertEquals(steak.getId(), service.redoCompletion(WORKSPACE).getId());
+        assertNull(service.redoCompletion(WORKSPACE));
+        assertTrue(service.getActiveQueue(WORKSPACE).isEmpty());
+    }
+
+    @Test
+    void orderThatFailsToSaveGivesItsStationBack() {
+        workspace.setStationCount(1);
+        Order steak = place("steak");
+        doThrow(new IllegalStateException("database down"))
+                .when(orderPersistence).insert(argThat(order -> order.getDishName().equals("soup")));
+        assertThrows(IllegalStateException.class, () -> place("soup"));
+
+        // The tart gets the station right after the steak, not after the soup that was never queued
+        Order tart = place("tart");
+        assertEquals(steak.getProjectedFinishTime(), tart.getProjectedStartTime());
+    }
+
+    @Test
+    void unknownWorkspaceReadsAsEmptyWithoutKeepingAQueue() {
+        assertTrue(service.getActiveQueue(99L).isEmpty());
+        assertNull(service.getNextUrgentTask(99L));
+        assertTrue(service.getHistory(99L).isEmpty());
+        assertTrue(registry.find("kitchen.queue.depth").meters().isEmpty());
+        assertTrue(registry.find("kitchen.history.size").meters().isEmpty());
+
+        Order order = new Order();
+        order.setWorkspaceId(99L);
+        assertThrows(IllegalArgumentException.class, () -> service.addOrderToQueue(order));
+        verifyNoInteractions(orderPersistence);
+
+        place("soup");
+        assertEquals(1, registry.find("kitchen.queue.depth").meters().size());
+    }
+}
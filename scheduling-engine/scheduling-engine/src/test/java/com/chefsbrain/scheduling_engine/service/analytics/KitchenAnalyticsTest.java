@@ -0,0 +1,92 @@
+package com.chefsbrain.scheduling_engine.service.analytics;
+
+import com.chefsbrain.scheduling_engine.model.KitchenRollup;
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.repository.KitchenRollupRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class KitchenAnalyticsTest {
+
+    private final KitchenRollupRepository repository = mock(KitchenRollupRepository.class);
+    // Nothing is flushed in these tests, so no database is needed
+    private final KitchenAnalytics analytics = new KitchenAnalytics(repository, null, null);
+
+    private static Order order(long dishId, boolean vip, int predictedMinutes, LocalDateTime placedAt) {
+        Order order = new Order();
+        order.setWorkspaceId(1L);
+        order.setDishId(dishId);
+        order.setDishName("Dish " + dishId);
+        order.setVip(vip);
+        order.setPrepTimeMinutes(predictedMinutes);
+        order.setOrderPlacedTime(placedAt);
+        return order;
+    }
+
+    private KitchenDashboard lastHours(int hours) {
+        LocalDateTime to = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).plusHours(1);
+        return analytics.dashboard(1L, to.minusHours(hours), to);
+    }
+
+    @Test
+    void completionsAreCountedAndUndoTakesThemBack() {
+        LocalDateTime now = LocalDateTime.now();
+        Order steak = order(5, true, 10, now.minusMinutes(12));
+        Order soup = order(6, false, 4, now.minusMinutes(4));
+        analytics.orderPlaced(steak);
+        analytics.orderPlaced(soup);
+        steak.setCompletedAt(now);
+        soup.setCompletedAt(now);
+        analytics.orderCompleted(steak);
+        analytics.orderCompleted(soup);
+
+        KitchenDashboard.Stats totals = lastHours(1).totals();
+        assertEquals(2, totals.placed());
+        assertEquals(2, totals.completed());
+        assertEquals(0.5, totals.vipShare());
+        assertEquals(8.0, totals.avgActualMinutes());    // (12 + 4) / 2
+        assertEquals(7.0, totals.avgPredictedMinutes()); // (10 + 4) / 2
+        assertEquals(1.0, totals.meanAbsErrorMinutes()); // (2 + 0) / 2
+
+        analytics.completionUndone(steak, now);
+        KitchenDashboard dashboard = lastHours(1);
+        assertEquals(1, dashboard.totals().completed());
+        assertEquals(0, dashboard.totals().vipCompleted());
+        assertEquals(4.0, dashboard.totals().avgActualMinutes());
+        assertEquals("Dish 5", dashboard.dishes().stream().filter(d -> d.dishId() == 5L).findFirst().orElseThrow().dishName());
+    }
+
+    @Test
+    void dashboardAddsUnflushedCountsToStoredBuckets() {
+        LocalDateTime hour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        KitchenRollup stored = new KitchenRollup();
+        stored.setWorkspaceId(1L);
+        stored.setDishId(5L);
+        stored.setDishName("Steak");
+        stored.setBucketStart(hour.minusHours(2));
+        stored.setPlaced(3);
+        stored.setCompleted(3);
+        stored.setActualSecondsSum(3 * 600);
+        stored.setPredictedSecondsSum(3 * 600);
+        when(repository.findByWorkspaceIdAndBucketStartGreaterThanEqualAndBucketStartLessThan(eq(1L), any(), any()))
+                .thenReturn(List.of(stored));
+
+        analytics.orderPlaced(order(5, false, 10, LocalDateTime.now()));
+
+        KitchenDashboard dashboard = lastHours(3);
+        assertEquals(4, dashboard.totals().placed());
+        assertEquals(3, dashboard.totals().completed());
+        assertEquals(List.of(hour.minusHours(2), hour), dashboard.hours().stream().map(KitchenDashboard.HourStats::hour).toList());
+        assertEquals(1, dashboard.dishes().size());
+        assertEquals(4, dashboard.dishes().get(0).stats().placed());
+        assertEquals(10.0, dashboard.dishes().get(0).stats().avgActualMinutes());
+    }
+}
@@ -0,0 +1,91 @@
+package com.chefsbrain.scheduling_engine.service.auth;
+
+import com.chefsbrain.scheduling_engine.model.Workspace;
+import com.chefsbrain.scheduling_engine.repository.WorkspaceRepository;
+import com.chefsbrain.scheduling_engine.service.auth.WorkspaceLoginService.LoginResult;
+import com.chefsbrain.scheduling_engine.service.auth.WorkspaceLoginService.Outcome;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class WorkspaceLoginServiceTest {
+
+    private final JoinCodeDigester digester = new JoinCodeDigester("test-key");
+    private final WorkspaceRepository repository = mock(WorkspaceRepository.class);
+
+    private WorkspaceLoginService service(int burst) {
+        return new WorkspaceLoginService(repository, digester, 300, 30, 100, burst, 1);
+    }
+
+    private static Workspace workspace(long id, String name) {
+        Workspace workspace = new Workspace();
+        workspace.setId(id);
+        workspace.setName(name);
+        return workspace;
+    }
+
+    @Test
+    void validCodeIsLookedUpByDigestOnce() {
+        when(repository.findByPasswordDigest(digester.digest("ABC123"))).thenReturn(Optional.of(workspace(7, "Bistro")));
+        WorkspaceLoginService service = service(10);
+
+        LoginResult first = service.login("10.0.0.1", "ABC123");
+        LoginResult second = service.login("10.0.0.2", "ABC123");
+
+        assertEquals(Outcome.OK, first.outcome());
+        assertEquals(7L, first.workspaceId());
+        assertEquals("Bistro", second.kitchenName());
+        verify(repository, times(1)).findByPasswordDigest(anyString());
+    }
+
+    @Test
+    void unknownCodeIsCachedAsAMiss() {
+        when(repository.findByPasswordDigest(anyString())).thenReturn(Optional.empty());
+        WorkspaceLoginService service = service(10);
+
+        assertEquals(Outcome.INVALID, service.login("10.0.0.1", "NOPE00").outcome());
+        assertEquals(Outcome.INVALID, service.login("10.0.0.1", "NOPE00").outcome());
+        verify(repository, times(1)).findByPasswordDigest(anyString());
+    }
+
+    @Test
+    void newWorkspaceIsNotHiddenByAnEarlierMiss() {
+        WorkspaceLoginService service = service(10);
+        when(repository.findByPasswordDigest(anyString())).thenReturn(Optional.empty());
+        when(repository.existsByPasswordDigest(anyString())).thenReturn(false);
+
+        Workspace created = workspace(9, "New Place");
+        String code = service.saveWithNewJoinCode(created);
+        assertEquals(digester.digest(code), created.getPasswordDigest());
+        assertNull(created.getPassword());
+        verify(repository).save(created);
+
+        when(repository.findByPasswordDigest(created.getPasswordDigest())).thenReturn(Optional.of(created));
+        assertEquals(Outcome.OK, service.login("10.0.0.1", code).outcome());
+    }
+
+    @Test
+    void clientIsRateLimitedAfterItsBurst() {
+        when(repository.findByPasswordDigest(anyString())).thenReturn(Optional.empty());
+        WorkspaceLoginService service = service(3);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Outcome.INVALID, service.login("10.0.0.1", "GUESS" + i).outcome());
+        }
+        LoginResult limited = service.login("10.0.0.1", "GUESS3");
+        assertEquals(Outcome.RATE_LIMITED, limited.outcome());
+        assertTrue(limited.retryAfterSeconds() > 0);
+        // Other clients keep their own budget
+        assertEquals(Outcome.INVALID, service.login("10.0.0.2", "GUESS4").outcome());
+        verify(repository, times(4)).findByPasswordDigest(anyString());
+    }
+
+    @Test
+    void digesterWithoutAKeyRefusesToStart() {
+        assertThrows(IllegalStateException.class, () -> new JoinCodeDigester(""));
+    }
+}
@@ -0,0 +1,96 @@
+package com.chefsbrain.scheduling_engine.service.cluster;
+
+import com.chefsbrain.scheduling_engine.service.KitchenService;
+import com.chefsbrain.scheduling_engine.service.cluster.WorkspaceLeaseStore.Lease;
+import com.chefsbrain.scheduling_engine.service.cluster.WorkspaceOwnership.Owner;
+import com.chefsbrain.scheduling_engine.service.recovery.KitchenStateRecovery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// Two nodes sharing one database, as two engine JVMs would
+class WorkspaceOwnershipTest {
+
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(
+            new DriverManagerDataSource("jdbc:h2:mem:workspace-leases;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", ""));
+    private final WorkspaceLeaseStore store = new WorkspaceLeaseStore(jdbcTemplate);
+
+    private final KitchenService kitchenA = mock(KitchenService.class);
+    private final KitchenStateRecovery recoveryA = mock(KitchenStateRecovery.class);
+    private final KitchenService kitchenB = mock(KitchenService.class);
+    private final KitchenStateRecovery recoveryB = mock(KitchenStateRecovery.class);
+    private final WorkspaceOwnership nodeA = node("a", kitchenA, recoveryA);
+    private final WorkspaceOwnership nodeB = node("b", kitchenB, recoveryB);
+
+    private WorkspaceOwnership node(String id, KitchenService kitchen, KitchenStateRecovery recovery) {
+        return new WorkspaceOwnership(store, kitchen, recovery, Optional.empty(), id, "http://node-" + id, 15, 5000);
+    }
+
+    @BeforeEach
+    void createTable() {
+        // Hibernate creates it in the application; same columns as WorkspaceLease
+        jdbcTemplate.execute("drop table if exists workspace_leases");
+        jdbcTemplate.execute("create table workspace_leases (workspace_id bigint primary key, owner_node varchar(64) not null, " +
+                "owner_url varchar(255) not null, epoch bigint not null, expires_at_millis bigint not null)");
+    }
+
+    @Test
+    void firstNodeAskedTakesTheWorkspaceAndTheOtherForwardsToIt() {
+        Owner owner = nodeA.ownerOf(7L);
+        assertTrue(owner.local());
+        verify(recoveryA).restoreWorkspace(7L);
+
+        Owner seenByB = nodeB.ownerOf(7L);
+        assertFalse(seenByB.local());
+        assertEquals("a", seenByB.nodeId());
+        assertEquals("http://node-a", seenByB.url());
+        verifyNoInteractions(recoveryB);
+
+        // Asking again doesn't restore again
+        assertTrue(nodeA.ownerOf(7L).local());
+        verify(recoveryA, times(1)).restoreWorkspace(7L);
+    }
+
+    @Test
+    void expiredLeaseIsTakenOverAndTheOldOwnerEvictsOnRenewal() {
+        assertTrue(nodeA.ownerOf(7L).local());
+        clearInvocations(kitchenA);
+
+        // Node a stops renewing; once its lease has run out node b may take the workspace
+        long later = System.currentTimeMillis() + 60_000;
+        Lease taken = store.tryAcquire(7L, "b", "http://node-b", later, later + 15_000);
+        assertNotNull(taken);
+        assertEquals(2, taken.epoch());
+
+        nodeA.renewLeases();
+        verify(kitchenA).evictWorkspace(7L);
+        assertEquals("b", nodeA.ownerOf(7L).nodeId());
+    }
+
+    @Test
+    void releasedWorkspacesCanBeTakenOverAtOnce() {
+        assertTrue(nodeA.ownerOf(7L).local());
+        assertFalse(nodeB.ownerOf(7L).local());
+
+        nodeA.releaseAll();
+        nodeB.forgetOwner(7L);
+
+        assertTrue(nodeB.ownerOf(7L).local());
+        verify(recoveryB).restoreWorkspace(7L);
+        assertEquals(2, store.find(7L).epoch());
+    }
+
+    @Test
+    void liveLeaseCannotBeAcquiredByAnotherNode() {
+        long now = System.currentTimeMillis();
+        assertNotNull(store.tryAcquire(7L, "a", "http://node-a", now, now + 15_000));
+        assertNull(store.tryAcquire(7L, "b", "http://node-b", now, now + 15_000));
+        assertEquals("a", store.find(7L).ownerNode());
+    }
+}
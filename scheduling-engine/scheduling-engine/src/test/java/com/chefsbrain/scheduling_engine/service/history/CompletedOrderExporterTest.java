@@ -0,0 +1,97 @@
+package com.chefsbrain.scheduling_engine.service.history;
+
+import com.chefsbrain.scheduling_engine.service.history.CompletedOrderExporter.Format;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompletedOrderExporterTest {
+
+    private static final LocalDateTime DAY = LocalDateTime.of(2026, 10, 1, 0, 0);
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private final DriverManagerDataSource dataSource =
+            new DriverManagerDataSource("jdbc:h2:mem:order-export;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    // Fetch size 2, so one order's allergy rows are split across fetches
+    private final CompletedOrderExporter exporter =
+            new CompletedOrderExporter(dataSource, new DataSourceTransactionManager(dataSource), objectMapper, 2);
+
+    @BeforeEach
+    void createTables() {
+        // Hibernate creates them in the application; only the columns the export reads
+        jdbcTemplate.execute("drop table if exists order_allergies");
+        jdbcTemplate.execute("drop table if exists kitchen_orders");
+        jdbcTemplate.execute("create table kitchen_orders (id bigint primary key, table_number int, dish_id bigint, " +
+                "dish_name varchar(255), quantity int, prep_time_minutes int, is_vip boolean, order_placed_time timestamp, " +
+                "completed_at timestamp, workspace_id bigint, status varchar(20))");
+        jdbcTemplate.execute("create table order_allergies (order_id bigint, allergen varchar(64))");
+
+        insert(1, "Soup", DAY.plusHours(19), "COMPLETED", 7L, "Dairy", "Nuts", "Gluten");
+        insert(2, "Steak", DAY.plusHours(18), "COMPLETED", 7L);
+        insert(3, "Pie, apple", DAY.plusHours(20), "COMPLETED", 7L, "Nuts");
+        insert(4, "Tart", DAY.plusHours(21), "QUEUED", 7L, "Eggs");
+        insert(5, "Salad", DAY.plusDays(1).plusHours(1), "COMPLETED", 7L, "Dairy");
+        insert(6, "Fries", DAY.plusHours(19), "COMPLETED", 8L, "Salt");
+    }
+
+    private void insert(long id, String dish, LocalDateTime completedAt, String status, Long workspaceId, String... allergies) {
+        jdbcTemplate.update("insert into kitchen_orders (id, table_number, dish_id, dish_name, quantity, prep_time_minutes, " +
+                        "is_vip, order_placed_time, completed_at, workspace_id, status) values (?, 4, null, ?, 1, 10, false, ?, ?, ?, ?)",
+                id, dish, completedAt.minusMinutes(30), completedAt, workspaceId, status);
+        for (String allergen : allergies) {
+            jdbcTemplate.update("insert into order_allergies (order_id, allergen) values (?, ?)", id, allergen);
+        }
+    }
+
+    private String export(Format format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.export(7L, DAY, DAY.plusDays(1), format, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void joinedAllergyRowsFoldBackIntoOneLinePerOrder() throws IOException {
+        List<JsonNode> orders = new ArrayList<>();
+        for (String line : export(Format.NDJSON).split("\n")) {
+            orders.add(objectMapper.readTree(line));
+        }
+
+        // Completed in the range and in the workspace only, oldest completion first
+        assertEquals(List.of(2L, 1L, 3L), orders.stream().map(order -> order.get("id").asLong()).toList());
+        assertEquals(0, orders.get(0).get("customerAllergies").size());
+        List<String> soupAllergies = new ArrayList<>();
+        orders.get(1).get("customerAllergies").forEach(allergen -> soupAllergies.add(allergen.asText()));
+        assertEquals(List.of("Dairy", "Gluten", "Nuts"), soupAllergies.stream().sorted().toList());
+        assertEquals("Nuts", orders.get(2).get("customerAllergies").get(0).asText());
+        assertTrue(orders.get(0).get("dishId").isNull());
+    }
+
+    @Test
+    void csvJoinsAllergiesIntoOneQuotedField() throws IOException {
+        String[] lines = export(Format.CSV).split("\r\n");
+
+        assertEquals(4, lines.length);
+        assertTrue(lines[0].startsWith("id,tableNumber,"));
+        assertTrue(lines[1].startsWith("2,4,,Steak,1,10,false,"));
+        assertTrue(lines[1].endsWith(","));
+        String soupAllergies = lines[2].substring(lines[2].lastIndexOf(',') + 1);
+        assertEquals(List.of("Dairy", "Gluten", "Nuts"), List.of(soupAllergies.split("\\|")).stream().sorted().toList());
+        assertTrue(lines[3].startsWith("3,4,,\"Pie, apple\",1,10,false,"));
+        assertTrue(lines[3].endsWith(",Nuts"));
+    }
+}
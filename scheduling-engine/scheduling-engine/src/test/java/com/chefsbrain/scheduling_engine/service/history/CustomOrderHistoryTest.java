@@ -0,0 +1,69 @@
+package com.chefsbrain.scheduling_engine.service.history;
+
+import com.chefsbrain.scheduling_engine.model.Order;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustomOrderHistoryTest {
+
+    private static Order order(long id) {
+        Order order = new Order();
+        order.setId(id);
+        return order;
+    }
+
+    private static List<Long> ids(CustomOrderHistory history) {
+        return history.getAll().stream().map(Order::getId).toList();
+    }
+
+    @Test
+    void anyOrderCanBeTakenOut() {
+        CustomOrderHistory history = new CustomOrderHistory(10);
+        for (long id = 1; id <= 5; id++) {
+            history.addLast(order(id));
+        }
+
+        assertEquals(3L, history.remove(3L).getId());
+        assertEquals(1L, history.remove(1L).getId());
+        assertEquals(5L, history.remove(5L).getId());
+        assertNull(history.remove(3L));
+
+        assertEquals(List.of(2L, 4L), ids(history));
+        assertEquals(2, history.size());
+        assertFalse(history.contains(3L));
+        assertEquals(List.of(4L, 2L), history.getPageBefore(null, 10).stream().map(Order::getId).toList());
+    }
+
+    @Test
+    void evictedOrdersLeaveTheIndex() {
+        CustomOrderHistory history = new CustomOrderHistory(3);
+        for (long id = 1; id <= 5; id++) {
+            history.addLast(order(id));
+        }
+
+        assertFalse(history.contains(1L));
+        assertFalse(history.contains(2L));
+        assertNull(history.remove(2L));
+        assertEquals(List.of(3L, 4L, 5L), ids(history));
+
+        history.removeLast();
+        history.addFirst(order(2));
+        assertTrue(history.contains(2L));
+        assertEquals(List.of(2L, 3L, 4L), ids(history));
+    }
+
+    @Test
+    void redoStackDropsTheOldestUndoWhenFull() {
+        RedoStack redo = new RedoStack(2);
+        redo.push(1L);
+        redo.push(2L);
+        redo.push(3L);
+
+        assertEquals(3L, redo.pop());
+        assertEquals(2L, redo.pop());
+        assertNull(redo.pop());
+    }
+}
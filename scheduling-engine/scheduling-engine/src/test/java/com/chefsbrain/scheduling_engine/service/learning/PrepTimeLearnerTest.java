@@ -0,0 +1,84 @@
+package com.chefsbrain.scheduling_engine.service.learning;
+
+import com.chefsbrain.scheduling_engine.model.Dish;
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.repository.DishRepository;
+import com.chefsbrain.scheduling_engine.service.menu.MenuCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PrepTimeLearnerTest {
+
+    private static final LocalDateTime PLACED = LocalDateTime.of(2026, 3, 1, 19, 0);
+
+    private final DishRepository dishRepository = mock(DishRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PrepTimeLearner learner = new PrepTimeLearner(dishRepository, jdbcTemplate, mock(MenuCache.class));
+
+    @BeforeEach
+    void loadDishes() {
+        for (long id = 1; id <= 2; id++) {
+            Dish dish = new Dish();
+            dish.setId(id);
+            dish.setPrepTimeMinutes(10);
+            when(dishRepository.findById(id)).thenReturn(Optional.of(dish));
+            learner.prepTimeMinutes(id);
+        }
+    }
+
+    private void complete(long dishId, int minutes) {
+        Order order = new Order();
+        order.setDishId(dishId);
+        order.setOrderPlacedTime(PLACED);
+        learner.recordCompletion(order, PLACED.plusMinutes(minutes));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> lastBatch() {
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, atLeastOnce()).batchUpdate(anyString(), batch.capture());
+        return batch.getValue();
+    }
+
+    @Test
+    void failedFlushRetriesOnlyWhatItTriedToWrite() {
+        complete(1, 30);
+        learner.flush();
+        complete(2, 30);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new QueryTimeoutException("database down"));
+        learner.flush();
+
+        reset(jdbcTemplate);
+        learner.flush();
+
+        // Dish 1 was written by the first flush, so only dish 2 is written again
+        List<Object[]> batch = lastBatch();
+        assertEquals(1, batch.size());
+        assertEquals(2L, batch.get(0)[1]);
+    }
+
+    @Test
+    void adminValueIsWrittenByTheNextFlush() {
+        complete(1, 30);
+        learner.reset(1L, 25);
+        learner.flush();
+
+        List<Object[]> batch = lastBatch();
+        assertEquals(1, batch.size());
+        assertArrayEquals(new Object[]{25, 1L}, batch.get(0));
+        verify(jdbcTemplate, times(1)).batchUpdate(eq("update dish set prep_time_minutes = ? where id = ?"), anyList());
+    }
+}
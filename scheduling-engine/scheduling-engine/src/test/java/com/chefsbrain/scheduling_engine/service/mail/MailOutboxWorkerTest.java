@@ -0,0 +1,149 @@
+package com.chefsbrain.scheduling_engine.service.mail;
+
+import com.chefsbrain.scheduling_engine.model.MailOutboxMessage;
+import com.chefsbrain.scheduling_engine.model.MailOutboxStatus;
+import com.chefsbrain.scheduling_engine.repository.MailOutboxRepository;
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// Sends through an in-process GreenMail SMTP server (plain SMTP with auth instead of production's SMTPS)
+@SpringBootTest(properties = {
+        // Own database: other test contexts' outbox pollers must not see these rows
+        "spring.datasource.url=jdbc:h2:mem:mail-outbox;MODE=PostgreSQL",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.mail.host=localhost",
+        "spring.mail.port=3025",
+        "spring.mail.username=outbox-test",
+        "spring.mail.password=secret",
+        "spring.mail.properties.mail.smtp.ssl.enable=false",
+        "spring.mail.properties.mail.smtp.socketFactory.port=3025",
+        "spring.mail.properties.mail.smtp.socketFactory.class=javax.net.SocketFactory",
+        "kitchen.mail.poll-interval-ms=3600000",
+        "kitchen.mail.batch-size=2",
+        "kitchen.mail.workers=2",
+        "kitchen.auth.join-code-key=test-key"
+})
+class MailOutboxWorkerTest {
+
+    @RegisterExtension
+    static GreenMailExtension smtp = new GreenMailExtension(ServerSetupTest.SMTP)
+            .withConfiguration(GreenMailConfiguration.aConfig().withUser("outbox-test", "secret"));
+
+    @Autowired
+    private MailOutbox mailOutbox;
+
+    @Autowired
+    private MailOutboxWorker worker;
+
+    @Autowired
+    private MailOutboxRepository outboxRepository;
+
+    @MockitoSpyBean
+    private JavaMailSenderImpl mailSender;
+
+    @Test
+    void sendsQueuedInvitationsInBatches() throws Exception {
+        List<String> invites = Arrays.asList("a@kitchen.test", " b@kitchen.test", "", "c@kitchen.test",
+                "d@kitchen.test", "e@kitchen.test");
+        assertEquals(5, mailOutbox.enqueueInvitations("Tom & Jerry's", "admin@kitchen.test", "ABC123", invites));
+
+        worker.sendDue();
+
+        MimeMessage[] received = smtp.getReceivedMessages();
+        assertEquals(5, received.length);
+        String body = GreenMailUtil.getBody(received[0]);
+        assertTrue(body.contains("ABC123"));
+        assertTrue(body.contains("Tom &amp; Jerry&#39;s"), "workspace name is HTML-escaped");
+        assertFalse(body.contains("{{"), "every placeholder is filled in");
+
+        List<MailOutboxMessage> rows = outboxRepository.findAll().stream()
+                .filter(row -> "Tom & Jerry's".equals(row.getWorkspaceName())).toList();
+        assertEquals(5, rows.size());
+        for (MailOutboxMessage row : rows) {
+            assertEquals(MailOutboxStatus.SENT, row.getStatus());
+            assertEquals(1, row.getAttempts());
+            assertNull(row.getWorkspacePassword(), "password is not kept once sent");
+        }
+    }
+
+    @Test
+    void rejectedLoginIsRetriedLater() {
+        mailOutbox.enqueueInvitations("Retry Bistro", "admin@kitchen.test", "XYZ789", List.of("late@kitchen.test"));
+        mailSender.setPassword("expired"); // the server refuses the connection's login
+        try {
+            worker.sendDue();
+        } finally {
+            mailSender.setPassword("secret");
+        }
+
+        MailOutboxMessage row = outboxRepository.findAll().stream()
+                .filter(message -> "Retry Bistro".equals(message.getWorkspaceName())).findFirst().orElseThrow();
+        assertEquals(MailOutboxStatus.PENDING, row.getStatus());
+        assertEquals(1, row.getAttempts());
+        assertNotNull(row.getLastError());
+        assertTrue(row.getNextAttemptAt().isAfter(LocalDateTime.now()), "backs off before the next attempt");
+        assertEquals("XYZ789", row.getWorkspacePassword(), "still needed for the retry");
+
+        // Not due yet: another poll leaves it alone
+        worker.sendDue();
+        assertEquals(0, smtp.getReceivedMessages().length);
+    }
+
+    @Test
+    void unexpectedBatchFailureBacksOffInsteadOfRefetching() {
+        mailOutbox.enqueueInvitations("Broken Bistro", "admin@kitchen.test", "QQQ111",
+                List.of("1@kitchen.test", "2@kitchen.test", "3@kitchen.test", "4@kitchen.test", "5@kitchen.test"));
+        doThrow(new IllegalStateException("bug in the sender")).when(mailSender).send(any(MimeMessage[].class));
+
+        // Five messages fill more than one page; a failed page that stayed due would be fetched again and again
+        assertEquals(5, worker.sendDue());
+
+        List<MailOutboxMessage> rows = outboxRepository.findAll().stream()
+                .filter(row -> "Broken Bistro".equals(row.getWorkspaceName())).toList();
+        assertEquals(5, rows.size());
+        for (MailOutboxMessage row : rows) {
+            assertEquals(MailOutboxStatus.PENDING, row.getStatus());
+            assertEquals(1, row.getAttempts());
+            assertTrue(row.getNextAttemptAt().isAfter(LocalDateTime.now()));
+        }
+    }
+
+    @Test
+    void messagesClaimedByAnotherNodeAreNotSentTwice() {
+        mailOutbox.enqueueInvitations("Shared Bistro", "admin@kitchen.test", "NOD222", List.of("x@kitchen.test", "y@kitchen.test"));
+        List<Long> ids = outboxRepository.findAll().stream()
+                .filter(row -> "Shared Bistro".equals(row.getWorkspaceName())).map(MailOutboxMessage::getId).toList();
+        LocalDateTime now = LocalDateTime.now();
+        List<MailOutboxStatus> claimable = List.of(MailOutboxStatus.PENDING, MailOutboxStatus.SENDING);
+        // Another node's poll got there first
+        assertEquals(2, outboxRepository.claim(ids, claimable, now, MailOutboxStatus.SENDING, "other-node", now.plusMinutes(5)));
+        assertEquals(0, outboxRepository.claim(ids, claimable, now, MailOutboxStatus.SENDING, "late-node", now.plusMinutes(5)));
+
+        assertEquals(0, worker.sendDue());
+        assertEquals(0, smtp.getReceivedMessages().length);
+
+        // That node died: once its claim runs out the messages are due again
+        LocalDateTime later = now.plusMinutes(6);
+        assertEquals(2, outboxRepository.claim(ids, claimable, later, MailOutboxStatus.SENDING, "rescuer", later.plusMinutes(5)));
+    }
+}
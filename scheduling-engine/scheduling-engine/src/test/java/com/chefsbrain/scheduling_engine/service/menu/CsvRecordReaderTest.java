@@ -0,0 +1,73 @@
+package com.chefsbrain.scheduling_engine.service.menu;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvRecordReaderTest {
+
+    private static List<List<String>> readAll(String csv) throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader(csv));
+        List<List<String>> records = new ArrayList<>();
+        List<String> record;
+        while ((record = reader.next()) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+
+    @Test
+    void quotedFieldsKeepCommasQuotesAndLineBreaks() throws IOException {
+        List<List<String>> records = readAll("name,notes\r\n" +
+                "\"Soup, of the day\",\"say \"\"hot\"\"\"\r\n" +
+                "Pie,\"two\nlines\"\n" +
+                "\"\",last");
+
+        assertEquals(List.of(
+                List.of("name", "notes"),
+                List.of("Soup, of the day", "say \"hot\""),
+                List.of("Pie", "two\nlines"),
+                List.of("", "last")), records);
+    }
+
+    @Test
+    void byteOrderMarkIsNotPartOfTheFirstField() throws IOException {
+        List<List<String>> records = readAll("\uFEFFname,prepTimeMinutes\nSoup,10\n");
+
+        assertEquals(List.of("name", "prepTimeMinutes"), records.get(0));
+        assertEquals(List.of("Soup", "10"), records.get(1));
+    }
+
+    @Test
+    void linesAreCountedFromWhereEachRecordStarts() throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("name\n\n\r\nSoup\n\"Pie\nwith\ncream\"\n\nTart\n"));
+
+        assertEquals(List.of("name"), reader.next());
+        assertEquals(1, reader.line());
+        assertEquals(List.of("Soup"), reader.next());
+        assertEquals(4, reader.line());
+        assertEquals(List.of("Pie\nwith\ncream"), reader.next());
+        assertEquals(5, reader.line());
+        assertEquals(List.of("Tart"), reader.next());
+        assertEquals(9, reader.line());
+        assertNull(reader.next());
+    }
+
+    @Test
+    void tornFileEndsWithItsLastCompleteField() throws IOException {
+        // Cut off after a complete field: the last record is simply shorter
+        assertEquals(List.of(List.of("name", "prepTimeMinutes"), List.of("Soup")), readAll("name,prepTimeMinutes\nSoup"));
+
+        // Cut off inside a quoted field: reported with the line the record started on
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("name\n\nSoup\n\"Pie\nwith cre"));
+        reader.next();
+        reader.next();
+        MenuImportException e = assertThrows(MenuImportException.class, reader::next);
+        assertEquals("Line 4: unterminated quoted field", e.getMessage());
+    }
+}
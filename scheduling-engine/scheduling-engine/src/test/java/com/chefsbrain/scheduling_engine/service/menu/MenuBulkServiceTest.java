@@ -0,0 +1,82 @@
+package com.chefsbrain.scheduling_engine.service.menu;
+
+import com.chefsbrain.scheduling_engine.service.learning.PrepTimeLearner;
+import com.chefsbrain.scheduling_engine.service.menu.MenuBulkService.Format;
+import com.chefsbrain.scheduling_engine.service.menu.MenuBulkService.ImportResult;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class MenuBulkServiceTest {
+
+    private final DriverManagerDataSource dataSource =
+            new DriverManagerDataSource("jdbc:h2:mem:menu-bulk;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    private final MenuCache menuCache = mock(MenuCache.class);
+    private final PrepTimeLearner prepTimeLearner = mock(PrepTimeLearner.class);
+    // Two dishes per batch, so an import of several dishes is written in several batches
+    private final MenuBulkService service = new MenuBulkService(jdbcTemplate, new DataSourceTransactionManager(dataSource),
+            JsonMapper.builder().build(), menuCache, prepTimeLearner, 2);
+
+    @BeforeEach
+    void createTables() {
+        // Hibernate creates them in the application; same columns as Dish
+        jdbcTemplate.execute("drop table if exists dish_ingredients");
+        jdbcTemplate.execute("drop table if exists dish_substitutions");
+        jdbcTemplate.execute("drop table if exists dish");
+        jdbcTemplate.execute("create table dish (id bigint generated by default as identity primary key, name varchar(255), " +
+                "prep_time_minutes int not null, image_url varchar(255), workspace_id bigint)");
+        jdbcTemplate.execute("create table dish_ingredients (dish_id bigint not null, ingredients varchar(255))");
+        jdbcTemplate.execute("create table dish_substitutions (dish_id bigint not null, ingredient_name varchar(255) not null, " +
+                "substitute_name varchar(255))");
+    }
+
+    private static InputStream csv(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private List<String> dishNames(long workspaceId) {
+        return jdbcTemplate.queryForList("select name from dish where workspace_id = ? order by id", String.class, workspaceId);
+    }
+
+    @Test
+    void csvImportWritesDishesWithTheirIngredientsAndSubstitutions() {
+        ImportResult result = service.importMenu(7L, csv("name,prepTimeMinutes,ingredients,substitutions\n" +
+                "Latte,4,Dairy|Coffee,Dairy=Oat Milk\n" +
+                "\"Pie, apple\",20,Nuts|Gluten,\n" +
+                "Soup,10,,\n"), Format.CSV, false);
+
+        assertEquals(new ImportResult(3, 0), result);
+        assertEquals(List.of("Latte", "Pie, apple", "Soup"), dishNames(7L));
+        assertEquals(4, jdbcTemplate.queryForObject("select count(*) from dish_ingredients", Integer.class));
+        assertEquals("Oat Milk", jdbcTemplate.queryForObject(
+                "select s.substitute_name from dish_substitutions s join dish d on d.id = s.dish_id " +
+                        "where d.name = 'Latte' and s.ingredient_name = 'Dairy'", String.class));
+        verify(menuCache).invalidate(7L);
+    }
+
+    @Test
+    void badRowAfterSeveralBatchesLeavesTheMenuAsItWas() {
+        service.importMenu(7L, csv("name,prepTimeMinutes\nOld soup,10\n"), Format.CSV, false);
+
+        // Replaces the menu; the first four dishes are already written in two batches when line 8 fails
+        MenuImportException e = assertThrows(MenuImportException.class, () -> service.importMenu(7L,
+                csv("name,prepTimeMinutes,ingredients\nA,1,Nuts\nB,2,\nC,3,\nD,4,\n\n\nE,soon,\n"), Format.CSV, true));
+
+        assertEquals("Line 8: prepTimeMinutes must be a whole number, got 'soon'", e.getMessage());
+        assertEquals(List.of("Old soup"), dishNames(7L));
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from dish_ingredients", Integer.class));
+        verifyNoInteractions(prepTimeLearner);
+    }
+}
@@ -0,0 +1,58 @@
+package com.chefsbrain.scheduling_engine.service.menu;
+
+import com.chefsbrain.scheduling_engine.model.Dish;
+import com.chefsbrain.scheduling_engine.repository.DishRepository;
+import com.chefsbrain.scheduling_engine.repository.WorkspaceRepository;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class MenuCacheTest {
+
+    private final DishRepository dishRepository = mock(DishRepository.class);
+    private final WorkspaceRepository workspaceRepository = mock(WorkspaceRepository.class);
+    private final MenuCache cache = new MenuCache(dishRepository, workspaceRepository, JsonMapper.builder().build(),
+            mock(PlatformTransactionManager.class));
+
+    private static Dish dish(long id, long workspaceId) {
+        Dish dish = new Dish();
+        dish.setId(id);
+        dish.setName("Soup");
+        dish.setPrepTimeMinutes(10);
+        dish.setWorkspaceId(workspaceId);
+        dish.setIngredients(new ArrayList<>());
+        return dish;
+    }
+
+    @Test
+    void emptyMenuIsCachedOnlyForAnExistingWorkspace() {
+        when(workspaceRepository.existsById(7L)).thenReturn(true);
+
+        cache.get(7L);
+        cache.get(7L);
+        cache.get(99L);
+        cache.get(99L);
+
+        verify(dishRepository, times(1)).findByWorkspaceId(7L);
+        verify(dishRepository, times(2)).findByWorkspaceId(99L);
+    }
+
+    @Test
+    void dishIsFoundThroughItsWorkspaceIdAlone() {
+        when(dishRepository.findWorkspaceIdById(3L)).thenReturn(Optional.of(7L));
+        when(dishRepository.findByWorkspaceId(7L)).thenReturn(List.of(dish(3, 7)));
+
+        assertEquals(7L, cache.findMenuOfDish(3L).getWorkspaceId());
+        assertNull(cache.findMenuOfDish(4L));
+        verify(dishRepository, never()).findById(anyLong());
+        verifyNoInteractions(workspaceRepository);
+    }
+}
@@ -0,0 +1,116 @@
+package com.chefsbrain.scheduling_engine.service.persistence;
+
+import com.chefsbrain.scheduling_engine.config.KitchenThreads;
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.model.OrderStatus;
+import com.chefsbrain.scheduling_engine.service.events.QueueEventType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalShipperTest {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private final DriverManagerDataSource dataSource =
+            new DriverManagerDataSource("jdbc:h2:mem:journal-shipper;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+    @TempDir
+    Path directory;
+
+    private OrderJournal journal;
+    private JournalShipper shipper;
+
+    @BeforeEach
+    void open() {
+        // Hibernate creates them in the application; dish_name is kept short so a long name is rejected
+        jdbcTemplate.execute("drop table if exists order_allergies");
+        jdbcTemplate.execute("drop table if exists kitchen_orders");
+        jdbcTemplate.execute("create table kitchen_orders (id bigint primary key, table_number int, " +
+                "dish_name varchar(20), dish_id bigint, prep_time_minutes int, quantity int, is_vip boolean, " +
+                "order_placed_time timestamp, calculated_start_time timestamp, workspace_id bigint, status varchar(20), " +
+                "completed_at timestamp, projected_start_time timestamp, projected_finish_time timestamp, station_index int)");
+        jdbcTemplate.execute("create table order_allergies (order_id bigint, allergen varchar(64))");
+        journal = new OrderJournal(objectMapper, KitchenThreads.platform(), directory.toString(), 1, 0, false, false);
+    }
+
+    @AfterEach
+    void close() {
+        if (shipper != null) shipper.drainAndStop();
+        journal.close();
+    }
+
+    private void startShipper() {
+        shipper = new JournalShipper(journal, jdbcTemplate, new DataSourceTransactionManager(dataSource),
+                KitchenThreads.platform(), 50, 10, 2);
+        shipper.start();
+    }
+
+    private static Order order(long id, String dish) {
+        Order order = new Order();
+        order.setId(id);
+        order.setWorkspaceId(7L);
+        order.setDishName(dish);
+        order.setPrepTimeMinutes(10);
+        order.setQuantity(1);
+        order.setOrderPlacedTime(LocalDateTime.of(2026, 3, 1, 19, 0));
+        order.setStatus(OrderStatus.QUEUED);
+        order.setCustomerAllergies(List.of("nuts"));
+        return order;
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+
+    @Test
+    void rejectedRecordIsQuarantinedAndShippingMovesPastIt() throws Exception {
+        for (long id = 1; id <= 30; id++) {
+            journal.append(QueueEventType.ADDED, order(id, id == 17 ? "x".repeat(100) : "soup"));
+        }
+        Order soup = order(3, "soup");
+        soup.setCompletedAt(LocalDateTime.of(2026, 3, 1, 19, 30));
+        journal.append(QueueEventType.COMPLETED, soup);
+        startShipper();
+
+        assertTrue(shipper.awaitShipped(journal.lastSeq(), 10_000));
+        assertEquals(29, count("select count(*) from kitchen_orders"));
+        assertEquals(0, count("select count(*) from kitchen_orders where id = 17"));
+        assertEquals(1, count("select count(*) from kitchen_orders where id = 3 and status = 'COMPLETED'"));
+        assertEquals(journal.lastSeq(), journal.shippedSeq());
+
+        List<String> quarantined = Files.readAllLines(directory.resolve("quarantine.ndjson"));
+        assertEquals(1, quarantined.size());
+        JournalRecord record = objectMapper.treeToValue(objectMapper.readTree(quarantined.get(0)).get("record"), JournalRecord.class);
+        assertEquals(17, record.seq());
+        assertEquals(17L, record.orderId());
+    }
+
+    @Test
+    void recordsWaitOutAnUnavailableTableInsteadOfBeingQuarantined() throws Exception {
+        jdbcTemplate.execute("alter table kitchen_orders rename to kitchen_orders_away");
+        for (long id = 1; id <= 10; id++) {
+            journal.append(QueueEventType.ADDED, order(id, "soup"));
+        }
+        startShipper();
+        assertFalse(shipper.awaitShipped(journal.lastSeq(), 500));
+        jdbcTemplate.execute("alter table kitchen_orders_away rename to kitchen_orders");
+
+        assertTrue(shipper.awaitShipped(journal.lastSeq(), 10_000));
+        assertEquals(10, count("select count(*) from kitchen_orders"));
+        assertFalse(Files.exists(directory.resolve("quarantine.ndjson")));
+    }
+}
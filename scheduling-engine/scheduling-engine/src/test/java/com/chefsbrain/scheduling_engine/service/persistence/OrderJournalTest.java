@@ -0,0 +1,132 @@
+package com.chefsbrain.scheduling_engine.service.persistence;
+
+import com.chefsbrain.scheduling_engine.config.KitchenThreads;
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.model.OrderStatus;
+import com.chefsbrain.scheduling_engine.service.events.QueueEventType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderJournalTest {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+    @TempDir
+    Path directory;
+
+    private OrderJournal open() {
+        return new OrderJournal(objectMapper, KitchenThreads.platform(), directory.toString(), 1, 0, false, false);
+    }
+
+    private static Order order(long id, String dish) {
+        Order order = new Order();
+        order.setId(id);
+        order.setWorkspaceId(7L);
+        order.setDishName(dish);
+        order.setPrepTimeMinutes(10);
+        order.setStatus(OrderStatus.QUEUED);
+        return order;
+    }
+
+    private static List<JournalRecord> readAll(OrderJournal journal, long afterSeq) {
+        List<JournalRecord> records = new ArrayList<>();
+        OrderJournal.Cursor cursor = journal.readAfter(afterSeq);
+        JournalRecord record;
+        while ((record = cursor.next()) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+
+    private static long segmentCount(Path directory) throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".journal")).count();
+        }
+    }
+
+    @Test
+    void recordsSurviveReopeningAcrossSegments() throws Exception {
+        OrderJournal journal = open();
+        String dish = "x".repeat(2_000); // ~500 per 1 MB segment
+        for (long id = 1; id <= 1_500; id++) {
+            journal.append(QueueEventType.ADDED, order(id, dish));
+        }
+        assertEquals(1_500, journal.lastSeq());
+        journal.close();
+        assertTrue(segmentCount(directory) > 1);
+
+        OrderJournal reopened = open();
+        assertEquals(1_500, reopened.lastSeq());
+        List<JournalRecord> records = readAll(reopened, 0);
+        assertEquals(1_500, records.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(i + 1, records.get(i).seq());
+            assertEquals(i + 1L, records.get(i).order().getId());
+        }
+        assertEquals(1_001, readAll(reopened, 1_000).get(0).seq());
+
+        // Appends continue after the recovered position
+        assertEquals(1_501, reopened.append(QueueEventType.ADDED, order(1_501, "soup")));
+        reopened.close();
+    }
+
+    @Test
+    void compactionKeepsRecordsNotYetCovered() throws Exception {
+        OrderJournal journal = open();
+        String dish = "x".repeat(2_000);
+        for (long id = 1; id <= 1_500; id++) {
+            journal.append(QueueEventType.ADDED, order(id, dish));
+        }
+        long before = segmentCount(directory);
+        assertTrue(journal.compact(1_200) > 0);
+        assertTrue(segmentCount(directory) < before);
+
+        List<JournalRecord> records = readAll(journal, 1_200);
+        assertEquals(300, records.size());
+        assertEquals(1_201, records.get(0).seq());
+        journal.close();
+    }
+
+    @Test
+    void replayFoldsChangesOntoTheSnapshot() {
+        OrderJournal journal = open();
+        Order soup = order(1, "soup");
+        Order steak = order(2, "steak");
+        journal.append(QueueEventType.ADDED, soup);
+        journal.append(QueueEventType.ADDED, steak);
+        soup.setCompletedAt(LocalDateTime.of(2026, 3, 1, 19, 30, 15, 123_000_000));
+        journal.append(QueueEventType.COMPLETED, soup);
+        steak.setVip(true);
+        journal.append(QueueEventType.REPRIORITIZED, steak);
+        journal.append(QueueEventType.COMPLETED, steak);
+        journal.append(QueueEventType.UNDONE, steak);
+
+        // The snapshot already saw the first record; replaying it again must not duplicate the order
+        JournalState state = new JournalState(10);
+        state.load(7L, 1, List.of(order(1, "soup")), List.of());
+        readAll(journal, 0).forEach(state::apply);
+        journal.close();
+
+        List<Order> active = state.activeOrders().get(7L);
+        assertEquals(1, active.size());
+        assertEquals(2L, active.get(0).getId());
+        assertTrue(active.get(0).isVip());
+        assertEquals(OrderStatus.QUEUED, active.get(0).getStatus());
+
+        List<Order> history = state.completedOrders().get(7L);
+        assertEquals(1, history.size());
+        assertEquals(1L, history.get(0).getId());
+        assertEquals(LocalDateTime.of(2026, 3, 1, 19, 30, 15, 123_000_000), history.get(0).getCompletedAt());
+    }
+}
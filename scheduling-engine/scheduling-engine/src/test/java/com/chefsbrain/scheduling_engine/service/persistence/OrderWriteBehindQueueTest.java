@@ -0,0 +1,129 @@
+package com.chefsbrain.scheduling_engine.service.persistence;
+
+import com.chefsbrain.scheduling_engine.config.KitchenThreads;
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.model.OrderStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderWriteBehindQueueTest {
+
+    private final DriverManagerDataSource dataSource =
+            new DriverManagerDataSource("jdbc:h2:mem:write-behind;MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+    private OrderWriteBehindQueue queue;
+
+    @BeforeEach
+    void createTables() {
+        // Hibernate creates them in the application; dish_name is kept short so a long name is rejected
+        jdbcTemplate.execute("drop table if exists order_allergies");
+        jdbcTemplate.execute("drop table if exists kitchen_orders");
+        jdbcTemplate.execute("create table kitchen_orders (id bigint primary key, table_number int, " +
+                "dish_name varchar(20), dish_id bigint, prep_time_minutes int, quantity int, is_vip boolean, " +
+                "order_placed_time timestamp, calculated_start_time timestamp, workspace_id bigint, status varchar(20), " +
+                "completed_at timestamp, projected_start_time timestamp, projected_finish_time timestamp, station_index int)");
+        jdbcTemplate.execute("create table order_allergies (order_id bigint, allergen varchar(64))");
+        queue = new OrderWriteBehindQueue(jdbcTemplate, new DataSourceTransactionManager(dataSource),
+                KitchenThreads.platform(), 50, 10, 1_000, 2);
+        queue.start();
+    }
+
+    @AfterEach
+    void stop() {
+        queue.drainAndStop();
+    }
+
+    private static Order order(long id, String dish) {
+        Order order = new Order();
+        order.setId(id);
+        order.setWorkspaceId(7L);
+        order.setTableNumber(3);
+        order.setDishName(dish);
+        order.setPrepTimeMinutes(10);
+        order.setQuantity(1);
+        order.setOrderPlacedTime(LocalDateTime.of(2026, 3, 1, 19, 0));
+        order.setStatus(OrderStatus.QUEUED);
+        order.setCustomerAllergies(List.of("nuts"));
+        return order;
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out");
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void insertsAndStatusChangesFromManyThreadsAllLand() throws Exception {
+        Thread[] producers = new Thread[4];
+        for (int t = 0; t < producers.length; t++) {
+            long first = t * 100L + 1;
+            producers[t] = new Thread(() -> {
+                for (long id = first; id < first + 100; id++) {
+                    Order order = order(id, "soup");
+                    queue.enqueueInsert(order);
+                    if (id % 2 == 0) {
+                        Order done = order(id, "soup");
+                        done.setStatus(OrderStatus.COMPLETED);
+                        done.setCompletedAt(LocalDateTime.of(2026, 3, 1, 19, 30));
+                        queue.enqueueStatus(done);
+                    }
+                }
+            });
+            producers[t].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        queue.drainAndStop();
+
+        assertEquals(400, count("select count(*) from kitchen_orders"));
+        assertEquals(400, count("select count(*) from order_allergies"));
+        assertEquals(200, count("select count(*) from kitchen_orders where status = 'COMPLETED'"));
+        assertEquals(0, queue.deadLetteredCount());
+    }
+
+    @Test
+    void rejectedWriteIsDeadLetteredWithoutHoldingUpTheRestOfItsBatch() throws Exception {
+        for (long id = 1; id <= 30; id++) {
+            queue.enqueueInsert(order(id, id == 17 ? "x".repeat(100) : "soup"));
+        }
+
+        await(() -> queue.deadLetteredCount() == 1 && count("select count(*) from kitchen_orders") == 29);
+        assertEquals(0, count("select count(*) from kitchen_orders where id = 17"));
+
+        // Writes queued after the bad one still go through
+        queue.enqueueInsert(order(31, "steak"));
+        await(() -> count("select count(*) from kitchen_orders where id = 31") == 1);
+        assertEquals(1, queue.deadLetteredCount());
+    }
+
+    @Test
+    void writesWaitOutAnUnavailableTableInsteadOfBeingDropped() throws Exception {
+        jdbcTemplate.execute("alter table kitchen_orders rename to kitchen_orders_away");
+        for (long id = 1; id <= 10; id++) {
+            queue.enqueueInsert(order(id, "soup"));
+        }
+        Thread.sleep(500);
+        jdbcTemplate.execute("alter table kitchen_orders_away rename to kitchen_orders");
+
+        await(() -> count("select count(*) from kitchen_orders") == 10);
+        assertEquals(0, queue.deadLetteredCount());
+    }
+}
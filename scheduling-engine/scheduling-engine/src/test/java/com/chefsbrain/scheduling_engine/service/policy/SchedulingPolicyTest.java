@@ -0,0 +1,71 @@
+package com.chefsbrain.scheduling_engine.service.policy;
+
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.service.queue.IndexedOrderHeap;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchedulingPolicyTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 18, 0);
+
+    private static Order order(long id, int placedOffsetMinutes, int prepMinutes, boolean vip) {
+        Order order = new Order();
+        order.setId(id);
+        order.setVip(vip);
+        order.setPrepTimeMinutes(prepMinutes);
+        order.setOrderPlacedTime(BASE.plusMinutes(placedOffsetMinutes));
+        order.setCalculatedStartTime(BASE.plusMinutes(placedOffsetMinutes + prepMinutes));
+        return order;
+    }
+
+    @Test
+    void agingLetsLongWaitingRegularOrderBeatNewVips() {
+        IndexedOrderHeap heap = new IndexedOrderHeap(new AgingPolicy(Duration.ofMinutes(10))::priorityKey);
+        heap.add(order(1, 0, 10, false));
+        // VIPs keep arriving; the first ones are within the bonus window, the later ones are not
+        heap.add(order(2, 5, 10, true));
+        heap.add(order(3, 15, 10, true));
+        heap.add(order(4, 30, 10, true));
+
+        assertEquals(List.of(2L, 1L, 3L, 4L), heap.toSortedList().stream().map(Order::getId).toList());
+    }
+
+    @Test
+    void weightedSlackServesTheOrderClosestToItsPromiseFirst() {
+        WeightedSlackPolicy policy = new WeightedSlackPolicy(1.5, 1.2, Duration.ZERO);
+        Order longDish = order(1, 0, 40, false);  // may start as late as +20
+        Order quickDish = order(2, 5, 10, false); // may start as late as +10
+        Order vipDish = order(3, 8, 10, true);    // may start as late as +10 (ties broken by id)
+
+        IndexedOrderHeap heap = new IndexedOrderHeap(policy::priorityKey);
+        heap.add(longDish);
+        heap.add(quickDish);
+        heap.add(vipDish);
+
+        assertEquals(List.of(2L, 3L, 1L), heap.toSortedList().stream().map(Order::getId).toList());
+    }
+
+    @Test
+    void reorderSwitchesPolicyWithoutLosingOrders() {
+        IndexedOrderHeap heap = new IndexedOrderHeap(new StrictVipPolicy()::priorityKey);
+        for (long id = 1; id <= 50; id++) {
+            heap.add(order(id, (int) id, 10, id % 5 == 0));
+        }
+        assertTrue(heap.peek().isVip());
+        long version = heap.getVersion();
+
+        heap.reorder(new AgingPolicy(Duration.ofMinutes(2))::priorityKey);
+
+        assertEquals(50, heap.size());
+        assertEquals(1L, heap.peek().getId());
+        assertTrue(heap.getVersion() > version);
+        assertNotNull(heap.removeById(25L));
+        assertEquals(49, heap.toSortedList().size());
+    }
+}
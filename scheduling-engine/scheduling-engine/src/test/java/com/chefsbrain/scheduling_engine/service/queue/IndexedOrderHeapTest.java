@@ -0,0 +1,209 @@
+package com.chefsbrain.scheduling_engine.service.queue;
+
+import com.chefsbrain.scheduling_engine.dto.OrderView;
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.model.OrderStatus;
+import com.chefsbrain.scheduling_engine.model.SchedulingPolicyType;
+import com.chefsbrain.scheduling_engine.service.policy.SchedulingPolicies;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexedOrderHeapTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 18, 0);
+
+    // VIP first, then earliest start: the same ordering as Order.compareTo
+    private static final ToLongFunction<Order> VIP_FIRST = new SchedulingPolicies(null, SchedulingPolicyType.STRICT_VIP, 10, 1.5, 1.2, 5)
+            .get(SchedulingPolicyType.STRICT_VIP)::priorityKey;
+
+    private static Order order(long id, int startOffsetMinutes, boolean vip) {
+        Order order = new Order();
+        order.setId(id);
+        order.setVip(vip);
+        order.setCalculatedStartTime(BASE.plusMinutes(startOffsetMinutes));
+        return order;
+    }
+
+    @Test
+    void peekReturnsVipFirstThenEarliestStart() {
+        IndexedOrderHeap heap = new IndexedOrderHeap(VIP_FIRST);
+        heap.add(order(1, 10, false));
+        heap.add(order(2, 5, false));
+        heap.add(order(3, 30, true));
+
+        assertEquals(3L, heap.peek().getId());
+        assertEquals(List.of(3L, 2L, 1L), heap.toSortedList().stream().map(Order::getId).toList());
+    }
+
+    @Test
+    void removeByIdKeepsHeapOrdered() {
+        IndexedOrderHeap heap = new IndexedOrderHeap(VIP_FIRST);
+        Random random = new Random(42);
+        List<Order> orders = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            Order order = order(id, random.nextInt(600), random.nextInt(10) == 0);
+            orders.add(order);
+            heap.add(order);
+        }
+
+        for (int i = 0; i < orders.size(); i += 3) {
+            assertSame(orders.get(i), heap.removeById(orders.get(i).getId()));
+        }
+        assertNull(heap.removeById(1L));
+
+        List<Order> drained = new ArrayList<>();
+        while (!heap.isEmpty()) {
+            drained.add(heap.removeById(heap.peek().getId()));
+        }
+        for (int i = 1; i < drained.size(); i++) {
+            assertTrue(drained.get(i - 1).compareTo(drained.get(i)) <= 0);
+        }
+        assertEquals(333, drained.size());
+    }
+
+    @Test
+    void sortedListMatchesTheDrainOrderAndLeavesTheHeapAsItWas() {
+        IndexedOrderHeap heap = new IndexedOrderHeap(VIP_FIRST);
+        Random random = new Random(7);
+        // Few distinct start times, so many orders tie on their key and are ordered by id
+        for (long id = 1; id <= 300; id++) {
+            heap.add(order(id, random.nextInt(20), random.nextInt(10) == 0));
+        }
+
+        List<Long> sorted = heap.toSortedList().stream().map(Order::getId).toList();
+        assertEquals(300, heap.size());
+
+        List<Long> drained = new ArrayList<>();
+        while (!heap.isEmpty()) {
+            drained.add(heap.removeById(heap.peek().getId()).getId());
+        }
+        assertEquals(drained, sorted);
+    }
+
+    @Test
+    void reprioritizeMovesOrderToTop() {
+        IndexedOrderHeap heap = new IndexedOrderHeap(VIP_FIRST);
+        for (long id = 1; id <= 20; id++) {
+            heap.add(order(id, (int) id, false));
+        }
+
+        heap.reprioritize(20L, o -> o.setVip(true));
+        assertEquals(20L, heap.peek().getId());
+
+        heap.reprioritize(20L, o -> o.setVip(false));
+        assertEquals(1L, heap.peek().getId());
+        assertNull(heap.reprioritize(99L, o -> o.setVip(true)));
+    }
+
+    @Test
+    void rebuiltHeapNeverReusesAnEtag() {
+        IndexedOrderHeap before = new IndexedOrderHeap(VIP_FIRST);
+        before.add(order(1, 10, false));
+        // The same workspace rebuilt after a takeover reaches the same version with different contents
+        IndexedOrderHeap after = new IndexedOrderHeap(VIP_FIRST);
+        after.add(order(2, 10, false));
+
+        assertEquals(before.getVersion(), after.getVersion());
+        assertNotEquals(before.getEpoch(), after.getEpoch());
+        assertNotEquals(before.snapshot().getEtag(), after.snapshot().getEtag());
+    }
+
+    @Test
+    void snapshotKeepsTheStateOfItsVersion() throws Exception {
+        IndexedOrderHeap heap = new IndexedOrderHeap(VIP_FIRST);
+        Order soup = order(1, 10, false);
+        soup.setDishName("Soup");
+        soup.setStatus(OrderStatus.QUEUED);
+        soup.setCustomerAllergies(new ArrayList<>(List.of("Nuts")));
+        heap.add(soup);
+        heap.add(order(2, 5, false));
+        QueueSnapshot snapshot = heap.snapshot();
+
+        // Same JSON as the entity the kitchen screens used to get
+        ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsString(soup)),
+                objectMapper.readTree(objectMapper.writeValueAsString(snapshot.getOrders().get(1))));
+
+        heap.reprioritize(1L, o -> o.setVip(true));
+        soup.getCustomerAllergies().add("Dairy");
+
+        assertEquals(List.of(2L, 1L), snapshot.getOrders().stream().map(OrderView::id).toList());
+        assertFalse(snapshot.getOrders().get(1).isVip());
+        assertEquals(List.of("Nuts"), snapshot.getOrders().get(1).customerAllergies());
+        assertTrue(heap.snapshot().getOrders().get(0).isVip());
+    }
+
+    @Test
+    void slotIndexMatchesAMapThroughGrowthAndRemovals() {
+        OrderSlotIndex index = new OrderSlotIndex();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            long id = random.nextInt(3_000) + 1;
+            if (random.nextInt(3) == 0) {
+                index.remove(id);
+                expected.remove(id);
+            } else {
+                index.put(id, i);
+                expected.put(id, i);
+            }
+        }
+        for (long id = 0; id <= 3_001; id++) {
+            assertEquals(expected.getOrDefault(id, -1), index.get(id));
+        }
+    }
+
+    @Test
+    void concurrentAddAndRemoveDoNotCorruptHeap() throws Exception {
+        IndexedOrderHeap heap = new IndexedOrderHeap(VIP_FIRST);
+        AtomicLong ids = new AtomicLong();
+        int threads = 8;
+        int perThread = 2_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        for (int t = 0; t < threads; t++) {
+            pool.submit(() -> {
+                start.await();
+                Random random = new Random();
+                for (int i = 0; i < perThread; i++) {
+                    long id = ids.incrementAndGet();
+                    heap.add(order(id, random.nextInt(1_000), false));
+                    if (i % 2 == 0) {
+                        heap.removeById(id);
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(threads * perThread / 2, heap.size());
+        Order previous = null;
+        while (!heap.isEmpty()) {
+            Order next = heap.removeById(heap.peek().getId());
+            if (previous != null) {
+                assertTrue(previous.compareTo(next) <= 0);
+            }
+            previous = next;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.chefsbrain.scheduling_engine.service.stations;
+
+import com.chefsbrain.scheduling_engine.model.Order;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StationBoardTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 18, 0);
+    private static final long NOW = TimeConversions.toEpochMillis(BASE);
+
+    private static Order order(long id, int table, int prepMinutes) {
+        Order order = new Order();
+        order.setId(id);
+        order.setTableNumber(table);
+        order.setPrepTimeMinutes(prepMinutes);
+        return order;
+    }
+
+    @Test
+    void ordersQueueBehindBusyStations() {
+        StationBoard board = new StationBoard(2);
+        Order first = order(1, 1, 10);
+        Order second = order(2, 2, 20);
+        Order third = order(3, 3, 5);
+        board.admit(first, NOW);
+        board.admit(second, NOW);
+        board.admit(third, NOW);
+
+        assertEquals(BASE, first.getProjectedStartTime());
+        assertEquals(BASE, second.getProjectedStartTime());
+        // Both stations busy: the third order waits for the one that frees first
+        assertEquals(first.getStationIndex(), third.getStationIndex());
+        assertEquals(BASE.plusMinutes(10), third.getProjectedStartTime());
+        assertEquals(BASE.plusMinutes(15), third.getProjectedFinishTime());
+        assertEquals(third.getProjectedFinishTime(), third.getCalculatedStartTime());
+    }
+
+    @Test
+    void dishesOfOneTableFinishTogether() {
+        StationBoard board = new StationBoard(3);
+        Order steak = order(1, 7, 20);
+        Order salad = order(2, 7, 5);
+        board.admit(steak, NOW);
+        board.admit(salad, NOW);
+
+        assertEquals(steak.getProjectedFinishTime(), salad.getProjectedFinishTime());
+        assertEquals(BASE.plusMinutes(15), salad.getProjectedStartTime());
+    }
+
+    @Test
+    void heldBackDishLeavesTheFreeStationToTheNextOrder() {
+        StationBoard board = new StationBoard(3);
+        Order steak = order(1, 7, 30);
+        Order pasta = order(2, 8, 20);
+        Order salad = order(3, 7, 10);
+        board.admit(steak, NOW);
+        board.admit(pasta, NOW);
+        board.admit(salad, NOW);
+
+        // The salad starts at 20 to finish with the steak, so it goes after the pasta
+        assertEquals(BASE.plusMinutes(20), salad.getProjectedStartTime());
+        assertEquals(pasta.getStationIndex(), salad.getStationIndex());
+
+        // The third station is still free for another table's order
+        Order soup = order(4, 9, 10);
+        board.admit(soup, NOW);
+        assertEquals(BASE, soup.getProjectedStartTime());
+        assertNotEquals(steak.getStationIndex(), soup.getStationIndex());
+        assertNotEquals(pasta.getStationIndex(), soup.getStationIndex());
+    }
+
+    @Test
+    void cancelledBookingsHandTheStationAndTableBack() {
+        StationBoard board = new StationBoard(1);
+        Order steak = order(1, 7, 20);
+        board.admit(steak, NOW);
+
+        // A ticket whose save failed: both dishes queue behind the steak, then are taken back
+        Order pie = order(2, 8, 15);
+        Order tart = order(3, 8, 10);
+        List<StationBoard.Booking> ticket = List.of(board.admit(pie, NOW), board.admit(tart, NOW));
+        board.cancel(ticket);
+
+        // The station is free again when the steak is done, and table 8 holds nothing back
+        Order soup = order(4, 8, 5);
+        board.admit(soup, NOW);
+        assertEquals(BASE.plusMinutes(20), soup.getProjectedStartTime());
+        assertEquals(BASE.plusMinutes(25), soup.getProjectedFinishTime());
+    }
+
+    @Test
+    void earlyCompletionFreesTheStation() {
+        StationBoard board = new StationBoard(1);
+        Order first = order(1, 1, 30);
+        board.admit(first, NOW);
+
+        board.release(first, NOW + 10 * 60_000L);
+        Order next = order(2, 2, 5);
+        board.admit(next, NOW + 10 * 60_000L);
+
+        assertEquals(BASE.plusMinutes(10), next.getProjectedStartTime());
+    }
+
+    @Test
+    void undoneCompletionKeepsTheTableCountRight() {
+        StationBoard board = new StationBoard(3);
+        Order steak = order(1, 7, 20);
+        Order salad = order(2, 7, 20);
+        board.admit(steak, NOW);
+        board.admit(salad, NOW);
+
+        // Complete, undo, complete again: the salad is still open, so the table keeps its finish time
+        board.release(steak, NOW + 60_000L);
+        board.restore(steak);
+        board.release(steak, NOW + 120_000L);
+
+        Order fries = order(3, 7, 5);
+        board.admit(fries, NOW + 120_000L);
+        assertEquals(BASE.plusMinutes(20), fries.getProjectedFinishTime());
+
+        // Once the last open dish is done the table no longer holds new dishes back
+        board.release(salad, NOW + 180_000L);
+        board.release(fries, NOW + 180_000L);
+        Order dessert = order(4, 7, 5);
+        board.admit(dessert, NOW + 180_000L);
+        assertEquals(BASE.plusMinutes(8), dessert.getProjectedFinishTime());
+    }
+}
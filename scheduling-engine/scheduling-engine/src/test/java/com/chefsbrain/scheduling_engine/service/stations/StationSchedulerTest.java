@@ -0,0 +1,41 @@
+package com.chefsbrain.scheduling_engine.service.stations;
+
+import com.chefsbrain.scheduling_engine.model.Order;
+import com.chefsbrain.scheduling_engine.repository.WorkspaceRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class StationSchedulerTest {
+
+    private static Order order(int table, int prepMinutes) {
+        Order order = new Order();
+        order.setWorkspaceId(1L);
+        order.setTableNumber(table);
+        order.setPrepTimeMinutes(prepMinutes);
+        return order;
+    }
+
+    @Test
+    void ticketIsFiredToFinishWithItsSlowestDish() {
+        WorkspaceRepository repository = mock(WorkspaceRepository.class);
+        when(repository.findById(any())).thenReturn(Optional.empty());
+        StationScheduler scheduler = new StationScheduler(repository, 3);
+
+        // Punched in fastest first; booked one at a time, the salad would be fired straight away
+        Order salad = order(4, 5);
+        Order pasta = order(4, 12);
+        Order steak = order(4, 20);
+        scheduler.admitTicket(1L, List.of(salad, pasta, steak));
+
+        assertEquals(steak.getProjectedFinishTime(), salad.getProjectedFinishTime());
+        assertEquals(steak.getProjectedFinishTime(), pasta.getProjectedFinishTime());
+        assertEquals(steak.getProjectedFinishTime().minusMinutes(5), salad.getProjectedStartTime());
+        assertNotNull(salad.getStationIndex());
+    }
+}